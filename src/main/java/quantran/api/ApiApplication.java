@@ -3,8 +3,11 @@ package quantran.api;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
 
-@EnableCaching
+// Caching wraps the transaction advice, so hits skip the transaction and background cache
+// refreshes still run the loader inside one
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
 @SpringBootApplication
 public class ApiApplication {
 
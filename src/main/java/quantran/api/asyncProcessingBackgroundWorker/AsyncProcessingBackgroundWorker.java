@@ -3,6 +3,7 @@ package quantran.api.asyncProcessingBackgroundWorker;
 import quantran.api.asyncProcessingBackgroundWorker.task.Task;
 
 public interface AsyncProcessingBackgroundWorker {
+    void checkCapacity();
     void addToRequestQueue(Task task);
     void addToResultQueue(String status);
     Task getFromRequestQueue();
@@ -0,0 +1,139 @@
+package quantran.api.asyncProcessingBackgroundWorker.batch;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import quantran.api.dto.BookRequestDto;
+import quantran.api.dto.BookWriteDto;
+import quantran.api.service.BookService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Groups the book writes of concurrently running tasks into batches applied by
+ * {@link BookService#writeBooks(List)}, so a burst of updates costs one transaction and a
+ * few JDBC batches instead of a transaction per task.
+ *
+ * <p>A batch is applied once it reaches the maximum size, or when the first write in it has
+ * waited for the linger time. Each write gets its own outcome: its future completes with
+ * {@code null} when applied, with the rejection message when validation rejected it, or
+ * exceptionally when the database failed. If a batch fails as a whole, its writes are applied
+ * one by one, so a single bad write only fails its own task.
+ */
+@Component
+@Log4j2
+public class BookWriteBatcher {
+
+    private final BookService bookService;
+    private final Executor updateExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final int maxBatchSize;
+    private final long lingerMs;
+    private final AtomicLong keys = new AtomicLong();
+    private final Object lock = new Object();
+    private List<PendingWrite> pending = new ArrayList<>();
+
+    public BookWriteBatcher(BookService bookService,
+                            @Qualifier("taskUpdateExecutor") Executor updateExecutor,
+                            @Qualifier("taskPipelineScheduler") ScheduledExecutorService scheduler,
+                            @Value("${app.task-pipeline.write-batch-size:50}") int maxBatchSize,
+                            @Value("${app.task-pipeline.write-linger-ms:20}") long lingerMs) {
+        this.bookService = bookService;
+        this.updateExecutor = updateExecutor;
+        this.scheduler = scheduler;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMs = lingerMs;
+    }
+
+    /**
+     * Queue a write for the next batch.
+     * @return Completes with {@code null} once applied, or with the reason it was rejected
+     */
+    public CompletableFuture<String> submit(BookWriteDto.Operation operation, BookRequestDto request) {
+        PendingWrite write = new PendingWrite(new BookWriteDto(String.valueOf(keys.incrementAndGet()), operation, request));
+        List<PendingWrite> full = null;
+        boolean first;
+        synchronized (lock) {
+            pending.add(write);
+            first = pending.size() == 1;
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        } else if (first) {
+            try {
+                scheduler.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+        return write.outcome;
+    }
+
+    /**
+     * Apply whatever is pending now. A flush scheduled for a batch that already filled up
+     * applies the next, partial one early, which is harmless.
+     */
+    void flush() {
+        List<PendingWrite> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    private List<PendingWrite> takePending() {
+        List<PendingWrite> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void dispatch(List<PendingWrite> batch) {
+        try {
+            updateExecutor.execute(() -> apply(batch));
+        } catch (RejectedExecutionException e) {
+            batch.forEach(write -> write.outcome.completeExceptionally(e));
+        }
+    }
+
+    private void apply(List<PendingWrite> batch) {
+        List<BookWriteDto> writes = new ArrayList<>(batch.size());
+        batch.forEach(write -> writes.add(write.write));
+        Map<String, String> rejected;
+        try {
+            rejected = bookService.writeBooks(writes);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).outcome.completeExceptionally(e);
+                return;
+            }
+            log.warn("Batch of {} book writes failed, applying them one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(write -> apply(Collections.singletonList(write)));
+            return;
+        }
+        batch.forEach(write -> write.outcome.complete(rejected.get(write.write.getKey())));
+    }
+
+    private static final class PendingWrite {
+        private final BookWriteDto write;
+        private final CompletableFuture<String> outcome = new CompletableFuture<>();
+
+        private PendingWrite(BookWriteDto write) {
+            this.write = write;
+        }
+    }
+}
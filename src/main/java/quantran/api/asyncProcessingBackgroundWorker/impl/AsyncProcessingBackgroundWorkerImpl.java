@@ -1,117 +1,345 @@
 package quantran.api.asyncProcessingBackgroundWorker.impl;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import quantran.api.asyncProcessingBackgroundWorker.AsyncProcessingBackgroundWorker;
+import quantran.api.asyncProcessingBackgroundWorker.queue.DatabaseTaskQueue;
+import quantran.api.asyncProcessingBackgroundWorker.queue.DatabaseTaskQueue.ClaimedTask;
 import quantran.api.asyncProcessingBackgroundWorker.task.Task;
+import quantran.api.exception.WorkQueueFullException;
 import quantran.api.service.TaskService;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
+/**
+ * Runs tasks from the shared {@link DatabaseTaskQueue} as asynchronous pipelines.
+ *
+ * <p>A dispatcher thread claims batches from the database into a small local queue whenever
+ * it has room, so a node only holds the tasks it is about to run. Submitting a task wakes the
+ * dispatcher; otherwise it polls at the configured interval, which is also how tasks submitted
+ * on other nodes, retries and tasks of crashed nodes are picked up. Leases of held tasks are
+ * renewed on a schedule. New submissions are rejected with {@link WorkQueueFullException}
+ * (429) once the pending backlog across all nodes reaches the configured limit.
+ *
+ * <p>A worker thread starts queued tasks with {@link TaskService#runTaskAsync(Task)} and
+ * does not wait for them, so tasks waiting on external calls hold no thread; the number of
+ * started, unfinished tasks is capped instead. A task that fails is retried with backoff or
+ * dead-lettered by the queue. On shutdown the dispatcher stops, unstarted tasks are released
+ * to other nodes, and running tasks get up to the configured timeout to finish.
+ *
+ * <p>Metrics: {@code worker.queue.depth}, {@code worker.in-flight}, {@code worker.queue.backlog},
+ * {@code worker.queue.wait} (claim to start), {@code worker.service.time} (tagged with the
+ * outcome) and {@code worker.queue.rejected}.
+ */
 @Log4j2
 @Service
 public class AsyncProcessingBackgroundWorkerImpl implements AsyncProcessingBackgroundWorker {
+    private static final long POLL_TIMEOUT_MS = 500;
+
     private final TaskService taskService;
+    private final DatabaseTaskQueue taskQueue;
+    private final int maxInFlight;
+    private final int claimBatchSize;
+    private final long pollIntervalMs;
+    private final long maxBacklog;
+    private final long shutdownTimeoutMs;
     private final ExecutorService executorService;
-    private static final int WORKER_COUNT = 2;
-    private Queue<Task> requestQueue = new ConcurrentLinkedQueue<>();
-    private Queue<String> resultQueue = new ConcurrentLinkedQueue<>();
-    private final Object LOCK = new Object();
-    private volatile boolean workersStarted = false;
+    private final ExecutorService resultExecutor;
+    private final ExecutorService dispatcher;
+    private final Semaphore inFlight;
+    private final BlockingQueue<QueuedTask> requestQueue;
+    private final Map<String, ClaimedTask> heldTasks = new ConcurrentHashMap<>();
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final Queue<String> resultQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean workersStarted = new AtomicBoolean(false);
     private final AtomicBoolean shutdownRequested = new AtomicBoolean(false);
+    private volatile long backlog;
 
-    public void addToRequestQueue(Task task) {
-        if (shutdownRequested.get()) {
-            log.warn("Cannot add task to queue - shutdown requested");
-            return;
-        }
-        requestQueue.add(task);
-        if (!workersStarted) {
-            startWorkers();
+    private final Timer queueWait;
+    private final Timer serviceTimeSucceeded;
+    private final Timer serviceTimeFailed;
+    private final Counter rejected;
+
+    public AsyncProcessingBackgroundWorkerImpl(TaskService taskService, DatabaseTaskQueue taskQueue,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${app.worker.count:2}") int resultThreads,
+                                               @Value("${app.worker.max-in-flight:50}") int maxInFlight,
+                                               @Value("${app.worker.queue-capacity:20}") int queueCapacity,
+                                               @Value("${app.worker.claim-batch-size:10}") int claimBatchSize,
+                                               @Value("${app.worker.poll-interval-ms:1000}") long pollIntervalMs,
+                                               @Value("${app.worker.max-backlog:1000}") long maxBacklog,
+                                               @Value("${app.worker.shutdown-timeout-ms:30000}") long shutdownTimeoutMs) {
+        this.taskService = taskService;
+        this.taskQueue = taskQueue;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.claimBatchSize = claimBatchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxBacklog = maxBacklog;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.requestQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executorService = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("AsyncWorker-"));
+        this.resultExecutor = Executors.newFixedThreadPool(resultThreads, new CustomizableThreadFactory("AsyncWorkerResult-"));
+        this.dispatcher = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("AsyncDispatcher-"));
+
+        Gauge.builder("worker.queue.depth", requestQueue, Queue::size)
+                .description("Claimed tasks waiting for a background worker on this node")
+                .register(meterRegistry);
+        Gauge.builder("worker.in-flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                .description("Tasks started on this node and not yet finished")
+                .register(meterRegistry);
+        Gauge.builder("worker.queue.backlog", this, worker -> worker.backlog)
+                .description("Pending tasks in the shared queue, across all nodes")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("worker.queue.wait")
+                .description("Time a task waits in the queue before a worker starts it")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.serviceTimeSucceeded = serviceTimer(meterRegistry, "success");
+        this.serviceTimeFailed = serviceTimer(meterRegistry, "error");
+        this.rejected = Counter.builder("worker.queue.rejected")
+                .description("Tasks rejected because the backlog was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws WorkQueueFullException if the shared backlog is at its limit
+     */
+    public void checkCapacity() {
+        if (backlog >= maxBacklog) {
+            rejected.increment();
+            log.warn("Rejecting task - shared backlog is full ({} pending tasks)", backlog);
+            throw new WorkQueueFullException("Too many queued tasks, please retry later", 1);
         }
     }
+
+    /**
+     * Signal that a task was stored as pending. The task itself is claimed from the database,
+     * by this node or another one.
+     */
+    public void addToRequestQueue(Task task) {
+        wakeUp.release();
+    }
     public void addToResultQueue(String status) {
         resultQueue.add(status);
     }
     public Task getFromRequestQueue() {
-        return requestQueue.poll();
+        QueuedTask queued = requestQueue.poll();
+        return queued != null ? queued.claimed.getTask() : null;
     }
     public String getFromResultQueue() {
         return resultQueue.poll();
     }
 
-    public AsyncProcessingBackgroundWorkerImpl(TaskService taskService) {
-        this.executorService = Executors.newFixedThreadPool(WORKER_COUNT);
-        this.taskService = taskService;
-    }
+    @PostConstruct
     public void startWorkers() {
-        for (int i = 0; i < WORKER_COUNT; i++) {
-            final int workerId = i;
-            executorService.execute(() -> {
-                log.info("Worker {} started", workerId);
-                while (!shutdownRequested.get()) {
-                    Task task;
-                    synchronized (LOCK) {
-                        task = getFromRequestQueue();
-                        while (task == null && !shutdownRequested.get()) {
-                            // No task available, wait for notification
-                            waiting(1000);
-                            task = getFromRequestQueue();
-                        }
-                    }
+        if (!workersStarted.compareAndSet(false, true)) {
+            return;
+        }
+        executorService.execute(this::runWorker);
+        dispatcher.execute(this::runDispatcher);
+        log.info("Started background worker on node {}, up to {} tasks in flight, local queue capacity {}",
+                taskQueue.getNodeId(), maxInFlight, requestQueue.remainingCapacity() + requestQueue.size());
+    }
 
-                    if (task != null) {
-                        try {
-                            log.info("Worker {} processing task: {}", workerId, task.getRequest());
-                            taskService.runTask(task);
-                            log.info("Worker {} completed task: {}", workerId, task.getRequest());
-                        } catch (Exception e) {
-                            log.error("Worker {} failed to process task: {}", workerId, task.getRequest(), e);
-                            // Add error status to result queue
-                            addToResultQueue("ERROR: " + e.getMessage());
-                        }
+    private void runDispatcher() {
+        while (!shutdownRequested.get()) {
+            int room = Math.min(claimBatchSize, requestQueue.remainingCapacity());
+            int claimed = 0;
+            try {
+                if (room > 0) {
+                    for (ClaimedTask task : taskQueue.claim(room)) {
+                        heldTasks.put(task.getTask().getId(), task);
+                        // Only this thread adds to the queue, so the room checked above is still there
+                        requestQueue.add(new QueuedTask(task, System.nanoTime()));
+                        claimed++;
                     }
                 }
-                log.info("Worker {} stopped", workerId);
-            });
+            } catch (RuntimeException e) {
+                log.error("Failed to claim tasks", e);
+            }
+            if (claimed == room && room > 0) {
+                // A full batch suggests more are waiting
+                continue;
+            }
+            try {
+                wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.info("Dispatcher stopped");
+    }
+
+    /**
+     * Start queued tasks while fewer than the in-flight limit are running. Starting a task does
+     * not wait for it; its outcome is recorded on the result threads when its pipeline completes.
+     */
+    private void runWorker() {
+        log.info("Worker started");
+        while (!shutdownRequested.get()) {
+            try {
+                if (!inFlight.tryAcquire(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                QueuedTask queued = requestQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (queued == null) {
+                    inFlight.release();
+                    continue;
+                }
+                start(queued);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
         }
-        workersStarted = true;
+        log.info("Worker stopped");
     }
 
-    public void shutdown() {
-        log.info("Shutting down background workers...");
-        shutdownRequested.set(true);
-        
-        // Wait for all tasks to complete
+    private void start(QueuedTask queued) {
+        // Wake the dispatcher to refill the slot
+        wakeUp.release();
+
+        Task task = queued.claimed.getTask();
+        long startedAt = System.nanoTime();
+        queueWait.record(startedAt - queued.enqueuedAt, TimeUnit.NANOSECONDS);
+        log.info("Starting task: {} {} (attempt {})", task.getRequest(), task.getId(), queued.claimed.getAttempt());
+        CompletableFuture<Void> run;
         try {
-            Thread.sleep(5000); // Wait up to 5 seconds for tasks to complete
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            run = taskService.runTaskAsync(task);
+        } catch (RuntimeException e) {
+            run = new CompletableFuture<>();
+            run.completeExceptionally(e);
         }
-        
+        // Off the pipeline threads: recording the outcome writes to the database
+        run.whenCompleteAsync((ignored, error) -> finish(queued, startedAt, error), resultExecutor);
+    }
+
+    private void finish(QueuedTask queued, long startedAt, Throwable error) {
+        Task task = queued.claimed.getTask();
+        try {
+            if (error == null) {
+                serviceTimeSucceeded.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                taskQueue.complete(task.getId());
+                log.info("Completed task: {} {}", task.getRequest(), task.getId());
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            serviceTimeFailed.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            log.error("Failed to process task: {} {}", task.getRequest(), task.getId(), cause);
+            // Add error status to result queue
+            addToResultQueue("ERROR: " + cause.getMessage());
+            taskQueue.fail(queued.claimed, cause);
+        } catch (RuntimeException e) {
+            // The lease expires and the task is claimed again
+            log.error("Failed to record the outcome of task {}", task.getId(), e);
+        } finally {
+            heldTasks.remove(task.getId());
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Keep the leases of queued and running tasks from expiring.
+     */
+    @Scheduled(fixedDelayString = "${app.worker.heartbeat-ms:20000}")
+    public void renewLeases() {
+        try {
+            taskQueue.renewLeases(new ArrayList<>(heldTasks.keySet()));
+        } catch (RuntimeException e) {
+            log.error("Failed to renew {} task leases", heldTasks.size(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.worker.poll-interval-ms:1000}")
+    public void refreshBacklog() {
+        try {
+            backlog = taskQueue.countPending();
+        } catch (RuntimeException e) {
+            log.warn("Failed to count pending tasks: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!shutdownRequested.compareAndSet(false, true)) {
+            return;
+        }
+        dispatcher.shutdownNow();
         executorService.shutdown();
+
+        // Hand unstarted tasks to the other nodes instead of running them here
+        List<QueuedTask> unstarted = new ArrayList<>();
+        requestQueue.drainTo(unstarted);
+        List<ClaimedTask> released = new ArrayList<>(unstarted.size());
+        unstarted.forEach(queued -> {
+            released.add(queued.claimed);
+            heldTasks.remove(queued.claimed.getTask().getId());
+        });
+        try {
+            taskQueue.release(released);
+        } catch (RuntimeException e) {
+            log.error("Failed to release {} tasks; they are reclaimed when their leases expire", released.size(), e);
+        }
+        log.info("Shutting down background workers, released {} queued tasks, waiting for {} running tasks...",
+                released.size(), heldTasks.size());
+
         try {
-            if (!executorService.awaitTermination(10, java.util.concurrent.TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
+            executorService.awaitTermination(POLL_TIMEOUT_MS * 2, TimeUnit.MILLISECONDS);
+            // Every permit back means every started task has recorded its outcome
+            if (!inFlight.tryAcquire(maxInFlight, shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Running tasks did not finish within {} ms; {} tasks are reclaimed when their leases expire",
+                        shutdownTimeoutMs, heldTasks.size());
             }
         } catch (InterruptedException e) {
-            executorService.shutdownNow();
             Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdownNow();
+            resultExecutor.shutdownNow();
         }
         log.info("Background workers shutdown complete");
     }
 
-    // Simulate command execution with a delay
-    private void waiting(int time) {
-        try {
-            Thread.sleep(time);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    private static Timer serviceTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("worker.service.time")
+                .description("Time a worker spends running a task")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private static final class QueuedTask {
+        private final ClaimedTask claimed;
+        private final long enqueuedAt;
+
+        private QueuedTask(ClaimedTask claimed, long enqueuedAt) {
+            this.claimed = claimed;
+            this.enqueuedAt = enqueuedAt;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,280 @@
+package quantran.api.asyncProcessingBackgroundWorker.queue;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import quantran.api.asyncProcessingBackgroundWorker.task.Task;
+import quantran.api.dto.AsyncTaskRequest;
+import quantran.api.dto.BookImportJobDto;
+import quantran.api.entity.AsyncTaskEntity;
+import quantran.api.importer.ImportFileStore;
+import quantran.api.model.BookModel;
+import quantran.api.repository.AsyncTaskRepository;
+import quantran.api.service.AsyncTaskService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Work queue shared by all nodes, stored in the {@code async_tasks} table.
+ *
+ * <p>A claim locks due pending tasks (and running tasks whose lease expired) with
+ * {@code FOR UPDATE SKIP LOCKED}, so concurrent claimers on any node get disjoint batches,
+ * and marks them running under a lease owned by this node. The owner renews its leases
+ * while tasks run; a node that dies stops renewing and its tasks become claimable again.
+ *
+ * <p>A failed attempt is retried after an exponential backoff; after the last attempt the
+ * task is moved to {@code DEAD_LETTER}. Status changes that clients see go through
+ * {@link AsyncTaskService} so they stay consistent with its cached copy. The stored status
+ * is written here, in the same conditional UPDATE that releases the lease, so a node dying
+ * at any point leaves the task either finished or claimable.
+ */
+@Component
+@Log4j2
+public class DatabaseTaskQueue {
+
+    private final AsyncTaskRepository asyncTaskRepository;
+    private final AsyncTaskService asyncTaskService;
+    private final ObjectMapper objectMapper;
+    private final ImportFileStore importFileStore;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Duration leaseDuration;
+    private final int maxAttempts;
+    private final Duration backoffBase;
+    private final Duration backoffMax;
+
+    public DatabaseTaskQueue(AsyncTaskRepository asyncTaskRepository, AsyncTaskService asyncTaskService,
+                             ObjectMapper objectMapper, ImportFileStore importFileStore,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.worker.lease-ms:60000}") long leaseMs,
+                             @Value("${app.worker.max-attempts:5}") int maxAttempts,
+                             @Value("${app.worker.backoff-base-ms:2000}") long backoffBaseMs,
+                             @Value("${app.worker.backoff-max-ms:300000}") long backoffMaxMs) {
+        this.asyncTaskRepository = asyncTaskRepository;
+        this.asyncTaskService = asyncTaskService;
+        this.objectMapper = objectMapper;
+        this.importFileStore = importFileStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leaseDuration = Duration.ofMillis(leaseMs);
+        this.maxAttempts = maxAttempts;
+        this.backoffBase = Duration.ofMillis(backoffBaseMs);
+        this.backoffMax = Duration.ofMillis(backoffMaxMs);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Duration getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    /**
+     * Claim up to {@code limit} tasks for this node.
+     */
+    public List<ClaimedTask> claim(int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<AsyncTaskEntity> locked = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<AsyncTaskEntity> tasks = asyncTaskRepository.lockClaimableTasks(now, limit);
+            if (!tasks.isEmpty()) {
+                asyncTaskRepository.claimTasks(tasks.stream().map(AsyncTaskEntity::getTaskId).collect(Collectors.toList()),
+                        nodeId, now.plus(leaseDuration));
+            }
+            return tasks;
+        });
+
+        List<ClaimedTask> claimed = new ArrayList<>(locked.size());
+        for (AsyncTaskEntity entity : locked) {
+            int attempt = (entity.getAttempts() != null ? entity.getAttempts() : 0) + 1;
+            Task task = toTask(entity);
+            if (task == null) {
+                deadLetter(entity.getTaskId(), "Unsupported task: " + entity.getRequestType());
+                continue;
+            }
+            claimed.add(new ClaimedTask(task, attempt));
+        }
+        return claimed;
+    }
+
+    /**
+     * Extend the leases of tasks this node has claimed and not yet finished.
+     */
+    public void renewLeases(Collection<String> taskIds) {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        int renewed = transactionTemplate.execute(status ->
+                asyncTaskRepository.renewLeases(taskIds, nodeId, LocalDateTime.now().plus(leaseDuration)));
+        if (renewed < taskIds.size()) {
+            log.warn("Renewed {} of {} task leases; the others were reclaimed or finished", renewed, taskIds.size());
+        }
+    }
+
+    /**
+     * Record that an attempt finished: store the outcome reported to the task service, or
+     * {@code COMPLETED} if none was, and release the lease.
+     */
+    public void complete(String taskId) {
+        asyncTaskService.getTaskStatus(taskId)
+                .filter(task -> !isFinished(task.getStatus()))
+                .ifPresent(task -> asyncTaskService.updateTaskStatus(taskId, AsyncTaskRequest.TaskStatus.COMPLETED,
+                        task.getResult()));
+        finish(taskId);
+    }
+
+    /**
+     * Record a failed attempt: schedule a retry, or dead-letter the task after the last attempt.
+     */
+    public void fail(ClaimedTask claimed, Throwable error) {
+        String taskId = claimed.getTask().getId();
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        if (claimed.getAttempt() >= maxAttempts) {
+            log.error("Task {} failed on attempt {} of {}, dead-lettering it", taskId, claimed.getAttempt(), maxAttempts);
+            deadLetter(taskId, "Failed after " + claimed.getAttempt() + " attempts: " + message);
+            // No attempt will read the uploaded file again
+            BookImportJobDto importJob = claimed.getTask().getImportJob();
+            if (importJob != null) {
+                importFileStore.delete(importJob);
+            }
+            return;
+        }
+        Duration delay = backoff(claimed.getAttempt());
+        String result = "Attempt " + claimed.getAttempt() + " failed, retrying in " + delay.getSeconds() + "s: " + message;
+        log.warn("Task {} failed on attempt {} of {}, retrying in {} ms", taskId, claimed.getAttempt(), maxAttempts,
+                delay.toMillis());
+        asyncTaskService.updateTaskStatus(taskId, AsyncTaskRequest.TaskStatus.PENDING, result);
+        transactionTemplate.execute(status ->
+                asyncTaskRepository.releaseTask(taskId, nodeId, LocalDateTime.now().plus(delay), result));
+    }
+
+    /**
+     * Give unstarted tasks back to the queue immediately, e.g. on shutdown, without using an attempt.
+     */
+    public void release(Collection<ClaimedTask> tasks) {
+        for (ClaimedTask claimed : tasks) {
+            String taskId = claimed.getTask().getId();
+            transactionTemplate.execute(status ->
+                    asyncTaskRepository.releaseTask(taskId, nodeId, LocalDateTime.now(), "Released by stopping node"));
+        }
+    }
+
+    /**
+     * Tasks waiting to be claimed by any node, including those backing off before a retry.
+     */
+    public long countPending() {
+        return asyncTaskRepository.countByStatus(AsyncTaskEntity.TaskStatus.PENDING);
+    }
+
+    /**
+     * Backoff before the retry following {@code attempt}: base * 2^(attempt - 1), capped.
+     */
+    Duration backoff(int attempt) {
+        int shift = Math.min(Math.max(attempt - 1, 0), 30);
+        long millis = backoffBase.toMillis() * (1L << shift);
+        return millis <= 0 || millis > backoffMax.toMillis() ? backoffMax : Duration.ofMillis(millis);
+    }
+
+    private void deadLetter(String taskId, String result) {
+        asyncTaskService.updateTaskStatus(taskId, AsyncTaskRequest.TaskStatus.DEAD_LETTER, result);
+        finish(taskId);
+    }
+
+    /**
+     * Write the finished state the task service holds for a task, and clear the lease with it.
+     */
+    private void finish(String taskId) {
+        AsyncTaskRequest task = asyncTaskService.getTaskStatus(taskId).orElse(null);
+        if (task == null) {
+            log.warn("Task {} finished but no longer exists", taskId);
+            return;
+        }
+        LocalDateTime completedAt = task.getCompletedAt() != null ? task.getCompletedAt() : LocalDateTime.now();
+        int updated = transactionTemplate.execute(status -> asyncTaskRepository.finishTask(taskId, nodeId,
+                AsyncTaskEntity.TaskStatus.valueOf(task.getStatus().name()), task.getResult(), completedAt,
+                task.getProgress()));
+        if (updated == 0) {
+            log.warn("Task {} finished as {}, but its lease was lost; the outcome was not stored", taskId, task.getStatus());
+        }
+    }
+
+    private static boolean isFinished(AsyncTaskRequest.TaskStatus status) {
+        return status == AsyncTaskRequest.TaskStatus.COMPLETED
+                || status == AsyncTaskRequest.TaskStatus.FAILED
+                || status == AsyncTaskRequest.TaskStatus.TIMEOUT
+                || status == AsyncTaskRequest.TaskStatus.CANCELLED
+                || status == AsyncTaskRequest.TaskStatus.DEAD_LETTER;
+    }
+
+    /**
+     * Rebuild the worker task from a stored row; {@code null} if the row cannot be run.
+     */
+    private Task toTask(AsyncTaskEntity entity) {
+        String request = commandFor(entity.getRequestType());
+        if (request == null || entity.getData() == null) {
+            return null;
+        }
+        try {
+            if ("import".equals(request)) {
+                return new Task(request, entity.getTaskId(), objectMapper.readValue(entity.getData(), BookImportJobDto.class));
+            }
+            return new Task(request, entity.getTaskId(), objectMapper.readValue(entity.getData(), BookModel.class));
+        } catch (JsonProcessingException e) {
+            log.error("Task {} has unreadable data: {}", entity.getTaskId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Map the stored request type (e.g. {@code update_book}) to the worker command.
+     */
+    private static String commandFor(String requestType) {
+        if (requestType == null) {
+            return null;
+        }
+        switch (requestType) {
+            case "update_book":
+                return "update";
+            case "add_book":
+                return "add";
+            case "import_books":
+                return "import";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * A task claimed by this node, with the number of the attempt it is on.
+     */
+    public static final class ClaimedTask {
+        private final Task task;
+        private final int attempt;
+
+        public ClaimedTask(Task task, int attempt) {
+            this.task = task;
+            this.attempt = attempt;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+    }
+}
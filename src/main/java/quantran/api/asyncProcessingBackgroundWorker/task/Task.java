@@ -1,10 +1,12 @@
 package quantran.api.asyncProcessingBackgroundWorker.task;
 
+import quantran.api.dto.BookImportJobDto;
 import quantran.api.model.BookModel;
 
 public class Task {
     private String request;
     private BookModel bookModel;
+    private BookImportJobDto importJob;
     private String id;
     public Task(String request, String id) {
         this.request = request;
@@ -15,6 +17,11 @@ public class Task {
         this.request = request;
         this.bookModel = bookModel;
     }
+    public Task(String request, String id, BookImportJobDto importJob) {
+        this.id = id;
+        this.request = request;
+        this.importJob = importJob;
+    }
     public String getId() {
         return id;
     }
@@ -33,6 +40,12 @@ public class Task {
     public void setBookModel(BookModel bookModel) {
         this.bookModel = bookModel;
     }
+    public BookImportJobDto getImportJob() {
+        return importJob;
+    }
+    public void setImportJob(BookImportJobDto importJob) {
+        this.importJob = importJob;
+    }
 
 }
 
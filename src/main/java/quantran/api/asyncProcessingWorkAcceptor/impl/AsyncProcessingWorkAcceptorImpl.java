@@ -5,15 +5,14 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
 import quantran.api.asyncProcessingWorkAcceptor.AsyncProcessingWorkAcceptor;
 import quantran.api.model.UserModel;
-import quantran.api.repository.UserRepository;
-import quantran.api.entity.UserEntity;
+import quantran.api.security.UserKeyDigests;
 
 @Component
 @Log4j2
 @RequiredArgsConstructor
 public class AsyncProcessingWorkAcceptorImpl implements AsyncProcessingWorkAcceptor {
     
-    private final UserRepository userRepository;
+    private final UserKeyDigests userKeyDigests;
     
     @Override
     public String[] acceptWork(UserModel userModel) {
@@ -33,17 +32,18 @@ public class AsyncProcessingWorkAcceptorImpl implements AsyncProcessingWorkAccep
             return requestStatus;
         }
 
-        // Perform authorization checks with the key value
+        // Perform authorization checks with the key value; the key digest is cached, so this
+        // usually needs no database query
         try {
-            UserEntity userEntity = userRepository.findByUserName(userName);
-            if (userEntity == null) {
+            String keyDigest = userKeyDigests.findKeyDigest(userName);
+            if (keyDigest == null) {
                 requestStatus[0] = "404";
                 requestStatus[1] = "Not Found: User not found";
                 return requestStatus;
             }
             
             // Verify the user key matches (in a real implementation, this would be a proper token validation)
-            if (!key.equals(userEntity.getKey())) {
+            if (!UserKeyDigests.matches(key, keyDigest)) {
                 requestStatus[0] = "401";
                 requestStatus[1] = "Unauthorized: Invalid user key";
                 return requestStatus;
@@ -52,7 +52,7 @@ public class AsyncProcessingWorkAcceptorImpl implements AsyncProcessingWorkAccep
             String requestId = java.util.UUID.randomUUID().toString();
             requestStatus[0] = "200"; // Success
             requestStatus[1] = requestId;
-            log.info("Authorization successful for user: {}", userName);
+            log.debug("Authorization successful for user: {}", userName);
             return requestStatus;
             
         } catch (Exception e) {
@@ -1,10 +1,17 @@
 package quantran.api.business;
 
+import quantran.api.entity.BookEntity;
 import quantran.api.model.BookModel;
+import quantran.api.page.CursorPage;
+import quantran.api.page.FacetedPage;
 import quantran.api.page.Paginate;
 import quantran.api.entity.BookTypeEntity;
+import quantran.api.search.FacetDimension;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
+import java.util.Map;
 
 public interface BookBusiness {
 
@@ -13,9 +20,17 @@ public interface BookBusiness {
     default Paginate<BookModel> getBook(String searchId, String searchName, String searchAuthor, String searchGenre, String searchPublisher, int page, int pageSize) {
         return null;
     }
-    default String downloadBook(){
+    default CursorPage<BookEntity> getBookByCursor(String cursor, int pageSize, String sort) {
         return null;
-    };
+    }
+    default List<BookEntity> searchBooks(String query, int limit) {
+        return null;
+    }
+    default FacetedPage<BookEntity> getBookFaceted(String searchTitle, String searchAuthor, Map<FacetDimension, List<String>> selected,
+                                                   int page, int pageSize, int facetLimit) {
+        return null;
+    }
+    default void exportBooks(Writer writer) throws IOException {}
     default void uploadBook(List<BookModel> bookModels){};
     default void addBook(BookModel bookModel) {}
     default void delBook(String delId) {}
@@ -2,6 +2,12 @@ package quantran.api.business;
 
 import quantran.api.entity.UserEntity;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface UserBusiness {
-    String login(UserEntity userEntity, String key);
+    /**
+     * Check the user's password and return the user's key, or {@code null} if the login
+     * fails. The password is checked on the password hashing executor.
+     */
+    CompletableFuture<String> login(UserEntity userEntity, String key);
 }
@@ -5,28 +5,65 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import quantran.api.repository.BookRepository;
+import quantran.api.repository.BookRepositoryOptimized;
 import quantran.api.repository.BookTypeRepository;
 import quantran.api.entity.BookTypeEntity;
 import quantran.api.business.BookBusiness;
 import quantran.api.entity.BookEntity;
+import quantran.api.event.BookChangedEvent;
+import quantran.api.event.BookSnapshot;
+import quantran.api.importer.CsvWriter;
 import quantran.api.model.BookModel;
+import quantran.api.page.CursorPage;
+import quantran.api.page.CursorToken;
+import quantran.api.page.FacetedPage;
 import quantran.api.page.Paginate;
 import quantran.api.exception.BookNotFoundException;
 import quantran.api.exception.DuplicateBookException;
+import quantran.api.exception.ServiceUnavailableException;
+import quantran.api.search.BookFacetIndex;
+import quantran.api.search.BookSearchIndex;
+import quantran.api.search.FacetCount;
+import quantran.api.search.FacetDimension;
+import quantran.api.search.FacetIndex;
+import quantran.api.search.TrigramIndex;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Log4j2
 @RequiredArgsConstructor
 @Transactional
 public class BookBusinessImpl implements BookBusiness {
+    public static final String SORT_BY_ID = "id";
+    public static final String SORT_BY_PUBLICATION_DATE = "publicationDate";
+    private static final long FACET_INDEX_RETRY_AFTER_SECONDS = 5;
+    
     private final BookRepository bookRepository;
+    private final BookRepositoryOptimized bookRepositoryOptimized;
     private final BookTypeRepository bookTypeRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookFacetIndex bookFacetIndex;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Override
     public List<BookTypeEntity> getBookType() {
@@ -48,15 +85,36 @@ public class BookBusinessImpl implements BookBusiness {
         String normalizedSearchGenre = searchGenre != null && !searchGenre.trim().isEmpty() ? searchGenre.trim() : null;
         String normalizedSearchPublisher = searchPublisher != null && !searchPublisher.trim().isEmpty() ? searchPublisher.trim() : null;
         
-        Pageable currentPage = PageRequest.of(page, pageSize);
-        Page<BookEntity> bookEntitiesPage = bookRepository.findBooksWithSearch(
-                normalizedSearchName, normalizedSearchAuthor, normalizedSearchId, normalizedSearchGenre, normalizedSearchPublisher, currentPage);
+        boolean hasCriteria = normalizedSearchId != null || normalizedSearchName != null || normalizedSearchAuthor != null
+                || normalizedSearchGenre != null || normalizedSearchPublisher != null;
+        
+        // Phase 1: resolve the page of book IDs - from the in-memory index when it is loaded,
+        // otherwise from the database with LIMIT/OFFSET applied there
+        List<String> bookIds;
+        int totalPages;
+        int offset = (int) Math.min((long) page * pageSize, Integer.MAX_VALUE);
+        Optional<TrigramIndex.SearchPage> indexedPage = hasCriteria
+                ? bookSearchIndex.search(normalizedSearchId, normalizedSearchName, normalizedSearchAuthor,
+                        normalizedSearchGenre, normalizedSearchPublisher, offset, pageSize)
+                : Optional.empty();
+        if (indexedPage.isPresent()) {
+            bookIds = indexedPage.get().getKeys();
+            totalPages = (int) (((long) indexedPage.get().getTotal() + pageSize - 1) / pageSize);
+        } else {
+            Pageable currentPage = PageRequest.of(page, pageSize);
+            Page<String> bookIdPage = hasCriteria
+                    ? bookRepository.findBookIdsWithSearch(normalizedSearchName, normalizedSearchAuthor, normalizedSearchId,
+                            normalizedSearchGenre, normalizedSearchPublisher, currentPage)
+                    : bookRepository.findAllBookIds(currentPage);
+            bookIds = bookIdPage.getContent();
+            totalPages = bookIdPage.getTotalPages();
+        }
         
-        List<BookModel> bookModels = bookEntitiesPage.getContent().stream()
+        // Phase 2: hydrate just this page of IDs with their associations
+        List<BookModel> bookModels = findBooksInOrder(bookIds).stream()
                 .map(BookModel::new)
                 .collect(Collectors.toList());
         
-        int totalPages = bookEntitiesPage.getTotalPages();
         Paginate<BookModel> paginate = new Paginate<>(bookModels, totalPages);
         
         log.info("End getBook(), found {} books, total pages: {}", bookModels.size(), totalPages);
@@ -64,21 +122,163 @@ public class BookBusinessImpl implements BookBusiness {
     }
     
     @Override
-    public String downloadBook() {
-        log.info("Start downloadBook()");
-        List<BookEntity> bookEntities = bookRepository.findAll();
-        String csvContent = bookEntities.stream()
-                .map(BookModel::new)
-                .map(bookModel -> String.format("%s,%s,%s,%s,%s", 
-                        bookModel.getId(), 
-                        bookModel.getName(), 
-                        bookModel.getAuthor(), 
-                        bookModel.getBookType(), 
-                        bookModel.getPrice()))
-                .collect(Collectors.joining(System.lineSeparator()));
-        
-        log.info("End downloadBook(), exported {} books", bookEntities.size());
-        return csvContent;
+    public CursorPage<BookEntity> getBookByCursor(String cursor, int pageSize, String sort) {
+        log.info("Start getBookByCursor() - sort: {}, pageSize: {}, hasCursor: {}", sort, pageSize, cursor != null);
+        
+        boolean byPublicationDate = SORT_BY_PUBLICATION_DATE.equals(sort);
+        String sortName = byPublicationDate ? SORT_BY_PUBLICATION_DATE : SORT_BY_ID;
+        CursorToken after = cursor != null && !cursor.trim().isEmpty() ? CursorToken.decode(cursor.trim(), sortName) : null;
+        
+        // Fetch one extra ID to learn whether another page exists without a count query
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<String> bookIds;
+        if (byPublicationDate) {
+            bookIds = after == null
+                    ? bookRepositoryOptimized.findBookIdsOrderByPublicationDate(limit)
+                    : bookRepositoryOptimized.findBookIdsWithKeysetPagination(parseCursorDate(after), after.getId(), limit);
+        } else {
+            bookIds = after == null
+                    ? bookRepositoryOptimized.findBookIdsOrderById(limit)
+                    : bookRepositoryOptimized.findBookIdsWithCursor(after.getId(), limit);
+        }
+        
+        boolean hasNext = bookIds.size() > pageSize;
+        List<BookEntity> books = findBooksInOrder(hasNext ? bookIds.subList(0, pageSize) : bookIds);
+        
+        String nextCursor = null;
+        if (hasNext && !books.isEmpty()) {
+            BookEntity last = books.get(books.size() - 1);
+            String sortKey = byPublicationDate ? String.valueOf(last.getPublicationDate()) : null;
+            nextCursor = new CursorToken(sortName, sortKey, last.getId()).encode();
+        }
+        
+        log.info("End getBookByCursor(), returned {} books, hasNext: {}", books.size(), nextCursor != null);
+        return new CursorPage<>(books, nextCursor);
+    }
+    
+    @Override
+    public List<BookEntity> searchBooks(String query, int limit) {
+        log.info("Start searchBooks() - query: {}, limit: {}", query, limit);
+        
+        List<BookEntity> books = findBooksInOrder(bookRepository.findRankedBookIds(query.trim(), limit));
+        
+        log.info("End searchBooks(), found {} books", books.size());
+        return books;
+    }
+    
+    @Override
+    public FacetedPage<BookEntity> getBookFaceted(String searchTitle, String searchAuthor, Map<FacetDimension, List<String>> selected,
+                                                  int page, int pageSize, int facetLimit) {
+        log.info("Start getBookFaceted() - searchTitle: {}, searchAuthor: {}, selected: {}, page: {}, pageSize: {}",
+                searchTitle, searchAuthor, selected, page, pageSize);
+        
+        String normalizedSearchTitle = searchTitle != null && !searchTitle.trim().isEmpty() ? searchTitle.trim() : null;
+        String normalizedSearchAuthor = searchAuthor != null && !searchAuthor.trim().isEmpty() ? searchAuthor.trim() : null;
+        
+        boolean hasCriteria = normalizedSearchTitle != null || normalizedSearchAuthor != null;
+        int offset = (int) Math.min((long) page * pageSize, Integer.MAX_VALUE);
+        
+        if (!bookFacetIndex.isReady()) {
+            // Without the bitmaps only an unfiltered page can be answered, from the database
+            if (selected.values().stream().anyMatch(values -> values != null && !values.isEmpty())) {
+                throw new ServiceUnavailableException("Facet filters are not available yet, please retry later",
+                        FACET_INDEX_RETRY_AFTER_SECONDS);
+            }
+            Pageable currentPage = PageRequest.of(page, pageSize);
+            Page<String> bookIdPage = hasCriteria
+                    ? bookRepository.findBookIdsWithSearch(normalizedSearchTitle, normalizedSearchAuthor,
+                            null, null, null, currentPage)
+                    : bookRepository.findAllBookIds(currentPage);
+            List<BookEntity> books = findBooksInOrder(bookIdPage.getContent());
+            log.info("End getBookFaceted(), facet index not loaded, found {} books without facet counts", books.size());
+            return new FacetedPage<>(books, (int) Math.min(bookIdPage.getTotalElements(), Integer.MAX_VALUE),
+                    bookIdPage.getTotalPages(), Collections.emptyMap());
+        }
+        
+        // Text criteria narrow the candidate set; facet filtering and counting happen on bitmaps.
+        // Database candidates are streamed into the bitmap rather than collected into a list.
+        FacetIndex.Result result;
+        Optional<List<String>> indexedIds = hasCriteria
+                ? bookSearchIndex.searchAll(null, normalizedSearchTitle, normalizedSearchAuthor, null, null)
+                : Optional.empty();
+        if (!hasCriteria || indexedIds.isPresent()) {
+            result = searchFacets(indexedIds.orElse(null), selected, offset, pageSize, facetLimit);
+        } else {
+            try (Stream<String> candidateIds = bookRepository.streamBookIdsWithSearch(normalizedSearchTitle,
+                    normalizedSearchAuthor)) {
+                result = searchFacets(candidateIds::iterator, selected, offset, pageSize, facetLimit);
+            }
+        }
+        
+        Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+        result.getFacets().forEach((dimension, counts) -> facets.put(dimension.getParameter(), counts));
+        List<BookEntity> books = findBooksInOrder(result.getKeys());
+        int totalPages = (int) (((long) result.getTotal() + pageSize - 1) / pageSize);
+        
+        log.info("End getBookFaceted(), found {} books, total matches: {}", books.size(), result.getTotal());
+        return new FacetedPage<>(books, result.getTotal(), totalPages, facets);
+    }
+    
+    private FacetIndex.Result searchFacets(Iterable<String> candidateIds, Map<FacetDimension, List<String>> selected,
+                                           int offset, int pageSize, int facetLimit) {
+        // The index is never unloaded once ready
+        return bookFacetIndex.search(candidateIds, selected, offset, pageSize, facetLimit)
+                .orElseThrow(() -> new IllegalStateException("Facet index is not loaded"));
+    }
+    
+    private LocalDate parseCursorDate(CursorToken token) {
+        try {
+            return LocalDate.parse(token.getSortKey());
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    /**
+     * Load the given books with their associations in one query, preserving the order of {@code bookIds}.
+     */
+    private List<BookEntity> findBooksInOrder(List<String> bookIds) {
+        if (bookIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, BookEntity> booksById = bookRepository.findAllWithAssociationsByIdIn(bookIds).stream()
+                .collect(Collectors.toMap(BookEntity::getId, Function.identity(), (first, second) -> first));
+        return bookIds.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Write every book as a CSV row, reading them from a database cursor so only the
+     * rows of the current book are held in memory. Rows are in ID order.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBooks(Writer writer) throws IOException {
+        log.info("Start exportBooks()");
+        long exported = 0;
+        try (Stream<Object[]> rows = bookRepository.streamExportRows()) {
+            Iterator<Object[]> iterator = rows.iterator();
+            ExportedBook current = null;
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                String id = (String) row[0];
+                if (current == null || !current.id.equals(id)) {
+                    if (current != null) {
+                        current.writeTo(writer);
+                        exported++;
+                    }
+                    current = new ExportedBook(id, (String) row[1], (BigDecimal) row[2]);
+                }
+                current.add((String) row[3], (String) row[4]);
+            }
+            if (current != null) {
+                current.writeTo(writer);
+                exported++;
+            }
+        }
+        log.info("End exportBooks(), exported {} books", exported);
     }
     
     @Override
@@ -88,8 +288,15 @@ public class BookBusinessImpl implements BookBusiness {
         List<BookEntity> bookEntities = bookModels.stream()
                 .map(BookEntity::new)
                 .collect(Collectors.toList());
+        // Rows may replace existing books; keep their previous state for cache eviction
+        Map<String, BookSnapshot> previousById = bookRepository.findAllWithAssociationsByIdIn(bookEntities.stream()
+                        .map(BookEntity::getId)
+                        .collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(BookEntity::getId, BookSnapshot::of, (first, second) -> first));
         
-        bookRepository.saveAll(bookEntities);
+        bookRepository.saveAll(bookEntities)
+                .forEach(saved -> eventPublisher.publishEvent(
+                        BookChangedEvent.updated(previousById.get(saved.getId()), saved)));
         log.info("End uploadBook(), successfully uploaded {} books", bookEntities.size());
     }
     
@@ -108,7 +315,8 @@ public class BookBusinessImpl implements BookBusiness {
         }
         
         BookEntity bookEntity = new BookEntity(bookModel);
-        bookRepository.save(bookEntity);
+        BookEntity saved = bookRepository.save(bookEntity);
+        eventPublisher.publishEvent(BookChangedEvent.upserted(saved));
         log.info("End addBook(), successfully added book with ID: {}", bookModel.getId());
     }
     
@@ -116,11 +324,12 @@ public class BookBusinessImpl implements BookBusiness {
     public void delBook(String delId) {
         log.info("Start delBook() - ID: {}", delId);
         
-        if (!bookRepository.existsById(delId)) {
-            throw new BookNotFoundException("Book with ID " + delId + " not found");
-        }
+        BookSnapshot previous = bookRepository.findById(delId)
+                .map(BookSnapshot::of)
+                .orElseThrow(() -> new BookNotFoundException("Book with ID " + delId + " not found"));
         
         bookRepository.deleteById(delId);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(previous));
         log.info("End delBook(), successfully deleted book with ID: {}", delId);
     }
     
@@ -128,12 +337,48 @@ public class BookBusinessImpl implements BookBusiness {
     public void updateBook(BookModel bookModel) {
         log.info("Start updateBook() - ID: {}", bookModel.getId());
         
-        if (!bookRepository.existsById(bookModel.getId())) {
-            throw new BookNotFoundException("Book with ID " + bookModel.getId() + " not found");
-        }
+        BookSnapshot previous = bookRepository.findById(bookModel.getId())
+                .map(BookSnapshot::of)
+                .orElseThrow(() -> new BookNotFoundException("Book with ID " + bookModel.getId() + " not found"));
         
         BookEntity bookEntity = new BookEntity(bookModel);
-        bookRepository.save(bookEntity);
+        BookEntity saved = bookRepository.save(bookEntity);
+        eventPublisher.publishEvent(BookChangedEvent.updated(previous, saved));
         log.info("End updateBook(), successfully updated book with ID: {}", bookModel.getId());
     }
+
+    /**
+     * Columns of one book collected from its export rows. The rows are the cross product of
+     * its authors and genres, so names are de-duplicated in first-seen order.
+     */
+    private static final class ExportedBook {
+        private final String id;
+        private final String title;
+        private final BigDecimal price;
+        private final Set<String> authors = new LinkedHashSet<>();
+        private final Set<String> genres = new LinkedHashSet<>();
+
+        private ExportedBook(String id, String title, BigDecimal price) {
+            this.id = id;
+            this.title = title;
+            this.price = price;
+        }
+
+        private void add(String author, String genre) {
+            if (author != null) {
+                authors.add(author);
+            }
+            if (genre != null) {
+                genres.add(genre);
+            }
+        }
+
+        // Same columns and formatting as BookModel, quoted so the file can be imported again
+        private void writeTo(Writer writer) throws IOException {
+            CsvWriter.writeRecord(writer, id, title,
+                    authors.isEmpty() ? "Unknown Author" : String.join(", ", authors),
+                    genres.isEmpty() ? "Uncategorized" : String.join(", ", genres),
+                    String.format("%.2f USD", price));
+        }
+    }
 }
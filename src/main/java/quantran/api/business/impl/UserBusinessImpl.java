@@ -2,19 +2,25 @@ package quantran.api.business.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import quantran.api.business.UserBusiness;
 import quantran.api.entity.UserEntity;
+import quantran.api.event.UserKeyChangedEvent;
 import quantran.api.repository.UserRepository;
-import quantran.api.util.PasswordUtil;
+import quantran.api.security.PasswordHasher;
+
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Log4j2
 @RequiredArgsConstructor
 public class UserBusinessImpl implements UserBusiness {
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PasswordHasher passwordHasher;
     @Override
-    public String login(UserEntity userEntity, String newKey) {
+    public CompletableFuture<String> login(UserEntity userEntity, String newKey) {
         log.info("Start login()");
         String userName = userEntity.getUserName();
         String password = userEntity.getPassword();
@@ -22,30 +28,45 @@ public class UserBusinessImpl implements UserBusiness {
         // Get existing user entity to check credentials
         UserEntity existingUserEntity = userRepository.findByUserName(userName);
         
-        if (existingUserEntity != null) {
-            // Verify password using hashed password
-            String storedPassword = existingUserEntity.getPassword();
-            boolean passwordValid = PasswordUtil.verifyPassword(password, storedPassword);
-            
-            if (passwordValid) {
-                String userKey = existingUserEntity.getKey();
-                
-                // If user already has a key, use it; otherwise, set the new key
-                if (userKey != null && !userKey.isEmpty()) {
-                    return userKey;
-                } else {
-                    // Update the existing user with the new key
-                    existingUserEntity.setKey(newKey);
-                    userRepository.save(existingUserEntity);
-                    return newKey;
-                }
-            } else {
+        if (existingUserEntity == null) {
+            // Still hash, so an unknown user name cannot be told apart from a wrong password by timing
+            return passwordHasher.verifyUnknownUserAsync(password).thenApply(verification -> {
+                log.warn("User not found: {}", userName);
+                return null;
+            });
+        }
+        
+        // Verify password using hashed password; the rest runs on the hashing thread once it is checked
+        return passwordHasher.verifyAsync(password, existingUserEntity.getPassword()).thenApply(verification -> {
+            if (!verification.isMatched()) {
                 log.warn("Invalid password for user: {}", userName);
                 return null;
             }
-        } else {
-            log.warn("User not found: {}", userName);
-            return null;
-        }
+            
+            boolean changed = false;
+            // Legacy or weaker hashes are replaced while the plain password is at hand
+            if (verification.getUpgradedHash() != null) {
+                existingUserEntity.setPassword(verification.getUpgradedHash());
+                changed = true;
+                log.info("Upgraded password hash of user: {}", userName);
+            }
+            
+            // If user already has a key, use it; otherwise, set the new key
+            String userKey = existingUserEntity.getKey();
+            boolean newKeySet = userKey == null || userKey.isEmpty();
+            if (newKeySet) {
+                existingUserEntity.setKey(newKey);
+                userKey = newKey;
+                changed = true;
+            }
+            
+            if (changed) {
+                userRepository.save(existingUserEntity);
+            }
+            if (newKeySet) {
+                eventPublisher.publishEvent(new UserKeyChangedEvent(userName));
+            }
+            return userKey;
+        });
     }
 }
@@ -0,0 +1,262 @@
+package quantran.api.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import quantran.api.event.AuthorChangedEvent;
+import quantran.api.event.BookChangedEvent;
+import quantran.api.event.BookSnapshot;
+import quantran.api.event.BooksImportedEvent;
+import quantran.api.event.PublisherChangedEvent;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Evicts the cache entries a committed book, author or publisher change makes stale.
+ *
+ * <p>Entries keyed by a book attribute (ID, ISBN, author, genre, publisher, year, language,
+ * format) are evicted for both the value before and after the change, so a book moving from
+ * one author to another leaves neither {@code booksByAuthor} entry stale. The single-entry
+ * stock and discount lists are evicted only if the book is listed before or after the change.
+ * Search caches, whose keys cannot be mapped back to a book, are cleared only when a field
+ * they filter on or show changed: stock changes leave them alone. Price range caches hold
+ * full book details, stock included, so they are cleared on any change to a book with a
+ * price. Author and publisher changes evict their own list and clear the caches that embed
+ * their names. An imported chunk, which may touch thousands of books, clears every book
+ * cache once.
+ *
+ * <p>Changes are collected per transaction and applied once after it commits, so a batch of
+ * writes clears each cache at most once and evicts each key at most once. Changes made
+ * outside a transaction are applied right away. Evictions go through the cache manager, so
+ * they reach Redis and the L1 caches of the other nodes as well.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookCacheInvalidator {
+    static final String BOOK_DETAILS = "bookDetails";
+    static final String BOOK_DETAILS_BY_ISBN = "bookDetailsByIsbn";
+    static final String BOOKS_BY_AUTHOR = "booksByAuthor";
+    static final String BOOKS_BY_GENRE = "booksByGenre";
+    static final String BOOKS_BY_PUBLISHER = "booksByPublisher";
+    static final String BOOKS_BY_PUBLICATION_YEAR = "booksByPublicationYear";
+    static final String BOOKS_BY_LANGUAGE = "booksByLanguage";
+    static final String BOOKS_BY_FORMAT = "booksByFormat";
+    static final String BOOKS_WITH_LOW_STOCK = "booksWithLowStock";
+    static final String OUT_OF_STOCK_BOOKS = "outOfStockBooks";
+    static final String BOOKS_WITH_DISCOUNT = "booksWithDiscount";
+
+    /** Query caches keyed by search terms; a change of a searched or listed field may affect any entry. */
+    static final List<String> SEARCH_CACHES = Collections.unmodifiableList(Arrays.asList(
+            "books", "books_fts", "books_indexed", "book_summaries", "book_counts"));
+
+    /** Query caches keyed by price ranges; any change to a book with a price may affect an entry. */
+    static final List<String> PRICE_RANGE_CACHES = Collections.unmodifiableList(Arrays.asList(
+            "books_price_range", "booksByPriceRange"));
+
+    private final CacheManager cacheManager;
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        collect(invalidation -> {
+            BookSnapshot previous = event.getPrevious();
+            BookSnapshot current = event.getCurrent();
+
+            invalidation.evict(BOOK_DETAILS, Collections.singleton(event.getBookId()));
+            invalidation.evict(BOOK_DETAILS_BY_ISBN, values(previous, current, BookSnapshot::getIsbn));
+            invalidation.evict(BOOKS_BY_AUTHOR, lists(previous, current, BookSnapshot::getAuthorIds));
+            invalidation.evict(BOOKS_BY_GENRE, lists(previous, current, BookSnapshot::getGenreIds));
+            invalidation.evict(BOOKS_BY_PUBLISHER, values(previous, current, BookSnapshot::getPublisherId));
+            invalidation.evict(BOOKS_BY_PUBLICATION_YEAR, values(previous, current, BookSnapshot::getPublicationYear));
+            invalidation.evict(BOOKS_BY_LANGUAGE, values(previous, current, BookSnapshot::getLanguage));
+            invalidation.evict(BOOKS_BY_FORMAT, values(previous, current, BookSnapshot::getFormat));
+
+            clearIfListed(invalidation, BOOKS_WITH_LOW_STOCK, previous, current, BookSnapshot::isLowStock);
+            clearIfListed(invalidation, OUT_OF_STOCK_BOOKS, previous, current, BookSnapshot::isOutOfStock);
+            clearIfListed(invalidation, BOOKS_WITH_DISCOUNT, previous, current, BookSnapshot::isDiscounted);
+
+            if (previous == null || current == null || searchedFieldsChanged(previous, current)) {
+                SEARCH_CACHES.forEach(invalidation::clear);
+            }
+            if ((previous != null && previous.getPrice() != null) || (current != null && current.getPrice() != null)) {
+                PRICE_RANGE_CACHES.forEach(invalidation::clear);
+            }
+        });
+    }
+
+    @EventListener
+    public void onBooksImported(BooksImportedEvent event) {
+        collect(BookCacheInvalidator::clearBookCaches);
+    }
+
+    @EventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        collect(invalidation -> {
+            invalidation.evict(BOOKS_BY_AUTHOR, Collections.singleton(event.getAuthorId()));
+            clearNameEmbeddingCaches(invalidation);
+        });
+    }
+
+    @EventListener
+    public void onPublisherChanged(PublisherChangedEvent event) {
+        collect(invalidation -> {
+            invalidation.evict(BOOKS_BY_PUBLISHER, Collections.singleton(event.getPublisherId()));
+            clearNameEmbeddingCaches(invalidation);
+        });
+    }
+
+    /**
+     * Caches whose values carry the title or price of many books.
+     */
+    private static void clearBookCaches(Invalidation invalidation) {
+        invalidation.clear(BOOKS_BY_AUTHOR);
+        invalidation.clear(BOOKS_BY_PUBLISHER);
+        clearNameEmbeddingCaches(invalidation);
+    }
+
+    /**
+     * Caches whose values carry author and publisher names of many books. Renames are rare,
+     * so these are cleared instead of tracking which books an author or publisher has.
+     */
+    private static void clearNameEmbeddingCaches(Invalidation invalidation) {
+        invalidation.clear(BOOK_DETAILS);
+        invalidation.clear(BOOK_DETAILS_BY_ISBN);
+        invalidation.clear(BOOKS_BY_GENRE);
+        invalidation.clear(BOOKS_BY_PUBLICATION_YEAR);
+        invalidation.clear(BOOKS_BY_LANGUAGE);
+        invalidation.clear(BOOKS_BY_FORMAT);
+        invalidation.clear(BOOKS_WITH_LOW_STOCK);
+        invalidation.clear(OUT_OF_STOCK_BOOKS);
+        invalidation.clear(BOOKS_WITH_DISCOUNT);
+        SEARCH_CACHES.forEach(invalidation::clear);
+        PRICE_RANGE_CACHES.forEach(invalidation::clear);
+    }
+
+    /**
+     * Add a change to the invalidation of the current transaction, to be applied after it
+     * commits (and dropped if it rolls back), or apply it now outside a transaction.
+     */
+    private void collect(Consumer<Invalidation> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Invalidation invalidation = new Invalidation();
+            change.accept(invalidation);
+            apply(invalidation);
+            return;
+        }
+        Invalidation pending = (Invalidation) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Invalidation invalidation = new Invalidation();
+            TransactionSynchronizationManager.bindResource(this, invalidation);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(invalidation);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BookCacheInvalidator.this);
+                }
+            });
+            pending = invalidation;
+        }
+        change.accept(pending);
+    }
+
+    private void apply(Invalidation invalidation) {
+        invalidation.cleared.forEach(cacheName -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        });
+        invalidation.evicted.forEach((cacheName, keys) -> {
+            Cache cache = invalidation.cleared.contains(cacheName) ? null : cacheManager.getCache(cacheName);
+            if (cache != null) {
+                keys.forEach(cache::evict);
+            }
+        });
+    }
+
+    /**
+     * Whether a field the search caches filter on or show in their results changed.
+     */
+    private static boolean searchedFieldsChanged(BookSnapshot previous, BookSnapshot current) {
+        return !Objects.equals(previous.getTitle(), current.getTitle())
+                || !Objects.equals(previous.getAuthorNames(), current.getAuthorNames())
+                || !Objects.equals(previous.getGenreNames(), current.getGenreNames())
+                || !Objects.equals(previous.getPublisherName(), current.getPublisherName())
+                || !samePrice(previous.getPrice(), current.getPrice());
+    }
+
+    private static boolean samePrice(BigDecimal previous, BigDecimal current) {
+        return previous == null ? current == null : current != null && previous.compareTo(current) == 0;
+    }
+
+    private static void clearIfListed(Invalidation invalidation, String cacheName, BookSnapshot previous,
+                                      BookSnapshot current, Predicate<BookSnapshot> listed) {
+        if ((previous != null && listed.test(previous)) || (current != null && listed.test(current))) {
+            invalidation.clear(cacheName);
+        }
+    }
+
+    private static <T> Set<T> values(BookSnapshot previous, BookSnapshot current,
+                                     Function<BookSnapshot, T> attribute) {
+        Set<T> keys = new LinkedHashSet<>();
+        if (previous != null) {
+            keys.add(attribute.apply(previous));
+        }
+        if (current != null) {
+            keys.add(attribute.apply(current));
+        }
+        keys.remove(null);
+        return keys;
+    }
+
+    private static <T> Set<T> lists(BookSnapshot previous, BookSnapshot current,
+                                    Function<BookSnapshot, List<T>> attribute) {
+        Set<T> keys = new LinkedHashSet<>();
+        if (previous != null) {
+            keys.addAll(attribute.apply(previous));
+        }
+        if (current != null) {
+            keys.addAll(attribute.apply(current));
+        }
+        keys.removeIf(Objects::isNull);
+        return keys;
+    }
+
+    /**
+     * Caches to clear and keys to evict, de-duplicated. Keys of a cache that is cleared
+     * anyway are not evicted one by one.
+     */
+    static final class Invalidation {
+        private final Set<String> cleared = new LinkedHashSet<>();
+        private final Map<String, Set<Object>> evicted = new LinkedHashMap<>();
+
+        void clear(String cacheName) {
+            cleared.add(cacheName);
+        }
+
+        void evict(String cacheName, Collection<?> keys) {
+            if (!keys.isEmpty() && !cleared.contains(cacheName)) {
+                evicted.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).addAll(keys);
+            }
+        }
+    }
+}
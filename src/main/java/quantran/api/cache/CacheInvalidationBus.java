@@ -0,0 +1,113 @@
+package quantran.api.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Propagates L1 evictions between nodes over a Redis pub/sub channel.
+ *
+ * <p>Every node publishes its evictions and subscribes to the channel; messages a node
+ * published itself are ignored on receipt. Pub/sub is fire-and-forget, so a node that is
+ * disconnected misses messages and relies on the L1 expiry to converge.
+ *
+ * <p>Metrics: {@code cache.invalidation.messages} (tagged {@code direction=sent|received})
+ * and {@code cache.invalidation.lag}, the time from publication on one node to receipt on
+ * another (subject to clock skew between nodes).
+ */
+@Log4j2
+public class CacheInvalidationBus implements MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final String nodeId;
+    private final Counter sent;
+    private final Counter received;
+    private final Timer lag;
+    private volatile Consumer<CacheInvalidationMessage> handler;
+
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate, String channel, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        this.nodeId = UUID.randomUUID().toString();
+        this.sent = Counter.builder("cache.invalidation.messages")
+                .description("Cache invalidation messages exchanged with other nodes")
+                .tag("direction", "sent")
+                .register(meterRegistry);
+        this.received = Counter.builder("cache.invalidation.messages")
+                .description("Cache invalidation messages exchanged with other nodes")
+                .tag("direction", "received")
+                .register(meterRegistry);
+        this.lag = Timer.builder("cache.invalidation.lag")
+                .description("Delay between publishing an invalidation and applying it on another node")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Set the handler applying invalidations received from other nodes.
+     */
+    public void subscribe(Consumer<CacheInvalidationMessage> handler) {
+        this.handler = handler;
+    }
+
+    public void publishKey(String cacheName, Object key) {
+        publish(CacheInvalidationMessage.Type.KEY, cacheName, String.valueOf(key));
+    }
+
+    public void publishPrefix(String cacheName, String keyPrefix) {
+        publish(CacheInvalidationMessage.Type.PREFIX, cacheName, keyPrefix);
+    }
+
+    public void publishClear(String cacheName) {
+        publish(CacheInvalidationMessage.Type.CLEAR, cacheName, null);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CacheInvalidationMessage invalidation =
+                CacheInvalidationMessage.decode(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (invalidation == null) {
+            log.warn("Ignoring malformed cache invalidation message on channel {}", channel);
+            return;
+        }
+        if (nodeId.equals(invalidation.getNodeId())) {
+            return;
+        }
+        received.increment();
+        lag.record(Math.max(0, System.currentTimeMillis() - invalidation.getSentAt()), TimeUnit.MILLISECONDS);
+
+        Consumer<CacheInvalidationMessage> current = handler;
+        if (current != null) {
+            current.accept(invalidation);
+        }
+    }
+
+    private void publish(CacheInvalidationMessage.Type type, String cacheName, String key) {
+        CacheInvalidationMessage message =
+                new CacheInvalidationMessage(nodeId, System.currentTimeMillis(), type, cacheName, key);
+        try {
+            redisTemplate.convertAndSend(channel, message.encode());
+            sent.increment();
+        } catch (RuntimeException e) {
+            log.error("Failed to publish {} invalidation of cache {}", type, cacheName, e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package quantran.api.cache;
+
+/**
+ * Eviction broadcast to other nodes: drop one key, all keys with a prefix, or a whole cache
+ * from L1.
+ *
+ * <p>Encoded as tab-separated {@code nodeId, sentAt, type, cacheName, key}; the key comes
+ * last so that it may itself contain tabs.
+ */
+public final class CacheInvalidationMessage {
+    private static final char SEPARATOR = '\t';
+
+    public enum Type { KEY, PREFIX, CLEAR }
+
+    private final String nodeId;
+    private final long sentAt;
+    private final Type type;
+    private final String cacheName;
+    private final String key;
+
+    /**
+     * @param sentAt Publication time in epoch milliseconds
+     * @param key Key or key prefix; empty for {@link Type#CLEAR}
+     */
+    public CacheInvalidationMessage(String nodeId, long sentAt, Type type, String cacheName, String key) {
+        this.nodeId = nodeId;
+        this.sentAt = sentAt;
+        this.type = type;
+        this.cacheName = cacheName;
+        this.key = key != null ? key : "";
+    }
+
+    public String encode() {
+        return nodeId + SEPARATOR + sentAt + SEPARATOR + type.name() + SEPARATOR + cacheName + SEPARATOR + key;
+    }
+
+    /**
+     * @return The decoded message, or {@code null} if the payload is malformed
+     */
+    public static CacheInvalidationMessage decode(String payload) {
+        String[] parts = payload.split(String.valueOf(SEPARATOR), 5);
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            return new CacheInvalidationMessage(parts[0], Long.parseLong(parts[1]), Type.valueOf(parts[2]),
+                    parts[3], parts[4]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getSentAt() {
+        return sentAt;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
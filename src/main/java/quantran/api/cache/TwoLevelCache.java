@@ -0,0 +1,360 @@
+package quantran.api.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.cache.RedisCache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Near cache: a local Caffeine cache (L1) in front of a shared Redis cache (L2).
+ *
+ * <p>Reads try L1, then L2, then the loader; an L2 hit is copied into L1 and a loaded
+ * value is written to both levels. Puts, evictions and clears go to L2 first and then L1.
+ * Redis failures are logged and treated as misses so that the cache degrades to L1 plus
+ * the loader instead of failing the request.
+ *
+ * <p>With an invalidation bus, evictions and clears are also broadcast so that other nodes
+ * drop the entry from their L1; {@link #evictByPrefix} removes every key starting with a
+ * prefix, for key families such as one search term across all pages.
+ *
+ * <p>Loads through {@link #get(Object, Callable)} (used by {@code @Cacheable(sync = true)})
+ * are coalesced: concurrent misses on one key run the loader once and the other callers wait
+ * for its result. With refresh-ahead enabled, an L1 hit older than the refresh interval is
+ * still returned, and the value is reloaded once in the background.
+ *
+ * <p>Lookups are counted in {@code cache.level.gets}, tagged with the cache name, the
+ * level ({@code l1}/{@code l2}) and the result ({@code hit}/{@code miss}/{@code error});
+ * loads in {@code cache.loads}, tagged with the result ({@code loaded}/{@code coalesced}/
+ * {@code refreshed}/{@code failed}).
+ */
+@Log4j2
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+    static final String METRIC_NAME = "cache.level.gets";
+    static final String LOADS_METRIC_NAME = "cache.loads";
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache remote;
+    private final CacheInvalidationBus invalidationBus;
+    private final long refreshAfterNanos;
+    private final Executor refreshExecutor;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loadsInFlight = new ConcurrentHashMap<>();
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Counter remoteErrors;
+    private final Counter loads;
+    private final Counter coalescedLoads;
+    private final Counter refreshes;
+    private final Counter failedLoads;
+
+    /**
+     * @param local L1 cache holding store values ({@code NullValue} for cached nulls)
+     * @param remote L2 cache, or {@code null} for a cache that is kept local only
+     * @param invalidationBus Bus broadcasting evictions to other nodes, or {@code null} on a single node
+     * @param refreshAfterWrite Age after which an L1 hit is reloaded in the background; zero disables
+     *                          refresh-ahead. Requires {@code local} to expire after write.
+     * @param refreshExecutor Executor running background reloads; unused when refresh-ahead is disabled
+     */
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                         Cache remote, CacheInvalidationBus invalidationBus, Duration refreshAfterWrite,
+                         Executor refreshExecutor, MeterRegistry meterRegistry) {
+        super(true);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationBus = invalidationBus;
+        this.refreshAfterNanos = refreshAfterWrite.toNanos();
+        this.refreshExecutor = refreshExecutor;
+        this.localHits = counter(meterRegistry, name, "l1", "hit");
+        this.localMisses = counter(meterRegistry, name, "l1", "miss");
+        this.remoteHits = counter(meterRegistry, name, "l2", "hit");
+        this.remoteMisses = counter(meterRegistry, name, "l2", "miss");
+        this.remoteErrors = counter(meterRegistry, name, "l2", "error");
+        this.loads = loadCounter(meterRegistry, name, "loaded");
+        this.coalescedLoads = loadCounter(meterRegistry, name, "coalesced");
+        this.refreshes = loadCounter(meterRegistry, name, "refreshed");
+        this.failedLoads = loadCounter(meterRegistry, name, "failed");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = local.getIfPresent(key);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+        localMisses.increment();
+        if (remote == null) {
+            return null;
+        }
+
+        ValueWrapper wrapper;
+        try {
+            wrapper = remote.get(key);
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            log.warn("Failed to read key {} of cache {} from Redis: {}", key, name, e.getMessage());
+            return null;
+        }
+        if (wrapper == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        Object storeValue = toStoreValue(wrapper.get());
+        local.put(key, storeValue);
+        return storeValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            refreshIfStale(key, valueLoader);
+            return (T) cached.get();
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loadsInFlight.putIfAbsent(key, load);
+        if (inFlight != null) {
+            coalescedLoads.increment();
+            return (T) await(key, valueLoader, inFlight);
+        }
+        try {
+            // A load for this key may have completed between the lookup and claiming it. It
+            // wrote L1, so only L1 is checked again, and not counted as a second lookup.
+            Object storeValue = local.getIfPresent(key);
+            T value = storeValue != null ? (T) fromStoreValue(storeValue) : load(key, valueLoader);
+            load.complete(value);
+            return value;
+        } catch (Throwable e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(key, load);
+        }
+    }
+
+    private <T> T load(Object key, Callable<T> valueLoader) {
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            failedLoads.increment();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        loads.increment();
+        put(key, value);
+        return value;
+    }
+
+    private static Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ValueRetrievalException(key, valueLoader, cause);
+        }
+    }
+
+    /**
+     * Reload {@code key} in the background if its L1 entry is older than the refresh interval
+     * and no load of it is running. The stale value keeps being served meanwhile.
+     */
+    private void refreshIfStale(Object key, Callable<?> valueLoader) {
+        if (refreshAfterNanos <= 0) {
+            return;
+        }
+        long age = local.policy().expireAfterWrite()
+                .map(expiration -> expiration.ageOf(key, TimeUnit.NANOSECONDS).orElse(0L))
+                .orElse(0L);
+        if (age < refreshAfterNanos) {
+            return;
+        }
+        CompletableFuture<Object> refresh = new CompletableFuture<>();
+        if (loadsInFlight.putIfAbsent(key, refresh) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    Object value = valueLoader.call();
+                    put(key, value);
+                    refreshes.increment();
+                    refresh.complete(value);
+                } catch (Exception e) {
+                    failedLoads.increment();
+                    log.warn("Failed to refresh key {} of cache {}: {}", key, name, e.getMessage());
+                    refresh.completeExceptionally(e);
+                } finally {
+                    loadsInFlight.remove(key, refresh);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Try again on a later hit
+            loadsInFlight.remove(key, refresh);
+            refresh.cancel(false);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (remote != null) {
+            try {
+                remote.put(key, value);
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                log.warn("Failed to write key {} of cache {} to Redis: {}", key, name, e.getMessage());
+            }
+        }
+        local.put(key, toStoreValue(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = get(key);
+        if (existing == null) {
+            put(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        if (remote != null) {
+            try {
+                remote.evict(key);
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                log.error("Failed to evict key {} of cache {} from Redis", key, name, e);
+            }
+        }
+        local.invalidate(key);
+        if (invalidationBus != null) {
+            invalidationBus.publishKey(name, key);
+        }
+    }
+
+    /**
+     * Evict every entry whose key, as a string, starts with {@code keyPrefix}.
+     */
+    public void evictByPrefix(String keyPrefix) {
+        if (remote != null) {
+            try {
+                if (remote instanceof RedisCache) {
+                    RedisCache redisCache = (RedisCache) remote;
+                    redisCache.getNativeCache().clean(name, redisKeyPattern(redisCache, keyPrefix));
+                } else {
+                    remote.clear();
+                }
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                log.error("Failed to evict prefix {} of cache {} from Redis", keyPrefix, name, e);
+            }
+        }
+        evictLocalByPrefix(keyPrefix);
+        if (invalidationBus != null) {
+            invalidationBus.publishPrefix(name, keyPrefix);
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (remote != null) {
+            try {
+                remote.clear();
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                log.error("Failed to clear cache {} in Redis", name, e);
+            }
+        }
+        local.invalidateAll();
+        if (invalidationBus != null) {
+            invalidationBus.publishClear(name);
+        }
+    }
+
+    /**
+     * Apply an invalidation received from another node. Only L1 is touched: the publishing
+     * node already updated L2.
+     */
+    void applyRemoteInvalidation(CacheInvalidationMessage message) {
+        switch (message.getType()) {
+            case KEY:
+                // The key arrives as a string; cached keys may be of another type (e.g. Long IDs)
+                local.asMap().keySet().removeIf(key -> String.valueOf(key).equals(message.getKey()));
+                break;
+            case PREFIX:
+                evictLocalByPrefix(message.getKey());
+                break;
+            case CLEAR:
+                local.invalidateAll();
+                break;
+        }
+    }
+
+    private void evictLocalByPrefix(String keyPrefix) {
+        local.asMap().keySet().removeIf(key -> String.valueOf(key).startsWith(keyPrefix));
+    }
+
+    /**
+     * Redis SCAN pattern matching the stored keys that start with {@code keyPrefix}.
+     */
+    private static String redisKeyPattern(RedisCache redisCache, String keyPrefix) {
+        StringBuilder pattern = new StringBuilder(
+                redisCache.getCacheConfiguration().getKeyPrefixFor(redisCache.getName()));
+        for (char c : keyPrefix.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('*').toString();
+    }
+
+    private static Counter loadCounter(MeterRegistry meterRegistry, String cache, String result) {
+        return Counter.builder(LOADS_METRIC_NAME)
+                .description("Cache loads through the single-flight loader")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String cache, String level, String result) {
+        return Counter.builder(METRIC_NAME)
+                .description("Cache lookups per cache level")
+                .tag("cache", cache)
+                .tag("level", level)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,100 @@
+package quantran.api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Creates a {@link TwoLevelCache} per cache name on first use, pairing a fresh Caffeine
+ * cache with the Redis cache of the same name (and its per-cache TTL).
+ *
+ * <p>Invalidations received on the bus are applied to the L1 of the named cache; names this
+ * node has not used yet hold nothing to evict and are skipped.
+ *
+ * <p>A cache can be given its own L1 builder with {@link #withLocalCache}, e.g. for a short
+ * expiry; such caches are not refreshed ahead.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final Map<String, Caffeine<Object, Object>> localBuilders = new ConcurrentHashMap<>();
+    private final Caffeine<Object, Object> localBuilder;
+    private final RedisCacheManager remoteCacheManager;
+    private final Set<String> localOnlyNames;
+    private final CacheInvalidationBus invalidationBus;
+    private final Duration refreshAfterWrite;
+    private final Executor refreshExecutor;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param localBuilder Builder for the L1 cache of every cache name
+     * @param remoteCacheManager Initialized Redis cache manager providing the L2 caches
+     * @param localOnlyNames Cache names whose values are not shared through Redis
+     * @param invalidationBus Bus keeping the L1 caches of all nodes consistent, or {@code null}
+     * @param refreshAfterWrite Age after which L1 hits are refreshed in the background; zero disables
+     * @param refreshExecutor Executor running the background refreshes
+     */
+    public TwoLevelCacheManager(Caffeine<Object, Object> localBuilder, RedisCacheManager remoteCacheManager,
+                                Collection<String> localOnlyNames, CacheInvalidationBus invalidationBus,
+                                Duration refreshAfterWrite, Executor refreshExecutor, MeterRegistry meterRegistry) {
+        this.localBuilder = localBuilder;
+        this.remoteCacheManager = remoteCacheManager;
+        this.localOnlyNames = new HashSet<>(localOnlyNames);
+        this.invalidationBus = invalidationBus;
+        this.refreshAfterWrite = refreshAfterWrite;
+        this.refreshExecutor = refreshExecutor;
+        this.meterRegistry = meterRegistry;
+        if (invalidationBus != null) {
+            invalidationBus.subscribe(this::applyRemoteInvalidation);
+        }
+    }
+
+    /**
+     * Build the L1 of {@code name} with its own builder instead of the shared one, and without
+     * refresh-ahead. Must be called before the cache is first used.
+     */
+    public TwoLevelCacheManager withLocalCache(String name, Caffeine<Object, Object> builder) {
+        localBuilders.put(name, builder);
+        return this;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoLevelCache createCache(String name) {
+        Cache remote = localOnlyNames.contains(name) ? null : remoteCacheManager.getCache(name);
+        Caffeine<Object, Object> builder = localBuilders.get(name);
+        if (builder != null) {
+            return new TwoLevelCache(name, builder.build(), remote, invalidationBus, Duration.ZERO,
+                    refreshExecutor, meterRegistry);
+        }
+        return new TwoLevelCache(name, localBuilder.build(), remote, invalidationBus, refreshAfterWrite,
+                refreshExecutor, meterRegistry);
+    }
+
+    private void applyRemoteInvalidation(CacheInvalidationMessage message) {
+        TwoLevelCache cache = caches.get(message.getCacheName());
+        if (cache != null) {
+            cache.applyRemoteInvalidation(message);
+        }
+    }
+}
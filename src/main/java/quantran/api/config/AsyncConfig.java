@@ -1,13 +1,17 @@
 package quantran.api.config;
 
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
@@ -52,6 +56,117 @@ public class AsyncConfig {
         return executor;
     }
     
+    /**
+     * Background reloads of cache entries (refresh-ahead). Kept apart from the task executor
+     * so a slow catalog query cannot delay async tasks. Refreshes that do not fit are
+     * rejected and retried on a later hit, rather than run on the request thread.
+     */
+    @Bean(name = "cacheRefreshExecutor")
+    public Executor cacheRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(50);
+        executor.setThreadNamePrefix("CacheRefresh-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Timer for the waits on external calls in the task pipeline. Waits are scheduled, not
+     * slept, so one thread serves all in-flight tasks.
+     */
+    @Bean(name = "taskPipelineScheduler", destroyMethod = "shutdownNow")
+    public ScheduledExecutorService taskPipelineScheduler() {
+        return Executors.newScheduledThreadPool(1, new CustomizableThreadFactory("TaskPipelineTimer-"));
+    }
+
+    /**
+     * Pricing stage of the task pipeline (CPU-bound). The pool size is the stage's concurrency
+     * limit; the queue holds more than the in-flight task limit, so it never rejects in practice.
+     */
+    @Bean(name = "taskPricingExecutor")
+    public Executor taskPricingExecutor(@Value("${app.task-pipeline.pricing-concurrency:2}") int concurrency) {
+        return pipelineStageExecutor("TaskPricing-", concurrency);
+    }
+
+    /**
+     * Book update stage of the task pipeline. Blocks on the database, so its concurrency is kept
+     * well below the connection pool size.
+     */
+    @Bean(name = "taskUpdateExecutor")
+    public Executor taskUpdateExecutor(@Value("${app.task-pipeline.update-concurrency:4}") int concurrency) {
+        return pipelineStageExecutor("TaskUpdate-", concurrency);
+    }
+
+    /**
+     * Parses and validates chunks of imported CSV rows (CPU-bound). The importer bounds the
+     * chunks in flight, so the queue never fills.
+     */
+    @Bean(name = "importParseExecutor")
+    public Executor importParseExecutor(@Value("${app.import.parse-parallelism:4}") int parallelism) {
+        return pipelineStageExecutor("ImportParse-", parallelism);
+    }
+
+    /**
+     * Runs book import tasks, each of which reads its file and commits chunk after chunk for
+     * as long as the import takes. Claimed imports beyond the pool size wait in the queue
+     * with their leases renewed.
+     */
+    @Bean(name = "importJobExecutor")
+    public Executor importJobExecutor(@Value("${app.import.max-concurrent-jobs:2}") int concurrency) {
+        return pipelineStageExecutor("ImportJob-", concurrency);
+    }
+
+    private static Executor pipelineStageExecutor(String threadNamePrefix, int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Hashes and verifies passwords (CPU-bound, deliberately slow). The pool is kept below the
+     * core count so a login burst cannot take every core from other requests; logins beyond
+     * the queue are rejected with 429 instead of piling up.
+     */
+    @Bean(name = "passwordHashExecutor")
+    public Executor passwordHashExecutor(@Value("${app.password.hash-concurrency:2}") int concurrency,
+                                         @Value("${app.password.hash-queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("PasswordHash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs the bodies of streamed responses such as the catalog export. Each export holds a
+     * database connection for its whole duration, so the pool is small and exports beyond it
+     * wait in the queue. Registered as the MVC async executor by {@link WebAsyncConfig}.
+     */
+    @Bean(name = "responseStreamingExecutor")
+    public ThreadPoolTaskExecutor responseStreamingExecutor(@Value("${app.export.concurrency:2}") int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("ResponseStream-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
     @Bean(name = "monitoringExecutor")
     public Executor monitoringExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
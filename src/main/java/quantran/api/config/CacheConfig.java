@@ -1,22 +1,40 @@
 package quantran.api.config;
 
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheManager;
-import org.springframework.cache.support.CompositeCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 
+import quantran.api.cache.CacheInvalidationBus;
+import quantran.api.cache.TwoLevelCache;
+import quantran.api.cache.TwoLevelCacheManager;
+
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -38,45 +56,86 @@ public class CacheConfig {
     @Value("${spring.cache.caffeine.expire-after-write:10m}")
     private String caffeineExpireAfterWrite;
 
+    @Value("${app.cache.refresh-after-write:0m}")
+    private String refreshAfterWrite;
+
+    @Value("${app.cache.user-key-digests.ttl-seconds:30}")
+    private long userKeyDigestsTtlSeconds;
+
+    @Value("${app.cache.invalidation.channel:bookstore:cache-invalidation}")
+    private String invalidationChannel;
+
+    @Value("${app.cache.local-only-names:books_fts,books_indexed,books_price_range,book_summaries,book_counts,user_key_digests}")
+    private List<String> localOnlyCacheNames;
+
     /**
-     * Primary cache manager with multi-level caching strategy
+     * Primary cache manager with multi-level caching strategy: every cache is a
+     * {@link TwoLevelCache} reading Caffeine first, then Redis, then the method itself.
      */
     @Bean
     @Primary
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                     CacheInvalidationBus cacheInvalidationBus,
+                                     @Qualifier("cacheRefreshExecutor") Executor cacheRefreshExecutor,
+                                     MeterRegistry meterRegistry) {
         // L1: Caffeine (in-memory) - Fast access for frequently used data
-        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
-        caffeineCacheManager.setCaffeine(Caffeine.newBuilder()
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
                 .maximumSize(caffeineMaxSize)
-                .expireAfterWrite(parseDuration(caffeineExpireAfterWrite), TimeUnit.MINUTES)
-                .recordStats()
-        );
-
-        // L2: Redis (distributed) - Persistent cache for shared data
-        RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
-                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofMinutes(30))
-                        .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer())))
-                .withCacheConfiguration("books", 
-                    RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(15)))
-                .withCacheConfiguration("authors", 
-                    RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(20)))
-                .withCacheConfiguration("publishers", 
-                    RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(20)))
-                .withCacheConfiguration("book_summaries", 
-                    RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(10)))
-                .withCacheConfiguration("book_counts", 
-                    RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(5)))
+                .expireAfterWrite(parseDuration(caffeineExpireAfterWrite), TimeUnit.MINUTES);
+
+        // L2: Redis (distributed) - Shared between nodes, so a miss on one node can be served
+        // from the entry another node populated
+        RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMinutes(parseDuration(redisTtl)))
+                .prefixCacheNameWith("bookstore:")
+                .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jsonRedisSerializer()));
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(
+                        RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory, BatchStrategies.scan(1000)))
+                .cacheDefaults(defaults)
+                .withCacheConfiguration("books", defaults.entryTtl(Duration.ofHours(6)))
+                .withCacheConfiguration("authors", defaults.entryTtl(Duration.ofMinutes(20)))
+                .withCacheConfiguration("publishers", defaults.entryTtl(Duration.ofMinutes(20)))
+                .withCacheConfiguration("book_summaries", defaults.entryTtl(Duration.ofMinutes(10)))
+                .withCacheConfiguration("book_counts", defaults.entryTtl(Duration.ofHours(1)))
+                .withCacheConfiguration("books_fts", defaults.entryTtl(Duration.ofMinutes(30)))
+                .withCacheConfiguration("books_indexed", defaults.entryTtl(Duration.ofMinutes(15)))
+                .withCacheConfiguration("books_price_range", defaults.entryTtl(Duration.ofMinutes(20)))
                 .build();
+        // Not a bean of its own, so load the per-cache configurations above explicitly
+        redisCacheManager.initializeCaches();
 
-        // Composite: L1 first, then L2
-        CompositeCacheManager compositeCacheManager = new CompositeCacheManager(
-                caffeineCacheManager, redisCacheManager
-        );
-        compositeCacheManager.setFallbackToNoOpCache(false); // throw if cache not found
-        
-        return compositeCacheManager;
+        // Refresh-ahead: hot L1 entries are reloaded in the background before they expire
+        return new TwoLevelCacheManager(caffeine, redisCacheManager, localOnlyCacheNames, cacheInvalidationBus,
+                Duration.ofMinutes(parseDuration(refreshAfterWrite)), cacheRefreshExecutor, meterRegistry)
+                // A digest read just before a key change commits can be cached after its eviction;
+                // a short expiry bounds how long such a stale digest is accepted
+                .withLocalCache("user_key_digests", Caffeine.newBuilder()
+                        .maximumSize(caffeineMaxSize)
+                        .expireAfterWrite(userKeyDigestsTtlSeconds, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Broadcasts L1 evictions to the other nodes, so a write on one node does not leave
+     * stale Caffeine entries elsewhere until they expire.
+     */
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(RedisConnectionFactory redisConnectionFactory,
+                                                     MeterRegistry meterRegistry) {
+        return new CacheInvalidationBus(new StringRedisTemplate(redisConnectionFactory), invalidationChannel,
+                meterRegistry);
+    }
+
+    /**
+     * Subscribes the invalidation bus to its Redis channel.
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory redisConnectionFactory, CacheInvalidationBus cacheInvalidationBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheInvalidationBus, new ChannelTopic(cacheInvalidationBus.getChannel()));
+        return container;
     }
 
     /**
@@ -92,52 +151,35 @@ public class CacheConfig {
         template.setHashKeySerializer(new StringRedisSerializer());
         
         // Use JSON serializer for values
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(jsonRedisSerializer());
+        template.setHashValueSerializer(jsonRedisSerializer());
         
         template.afterPropertiesSet();
         return template;
     }
 
     /**
-     * Cache configuration for specific cache names with different TTLs
+     * JSON serializer for cached values. Type information is embedded so values read back
+     * as the class they were cached as; java.time values are supported and properties
+     * without a setter (derived getters) are ignored when reading. Values are read back as
+     * {@code Object}, so a cached {@code Optional} would come back unwrapped: cache the
+     * value or {@code null} instead.
      */
-    @Bean
-    public CacheManager specificCacheManager(RedisConnectionFactory redisConnectionFactory) {
-        return RedisCacheManager.builder(redisConnectionFactory)
-                .withCacheConfiguration("books", 
-                    RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofMinutes(15))
-                        .prefixCacheNameWith("bookstore:"))
-                .withCacheConfiguration("authors", 
-                    RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofMinutes(20))
-                        .prefixCacheNameWith("bookstore:"))
-                .withCacheConfiguration("publishers", 
-                    RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofMinutes(20))
-                        .prefixCacheNameWith("bookstore:"))
-                .withCacheConfiguration("book_summaries", 
-                    RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofMinutes(10))
-                        .prefixCacheNameWith("bookstore:"))
-                .withCacheConfiguration("book_counts", 
-                    RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofMinutes(5))
-                        .prefixCacheNameWith("bookstore:"))
-                .withCacheConfiguration("books_fts", 
-                    RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofMinutes(30))
-                        .prefixCacheNameWith("bookstore:"))
-                .withCacheConfiguration("books_indexed", 
-                    RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofMinutes(15))
-                        .prefixCacheNameWith("bookstore:"))
-                .withCacheConfiguration("books_price_range", 
-                    RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofMinutes(20))
-                        .prefixCacheNameWith("bookstore:"))
+    static GenericJackson2JsonRedisSerializer jsonRedisSerializer() {
+        PolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("quantran.api.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType("java.time.")
+                .allowIfSubType("java.math.")
+                .allowIfSubType("java.lang.")
                 .build();
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        objectMapper.activateDefaultTyping(typeValidator, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(objectMapper, null);
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
     }
 
     /**
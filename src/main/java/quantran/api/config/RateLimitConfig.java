@@ -1,170 +1,128 @@
 package quantran.api.config;
 
+import lombok.Data;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Bean;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-import org.springframework.web.servlet.HandlerInterceptor;
+import quantran.api.ratelimit.ClusterRateLimiter;
+import quantran.api.ratelimit.LocalRateLimiter;
+import quantran.api.ratelimit.RateLimitInterceptor;
+import quantran.api.ratelimit.RateLimitPolicy;
+import quantran.api.ratelimit.RateLimiter;
 
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Per-client token bucket rate limits. Routes listed under {@code app.rate-limit.routes}
+ * get their own limits; all other API routes share the default policy. Each policy keeps
+ * its own buckets, so a client's requests to one route group do not use up another's.
+ *
+ * <p>With {@code app.rate-limit.cluster.enabled}, the buckets are shared by all nodes through
+ * Redis and the limits hold for the cluster; each node falls back to its own buckets while
+ * Redis is unavailable.
+ */
 @Configuration
 @Log4j2
 public class RateLimitConfig implements WebMvcConfigurer {
+    private static final String[] API_PATHS = {"/api/**"};
+    private static final String[] EXCLUDED_PATHS = {"/api/health/**", "/api/actuator/**", "/api/metrics/**"};
+    private static final long PERIOD_MS = TimeUnit.MINUTES.toMillis(1);
 
-    @Value("${app.rate-limit.max-requests-per-minute:100}")
-    private static int maxRequestsPerMinute;
-    
-    @Value("${app.rate-limit.enabled:true}")
-    private static boolean rateLimitEnabled;
-    
-    @Value("${app.rate-limit.burst-limit:20}")
-    private static int burstLimit;
-    
-    @Value("${app.rate-limit.window-size:60}")
-    private static int windowSizeSeconds;
+    private final Environment environment;
+    private final boolean rateLimitEnabled;
+    private final int maxRequestsPerMinute;
+    private final int burstLimit;
+    private final long maxClients;
+    private final RedisConnectionFactory redisConnectionFactory;
+    private final boolean clusterEnabled;
+    private final String clusterKeyPrefix;
+    private final int clusterLeaseSize;
+    private final long clusterLeaseTtlMs;
+    private final long clusterRetryAfterFailureMs;
 
-    private static final ConcurrentHashMap<String, RequestCounter> requestCounters = new ConcurrentHashMap<>();
-
-    @Bean
-    public RateLimitInterceptor rateLimitInterceptor() {
-        return new RateLimitInterceptor();
+    public RateLimitConfig(Environment environment,
+                           RedisConnectionFactory redisConnectionFactory,
+                           @Value("${app.rate-limit.enabled:true}") boolean rateLimitEnabled,
+                           @Value("${app.rate-limit.max-requests-per-minute:100}") int maxRequestsPerMinute,
+                           @Value("${app.rate-limit.burst-limit:20}") int burstLimit,
+                           @Value("${app.rate-limit.max-clients:100000}") long maxClients,
+                           @Value("${app.rate-limit.cluster.enabled:false}") boolean clusterEnabled,
+                           @Value("${app.rate-limit.cluster.key-prefix:bookstore:rate-limit:}") String clusterKeyPrefix,
+                           @Value("${app.rate-limit.cluster.lease-size:10}") int clusterLeaseSize,
+                           @Value("${app.rate-limit.cluster.lease-ttl-ms:1000}") long clusterLeaseTtlMs,
+                           @Value("${app.rate-limit.cluster.retry-after-failure-ms:5000}") long clusterRetryAfterFailureMs) {
+        this.environment = environment;
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.maxRequestsPerMinute = maxRequestsPerMinute;
+        this.burstLimit = burstLimit;
+        this.maxClients = maxClients;
+        this.clusterEnabled = clusterEnabled;
+        this.clusterKeyPrefix = clusterKeyPrefix;
+        this.clusterLeaseSize = clusterLeaseSize;
+        this.clusterLeaseTtlMs = clusterLeaseTtlMs;
+        this.clusterRetryAfterFailureMs = clusterRetryAfterFailureMs;
     }
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        if (rateLimitEnabled) {
-            registry.addInterceptor(rateLimitInterceptor())
-                    .addPathPatterns("/api/**")
-                    .excludePathPatterns("/api/health/**", "/api/actuator/**", "/api/metrics/**");
-            log.info("Rate limiting enabled with {} requests per minute", maxRequestsPerMinute);
-        } else {
+        if (!rateLimitEnabled) {
             log.info("Rate limiting disabled");
+            return;
         }
-    }
-
-    public static class RateLimitInterceptor implements HandlerInterceptor {
-
-        @Override
-        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-            if (!rateLimitEnabled) {
-                return true;
-            }
-            
-            String clientIp = getClientIpAddress(request);
-            String userAgent = request.getHeader("User-Agent");
-            String requestPath = request.getRequestURI();
-            String key = clientIp + ":" + userAgent + ":" + requestPath;
-
-            RequestCounter counter = requestCounters.computeIfAbsent(key, k -> new RequestCounter());
-            
-            if (counter.isRateLimited()) {
-                log.warn("Rate limit exceeded for IP: {}, Path: {}, User-Agent: {}", 
-                        clientIp, requestPath, userAgent);
-                
-                response.setStatus(429); // Too Many Requests
-                response.setHeader("Retry-After", String.valueOf(windowSizeSeconds));
-                response.setHeader("X-RateLimit-Limit", String.valueOf(maxRequestsPerMinute));
-                response.setHeader("X-RateLimit-Remaining", "0");
-                response.setHeader("X-RateLimit-Reset", String.valueOf(counter.getResetTime()));
-                response.getWriter().write("Rate limit exceeded. Please try again later.");
-                return false;
-            }
-
-            counter.increment();
-            
-            // Add rate limit headers
-            response.setHeader("X-RateLimit-Limit", String.valueOf(maxRequestsPerMinute));
-            response.setHeader("X-RateLimit-Remaining", String.valueOf(maxRequestsPerMinute - counter.getCount()));
-            response.setHeader("X-RateLimit-Reset", String.valueOf(counter.getResetTime()));
-            
-            return true;
-        }
+        StringRedisTemplate redisTemplate = clusterEnabled ? new StringRedisTemplate(redisConnectionFactory) : null;
+        List<String> routePaths = new ArrayList<>();
+        routes().forEach((name, route) -> {
+            RateLimitPolicy policy = new RateLimitPolicy(name, route.getBurstLimit(), route.getMaxRequestsPerMinute(), PERIOD_MS);
+            registry.addInterceptor(new RateLimitInterceptor(rateLimiter(policy, redisTemplate)))
+                    .addPathPatterns(route.getPaths())
+                    .excludePathPatterns(EXCLUDED_PATHS);
+            routePaths.addAll(route.getPaths());
+            log.info("Rate limit {} on {}", policy, route.getPaths());
+        });
 
-        private String getClientIpAddress(HttpServletRequest request) {
-            // Check for X-Forwarded-For header (for proxy scenarios)
-            String xForwardedFor = request.getHeader("X-Forwarded-For");
-            if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
-                return xForwardedFor.split(",")[0].trim();
-            }
-            
-            // Check for X-Real-IP header
-            String xRealIp = request.getHeader("X-Real-IP");
-            if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
-                return xRealIp.trim();
-            }
-            
-            // Check for X-Client-IP header
-            String xClientIp = request.getHeader("X-Client-IP");
-            if (xClientIp != null && !xClientIp.isEmpty() && !"unknown".equalsIgnoreCase(xClientIp)) {
-                return xClientIp.trim();
-            }
-            
-            // Check for CF-Connecting-IP header (Cloudflare)
-            String cfConnectingIp = request.getHeader("CF-Connecting-IP");
-            if (cfConnectingIp != null && !cfConnectingIp.isEmpty() && !"unknown".equalsIgnoreCase(cfConnectingIp)) {
-                return cfConnectingIp.trim();
-            }
-            
-            // Fallback to remote address
-            return request.getRemoteAddr();
-        }
+        RateLimitPolicy defaultPolicy = new RateLimitPolicy("default", burstLimit, maxRequestsPerMinute, PERIOD_MS);
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter(defaultPolicy, redisTemplate)))
+                .addPathPatterns(API_PATHS)
+                .excludePathPatterns(EXCLUDED_PATHS)
+                .excludePathPatterns(routePaths);
+        log.info("Rate limiting enabled with {} requests per minute{}", maxRequestsPerMinute,
+                clusterEnabled ? " across the cluster" : " per node");
     }
 
-    private static class RequestCounter {
-        private final AtomicInteger count = new AtomicInteger(0);
-        private long resetTime = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(windowSizeSeconds);
-        private final AtomicInteger burstCount = new AtomicInteger(0);
-        private long burstResetTime = System.currentTimeMillis() + 1000; // 1 second burst window
-
-        public boolean isRateLimited() {
-            long currentTime = System.currentTimeMillis();
-            
-            // Check burst limit first
-            if (currentTime > burstResetTime) {
-                burstCount.set(0);
-                burstResetTime = currentTime + 1000;
-            }
-            
-            if (burstCount.get() >= burstLimit) {
-                return true;
-            }
-            
-            // Check regular rate limit
-            if (currentTime > resetTime) {
-                count.set(0);
-                resetTime = currentTime + TimeUnit.SECONDS.toMillis(windowSizeSeconds);
-            }
-            
-            return count.get() >= maxRequestsPerMinute;
+    private RateLimiter rateLimiter(RateLimitPolicy policy, StringRedisTemplate redisTemplate) {
+        LocalRateLimiter local = new LocalRateLimiter(policy, maxClients);
+        if (redisTemplate == null) {
+            return local;
         }
+        return new ClusterRateLimiter(policy, local, redisTemplate, clusterKeyPrefix, clusterLeaseSize,
+                clusterLeaseTtlMs, clusterRetryAfterFailureMs, maxClients);
+    }
 
-        public void increment() {
-            count.incrementAndGet();
-            burstCount.incrementAndGet();
-        }
-        
-        public int getCount() {
-            return count.get();
-        }
-        
-        public long getResetTime() {
-            return resetTime;
-        }
+    private Map<String, RouteLimit> routes() {
+        return Binder.get(environment)
+                .bind("app.rate-limit.routes", Bindable.mapOf(String.class, RouteLimit.class))
+                .orElse(Collections.emptyMap());
     }
-    
-    // Cleanup method to prevent memory leaks
-    public void cleanupOldCounters() {
-        long currentTime = System.currentTimeMillis();
-        requestCounters.entrySet().removeIf(entry -> {
-            RequestCounter counter = entry.getValue();
-            return currentTime > counter.getResetTime() + TimeUnit.MINUTES.toMillis(5); // Keep for 5 minutes after reset
-        });
+
+    /**
+     * Limits of a route group, e.g. {@code app.rate-limit.routes.upload.paths=/api/v1/books/upload}.
+     */
+    @Data
+    public static class RouteLimit {
+        private List<String> paths = new ArrayList<>();
+        private int maxRequestsPerMinute = 100;
+        private int burstLimit = 20;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package quantran.api.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import quantran.api.stream.TaskUpdateBus;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Server-Sent Events streaming of task status: the executor writing to the streams and the
+ * Redis channel carrying task updates between nodes.
+ */
+@Configuration
+public class TaskStreamConfig {
+
+    @Value("${app.tasks.stream.channel:bookstore:task-updates}")
+    private String channel;
+
+    /**
+     * Writes queued updates to the streams. Each stream is written by at most one thread at a
+     * time, so a few threads serve any number of connections. Drains that do not fit are
+     * rejected and resumed by the next update or heartbeat of that stream.
+     */
+    @Bean(name = "taskStreamExecutor")
+    public Executor taskStreamExecutor(@Value("${app.tasks.stream.threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("TaskStream-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public TaskUpdateBus taskUpdateBus(RedisConnectionFactory redisConnectionFactory, ObjectMapper objectMapper) {
+        return new TaskUpdateBus(new StringRedisTemplate(redisConnectionFactory), objectMapper, channel);
+    }
+
+    /**
+     * Subscribes the task update bus to its Redis channel.
+     */
+    @Bean
+    public RedisMessageListenerContainer taskUpdateListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                     TaskUpdateBus taskUpdateBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(taskUpdateBus, new ChannelTopic(taskUpdateBus.getChannel()));
+        return container;
+    }
+}
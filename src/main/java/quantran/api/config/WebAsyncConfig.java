@@ -0,0 +1,26 @@
+package quantran.api.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs asynchronous MVC work, such as writing a {@code StreamingResponseBody}, on a bounded
+ * pool instead of a thread per request.
+ */
+@Configuration
+public class WebAsyncConfig implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor responseStreamingExecutor;
+
+    public WebAsyncConfig(@Qualifier("responseStreamingExecutor") ThreadPoolTaskExecutor responseStreamingExecutor) {
+        this.responseStreamingExecutor = responseStreamingExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(responseStreamingExecutor);
+    }
+}
@@ -3,22 +3,33 @@ package quantran.api.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import quantran.api.common.UrlConstant;
 import quantran.api.dto.AsyncTaskRequest;
+import quantran.api.dto.AsyncTaskResponseDto;
+import quantran.api.page.CursorPage;
 import quantran.api.service.AsyncTaskService;
+import quantran.api.stream.TaskStreamRegistry;
 
-import java.util.List;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.stream.Collectors;
 
 @RestController
+@Validated
 @Log4j2
 @RequiredArgsConstructor
 @RequestMapping(UrlConstant.TASK)
 @CrossOrigin(origins = UrlConstant.BOOKFE)
 public class AsyncTaskController {
+    private static final int STREAM_SNAPSHOT_SIZE = 50;
     
     private final AsyncTaskService asyncTaskService;
+    private final TaskStreamRegistry taskStreamRegistry;
     
     /**
      * Get task status by task ID
@@ -33,14 +44,52 @@ public class AsyncTaskController {
     }
     
     /**
-     * Get all tasks for a user
+     * Stream status and progress of a task as Server-Sent Events ({@code task} events carrying
+     * the task), instead of polling. The stream ends when the task finishes.
+     */
+    @GetMapping(value = "/{taskId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTaskStatus(@PathVariable String taskId) {
+        log.info("Streaming task status - taskId: {}", taskId);
+        
+        if (!asyncTaskService.getTaskStatus(taskId).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(taskStreamRegistry.subscribeTask(taskId, () -> asyncTaskService.getTaskStatus(taskId)
+                .map(AsyncTaskResponseDto::fromAsyncTaskRequest)
+                .orElse(null)));
+    }
+    
+    /**
+     * Stream status and progress of every task of a user as Server-Sent Events, starting with
+     * the current state of their most recent tasks.
+     */
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserTasks(@PathVariable String userId) {
+        log.info("Streaming tasks for user - userId: {}", userId);
+        
+        return taskStreamRegistry.subscribeUser(userId, () -> asyncTaskService.getUserTasks(userId, null, STREAM_SNAPSHOT_SIZE)
+                .getData().stream()
+                .map(AsyncTaskResponseDto::fromAsyncTaskRequest)
+                .collect(Collectors.toList()));
+    }
+    
+    /**
+     * Get a user's tasks, newest first, one page at a time
+     * @param cursor Continuation token returned as {@code nextCursor} by the previous page
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<AsyncTaskRequest>> getUserTasks(@PathVariable String userId) {
-        log.info("Getting tasks for user - userId: {}", userId);
+    public ResponseEntity<CursorPage<AsyncTaskRequest>> getUserTasks(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") @Min(value = 1, message = "Size must be positive") @Max(value = 100, message = "Size must be at most 100") int size) {
+        log.info("Getting tasks for user - userId: {}, size: {}, hasCursor: {}", userId, size, cursor != null);
         
-        List<AsyncTaskRequest> tasks = asyncTaskService.getUserTasks(userId);
-        return ResponseEntity.ok(tasks);
+        try {
+            return ResponseEntity.ok(asyncTaskService.getUserTasks(userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid cursor: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     /**
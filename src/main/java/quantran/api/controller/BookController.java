@@ -7,9 +7,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import quantran.api.dto.BookImportJobDto;
 import quantran.api.dto.BookRequestDto;
 import quantran.api.dto.BookResponseDto;
+import quantran.api.dto.BookSuggestionDto;
 import quantran.api.entity.BookTypeEntity;
+import quantran.api.page.CursorPage;
+import quantran.api.page.FacetedPage;
 import quantran.api.page.Paginate;
 import quantran.api.service.BookService;
 import quantran.api.dto.AsyncTaskRequest;
@@ -23,8 +28,10 @@ import javax.validation.constraints.NotBlank;
 import java.util.Optional;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
@@ -133,6 +140,131 @@ public class BookController {
         }
     }
 
+    /**
+     * Find books with keyset (seek) pagination.
+     * Suited to deep crawls: each page costs the same regardless of depth.
+     * 
+     * @param cursor Continuation token returned as {@code nextCursor} by the previous page
+     * @param size Page size
+     * @param sort Ordering: "id" (default), or "publicationDate" (newest first, dated books only)
+     * @return Page of book responses with the token for the next page
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<BookResponseDto>> findBooksByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") @Min(value = 1, message = "Size must be positive") @Max(value = 100, message = "Size must be at most 100") int size,
+            @RequestParam(defaultValue = "id") @Pattern(regexp = "^(id|publicationDate)$", message = "Sort must be id or publicationDate") String sort) {
+        
+        log.info("Finding books by cursor - sort: {}, size: {}, hasCursor: {}", sort, size, cursor != null);
+        
+        try {
+            CursorPage<BookResponseDto> books = bookService.findBooksByCursor(cursor, size, sort);
+            log.info("Found {} books, hasNext: {}", books.getData().size(), books.isHasNext());
+            return ResponseEntity.ok(books);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid cursor: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error finding books by cursor", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Ranked full-text search over title, authors, genres and publisher.
+     * Title matches rank above author matches, which rank above genre and publisher matches.
+     * 
+     * @param q Free-text query
+     * @param limit Maximum number of results
+     * @return Book responses, best match first
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<BookResponseDto>> searchBooks(
+            @RequestParam @NotBlank(message = "Query is required") @Size(min = 2, max = 200, message = "Query must be between 2 and 200 characters") String q,
+            @RequestParam(defaultValue = "20") @Min(value = 1, message = "Limit must be positive") @Max(value = 100, message = "Limit must be at most 100") int limit) {
+        
+        log.info("Searching books - q: {}, limit: {}", q, limit);
+        
+        try {
+            List<BookResponseDto> books = bookService.searchBooks(q, limit);
+            log.info("Found {} books", books.size());
+            return ResponseEntity.ok(books);
+        } catch (Exception e) {
+            log.error("Error searching books", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Typeahead suggestions for a prefix: the most popular matching titles, authors and publishers.
+     * Served from memory, no database round trip.
+     * 
+     * @param q Case-insensitive prefix
+     * @param limit Maximum number of suggestions per category
+     * @return Suggested titles, authors and publishers
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<BookSuggestionDto> suggest(
+            @RequestParam @NotBlank(message = "Query is required") @Size(max = 100, message = "Query must be at most 100 characters") String q,
+            @RequestParam(defaultValue = "5") @Min(value = 1, message = "Limit must be positive") @Max(value = 20, message = "Limit must be at most 20") int limit) {
+        
+        log.debug("Suggesting books - q: {}, limit: {}", q, limit);
+        
+        try {
+            return ResponseEntity.ok(bookService.suggest(q, limit));
+        } catch (Exception e) {
+            log.error("Error suggesting books", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Faceted search: filter by text and facet selections and get value counts per facet.
+     * Repeat a facet parameter to select several values (ORed); different facets are ANDed.
+     * Each facet's counts ignore that facet's own selection.
+     * 
+     * @param title Title substring
+     * @param author Author name substring
+     * @param genre Selected genre names
+     * @param language Selected language codes
+     * @param format Selected formats
+     * @param publisher Selected publisher names
+     * @param price Selected price ranges: 0-10, 10-25, 25-50, 50-100, 100+
+     * @param page Page number (0-based)
+     * @param size Page size
+     * @param facetLimit Maximum number of values reported per facet
+     * @return Page of book responses with facet counts
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetedPage<BookResponseDto>> findBooksFaceted(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) List<String> genre,
+            @RequestParam(required = false) List<String> language,
+            @RequestParam(required = false) List<String> format,
+            @RequestParam(required = false) List<String> publisher,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(defaultValue = "0") @Min(value = 0, message = "Page must be non-negative") int page,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "Size must be positive") @Max(value = 100, message = "Size must be at most 100") int size,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "Facet limit must be positive") @Max(value = 100, message = "Facet limit must be at most 100") int facetLimit) {
+        
+        log.info("Finding books with facets - title: {}, author: {}, genre: {}, language: {}, format: {}, publisher: {}, price: {}, page: {}, size: {}",
+                title, author, genre, language, format, publisher, price, page, size);
+        
+        try {
+            FacetedPage<BookResponseDto> books = bookService.findBooksFaceted(
+                    title, author, genre, language, format, publisher, price, page, size, facetLimit);
+            log.info("Found {} books of {} matches", books.getData().size(), books.getTotalElements());
+            return ResponseEntity.ok(books);
+        } catch (IllegalStateException e) {
+            log.warn("Faceted search unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("Error finding books with facets", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Update an existing book.
      * 
@@ -405,17 +537,25 @@ public class BookController {
     // Business Logic Endpoints
 
     /**
-     * Process book upload from file.
+     * Process book upload from file as an import task. The file is stored and imported in the
+     * background; the task reports progress and, when done, the accepted and rejected rows.
      * 
      * @param file The uploaded file
-     * @return Success response
+     * @return The import task
      */
     @PostMapping("/upload")
-    public ResponseEntity<String> processBookUpload(@RequestParam("file") MultipartFile file) throws IOException {
+    public ResponseEntity<AsyncTaskResponseDto> processBookUpload(
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = "userName", required = false) String userName) throws IOException {
         log.info("Processing book upload: {}", file.getOriginalFilename());
-        bookService.processBookUpload(file);
-        log.info("Successfully processed book upload: {}", file.getOriginalFilename());
-        return ResponseEntity.ok("Book upload processed successfully");
+        asyncProcessingBackgroundWorkerImpl.checkCapacity();
+        BookImportJobDto job = bookService.processBookUpload(file);
+        AsyncTaskRequest task = asyncTaskService.submitTask("import_books", job,
+                userName != null ? userName : "anonymous");
+        asyncProcessingBackgroundWorkerImpl.addToRequestQueue(new Task("import", task.getTaskId(), job));
+        log.info("Queued import task {} for book upload {} ({} bytes)",
+                task.getTaskId(), file.getOriginalFilename(), job.getFileSize());
+        return ResponseEntity.accepted().body(AsyncTaskResponseDto.fromAsyncTaskRequest(task));
     }
 
     /**
@@ -424,11 +564,9 @@ public class BookController {
      * @return Response entity with book data
      */
     @GetMapping("/download")
-    public ResponseEntity<byte[]> downloadBooks() throws IOException {
+    public ResponseEntity<StreamingResponseBody> downloadBooks() {
         log.info("Downloading books data");
-        ResponseEntity<byte[]> response = bookService.downloadBooks();
-        log.info("Successfully downloaded books data");
-        return response;
+        return bookService.downloadBooks();
     }
 
     /**
@@ -476,10 +614,10 @@ public class BookController {
             bookRequest.getPrice().toString(),
             bookRequest.getBookType()
         );
+        asyncProcessingBackgroundWorkerImpl.checkCapacity();
         AsyncTaskRequest task = asyncTaskService.submitTask("update_book", bookModel, userName);
+        asyncProcessingBackgroundWorkerImpl.addToRequestQueue(new Task("update", task.getTaskId(), bookModel));
         idempotencyService.saveTaskId(userName, idempotencyKey, task.getTaskId());
-        Task backgroundTask = new Task("update", task.getTaskId(), bookModel);
-        asyncProcessingBackgroundWorkerImpl.addToRequestQueue(backgroundTask);
         AsyncTaskResponseDto response = AsyncTaskResponseDto.fromAsyncTaskRequest(task);
         return ResponseEntity.accepted().body(response);
     }
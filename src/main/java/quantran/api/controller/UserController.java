@@ -9,6 +9,8 @@ import quantran.api.common.UrlConstant;
 import quantran.api.model.UserModel;
 import quantran.api.service.UserService;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @Log4j2
 @RequiredArgsConstructor
@@ -19,11 +21,13 @@ public class UserController {
 
     @PostMapping(UrlConstant.LOGIN)
     @CrossOrigin(origins = UrlConstant.BOOKFE)
-    public ResponseEntity<String> login(@RequestParam String userName, @RequestParam String password, @RequestParam String role) {
+    public CompletableFuture<ResponseEntity<String>> login(@RequestParam String userName, @RequestParam String password, @RequestParam String role) {
         log.info("Start login() for user: {}", userName);
         UserModel userModel = new UserModel(userName, password, role);
-        String key = userService.login(userModel);
-        log.info("End login() for user: {}, result: {}", userName, key != null ? "success" : "failed");
-        return ResponseEntity.ok(key != null ? key : "Login failed");
+        // The request thread is released while the password is checked
+        return userService.login(userModel).thenApply(key -> {
+            log.info("End login() for user: {}, result: {}", userName, key != null ? "success" : "failed");
+            return ResponseEntity.ok(key != null ? key : "Login failed");
+        });
     }
 }
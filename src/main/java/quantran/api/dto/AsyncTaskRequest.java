@@ -24,7 +24,7 @@ public class AsyncTaskRequest {
     private int progress; // Progress percentage (0-100)
     
     public enum TaskStatus {
-        PENDING, PROCESSING, COMPLETED, FAILED, TIMEOUT, CANCELLED
+        PENDING, PROCESSING, COMPLETED, FAILED, TIMEOUT, CANCELLED, DEAD_LETTER
     }
     
     public static AsyncTaskRequest create(String requestType, Object data, String userId) {
@@ -58,6 +58,8 @@ public class AsyncTaskResponseDto {
                 return "Task timed out";
             case CANCELLED:
                 return "Task was cancelled by user";
+            case DEAD_LETTER:
+                return "Task failed on every retry and was set aside";
             default:
                 return "Unknown status";
         }
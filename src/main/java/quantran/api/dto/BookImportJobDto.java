@@ -0,0 +1,19 @@
+package quantran.api.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Data of a book import task: the uploaded CSV file, as stored for the worker that runs the import.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookImportJobDto {
+    private String fileName; // Name of the file as uploaded
+    private String storedPath;
+    private long fileSize;
+}
@@ -0,0 +1,30 @@
+package quantran.api.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk CSV import. Only the first rejections are listed; the counts cover the whole file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookImportResultDto {
+    private long accepted;
+    private long rejected;
+    private List<RowRejection> rejections;
+    private long elapsedMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowRejection {
+        private long line;
+        private String reason;
+    }
+}
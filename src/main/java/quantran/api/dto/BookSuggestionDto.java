@@ -0,0 +1,18 @@
+package quantran.api.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookSuggestionDto {
+    private List<String> titles;
+    private List<String> authors;
+    private List<String> publishers;
+}
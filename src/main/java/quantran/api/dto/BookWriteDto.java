@@ -0,0 +1,23 @@
+package quantran.api.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * One create or update in a batch applied by {@code BookService.writeBooks}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookWriteDto {
+    private String key; // Caller's reference, used to report the outcome of this write
+    private Operation operation;
+    private BookRequestDto request;
+
+    public enum Operation {
+        CREATE, UPDATE
+    }
+}
@@ -12,7 +12,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "async_tasks", indexes = {
-    @Index(name = "idx_task_user", columnList = "user_id"),
+    @Index(name = "idx_task_user_created", columnList = "user_id, created_at DESC, task_id DESC"),
     @Index(name = "idx_task_status", columnList = "status"),
     @Index(name = "idx_task_created", columnList = "created_at")
 })
@@ -56,12 +56,24 @@ public class AsyncTaskEntity {
     @Column(name = "progress")
     private Integer progress;
     
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+    
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+    
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+    
     @Version
     @Column(name = "version")
     private Long version;
     
     public enum TaskStatus {
-        PENDING, PROCESSING, COMPLETED, FAILED, TIMEOUT, CANCELLED
+        PENDING, PROCESSING, COMPLETED, FAILED, TIMEOUT, CANCELLED, DEAD_LETTER
     }
     
     @PrePersist
@@ -75,5 +87,8 @@ public class AsyncTaskEntity {
         if (progress == null) {
             progress = 0;
         }
+        if (attempts == null) {
+            attempts = 0;
+        }
     }
 } 
\ No newline at end of file
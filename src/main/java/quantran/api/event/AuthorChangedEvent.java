@@ -0,0 +1,36 @@
+package quantran.api.event;
+
+/**
+ * Published when an author is created, renamed or deleted.
+ * See {@link BookChangedEvent} for how listeners should subscribe.
+ */
+public final class AuthorChangedEvent {
+
+    private final BookChangedEvent.ChangeType type;
+    private final Long authorId;
+    private final String name;
+    private final int bookCount;
+
+    public AuthorChangedEvent(BookChangedEvent.ChangeType type, Long authorId, String name, int bookCount) {
+        this.type = type;
+        this.authorId = authorId;
+        this.name = name;
+        this.bookCount = bookCount;
+    }
+
+    public BookChangedEvent.ChangeType getType() {
+        return type;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+}
@@ -0,0 +1,67 @@
+package quantran.api.event;
+
+import quantran.api.entity.BookEntity;
+
+/**
+ * Published by the book write paths. Listeners that maintain derived state
+ * (search indexes, caches) should use
+ * {@code @TransactionalEventListener(fallbackExecution = true)} so they only
+ * observe committed changes, or collect the changes of a transaction and apply
+ * them after commit as {@link quantran.api.cache.BookCacheInvalidator} does.
+ */
+public final class BookChangedEvent {
+
+    public enum ChangeType {
+        UPSERTED,
+        DELETED
+    }
+
+    private final ChangeType type;
+    private final String bookId;
+    private final BookSnapshot previous;
+    private final BookSnapshot current;
+
+    private BookChangedEvent(ChangeType type, String bookId, BookSnapshot previous, BookSnapshot current) {
+        this.type = type;
+        this.bookId = bookId;
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public static BookChangedEvent upserted(BookEntity book) {
+        return new BookChangedEvent(ChangeType.UPSERTED, book.getId(), null, BookSnapshot.of(book));
+    }
+
+    /**
+     * @param previous State before the change, taken before the entity was modified
+     */
+    public static BookChangedEvent updated(BookSnapshot previous, BookEntity book) {
+        return new BookChangedEvent(ChangeType.UPSERTED, book.getId(), previous, BookSnapshot.of(book));
+    }
+
+    public static BookChangedEvent deleted(BookSnapshot previous) {
+        return new BookChangedEvent(ChangeType.DELETED, previous.getId(), previous, null);
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public String getBookId() {
+        return bookId;
+    }
+
+    /**
+     * State before the change; {@code null} for creations.
+     */
+    public BookSnapshot getPrevious() {
+        return previous;
+    }
+
+    /**
+     * State after the change; {@code null} for deletions.
+     */
+    public BookSnapshot getCurrent() {
+        return current;
+    }
+}
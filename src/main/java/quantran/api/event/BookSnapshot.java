@@ -0,0 +1,158 @@
+package quantran.api.event;
+
+import quantran.api.entity.AuthorEntity;
+import quantran.api.entity.BookEntity;
+import quantran.api.entity.BookTypeEntity;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable copy of the searchable and facetable state of a book, and of the attributes its
+ * cache keys derive from, taken inside the writing transaction so listeners running after
+ * commit never touch lazy associations.
+ */
+public final class BookSnapshot {
+
+    private final String id;
+    private final String title;
+    private final List<String> authorNames;
+    private final List<String> genreNames;
+    private final String publisherName;
+    private final int reservedQuantity;
+    private final String language;
+    private final String format;
+    private final BigDecimal price;
+    private final String isbn;
+    private final List<Long> authorIds;
+    private final List<String> genreIds;
+    private final Long publisherId;
+    private final Integer publicationYear;
+    private final boolean lowStock;
+    private final boolean outOfStock;
+    private final boolean discounted;
+
+    public BookSnapshot(String id, String title, List<String> authorNames, List<String> genreNames, String publisherName,
+                        int reservedQuantity, String language, String format, BigDecimal price, String isbn,
+                        List<Long> authorIds, List<String> genreIds, Long publisherId, Integer publicationYear,
+                        boolean lowStock, boolean outOfStock, boolean discounted) {
+        this.id = id;
+        this.title = title;
+        this.authorNames = authorNames != null ? Collections.unmodifiableList(authorNames) : Collections.<String>emptyList();
+        this.genreNames = genreNames != null ? Collections.unmodifiableList(genreNames) : Collections.<String>emptyList();
+        this.publisherName = publisherName;
+        this.reservedQuantity = reservedQuantity;
+        this.language = language;
+        this.format = format;
+        this.price = price;
+        this.isbn = isbn;
+        this.authorIds = authorIds != null ? Collections.unmodifiableList(authorIds) : Collections.<Long>emptyList();
+        this.genreIds = genreIds != null ? Collections.unmodifiableList(genreIds) : Collections.<String>emptyList();
+        this.publisherId = publisherId;
+        this.publicationYear = publicationYear;
+        this.lowStock = lowStock;
+        this.outOfStock = outOfStock;
+        this.discounted = discounted;
+    }
+
+    public static BookSnapshot of(BookEntity book) {
+        List<String> authorNames = book.getAuthors() == null ? null : book.getAuthors().stream()
+                .map(AuthorEntity::getName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        List<String> genreNames = book.getGenres() == null ? null : book.getGenres().stream()
+                .map(BookTypeEntity::getName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        List<Long> authorIds = book.getAuthors() == null ? null : book.getAuthors().stream()
+                .map(AuthorEntity::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        List<String> genreIds = book.getGenres() == null ? null : book.getGenres().stream()
+                .map(BookTypeEntity::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        String publisherName = book.getPublisher() != null ? book.getPublisher().getName() : null;
+        Long publisherId = book.getPublisher() != null ? book.getPublisher().getId() : null;
+        int reservedQuantity = book.getReservedQuantity() != null ? book.getReservedQuantity() : 0;
+        Integer publicationYear = book.getPublicationDate() != null ? book.getPublicationDate().getYear() : null;
+        // Same conditions as the low-stock, out-of-stock and discount queries in BookRepository
+        int stockQuantity = book.getStockQuantity() != null ? book.getStockQuantity() : 0;
+        int reorderPoint = book.getReorderPoint() != null ? book.getReorderPoint() : 0;
+        int discountPercentage = book.getDiscountPercentage() != null ? book.getDiscountPercentage() : 0;
+        return new BookSnapshot(book.getId(), book.getTitle(), authorNames, genreNames, publisherName, reservedQuantity,
+                book.getLanguage(), book.getFormat(), book.getPrice(), book.getIsbn(), authorIds, genreIds, publisherId,
+                publicationYear, stockQuantity <= reorderPoint, stockQuantity == 0, discountPercentage > 0);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public List<String> getAuthorNames() {
+        return authorNames;
+    }
+
+    public List<String> getGenreNames() {
+        return genreNames;
+    }
+
+    public String getPublisherName() {
+        return publisherName;
+    }
+
+    public int getReservedQuantity() {
+        return reservedQuantity;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public List<Long> getAuthorIds() {
+        return authorIds;
+    }
+
+    public List<String> getGenreIds() {
+        return genreIds;
+    }
+
+    public Long getPublisherId() {
+        return publisherId;
+    }
+
+    public Integer getPublicationYear() {
+        return publicationYear;
+    }
+
+    public boolean isLowStock() {
+        return lowStock;
+    }
+
+    public boolean isOutOfStock() {
+        return outOfStock;
+    }
+
+    public boolean isDiscounted() {
+        return discounted;
+    }
+}
@@ -0,0 +1,71 @@
+package quantran.api.event;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Published once per committed chunk of a book import, in place of a
+ * {@link BookChangedEvent} per row. An import only sets the title and price of a book
+ * (and the defaults of a new one), so the rows carry the state the upsert returned
+ * rather than a full {@link BookSnapshot}. See {@link BookChangedEvent} for how
+ * listeners should subscribe.
+ */
+public final class BooksImportedEvent {
+
+    private final List<ImportedBook> books;
+
+    public BooksImportedEvent(List<ImportedBook> books) {
+        this.books = Collections.unmodifiableList(books);
+    }
+
+    public List<ImportedBook> getBooks() {
+        return books;
+    }
+
+    /**
+     * A book as written by the import; authors, genres and publisher are left as they were.
+     */
+    public static final class ImportedBook {
+        private final String id;
+        private final String title;
+        private final BigDecimal price;
+        private final String language;
+        private final String format;
+        private final int reservedQuantity;
+
+        public ImportedBook(String id, String title, BigDecimal price, String language, String format,
+                            int reservedQuantity) {
+            this.id = id;
+            this.title = title;
+            this.price = price;
+            this.language = language;
+            this.format = format;
+            this.reservedQuantity = reservedQuantity;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+
+        public int getReservedQuantity() {
+            return reservedQuantity;
+        }
+    }
+}
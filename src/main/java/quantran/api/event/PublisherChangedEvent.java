@@ -0,0 +1,36 @@
+package quantran.api.event;
+
+/**
+ * Published when a publisher is created, renamed or deleted.
+ * See {@link BookChangedEvent} for how listeners should subscribe.
+ */
+public final class PublisherChangedEvent {
+
+    private final BookChangedEvent.ChangeType type;
+    private final Long publisherId;
+    private final String name;
+    private final int bookCount;
+
+    public PublisherChangedEvent(BookChangedEvent.ChangeType type, Long publisherId, String name, int bookCount) {
+        this.type = type;
+        this.publisherId = publisherId;
+        this.name = name;
+        this.bookCount = bookCount;
+    }
+
+    public BookChangedEvent.ChangeType getType() {
+        return type;
+    }
+
+    public Long getPublisherId() {
+        return publisherId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+}
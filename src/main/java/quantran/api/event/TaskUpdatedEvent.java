@@ -0,0 +1,21 @@
+package quantran.api.event;
+
+import quantran.api.dto.AsyncTaskResponseDto;
+
+/**
+ * Published when an async task is submitted or its status or progress changes. Carries a
+ * copy of the task taken at the time of the change, since the task itself keeps changing.
+ * See {@link BookChangedEvent} for how listeners should subscribe.
+ */
+public final class TaskUpdatedEvent {
+
+    private final AsyncTaskResponseDto task;
+
+    public TaskUpdatedEvent(AsyncTaskResponseDto task) {
+        this.task = task;
+    }
+
+    public AsyncTaskResponseDto getTask() {
+        return task;
+    }
+}
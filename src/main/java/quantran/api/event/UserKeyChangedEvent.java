@@ -0,0 +1,18 @@
+package quantran.api.event;
+
+/**
+ * Published when a user is given a new key.
+ * See {@link BookChangedEvent} for how listeners should subscribe.
+ */
+public final class UserKeyChangedEvent {
+
+    private final String userName;
+
+    public UserKeyChangedEvent(String userName) {
+        this.userName = userName;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+}
@@ -0,0 +1,18 @@
+package quantran.api.exception;
+
+/**
+ * Thrown when a request needs a component that is not available yet, such as an in-memory
+ * index still loading; mapped to 503 Service Unavailable.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,17 @@
+package quantran.api.exception;
+
+/**
+ * Thrown when the background work queue is at capacity; mapped to 429 Too Many Requests.
+ */
+public class WorkQueueFullException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public WorkQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,439 @@
+package quantran.api.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import quantran.api.dto.AsyncTaskRequest;
+import quantran.api.dto.BookImportJobDto;
+import quantran.api.dto.BookImportResultDto;
+import quantran.api.event.BooksImportedEvent;
+import quantran.api.service.AsyncTaskService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Runs book import tasks: loads a stored CSV file with the columns of the export (ID, Name,
+ * Author, BookType, Price). A book with an existing ID gets the imported title and price;
+ * other books are created.
+ *
+ * <p>The file is read by one thread and cut into chunks of rows, which are validated and
+ * encoded in parallel. Chunks are committed in file order, each in its own transaction: a
+ * {@code COPY} into a temporary staging table, one set-based upsert into {@code books}, and
+ * the checkpoint of the task, i.e. the byte offset and line after the chunk and the totals so
+ * far. A bad row is rejected on its own and reported with its line number; it never rolls
+ * back other rows. Within a chunk, the last row of a repeated ID wins.
+ *
+ * <p>A task that fails, or whose node dies, is run again by the task queue and resumes at its
+ * checkpoint. The checkpoint update is conditional on the offset the chunk started at, so if
+ * two runs of one task ever overlap, only one commits each chunk. Progress and throughput
+ * are reported on the task after every chunk; the final result is the
+ * {@link BookImportResultDto} as JSON.
+ *
+ * <p>One {@link BooksImportedEvent} is published per chunk, with the rows the upsert returned,
+ * so caches and search indexes see the imported books after the chunk commits without a
+ * re-select or an event per row. As before, the Author and BookType columns are validated
+ * but not linked.
+ */
+@Component
+@Log4j2
+public class BookCsvImporter {
+    static final int COLUMN_COUNT = 5;
+    private static final String[] COLUMN_NAMES = {"ID", "Name", "Author", "BookType", "Price"};
+    private static final Pattern PRICE_CURRENCY = Pattern.compile("(?i)(vnd|usd|eur)$");
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+    private static final TypeReference<List<BookImportResultDto.RowRejection>> REJECTIONS_TYPE =
+            new TypeReference<List<BookImportResultDto.RowRejection>>() { };
+
+    // Kept per pooled connection and emptied by every commit or rollback
+    private static final String CREATE_STAGING = "CREATE TEMP TABLE IF NOT EXISTS book_import_staging (" +
+            "line_number BIGINT NOT NULL, id VARCHAR(50) NOT NULL, " +
+            "title VARCHAR(500) NOT NULL, price NUMERIC(10, 2) NOT NULL) ON COMMIT DELETE ROWS";
+    private static final String COPY_STAGING =
+            "COPY book_import_staging (line_number, id, title, price) FROM STDIN WITH (FORMAT csv)";
+    // New books get the defaults of a new BookEntity
+    private static final String UPSERT_BOOKS = "INSERT INTO books (id, title, price, language, format, " +
+            "discount_percentage, stock_quantity, reserved_quantity, reorder_point, max_stock, created_at, version) " +
+            "SELECT DISTINCT ON (id) id, title, price, 'en', 'Paperback', 0, 0, 0, 5, 100, NOW(), 0 " +
+            "FROM book_import_staging " +
+            "ORDER BY id, line_number DESC " +
+            "ON CONFLICT (id) DO UPDATE SET " +
+            "title = EXCLUDED.title, price = EXCLUDED.price, updated_at = NOW(), " +
+            "version = COALESCE(books.version, 0) + 1 " +
+            "RETURNING id, title, price, language, format, reserved_quantity";
+    private static final String INSERT_CHECKPOINT = "INSERT INTO book_import_checkpoints (task_id, updated_at) " +
+            "VALUES (?, NOW()) ON CONFLICT (task_id) DO NOTHING";
+    private static final String SELECT_CHECKPOINT = "SELECT byte_offset, line_number, accepted, rejected, rejections " +
+            "FROM book_import_checkpoints WHERE task_id = ?";
+    private static final String UPDATE_CHECKPOINT = "UPDATE book_import_checkpoints SET byte_offset = ?, line_number = ?, " +
+            "accepted = ?, rejected = ?, rejections = ?, updated_at = NOW() " +
+            "WHERE task_id = ? AND byte_offset = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncTaskService asyncTaskService;
+    private final ImportFileStore fileStore;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Executor parseExecutor;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final int maxReportedRejections;
+
+    public BookCsvImporter(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           AsyncTaskService asyncTaskService,
+                           ImportFileStore fileStore,
+                           ObjectMapper objectMapper,
+                           ApplicationEventPublisher eventPublisher,
+                           @Qualifier("importParseExecutor") Executor parseExecutor,
+                           @Value("${app.import.chunk-size:5000}") int chunkSize,
+                           @Value("${app.import.parse-parallelism:4}") int parseParallelism,
+                           @Value("${app.import.max-reported-rejections:1000}") int maxReportedRejections) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.asyncTaskService = asyncTaskService;
+        this.fileStore = fileStore;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.parseExecutor = parseExecutor;
+        this.chunkSize = chunkSize;
+        // Enough to keep every parser busy while the previous chunk is committed
+        this.maxChunksInFlight = parseParallelism * 2;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    /**
+     * Run an import task from its checkpoint to the end of the file. A header row is skipped.
+     * A file that is not well-formed CSV fails the task, keeping the chunks committed before
+     * the malformed row. Other errors are thrown, so the task queue retries the task.
+     */
+    public void runImport(String taskId, BookImportJobDto job) {
+        ImportRun run = new ImportRun(taskId, job, loadCheckpoint(taskId));
+        log.info("Start import task {} of {} at line {}", taskId, job.getFileName(), run.checkpoint.line);
+        asyncTaskService.updateTaskStatus(taskId, AsyncTaskRequest.TaskStatus.PROCESSING, run.checkpoint.offset == 0
+                ? "Importing " + job.getFileName()
+                : "Resuming import of " + job.getFileName() + " at line " + run.checkpoint.line);
+
+        Deque<PendingChunk> inFlight = new ArrayDeque<>();
+        try (CsvReader reader = new CsvReader(fileStore.open(job, run.checkpoint.offset),
+                run.checkpoint.offset, run.checkpoint.line)) {
+            List<CsvRow> rows = new ArrayList<>(chunkSize);
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                if (reader.getRecordLine() == 1 && isHeader(fields)) {
+                    continue;
+                }
+                rows.add(new CsvRow(reader.getRecordLine(), fields));
+                if (rows.size() == chunkSize) {
+                    inFlight.add(submit(rows, reader));
+                    rows = new ArrayList<>(chunkSize);
+                    if (inFlight.size() >= maxChunksInFlight) {
+                        commit(run, inFlight.poll());
+                    }
+                }
+            }
+            if (!rows.isEmpty()) {
+                inFlight.add(submit(rows, reader));
+            }
+            while (!inFlight.isEmpty()) {
+                commit(run, inFlight.poll());
+            }
+        } catch (CsvReader.MalformedCsvException e) {
+            // Commit what was read before the malformed row, then give up: a retry would fail the same way
+            while (!inFlight.isEmpty()) {
+                commit(run, inFlight.poll());
+            }
+            log.warn("Import task {} stopped at malformed CSV: {}", taskId, e.getMessage());
+            asyncTaskService.updateTaskStatus(taskId, AsyncTaskRequest.TaskStatus.FAILED,
+                    e.getMessage() + "; imported " + run.checkpoint.accepted + " rows before it");
+            fileStore.delete(job);
+            return;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            inFlight.forEach(pending -> pending.prepared.cancel(false));
+        }
+
+        BookImportResultDto result = BookImportResultDto.builder()
+                .accepted(run.checkpoint.accepted)
+                .rejected(run.checkpoint.rejected)
+                .rejections(run.checkpoint.rejections)
+                .elapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - run.startedAt))
+                .build();
+        asyncTaskService.updateTaskProgress(taskId, 100);
+        asyncTaskService.updateTaskStatus(taskId, AsyncTaskRequest.TaskStatus.COMPLETED, writeJson(result));
+        fileStore.delete(job);
+        log.info("End import task {}, accepted {} rows and rejected {}", taskId, result.getAccepted(), result.getRejected());
+    }
+
+    /**
+     * Validate and encode a chunk of rows for {@code COPY ... WITH (FORMAT csv)}.
+     */
+    static PreparedChunk prepare(List<CsvRow> rows) {
+        StringBuilder copyData = new StringBuilder(rows.size() * 64);
+        List<String> bookIds = new ArrayList<>(rows.size());
+        List<BookImportResultDto.RowRejection> rejections = new ArrayList<>();
+        for (CsvRow row : rows) {
+            String reason = validate(row.fields);
+            if (reason != null) {
+                rejections.add(new BookImportResultDto.RowRejection(row.line, reason));
+                continue;
+            }
+            String id = row.fields.get(0).trim();
+            copyData.append(row.line).append(',');
+            appendQuoted(copyData, id).append(',');
+            appendQuoted(copyData, row.fields.get(1).trim()).append(',');
+            copyData.append(parsePrice(row.fields.get(4)).toPlainString()).append('\n');
+            bookIds.add(id);
+        }
+        return new PreparedChunk(copyData.toString().getBytes(StandardCharsets.UTF_8), bookIds, rejections);
+    }
+
+    /**
+     * @return Why the row is rejected, or {@code null} if it is valid
+     */
+    static String validate(List<String> fields) {
+        if (fields.size() != COLUMN_COUNT) {
+            return "Expected " + COLUMN_COUNT + " columns, found " + fields.size();
+        }
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            if (fields.get(i).trim().isEmpty()) {
+                return "Empty " + COLUMN_NAMES[i];
+            }
+        }
+        if (fields.get(0).trim().length() > 50) {
+            return "ID longer than 50 characters";
+        }
+        if (fields.get(1).trim().length() > 500) {
+            return "Name longer than 500 characters";
+        }
+        BigDecimal price = parsePrice(fields.get(4));
+        if (price == null || price.signum() <= 0 || price.compareTo(MAX_PRICE) > 0) {
+            return "Invalid price: " + fields.get(4).trim();
+        }
+        return null;
+    }
+
+    static boolean isHeader(List<String> fields) {
+        return !fields.isEmpty() && COLUMN_NAMES[0].equalsIgnoreCase(fields.get(0).trim());
+    }
+
+    /**
+     * Parse a price as written by the export, with an optional currency suffix ("12.50 USD").
+     * @return The price rounded to cents, or {@code null} if it is not a number
+     */
+    private static BigDecimal parsePrice(String value) {
+        try {
+            return new BigDecimal(PRICE_CURRENCY.matcher(value.trim()).replaceAll("").trim())
+                    .setScale(2, RoundingMode.HALF_UP);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static StringBuilder appendQuoted(StringBuilder target, String value) {
+        target.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                target.append('"');
+            }
+            target.append(c);
+        }
+        return target.append('"');
+    }
+
+    private PendingChunk submit(List<CsvRow> rows, CsvReader reader) {
+        return new PendingChunk(CompletableFuture.supplyAsync(() -> prepare(rows), parseExecutor),
+                reader.getOffset(), reader.getLine());
+    }
+
+    /**
+     * Apply a chunk and advance the checkpoint in one transaction, then report the progress.
+     */
+    private void commit(ImportRun run, PendingChunk pending) {
+        PreparedChunk chunk = pending.prepared.join();
+        Checkpoint next = run.checkpoint.after(pending, chunk, maxReportedRejections);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (chunk.copyData.length > 0) {
+                jdbcTemplate.execute(CREATE_STAGING);
+                jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                    CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+                    try {
+                        copyIn.writeToCopy(chunk.copyData, 0, chunk.copyData.length);
+                        return copyIn.endCopy();
+                    } finally {
+                        if (copyIn.isActive()) {
+                            copyIn.cancelCopy();
+                        }
+                    }
+                });
+                List<BooksImportedEvent.ImportedBook> books = jdbcTemplate.query(UPSERT_BOOKS, (rs, rowNum) ->
+                        new BooksImportedEvent.ImportedBook(rs.getString("id"), rs.getString("title"),
+                                rs.getBigDecimal("price"), rs.getString("language"), rs.getString("format"),
+                                rs.getInt("reserved_quantity")));
+                // Delivered to the listeners after the commit, and dropped if the checkpoint update below fails
+                eventPublisher.publishEvent(new BooksImportedEvent(books));
+            }
+            int updated = jdbcTemplate.update(UPDATE_CHECKPOINT, next.offset, next.line, next.accepted, next.rejected,
+                    writeJson(next.rejections), run.taskId, run.checkpoint.offset);
+            if (updated == 0) {
+                throw new IllegalStateException("Import task " + run.taskId + " was advanced by another run");
+            }
+        });
+        run.checkpoint = next;
+        run.rowsThisRun += chunk.bookIds.size() + chunk.rejections.size();
+
+        long elapsedNanos = Math.max(System.nanoTime() - run.startedAt, 1);
+        long rowsPerSecond = run.rowsThisRun * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        int progress = (int) Math.min(99, next.offset * 100 / Math.max(run.job.getFileSize(), 1));
+        asyncTaskService.updateTaskProgress(run.taskId, progress);
+        asyncTaskService.updateTaskStatus(run.taskId, AsyncTaskRequest.TaskStatus.PROCESSING,
+                "Imported " + next.accepted + " rows, rejected " + next.rejected + " (" + rowsPerSecond + " rows/s)");
+    }
+
+    private Checkpoint loadCheckpoint(String taskId) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update(INSERT_CHECKPOINT, taskId);
+            return jdbcTemplate.queryForObject(SELECT_CHECKPOINT, (rs, rowNum) -> new Checkpoint(
+                    rs.getLong("byte_offset"), rs.getLong("line_number"), rs.getLong("accepted"),
+                    rs.getLong("rejected"), readRejections(rs.getString("rejections"))), taskId);
+        });
+    }
+
+    private String writeJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Import state cannot be serialized", e);
+        }
+    }
+
+    private List<BookImportResultDto.RowRejection> readRejections(String json) {
+        if (json == null) {
+            return Collections.emptyList();
+        }
+        try {
+            return objectMapper.readValue(json, REJECTIONS_TYPE);
+        } catch (JsonProcessingException e) {
+            log.warn("Stored import rejections are not valid JSON, dropping them: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    static final class CsvRow {
+        private final long line;
+        private final List<String> fields;
+
+        CsvRow(long line, List<String> fields) {
+            this.line = line;
+            this.fields = fields;
+        }
+    }
+
+    static final class PreparedChunk {
+        private final byte[] copyData;
+        private final List<String> bookIds;
+        private final List<BookImportResultDto.RowRejection> rejections;
+
+        private PreparedChunk(byte[] copyData, List<String> bookIds, List<BookImportResultDto.RowRejection> rejections) {
+            this.copyData = copyData;
+            this.bookIds = bookIds;
+            this.rejections = rejections;
+        }
+
+        List<String> getBookIds() {
+            return bookIds;
+        }
+
+        List<BookImportResultDto.RowRejection> getRejections() {
+            return rejections;
+        }
+
+        String getCopyData() {
+            return new String(copyData, StandardCharsets.UTF_8);
+        }
+    }
+
+
+    private static final class PendingChunk {
+        private final CompletableFuture<PreparedChunk> prepared;
+        private final long endOffset;
+        private final long endLine;
+
+        private PendingChunk(CompletableFuture<PreparedChunk> prepared, long endOffset, long endLine) {
+            this.prepared = prepared;
+            this.endOffset = endOffset;
+            this.endLine = endLine;
+        }
+    }
+
+    /**
+     * Position after the last committed chunk, with the totals up to it.
+     */
+    private static final class Checkpoint {
+        private final long offset;
+        private final long line;
+        private final long accepted;
+        private final long rejected;
+        private final List<BookImportResultDto.RowRejection> rejections;
+
+        private Checkpoint(long offset, long line, long accepted, long rejected,
+                           List<BookImportResultDto.RowRejection> rejections) {
+            this.offset = offset;
+            this.line = line;
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.rejections = rejections;
+        }
+
+        private Checkpoint after(PendingChunk pending, PreparedChunk chunk, int maxReportedRejections) {
+            List<BookImportResultDto.RowRejection> reported = rejections;
+            int room = maxReportedRejections - rejections.size();
+            if (room > 0 && !chunk.rejections.isEmpty()) {
+                reported = new ArrayList<>(rejections);
+                reported.addAll(chunk.rejections.subList(0, Math.min(room, chunk.rejections.size())));
+            }
+            return new Checkpoint(pending.endOffset, pending.endLine, accepted + chunk.bookIds.size(),
+                    rejected + chunk.rejections.size(), reported);
+        }
+    }
+
+    private static final class ImportRun {
+        private final String taskId;
+        private final BookImportJobDto job;
+        private final long startedAt = System.nanoTime();
+        private Checkpoint checkpoint;
+        private long rowsThisRun;
+
+        private ImportRun(String taskId, BookImportJobDto job, Checkpoint checkpoint) {
+            this.taskId = taskId;
+            this.job = job;
+            this.checkpoint = checkpoint;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package quantran.api.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming reader of RFC 4180 CSV in UTF-8: comma separated, fields optionally enclosed in
+ * double quotes, with {@code ""} for a quote inside a quoted field. Quoted fields may contain
+ * commas and line breaks. Lines end with LF, CRLF or CR; empty lines are skipped.
+ *
+ * <p>Records are parsed from the raw bytes. The delimiters are ASCII and never occur inside a
+ * multi-byte UTF-8 sequence, so fields are only decoded once complete, and
+ * {@link #getOffset()} is the exact byte position after the last record. Reading can be
+ * resumed from that position with a new reader over the rest of the input.
+ */
+public final class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int EOF = -1;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long bufferStart;
+    private byte[] field = new byte[256];
+    private int fieldLength;
+    private long line;
+    private long recordLine;
+
+    public CsvReader(InputStream in) {
+        this(in, 0, 1);
+    }
+
+    /**
+     * @param offset Byte position of the input's start in the original file, for resuming
+     * @param line Line number at that position
+     */
+    public CsvReader(InputStream in, long offset, long line) {
+        this.in = in;
+        this.bufferStart = offset;
+        this.line = line;
+    }
+
+    /**
+     * Read the next record.
+     * @return Its fields, or {@code null} at the end of the input
+     * @throws MalformedCsvException If a quoted field is not closed before the end of the input
+     */
+    public List<String> next() throws IOException {
+        if (bufferStart == 0 && position == 0) {
+            skipByteOrderMark();
+        }
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            endLine(c);
+            c = read();
+        }
+        if (c == EOF) {
+            return null;
+        }
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        while (true) {
+            fieldLength = 0;
+            if (c == '"') {
+                c = readQuoted();
+            }
+            while (c != ',' && c != '\r' && c != '\n' && c != EOF) {
+                append(c);
+                c = read();
+            }
+            fields.add(new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+            if (c != ',') {
+                break;
+            }
+            c = read();
+        }
+        if (c != EOF) {
+            endLine(c);
+        }
+        return fields;
+    }
+
+    /**
+     * Line on which the record last returned by {@link #next()} starts.
+     */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Line following the record last returned by {@link #next()}.
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Byte position, in the original file, right after the record last returned by {@link #next()}.
+     */
+    public long getOffset() {
+        return bufferStart + position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Read a quoted field whose opening quote was consumed.
+     * @return The character after the closing quote
+     */
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                throw new MalformedCsvException("Unterminated quoted field starting on line " + recordLine);
+            }
+            if (c == '"') {
+                c = read();
+                if (c != '"') {
+                    return c;
+                }
+            } else if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                // A CRLF is counted once, on its LF
+                line++;
+            }
+            append(c);
+        }
+    }
+
+    private void endLine(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') {
+            position++;
+        }
+        line++;
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        if (peek() == 0xEF && limit - position >= 3
+                && (buffer[1] & 0xFF) == 0xBB && (buffer[2] & 0xFF) == 0xBF) {
+            position = 3;
+        }
+    }
+
+    private void append(int c) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = (byte) c;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != EOF) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        bufferStart += limit;
+        position = 0;
+        limit = 0;
+        int read;
+        // Read at least 3 bytes at the start, so a byte order mark can be recognized
+        while (limit < buffer.length && (read = in.read(buffer, limit, buffer.length - limit)) != EOF) {
+            limit += read;
+            if (limit >= 3) {
+                break;
+            }
+        }
+        return limit > 0;
+    }
+
+    public static class MalformedCsvException extends IOException {
+        public MalformedCsvException(String message) {
+            super(message);
+        }
+    }
+}
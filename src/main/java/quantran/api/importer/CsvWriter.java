@@ -0,0 +1,45 @@
+package quantran.api.importer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes RFC 4180 CSV records that {@link CsvReader} reads back unchanged: a field containing
+ * a comma, a double quote or a line break is enclosed in double quotes, with {@code ""} for a
+ * quote inside it. Records end with LF.
+ */
+public final class CsvWriter {
+
+    private CsvWriter() {
+    }
+
+    public static void writeRecord(Writer writer, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(writer, fields[i] != null ? fields[i] : "");
+        }
+        writer.write('\n');
+    }
+
+    private static void writeField(Writer writer, String field) throws IOException {
+        if (!needsQuotes(field)) {
+            writer.write(field);
+            return;
+        }
+        writer.write('"');
+        writer.write(field.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static boolean needsQuotes(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,67 @@
+package quantran.api.importer;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import quantran.api.dto.BookImportJobDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Keeps uploaded import files until their import task finishes. The task may be resumed by
+ * any node, so with several nodes the directory must be on storage they share.
+ */
+@Component
+@Log4j2
+public class ImportFileStore {
+
+    private final Path directory;
+
+    public ImportFileStore(@Value("${app.import.storage-dir:${java.io.tmpdir}/bookstore-imports}") String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    public BookImportJobDto store(MultipartFile file) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(UUID.randomUUID() + ".csv");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, target);
+        }
+        return BookImportJobDto.builder()
+                .fileName(file.getOriginalFilename())
+                .storedPath(target.toString())
+                .fileSize(Files.size(target))
+                .build();
+    }
+
+    /**
+     * Open a stored file at a byte position.
+     */
+    public InputStream open(BookImportJobDto job, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(job.getStoredPath()), StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return Channels.newInputStream(channel);
+    }
+
+    public void delete(BookImportJobDto job) {
+        try {
+            Files.deleteIfExists(Paths.get(job.getStoredPath()));
+        } catch (IOException e) {
+            log.warn("Failed to delete import file {}: {}", job.getStoredPath(), e.getMessage());
+        }
+    }
+}
@@ -20,6 +20,9 @@ public class BookModel {
     @NotEmpty(message = "book's type is required")
     private String bookType;
 
+    public BookModel() {
+    }
+
     public BookModel(String id, String name, String author, String price, String bookType) {
         this.id = id;
         this.name = name;
@@ -0,0 +1,47 @@
+package quantran.api.page;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) paginated listing.
+ * Unlike {@link Paginate} there is no total: {@code nextCursor} is an opaque token
+ * for the following page and is {@code null} on the last page.
+ */
+public class CursorPage<T> {
+    private List<T> data;
+    private String nextCursor;
+    private boolean hasNext;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> data, String nextCursor) {
+        this.data = data;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+
+    public List<T> getData() {
+        return data;
+    }
+
+    public void setData(List<T> data) {
+        this.data = data;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,66 @@
+package quantran.api.page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination.
+ * Encodes the ordering name together with the (sort key, id) of the last row
+ * returned, so a token issued for one ordering is rejected by another.
+ */
+public final class CursorToken {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final String sort;
+    private final String sortKey;
+    private final String id;
+
+    public CursorToken(String sort, String sortKey, String id) {
+        this.sort = sort;
+        this.sortKey = sortKey != null ? sortKey : "";
+        this.id = id;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = sort + SEPARATOR + sortKey + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}.
+     * @throws IllegalArgumentException if the token is malformed or was issued for another ordering
+     */
+    public static CursorToken decode(String token, String expectedSort) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        int first = raw.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : raw.indexOf(SEPARATOR, first + 1);
+        if (first < 0 || second < 0 || second == raw.length() - 1) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        String sort = raw.substring(0, first);
+        if (!sort.equals(expectedSort)) {
+            throw new IllegalArgumentException("Cursor was issued for sort '" + sort + "'");
+        }
+        return new CursorToken(sort, raw.substring(first + 1, second), raw.substring(second + 1));
+    }
+}
@@ -0,0 +1,65 @@
+package quantran.api.page;
+
+import quantran.api.search.FacetCount;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a faceted listing, with value counts per facet computed over the
+ * whole result (each facet ignoring its own selection).
+ */
+public class FacetedPage<T> {
+    private List<T> data;
+    private int totalElements;
+    private int total;
+    private Map<String, List<FacetCount>> facets;
+
+    public FacetedPage() {
+    }
+
+    public FacetedPage(List<T> data, int totalElements, int total, Map<String, List<FacetCount>> facets) {
+        this.data = data;
+        this.totalElements = totalElements;
+        this.total = total;
+        this.facets = facets;
+    }
+
+    public List<T> getData() {
+        return data;
+    }
+
+    public void setData(List<T> data) {
+        this.data = data;
+    }
+
+    /**
+     * Number of matching books.
+     */
+    public int getTotalElements() {
+        return totalElements;
+    }
+
+    public void setTotalElements(int totalElements) {
+        this.totalElements = totalElements;
+    }
+
+    /**
+     * Number of pages, as in {@link Paginate#getTotal()}.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public Map<String, List<FacetCount>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, List<FacetCount>> facets) {
+        this.facets = facets;
+    }
+}
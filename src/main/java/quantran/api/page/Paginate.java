@@ -6,6 +6,9 @@ public class Paginate<T> {
     private List<T> data;
     private int total;
 
+    public Paginate() {
+    }
+
     public Paginate(List<T> data, int total) {
         this.data = data;
         this.total = total;
@@ -0,0 +1,210 @@
+package quantran.api.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Token buckets of one {@link RateLimitPolicy} shared by all nodes. The buckets are kept in
+ * Redis and changed by a Lua script, so the limit holds for the cluster as a whole.
+ *
+ * <p>To save a round trip per request, a node takes tokens from Redis in leases and hands
+ * them out locally until the lease is used up or expires. A lease starts at one token and
+ * doubles, up to {@code maxLeaseSize}, each time a client uses one up before it expires;
+ * a client that sends few requests thus takes one token at a time. Tokens left in an expired
+ * lease are dropped, so leasing can only make the limit stricter. When Redis refuses a
+ * client, the node refuses it locally until Redis says the next token is due.
+ *
+ * <p>If Redis cannot be reached, the node falls back to its {@link LocalRateLimiter}, which
+ * enforces the policy per node, and tries Redis again after {@code retryAfterFailureMs}.
+ */
+@Log4j2
+public final class ClusterRateLimiter implements RateLimiter {
+    static final RedisScript<List> TOKEN_BUCKET_SCRIPT = loadScript();
+
+    private final RateLimitPolicy policy;
+    private final LocalRateLimiter fallback;
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final int maxLeaseSize;
+    private final long leaseTtlMs;
+    private final long retryAfterFailureMs;
+    private final Ticker ticker;
+    private final long startNanos;
+    private final Cache<String, Lease> leases;
+    private final Function<String, Lease> newLease = client -> new Lease();
+    private final String burstArg;
+    private final String refillArg;
+    private final String periodArg;
+    private volatile long redisRetryAtMs = Long.MIN_VALUE;
+
+    public ClusterRateLimiter(RateLimitPolicy policy, LocalRateLimiter fallback, StringRedisTemplate redisTemplate,
+                              String keyPrefix, int maxLeaseSize, long leaseTtlMs, long retryAfterFailureMs,
+                              long maxClients) {
+        this(policy, fallback, redisTemplate, keyPrefix, maxLeaseSize, leaseTtlMs, retryAfterFailureMs, maxClients,
+                Ticker.systemTicker());
+    }
+
+    ClusterRateLimiter(RateLimitPolicy policy, LocalRateLimiter fallback, StringRedisTemplate redisTemplate,
+                       String keyPrefix, int maxLeaseSize, long leaseTtlMs, long retryAfterFailureMs,
+                       long maxClients, Ticker ticker) {
+        this.policy = policy;
+        this.fallback = fallback;
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix + policy.getName() + ":";
+        this.maxLeaseSize = Math.max(1, Math.min(maxLeaseSize, policy.getBurstLimit()));
+        this.leaseTtlMs = leaseTtlMs;
+        this.retryAfterFailureMs = retryAfterFailureMs;
+        this.ticker = ticker;
+        this.startNanos = ticker.read();
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Math.max(leaseTtlMs, policy.fullRefillMs), TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+        this.burstArg = String.valueOf(policy.getBurstLimit());
+        this.refillArg = String.valueOf(policy.getRequestsPerPeriod());
+        this.periodArg = String.valueOf(policy.getPeriodMs());
+    }
+
+    @Override
+    public long tryAcquire(String client) {
+        long now = nowMs();
+        if (now < redisRetryAtMs) {
+            return fallback.tryAcquire(client);
+        }
+        Lease lease = leases.getIfPresent(client);
+        if (lease == null) {
+            lease = leases.get(client, newLease);
+        }
+        if (now < lease.deniedUntilMs) {
+            return -1;
+        }
+        if (now < lease.expiresAtMs) {
+            int left = lease.take();
+            if (left >= 0) {
+                return left + lease.sharedRemaining;
+            }
+        }
+        return renew(client, lease, now);
+    }
+
+    @Override
+    public long retryAfterMillis(String client) {
+        long now = nowMs();
+        if (now < redisRetryAtMs) {
+            return fallback.retryAfterMillis(client);
+        }
+        Lease lease = leases.getIfPresent(client);
+        return lease != null ? Math.max(lease.deniedUntilMs - now, 0) : 0;
+    }
+
+    @Override
+    public RateLimitPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Take a new lease from Redis. Requests of one client that find its lease used up wait
+     * for each other here, so only one of them calls Redis.
+     */
+    private long renew(String client, Lease lease, long now) {
+        synchronized (lease) {
+            if (now < lease.deniedUntilMs) {
+                return -1;
+            }
+            boolean usedUp = now < lease.expiresAtMs;
+            if (usedUp) {
+                int left = lease.take();
+                if (left >= 0) {
+                    return left + lease.sharedRemaining;
+                }
+            }
+            lease.size = usedUp ? Math.min(lease.size * 2, maxLeaseSize) : 1;
+
+            List<?> result;
+            try {
+                result = redisTemplate.execute(TOKEN_BUCKET_SCRIPT, Collections.singletonList(keyPrefix + client),
+                        burstArg, refillArg, periodArg, String.valueOf(lease.size));
+            } catch (RuntimeException e) {
+                redisUnavailable(now, e);
+                return fallback.tryAcquire(client);
+            }
+            if (result == null || result.size() < 3) {
+                redisUnavailable(now, new IllegalStateException("Unexpected rate limit script result: " + result));
+                return fallback.tryAcquire(client);
+            }
+            int granted = ((Number) result.get(0)).intValue();
+            long waitMs = ((Number) result.get(1)).longValue();
+            lease.sharedRemaining = ((Number) result.get(2)).longValue();
+            if (granted == 0) {
+                lease.expiresAtMs = 0;
+                lease.deniedUntilMs = now + Math.max(waitMs, 1);
+                return -1;
+            }
+            // One of the granted tokens is for this request
+            lease.tokens.set(granted - 1);
+            lease.expiresAtMs = now + leaseTtlMs;
+            return granted - 1 + lease.sharedRemaining;
+        }
+    }
+
+    private void redisUnavailable(long now, RuntimeException e) {
+        if (now >= redisRetryAtMs) {
+            log.warn("Redis rate limiting unavailable for policy {}, limiting on this node for {} ms: {}",
+                    policy.getName(), retryAfterFailureMs, e.getMessage());
+        }
+        redisRetryAtMs = now + retryAfterFailureMs;
+    }
+
+    private long nowMs() {
+        return TimeUnit.NANOSECONDS.toMillis(ticker.read() - startNanos);
+    }
+
+    private static RedisScript<List> loadScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/rate_limit_token_bucket.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    /**
+     * Tokens of one client leased by this node.
+     */
+    private static final class Lease {
+        private final AtomicInteger tokens = new AtomicInteger();
+        private volatile long expiresAtMs;
+        private volatile long deniedUntilMs;
+        // Tokens left in Redis at the last renewal, reported with the lease in X-RateLimit-Remaining
+        private volatile long sharedRemaining;
+        // Guarded by this
+        private int size = 1;
+
+        /**
+         * @return The tokens left in the lease after taking one, or -1 if it is used up
+         */
+        private int take() {
+            while (true) {
+                int current = tokens.get();
+                if (current <= 0) {
+                    return -1;
+                }
+                if (tokens.compareAndSet(current, current - 1)) {
+                    return current - 1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package quantran.api.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Token buckets of one {@link RateLimitPolicy}, by client, kept on this node. The buckets are
+ * kept in a bounded cache and dropped once idle for as long as a full refill takes; by then a
+ * new bucket would be full as well, so eviction never lets a client through early. When the
+ * cache is full, the least recently used buckets are dropped first.
+ *
+ * <p>Checking a client that has a bucket takes one cache read and usually one
+ * compare-and-set, and allocates nothing.
+ */
+public final class LocalRateLimiter implements RateLimiter {
+    private final RateLimitPolicy policy;
+    private final Ticker ticker;
+    private final long startNanos;
+    private final Cache<String, TokenBucket> buckets;
+    private final Function<String, TokenBucket> newBucket;
+
+    public LocalRateLimiter(RateLimitPolicy policy, long maxClients) {
+        this(policy, maxClients, Ticker.systemTicker());
+    }
+
+    LocalRateLimiter(RateLimitPolicy policy, long maxClients, Ticker ticker) {
+        this.policy = policy;
+        this.ticker = ticker;
+        this.startNanos = ticker.read();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(policy.fullRefillMs, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+        this.newBucket = client -> new TokenBucket(policy, nowMs());
+    }
+
+    @Override
+    public long tryAcquire(String client) {
+        TokenBucket bucket = buckets.getIfPresent(client);
+        if (bucket == null) {
+            bucket = buckets.get(client, newBucket);
+        }
+        return bucket.tryConsume(policy, nowMs());
+    }
+
+    @Override
+    public long retryAfterMillis(String client) {
+        TokenBucket bucket = buckets.getIfPresent(client);
+        return bucket != null ? bucket.millisUntilToken(policy, nowMs()) : 0;
+    }
+
+    @Override
+    public RateLimitPolicy getPolicy() {
+        return policy;
+    }
+
+    long trackedClients() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    private long nowMs() {
+        return TimeUnit.NANOSECONDS.toMillis(ticker.read() - startNanos);
+    }
+}
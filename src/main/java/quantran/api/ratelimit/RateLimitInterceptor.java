@@ -0,0 +1,55 @@
+package quantran.api.ratelimit;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies a {@link RateLimiter} to the requests of its routes, by client IP address.
+ */
+@Log4j2
+public class RateLimitInterceptor implements HandlerInterceptor {
+    private static final String[] CLIENT_IP_HEADERS = {"X-Forwarded-For", "X-Real-IP", "X-Client-IP", "CF-Connecting-IP"};
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        RateLimitPolicy policy = rateLimiter.getPolicy();
+        String client = getClientIpAddress(request);
+        long remaining = rateLimiter.tryAcquire(client);
+        response.setHeader("X-RateLimit-Limit", policy.limitHeader());
+        if (remaining >= 0) {
+            response.setHeader("X-RateLimit-Remaining", policy.remainingHeader(remaining));
+            return true;
+        }
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(rateLimiter.retryAfterMillis(client) + 999));
+        log.warn("Rate limit {} exceeded for IP: {}, Path: {}", policy.getName(), client, request.getRequestURI());
+        response.setStatus(429); // Too Many Requests
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setHeader("X-RateLimit-Remaining", policy.remainingHeader(0));
+        response.getWriter().write("Rate limit exceeded. Please try again later.");
+        return false;
+    }
+
+    static String getClientIpAddress(HttpServletRequest request) {
+        // Proxy headers first, then the remote address
+        for (String header : CLIENT_IP_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null && !value.isEmpty() && !"unknown".equalsIgnoreCase(value)) {
+                // X-Forwarded-For lists the client first
+                int comma = value.indexOf(',');
+                return (comma >= 0 ? value.substring(0, comma) : value).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,71 @@
+package quantran.api.ratelimit;
+
+/**
+ * Limits of one route group: a bucket of {@code burstLimit} tokens per client, refilled at
+ * {@code requestsPerPeriod} tokens per period. Token amounts are kept as fixed-point numbers
+ * with {@link TokenBucket#FRACTION_BITS} fractional bits, so slow refill rates stay exact.
+ */
+public final class RateLimitPolicy {
+    private final String name;
+    private final int burstLimit;
+    private final int requestsPerPeriod;
+    private final long periodMs;
+    final long capacityUnits;
+    final long refillUnits;
+    // Time in which an empty bucket fills up; an idle bucket older than this is the same as a new one
+    final long fullRefillMs;
+    // Header values, formatted once so allowed requests allocate nothing
+    private final String limitHeader;
+    private final String[] remainingHeaders;
+
+    public RateLimitPolicy(String name, int burstLimit, int requestsPerPeriod, long periodMs) {
+        if (burstLimit < 1 || burstLimit > TokenBucket.MAX_TOKENS) {
+            throw new IllegalArgumentException("Burst limit of rate limit policy " + name
+                    + " must be between 1 and " + TokenBucket.MAX_TOKENS + ", was " + burstLimit);
+        }
+        if (requestsPerPeriod < 1 || periodMs < 1) {
+            throw new IllegalArgumentException("Refill rate of rate limit policy " + name + " must be positive");
+        }
+        this.name = name;
+        this.burstLimit = burstLimit;
+        this.requestsPerPeriod = requestsPerPeriod;
+        this.periodMs = periodMs;
+        this.capacityUnits = (long) burstLimit << TokenBucket.FRACTION_BITS;
+        this.refillUnits = (long) requestsPerPeriod << TokenBucket.FRACTION_BITS;
+        this.fullRefillMs = (capacityUnits * periodMs + refillUnits - 1) / refillUnits;
+        this.limitHeader = String.valueOf(requestsPerPeriod);
+        this.remainingHeaders = new String[burstLimit + 1];
+        for (int i = 0; i <= burstLimit; i++) {
+            remainingHeaders[i] = String.valueOf(i);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBurstLimit() {
+        return burstLimit;
+    }
+
+    public int getRequestsPerPeriod() {
+        return requestsPerPeriod;
+    }
+
+    public long getPeriodMs() {
+        return periodMs;
+    }
+
+    String limitHeader() {
+        return limitHeader;
+    }
+
+    String remainingHeader(long remaining) {
+        return remainingHeaders[(int) Math.min(remaining, burstLimit)];
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + requestsPerPeriod + " per " + periodMs + " ms, burst " + burstLimit + ")";
+    }
+}
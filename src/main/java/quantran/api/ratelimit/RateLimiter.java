@@ -0,0 +1,21 @@
+package quantran.api.ratelimit;
+
+/**
+ * Request limit of one {@link RateLimitPolicy}, by client.
+ */
+public interface RateLimiter {
+
+    /**
+     * Take a request token of a client.
+     *
+     * @return The whole tokens left, or -1 if the client is over the limit
+     */
+    long tryAcquire(String client);
+
+    /**
+     * Time until a client over the limit gets its next token.
+     */
+    long retryAfterMillis(String client);
+
+    RateLimitPolicy getPolicy();
+}
@@ -0,0 +1,81 @@
+package quantran.api.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket of one client. The whole state is packed into one {@link AtomicLong}, the
+ * tokens (fixed-point, upper {@value #TOKEN_BITS} bits) and the time they were last refilled
+ * (milliseconds, lower {@value #TIME_BITS} bits), and changed with compare-and-set only.
+ *
+ * <p>Refill is computed lazily when a token is taken. Only the time that produced whole
+ * token units is marked as used, so the remainder carries over to the next request and
+ * frequent requests do not lose refill to rounding.
+ */
+final class TokenBucket {
+    static final int FRACTION_BITS = 10;
+    static final int TOKEN_BITS = 22;
+    static final int TIME_BITS = Long.SIZE - TOKEN_BITS;
+    static final long MAX_TOKENS = (1L << (TOKEN_BITS - FRACTION_BITS)) - 1;
+    private static final long ONE_TOKEN = 1L << FRACTION_BITS;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final AtomicLong state;
+
+    /**
+     * A full bucket.
+     *
+     * @param nowMs Current time in milliseconds, below 2<sup>{@value #TIME_BITS}</sup>
+     */
+    TokenBucket(RateLimitPolicy policy, long nowMs) {
+        this.state = new AtomicLong(pack(policy.capacityUnits, nowMs));
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return The whole tokens left after taking one, or -1 if the bucket is empty
+     */
+    long tryConsume(RateLimitPolicy policy, long nowMs) {
+        while (true) {
+            long current = state.get();
+            long tokens = current >>> TIME_BITS;
+            long refilledAt = current & TIME_MASK;
+            // Another thread may have refilled with a slightly later clock reading
+            long elapsed = nowMs - refilledAt;
+            if (tokens >= policy.capacityUnits || elapsed >= policy.fullRefillMs) {
+                tokens = policy.capacityUnits;
+                refilledAt = Math.max(nowMs, refilledAt);
+            } else if (elapsed > 0) {
+                long added = elapsed * policy.refillUnits / policy.getPeriodMs();
+                tokens = Math.min(tokens + added, policy.capacityUnits);
+                refilledAt += added * policy.getPeriodMs() / policy.refillUnits;
+            }
+            if (tokens < ONE_TOKEN) {
+                return -1;
+            }
+            tokens -= ONE_TOKEN;
+            if (state.compareAndSet(current, pack(tokens, refilledAt))) {
+                return tokens >>> FRACTION_BITS;
+            }
+        }
+    }
+
+    /**
+     * Time until the next token is available, for the {@code Retry-After} of a rejected request.
+     */
+    long millisUntilToken(RateLimitPolicy policy, long nowMs) {
+        long current = state.get();
+        long tokens = current >>> TIME_BITS;
+        long elapsed = Math.max(nowMs - (current & TIME_MASK), 0);
+        long missing = ONE_TOKEN - tokens;
+        if (missing <= 0) {
+            return 0;
+        }
+        long needed = (missing * policy.getPeriodMs() + policy.refillUnits - 1) / policy.refillUnits;
+        return Math.max(needed - elapsed, 0);
+    }
+
+    private static long pack(long tokens, long timeMs) {
+        return (tokens << TIME_BITS) | (timeMs & TIME_MASK);
+    }
+}
@@ -1,5 +1,6 @@
 package quantran.api.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,6 +9,7 @@ import org.springframework.stereotype.Repository;
 import quantran.api.entity.AsyncTaskEntity;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -58,9 +60,113 @@ public interface AsyncTaskRepository extends JpaRepository<AsyncTaskEntity, Stri
     int updateTaskProgress(@Param("taskId") String taskId, @Param("progress") Integer progress);
     
     /**
-     * Delete old completed tasks
+     * Write the result and progress of a running task. The status is left alone: it only
+     * changes through the conditional updates of the task queue and of cancellation.
      */
     @Modifying
-    @Query("DELETE FROM AsyncTaskEntity t WHERE t.completedAt < :cutoffDate AND t.status IN ('COMPLETED', 'FAILED', 'CANCELLED')")
-    int deleteOldCompletedTasks(@Param("cutoffDate") LocalDateTime cutoffDate);
+    @Query("UPDATE AsyncTaskEntity t SET t.result = :result, t.progress = :progress " +
+           "WHERE t.taskId = :taskId AND t.status = 'PROCESSING'")
+    int updateTaskState(@Param("taskId") String taskId,
+                        @Param("result") String result,
+                        @Param("progress") Integer progress);
+    
+    /**
+     * Mark a task of the given user as cancelled if it is still pending
+     */
+    @Modifying
+    @Query("UPDATE AsyncTaskEntity t SET t.status = :status, t.result = :result, t.completedAt = :completedAt " +
+           "WHERE t.taskId = :taskId AND t.userId = :userId AND t.status = 'PENDING'")
+    int cancelPendingTask(@Param("taskId") String taskId,
+                          @Param("userId") String userId,
+                          @Param("status") AsyncTaskEntity.TaskStatus status,
+                          @Param("result") String result,
+                          @Param("completedAt") LocalDateTime completedAt);
+    
+    /**
+     * Lock up to {@code limit} claimable tasks: pending ones that are due, and running ones
+     * whose lease expired. Rows locked by another claimer are skipped, not waited for.
+     */
+    @Query(value = "SELECT * FROM async_tasks " +
+                   "WHERE (status = 'PENDING' AND (next_attempt_at IS NULL OR next_attempt_at <= :now)) " +
+                   "   OR (status = 'PROCESSING' AND lease_expires_at < :now) " +
+                   "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<AsyncTaskEntity> lockClaimableTasks(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    /**
+     * Start an attempt on locked tasks under a lease held by {@code owner}
+     */
+    @Modifying
+    @Query("UPDATE AsyncTaskEntity t SET t.status = 'PROCESSING', t.attempts = t.attempts + 1, " +
+           "t.leaseOwner = :owner, t.leaseExpiresAt = :leaseExpiresAt WHERE t.taskId IN :taskIds")
+    int claimTasks(@Param("taskIds") Collection<String> taskIds,
+                   @Param("owner") String owner,
+                   @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+    
+    /**
+     * Extend the leases {@code owner} still holds
+     */
+    @Modifying
+    @Query("UPDATE AsyncTaskEntity t SET t.leaseExpiresAt = :leaseExpiresAt " +
+           "WHERE t.taskId IN :taskIds AND t.leaseOwner = :owner AND t.status = 'PROCESSING'")
+    int renewLeases(@Param("taskIds") Collection<String> taskIds,
+                    @Param("owner") String owner,
+                    @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+    
+    /**
+     * Give a task held by {@code owner} back to the queue, due at {@code nextAttemptAt}
+     */
+    @Modifying
+    @Query("UPDATE AsyncTaskEntity t SET t.status = 'PENDING', t.nextAttemptAt = :nextAttemptAt, t.result = :result, " +
+           "t.leaseOwner = NULL, t.leaseExpiresAt = NULL WHERE t.taskId = :taskId AND t.leaseOwner = :owner")
+    int releaseTask(@Param("taskId") String taskId,
+                    @Param("owner") String owner,
+                    @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                    @Param("result") String result);
+    
+    /**
+     * Record the outcome of a task held by {@code owner} and clear its lease in one statement,
+     * so the task is never left running without a lease
+     */
+    @Modifying
+    @Query("UPDATE AsyncTaskEntity t SET t.status = :status, t.result = :result, t.completedAt = :completedAt, " +
+           "t.progress = :progress, t.leaseOwner = NULL, t.leaseExpiresAt = NULL " +
+           "WHERE t.taskId = :taskId AND t.leaseOwner = :owner")
+    int finishTask(@Param("taskId") String taskId,
+                   @Param("owner") String owner,
+                   @Param("status") AsyncTaskEntity.TaskStatus status,
+                   @Param("result") String result,
+                   @Param("completedAt") LocalDateTime completedAt,
+                   @Param("progress") Integer progress);
+    
+    /**
+     * Count tasks waiting to be claimed
+     */
+    long countByStatus(AsyncTaskEntity.TaskStatus status);
+    
+    /**
+     * First page of a user's tasks, newest first
+     */
+    @Query("SELECT t FROM AsyncTaskEntity t WHERE t.userId = :userId ORDER BY t.createdAt DESC, t.taskId DESC")
+    List<AsyncTaskEntity> findUserTasks(@Param("userId") String userId, Pageable pageable);
+    
+    /**
+     * A user's tasks after the given (createdAt, taskId), newest first
+     */
+    @Query("SELECT t FROM AsyncTaskEntity t WHERE t.userId = :userId " +
+           "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.taskId < :taskId)) " +
+           "ORDER BY t.createdAt DESC, t.taskId DESC")
+    List<AsyncTaskEntity> findUserTasksAfter(@Param("userId") String userId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("taskId") String taskId,
+                                             Pageable pageable);
+    
+    /**
+     * Delete up to {@code limit} finished tasks completed before the cutoff, oldest first
+     */
+    @Modifying
+    @Query(value = "DELETE FROM async_tasks WHERE task_id IN (" +
+                   "SELECT task_id FROM async_tasks " +
+                   "WHERE status IN ('COMPLETED', 'FAILED', 'CANCELLED') AND completed_at < :cutoffDate " +
+                   "ORDER BY completed_at LIMIT :limit)", nativeQuery = true)
+    int deleteOldCompletedTasks(@Param("cutoffDate") LocalDateTime cutoffDate, @Param("limit") int limit);
 } 
\ No newline at end of file
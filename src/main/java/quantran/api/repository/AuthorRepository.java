@@ -101,4 +101,10 @@ public interface AuthorRepository extends JpaRepository<AuthorEntity, Long> {
     @EntityGraph(attributePaths = {"books"})
     @Query("SELECT a FROM AuthorEntity a ORDER BY SIZE(a.books) DESC")
     List<AuthorEntity> findTopAuthorsByBookCount(Pageable pageable);
-} 
\ No newline at end of file
+    
+    /**
+     * Find (id, name, number of books) of every author, for the typeahead index
+     */
+    @Query("SELECT a.id, a.name, COUNT(b) FROM AuthorEntity a LEFT JOIN a.books b GROUP BY a.id, a.name")
+    List<Object[]> findNamesWithBookCounts();
+}
@@ -5,19 +5,26 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import quantran.api.entity.BookEntity;
 
+import javax.persistence.QueryHint;
+
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends JpaRepository<BookEntity, String> {
     
     /**
-     * Find books with search criteria and pagination
+     * Find books with search criteria and pagination.
+     * Paging over the collection fetch happens in memory (HHH000104); prefer
+     * {@link #findBookIdsWithSearch} followed by {@link #findAllWithAssociationsByIdIn}.
      */
     @EntityGraph(attributePaths = {"authors", "genres", "publisher"})
     @Query("SELECT DISTINCT b FROM BookEntity b " +
@@ -37,6 +44,126 @@ public interface BookRepository extends JpaRepository<BookEntity, String> {
             @Param("searchPublisher") String searchPublisher,
             Pageable pageable);
     
+    /**
+     * Find one page of book IDs matching the search criteria.
+     * Only IDs are paged here so LIMIT/OFFSET stays in the database; the page is
+     * hydrated afterwards with {@link #findAllWithAssociationsByIdIn(Collection)}.
+     */
+    @Query(value = "SELECT DISTINCT b.id FROM BookEntity b " +
+           "LEFT JOIN b.authors a " +
+           "LEFT JOIN b.genres g " +
+           "LEFT JOIN b.publisher p " +
+           "WHERE " +
+           "(:searchTitle IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTitle, '%'))) AND " +
+           "(:searchAuthor IS NULL OR LOWER(a.name) LIKE LOWER(CONCAT('%', :searchAuthor, '%'))) AND " +
+           "(:searchId IS NULL OR LOWER(b.id) LIKE LOWER(CONCAT('%', :searchId, '%'))) AND " +
+           "(:searchGenre IS NULL OR LOWER(g.name) LIKE LOWER(CONCAT('%', :searchGenre, '%'))) AND " +
+           "(:searchPublisher IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :searchPublisher, '%'))) " +
+           "ORDER BY b.id",
+           countQuery = "SELECT COUNT(DISTINCT b.id) FROM BookEntity b " +
+           "LEFT JOIN b.authors a " +
+           "LEFT JOIN b.genres g " +
+           "LEFT JOIN b.publisher p " +
+           "WHERE " +
+           "(:searchTitle IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTitle, '%'))) AND " +
+           "(:searchAuthor IS NULL OR LOWER(a.name) LIKE LOWER(CONCAT('%', :searchAuthor, '%'))) AND " +
+           "(:searchId IS NULL OR LOWER(b.id) LIKE LOWER(CONCAT('%', :searchId, '%'))) AND " +
+           "(:searchGenre IS NULL OR LOWER(g.name) LIKE LOWER(CONCAT('%', :searchGenre, '%'))) AND " +
+           "(:searchPublisher IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :searchPublisher, '%')))")
+    Page<String> findBookIdsWithSearch(
+            @Param("searchTitle") String searchTitle,
+            @Param("searchAuthor") String searchAuthor,
+            @Param("searchId") String searchId,
+            @Param("searchGenre") String searchGenre,
+            @Param("searchPublisher") String searchPublisher,
+            Pageable pageable);
+    
+    /**
+     * Stream the IDs of all books matching the title and author filters, for narrowing a
+     * faceted search. A book may appear once per matching author. Must be consumed inside a
+     * transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.id FROM BookEntity b " +
+           "LEFT JOIN b.authors a " +
+           "WHERE " +
+           "(:searchTitle IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTitle, '%'))) AND " +
+           "(:searchAuthor IS NULL OR LOWER(a.name) LIKE LOWER(CONCAT('%', :searchAuthor, '%')))")
+    Stream<String> streamBookIdsWithSearch(@Param("searchTitle") String searchTitle,
+                                           @Param("searchAuthor") String searchAuthor);
+    
+    /**
+     * Load the given books with authors, genres and publisher in a single query.
+     * Result order is unspecified; callers re-apply the order of the ID page.
+     */
+    @EntityGraph(attributePaths = {"authors", "genres", "publisher"})
+    @Query("SELECT DISTINCT b FROM BookEntity b WHERE b.id IN :ids")
+    List<BookEntity> findAllWithAssociationsByIdIn(@Param("ids") Collection<String> ids);
+    
+    /**
+     * Page over all book IDs in primary-key order, for listings without search criteria.
+     */
+    @Query(value = "SELECT b.id FROM BookEntity b ORDER BY b.id",
+           countQuery = "SELECT COUNT(b) FROM BookEntity b")
+    Page<String> findAllBookIds(Pageable pageable);
+    
+    /**
+     * Stream the searchable text of every book as flat rows of
+     * (id, title, author name, genre name, publisher name), one row per
+     * author/genre combination, grouped by book ID. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.id, b.title, a.name, g.name, p.name FROM BookEntity b " +
+           "LEFT JOIN b.authors a " +
+           "LEFT JOIN b.genres g " +
+           "LEFT JOIN b.publisher p " +
+           "ORDER BY b.id")
+    Stream<Object[]> streamSearchIndexRows();
+    
+    /**
+     * Stream (id, title, reserved quantity) of every book for the typeahead index.
+     * Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.id, b.title, b.reservedQuantity FROM BookEntity b")
+    Stream<Object[]> streamTitleSuggestionRows();
+    
+    /**
+     * Stream the facet attributes of every book as flat rows of
+     * (id, language, format, price, genre name, publisher name), one row per genre,
+     * grouped by book ID. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.id, b.language, b.format, b.price, g.name, p.name FROM BookEntity b " +
+           "LEFT JOIN b.genres g " +
+           "LEFT JOIN b.publisher p " +
+           "ORDER BY b.id")
+    Stream<Object[]> streamFacetRows();
+
+    /**
+     * Stream the exported columns of every book as flat rows of
+     * (id, title, price, author name, genre name), one row per author/genre combination,
+     * grouped by book ID. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.id, b.title, b.price, a.name, g.name FROM BookEntity b " +
+           "LEFT JOIN b.authors a " +
+           "LEFT JOIN b.genres g " +
+           "ORDER BY b.id")
+    Stream<Object[]> streamExportRows();
+
+    /**
+     * Ranked full-text search over the trigger-maintained {@code books.search_vector} column
+     * (see V4 migration). Returns at most {@code limit} book IDs, best match first; the GIN
+     * index finds the matches and Postgres keeps only the top {@code limit} while ranking.
+     */
+    @Query(value = "SELECT b.id FROM books b, plainto_tsquery('english', :query) q " +
+           "WHERE b.search_vector @@ q " +
+           "ORDER BY ts_rank_cd(b.search_vector, q) DESC, b.id " +
+           "LIMIT :limit",
+           nativeQuery = true)
+    List<String> findRankedBookIds(@Param("query") String query, @Param("limit") int limit);
+    
     /**
      * Count books with search criteria
      */
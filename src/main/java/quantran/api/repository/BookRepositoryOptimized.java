@@ -34,9 +34,9 @@ public interface BookRepositoryOptimized extends JpaRepository<BookEntity, Strin
     // ============================================================================
     
     /**
-     * Optimized search with caching and JOIN FETCH to avoid N+1 queries
+     * Optimized search with JOIN FETCH to avoid N+1 queries. Not cached: the "books" cache
+     * holds the service's {@code Paginate<BookModel>} under the same keys.
      */
-    @Cacheable(value = "books", key = "#searchTitle + '-' + #searchAuthor + '-' + #searchId + '-' + #searchGenre + '-' + #searchPublisher + '-' + #page + '-' + #pageSize")
     @Query("SELECT DISTINCT b FROM BookEntity b " +
            "LEFT JOIN FETCH b.authors a " +
            "LEFT JOIN FETCH b.genres g " +
@@ -56,7 +56,9 @@ public interface BookRepositoryOptimized extends JpaRepository<BookEntity, Strin
             Pageable pageable);
     
     /**
-     * Full-text search using PostgreSQL's ts_vector for better performance
+     * Full-text search using PostgreSQL's ts_vector for better performance.
+     * Computes to_tsvector over the joined rows per request and cannot use the GIN indexes;
+     * prefer {@link BookRepository#findRankedBookIds}, which reads the maintained search_vector column.
      */
     @Cacheable(value = "books_fts", key = "#searchTerm + '-' + #page + '-' + #pageSize")
     @Query(value = "SELECT b.* FROM books b " +
@@ -171,27 +173,42 @@ public interface BookRepositoryOptimized extends JpaRepository<BookEntity, Strin
     // ============================================================================
     
     /**
-     * Cursor-based pagination for better performance on large datasets
+     * First page of book IDs in ID order. Bound the page with {@code PageRequest.of(0, limit)}.
      */
-    @Query("SELECT b FROM BookEntity b " +
+    @Query("SELECT b.id FROM BookEntity b ORDER BY b.id")
+    List<String> findBookIdsOrderById(Pageable pageable);
+    
+    /**
+     * Cursor-based pagination: book IDs strictly after {@code cursor} in ID order.
+     * The page is bounded with {@code PageRequest.of(0, limit)}, so neither OFFSET nor a count query is issued.
+     */
+    @Query("SELECT b.id FROM BookEntity b " +
            "WHERE b.id > :cursor " +
-           "ORDER BY b.id " +
-           "LIMIT :limit")
-    List<BookEntity> findBooksWithCursor(
+           "ORDER BY b.id")
+    List<String> findBookIdsWithCursor(
             @Param("cursor") String cursor,
-            @Param("limit") int limit);
+            Pageable pageable);
     
     /**
-     * Keyset pagination for large datasets with date ordering
+     * First page of dated book IDs, newest publication date first.
      */
-    @Query("SELECT b FROM BookEntity b " +
-           "WHERE (b.publicationDate, b.id) < (:date, :id) " +
-           "ORDER BY b.publicationDate DESC, b.id DESC " +
-           "LIMIT :limit")
-    List<BookEntity> findBooksWithKeysetPagination(
+    @Query("SELECT b.id FROM BookEntity b " +
+           "WHERE b.publicationDate IS NOT NULL " +
+           "ORDER BY b.publicationDate DESC, b.id DESC")
+    List<String> findBookIdsOrderByPublicationDate(Pageable pageable);
+    
+    /**
+     * Keyset pagination with date ordering: dated book IDs that sort after (date, id),
+     * newest first. Row-value comparison is spelled out because JPQL does not support it.
+     */
+    @Query("SELECT b.id FROM BookEntity b " +
+           "WHERE b.publicationDate < :date " +
+           "OR (b.publicationDate = :date AND b.id < :id) " +
+           "ORDER BY b.publicationDate DESC, b.id DESC")
+    List<String> findBookIdsWithKeysetPagination(
             @Param("date") LocalDate date,
             @Param("id") String id,
-            @Param("limit") int limit);
+            Pageable pageable);
     
     // ============================================================================
     // OPTIMIZED SPECIALIZED QUERIES
@@ -104,4 +104,10 @@ public interface PublisherRepository extends JpaRepository<PublisherEntity, Long
     @EntityGraph(attributePaths = {"books"})
     @Query("SELECT DISTINCT p FROM PublisherEntity p JOIN p.books b JOIN b.authors a WHERE a.name = :authorName")
     List<PublisherEntity> findByBookAuthor(@Param("authorName") String authorName);
-} 
\ No newline at end of file
+    
+    /**
+     * Find (id, name, number of books) of every publisher, for the typeahead index
+     */
+    @Query("SELECT p.id, p.name, COUNT(b) FROM PublisherEntity p LEFT JOIN p.books b GROUP BY p.id, p.name")
+    List<Object[]> findNamesWithBookCounts();
+}
@@ -0,0 +1,257 @@
+package quantran.api.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import quantran.api.event.BookChangedEvent;
+import quantran.api.event.BookSnapshot;
+import quantran.api.event.BooksImportedEvent;
+import quantran.api.repository.BookRepository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+/**
+ * Facet bitmaps for genre, language, format, publisher and price range of every book.
+ *
+ * <p>Loaded once the application is ready and reloaded periodically (which also restores
+ * ID order for books added since the last load); in between it is updated from
+ * {@link BookChangedEvent}s and {@link BooksImportedEvent}s after each commit. Changes committed during a load are
+ * replayed on top of it.
+ *
+ * <p>A failed load is retried with exponential backoff rather than waiting for the next
+ * periodic reload; a previously loaded index keeps serving meanwhile.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class BookFacetIndex {
+    static final String[] PRICE_RANGES = {"0-10", "10-25", "25-50", "50-100", "100+"};
+    private static final BigDecimal[] PRICE_UPPER_BOUNDS = {
+            BigDecimal.valueOf(10), BigDecimal.valueOf(25), BigDecimal.valueOf(50), BigDecimal.valueOf(100)};
+
+    private final BookRepository bookRepository;
+
+    private final Queue<Object> pendingChanges = new ConcurrentLinkedQueue<>();
+    private volatile FacetIndex index;
+    private volatile boolean loading;
+    // Guarded by this
+    private boolean failed;
+    private int failedLoads;
+    private long nextLoadAt;
+
+    @Value("${app.facets.retry-initial-ms:5000}")
+    private long retryInitialMs;
+
+    @Value("${app.facets.retry-max-ms:300000}")
+    private long retryMaxMs;
+
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        load();
+    }
+
+    @Scheduled(initialDelayString = "${app.facets.rebuild-interval-ms:3600000}",
+               fixedDelayString = "${app.facets.rebuild-interval-ms:3600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        load();
+    }
+
+    /**
+     * Retry a failed load once its backoff has passed.
+     */
+    @Scheduled(fixedDelayString = "${app.facets.retry-check-ms:1000}")
+    @Transactional(readOnly = true)
+    public void retryLoad() {
+        synchronized (this) {
+            if (!failed || System.currentTimeMillis() < nextLoadAt) {
+                return;
+            }
+        }
+        log.info("Retrying book facets load, attempt {}", failedLoads + 1);
+        load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        applyToCurrent(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        applyToCurrent(event);
+    }
+
+    private void applyToCurrent(Object event) {
+        synchronized (this) {
+            if (loading) {
+                pendingChanges.add(event);
+            }
+        }
+        FacetIndex current = index;
+        if (current != null) {
+            apply(current, event);
+        }
+    }
+
+    /**
+     * Filter books by facet selections and count facet values over the result.
+     * @param candidateIds IDs matching the text query, or {@code null} for the whole catalog
+     * @param selected Selected values per dimension
+     * @return The page of matching IDs with facet counts, or empty while the index is not yet loaded
+     */
+    public Optional<FacetIndex.Result> search(Iterable<String> candidateIds,
+                                              Map<FacetDimension, ? extends Collection<String>> selected,
+                                              int offset, int limit, int facetLimit) {
+        FacetIndex current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(current.search(candidateIds, selected, offset, limit, facetLimit));
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Price range label of a price, one of {@link #PRICE_RANGES}.
+     */
+    static String priceRange(BigDecimal price) {
+        if (price == null) {
+            return null;
+        }
+        for (int i = 0; i < PRICE_UPPER_BOUNDS.length; i++) {
+            if (price.compareTo(PRICE_UPPER_BOUNDS[i]) < 0) {
+                return PRICE_RANGES[i];
+            }
+        }
+        return PRICE_RANGES[PRICE_RANGES.length - 1];
+    }
+
+    private void load() {
+        synchronized (this) {
+            if (loading) {
+                log.info("Book facets are already loading, skipping");
+                return;
+            }
+            loading = true;
+        }
+        log.info("Start loading book facets");
+        long start = System.currentTimeMillis();
+
+        try {
+            FacetIndex loaded = new FacetIndex();
+            try (Stream<Object[]> rows = bookRepository.streamFacetRows()) {
+                Iterator<Object[]> iterator = rows.iterator();
+                String currentId = null;
+                Map<FacetDimension, Set<String>> values = null;
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    String id = (String) row[0];
+                    if (!id.equals(currentId)) {
+                        if (currentId != null) {
+                            loaded.upsert(currentId, values);
+                        }
+                        currentId = id;
+                        values = facetValues((String) row[1], (String) row[2], (BigDecimal) row[3],
+                                Collections.<String>emptyList(), (String) row[5]);
+                    }
+                    if (row[4] != null) {
+                        values.get(FacetDimension.GENRE).add((String) row[4]);
+                    }
+                }
+                if (currentId != null) {
+                    loaded.upsert(currentId, values);
+                }
+            }
+
+            synchronized (this) {
+                Object event;
+                while ((event = pendingChanges.poll()) != null) {
+                    apply(loaded, event);
+                }
+                index = loaded;
+                loading = false;
+                failed = false;
+                failedLoads = 0;
+            }
+            log.info("End loading book facets, indexed {} books in {} ms",
+                    loaded.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            long delay;
+            synchronized (this) {
+                pendingChanges.clear();
+                loading = false;
+                failed = true;
+                failedLoads++;
+                delay = retryInitialMs << Math.min(failedLoads - 1, 20);
+                delay = delay <= 0 || delay > retryMaxMs ? retryMaxMs : delay;
+                nextLoadAt = System.currentTimeMillis() + delay;
+            }
+            log.error("Failed to load book facets, retrying in {} ms", delay, e);
+        }
+    }
+
+    private static void apply(FacetIndex target, Object event) {
+        if (event instanceof BooksImportedEvent) {
+            // An import only sets the price (and the defaults of a new book); genres and publisher stay as indexed
+            for (BooksImportedEvent.ImportedBook book : ((BooksImportedEvent) event).getBooks()) {
+                Map<FacetDimension, Set<String>> values = new EnumMap<>(FacetDimension.class);
+                values.put(FacetDimension.LANGUAGE, singleValue(book.getLanguage()));
+                values.put(FacetDimension.FORMAT, singleValue(book.getFormat()));
+                values.put(FacetDimension.PRICE, singleValue(priceRange(book.getPrice())));
+                target.update(book.getId(), values);
+            }
+            return;
+        }
+        BookChangedEvent bookEvent = (BookChangedEvent) event;
+        if (bookEvent.getType() == BookChangedEvent.ChangeType.DELETED) {
+            target.remove(bookEvent.getBookId());
+            return;
+        }
+        BookSnapshot book = bookEvent.getCurrent();
+        target.upsert(book.getId(), facetValues(book.getLanguage(), book.getFormat(), book.getPrice(),
+                book.getGenreNames(), book.getPublisherName()));
+    }
+
+    private static Map<FacetDimension, Set<String>> facetValues(String language, String format, BigDecimal price,
+                                                                List<String> genres, String publisher) {
+        Map<FacetDimension, Set<String>> values = new EnumMap<>(FacetDimension.class);
+        values.put(FacetDimension.GENRE, new LinkedHashSet<>(genres));
+        values.put(FacetDimension.LANGUAGE, singleValue(language));
+        values.put(FacetDimension.FORMAT, singleValue(format));
+        values.put(FacetDimension.PUBLISHER, singleValue(publisher));
+        values.put(FacetDimension.PRICE, singleValue(priceRange(price)));
+        return values;
+    }
+
+    private static Set<String> singleValue(String value) {
+        Set<String> values = new LinkedHashSet<>(1);
+        if (value != null) {
+            values.add(value);
+        }
+        return values;
+    }
+}
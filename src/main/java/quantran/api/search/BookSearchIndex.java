@@ -0,0 +1,266 @@
+package quantran.api.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import quantran.api.event.BookChangedEvent;
+import quantran.api.event.BookSnapshot;
+import quantran.api.event.BooksImportedEvent;
+import quantran.api.repository.BookRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+/**
+ * Trigram index over book id, title, author names, genre names and publisher name,
+ * answering the substring filters of the catalog search without a database scan.
+ *
+ * <p>The index is loaded in the background once the application is ready and is kept
+ * current from {@link BookChangedEvent}s and {@link BooksImportedEvent}s after each
+ * commit. Until the initial load has finished {@link #search} returns empty and callers
+ * fall back to the database.
+ *
+ * <p>A failed load is retried with exponential backoff. Until the retry starts, changes are
+ * dropped rather than queued, since the retry reads them from the database anyway.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class BookSearchIndex {
+    private static final int FIELD_ID = 0;
+    private static final int FIELD_TITLE = 1;
+    private static final int FIELD_AUTHOR = 2;
+    private static final int FIELD_GENRE = 3;
+    private static final int FIELD_PUBLISHER = 4;
+    private static final int FIELD_COUNT = 5;
+
+    private final BookRepository bookRepository;
+
+    private final TrigramIndex index = new TrigramIndex(FIELD_COUNT);
+    private final Queue<Object> pendingChanges = new ConcurrentLinkedQueue<>();
+    private volatile boolean ready;
+    // Guarded by this
+    private boolean failed;
+    private int failedBuilds;
+    private long nextBuildAt;
+
+    @Value("${app.search.index.retry-initial-ms:5000}")
+    private long retryInitialMs;
+
+    @Value("${app.search.index.retry-max-ms:300000}")
+    private long retryMaxMs;
+
+    /**
+     * Load every book into the index. Changes committed while loading are queued
+     * and replayed afterwards, so they win over the rows read by the load.
+     */
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        load();
+    }
+
+    /**
+     * Retry a failed load once its backoff has passed.
+     */
+    @Scheduled(fixedDelayString = "${app.search.index.retry-check-ms:1000}")
+    @Transactional(readOnly = true)
+    public void retryBuild() {
+        synchronized (this) {
+            if (!failed || System.currentTimeMillis() < nextBuildAt) {
+                return;
+            }
+        }
+        log.info("Retrying book search index build, attempt {}", failedBuilds + 1);
+        load();
+    }
+
+    private void load() {
+        log.info("Start building book search index");
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            // Queue changes again from here on, so none committed during the load is lost
+            failed = false;
+        }
+
+        try (Stream<Object[]> rows = bookRepository.streamSearchIndexRows()) {
+            Iterator<Object[]> iterator = rows.iterator();
+            IndexedBook current = null;
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                String id = (String) row[0];
+                if (current == null || !current.id.equals(id)) {
+                    if (current != null) {
+                        index.upsert(current.id, current.fieldValues());
+                    }
+                    current = new IndexedBook(id, (String) row[1], (String) row[4]);
+                }
+                current.add((String) row[2], (String) row[3]);
+            }
+            if (current != null) {
+                index.upsert(current.id, current.fieldValues());
+            }
+        } catch (RuntimeException e) {
+            long delay;
+            synchronized (this) {
+                failed = true;
+                failedBuilds++;
+                delay = retryInitialMs << Math.min(failedBuilds - 1, 20);
+                delay = delay <= 0 || delay > retryMaxMs ? retryMaxMs : delay;
+                nextBuildAt = System.currentTimeMillis() + delay;
+                pendingChanges.clear();
+            }
+            log.error("Failed to build book search index, searches will use the database; retrying in {} ms", delay, e);
+            index.clear();
+            return;
+        }
+
+        synchronized (this) {
+            Object event;
+            while ((event = pendingChanges.poll()) != null) {
+                apply(event);
+            }
+            failedBuilds = 0;
+            ready = true;
+        }
+        log.info("End building book search index, indexed {} books in {} ms",
+                index.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        applyWhenReady(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        applyWhenReady(event);
+    }
+
+    private void applyWhenReady(Object event) {
+        synchronized (this) {
+            if (!ready) {
+                if (!failed) {
+                    pendingChanges.add(event);
+                }
+                return;
+            }
+        }
+        apply(event);
+    }
+
+    /**
+     * Find books matching all non-blank substring filters, in ascending ID order.
+     * @return The requested page, or empty while the index is not yet loaded
+     */
+    public Optional<TrigramIndex.SearchPage> search(String searchId, String searchTitle, String searchAuthor,
+                                                    String searchGenre, String searchPublisher,
+                                                    int offset, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        return Optional.of(index.search(terms(searchId, searchTitle, searchAuthor, searchGenre, searchPublisher), offset, limit));
+    }
+
+    /**
+     * Find the IDs of all books matching all non-blank substring filters, in no particular order.
+     * @return The matching IDs, or empty while the index is not yet loaded
+     */
+    public Optional<List<String>> searchAll(String searchId, String searchTitle, String searchAuthor,
+                                            String searchGenre, String searchPublisher) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        return Optional.of(index.searchAll(terms(searchId, searchTitle, searchAuthor, searchGenre, searchPublisher)));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private static String[] terms(String searchId, String searchTitle, String searchAuthor,
+                                  String searchGenre, String searchPublisher) {
+        String[] terms = new String[FIELD_COUNT];
+        terms[FIELD_ID] = searchId;
+        terms[FIELD_TITLE] = searchTitle;
+        terms[FIELD_AUTHOR] = searchAuthor;
+        terms[FIELD_GENRE] = searchGenre;
+        terms[FIELD_PUBLISHER] = searchPublisher;
+        return terms;
+    }
+
+    private void apply(Object event) {
+        if (event instanceof BooksImportedEvent) {
+            // An import only sets the title; authors, genres and publisher stay as indexed
+            for (BooksImportedEvent.ImportedBook book : ((BooksImportedEvent) event).getBooks()) {
+                List<List<String>> values = new ArrayList<>(Collections.nCopies(FIELD_COUNT, (List<String>) null));
+                values.set(FIELD_ID, Collections.singletonList(book.getId()));
+                values.set(FIELD_TITLE, Collections.singletonList(book.getTitle()));
+                index.update(book.getId(), values);
+            }
+            return;
+        }
+        BookChangedEvent bookEvent = (BookChangedEvent) event;
+        if (bookEvent.getType() == BookChangedEvent.ChangeType.DELETED) {
+            index.remove(bookEvent.getBookId());
+            return;
+        }
+        BookSnapshot book = bookEvent.getCurrent();
+        IndexedBook indexed = new IndexedBook(book.getId(), book.getTitle(), book.getPublisherName());
+        indexed.authors.addAll(book.getAuthorNames());
+        indexed.genres.addAll(book.getGenreNames());
+        index.upsert(indexed.id, indexed.fieldValues());
+    }
+
+    /**
+     * Accumulates the joined rows of one book.
+     */
+    private static final class IndexedBook {
+        private final String id;
+        private final String title;
+        private final String publisher;
+        private final Set<String> authors = new LinkedHashSet<>();
+        private final Set<String> genres = new LinkedHashSet<>();
+
+        private IndexedBook(String id, String title, String publisher) {
+            this.id = id;
+            this.title = title;
+            this.publisher = publisher;
+        }
+
+        private void add(String author, String genre) {
+            if (author != null) {
+                authors.add(author);
+            }
+            if (genre != null) {
+                genres.add(genre);
+            }
+        }
+
+        private List<List<String>> fieldValues() {
+            List<List<String>> values = new ArrayList<>(Collections.nCopies(FIELD_COUNT, Collections.<String>emptyList()));
+            values.set(FIELD_ID, Collections.singletonList(id));
+            values.set(FIELD_TITLE, Collections.singletonList(title));
+            values.set(FIELD_AUTHOR, new ArrayList<>(authors));
+            values.set(FIELD_GENRE, new ArrayList<>(genres));
+            values.set(FIELD_PUBLISHER, publisher != null ? Collections.singletonList(publisher) : Collections.<String>emptyList());
+            return values;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package quantran.api.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import quantran.api.event.AuthorChangedEvent;
+import quantran.api.event.BookChangedEvent;
+import quantran.api.event.BooksImportedEvent;
+import quantran.api.event.PublisherChangedEvent;
+import quantran.api.repository.AuthorRepository;
+import quantran.api.repository.BookRepository;
+import quantran.api.repository.PublisherRepository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+/**
+ * Typeahead suggestions for book titles, author names and publisher names.
+ *
+ * <p>Titles are weighted by reserved quantity (current demand); authors and publishers by
+ * their number of books. The suggesters are loaded once the application is ready and then
+ * periodically to refresh weights; in between they are updated from change events after
+ * each commit. Changes committed during a load are replayed on top of it.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class BookSuggestIndex {
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final PublisherRepository publisherRepository;
+
+    private final PrefixSuggester titles = new PrefixSuggester();
+    private final PrefixSuggester authors = new PrefixSuggester();
+    private final PrefixSuggester publishers = new PrefixSuggester();
+    private final Queue<Object> pendingChanges = new ConcurrentLinkedQueue<>();
+    private volatile boolean loading;
+
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        load();
+    }
+
+    @Scheduled(initialDelayString = "${app.suggest.rebuild-interval-ms:3600000}",
+               fixedDelayString = "${app.suggest.rebuild-interval-ms:3600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        apply(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        apply(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        apply(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPublisherChanged(PublisherChangedEvent event) {
+        apply(event);
+    }
+
+    public List<String> suggestTitles(String prefix, int limit) {
+        return titles.suggest(prefix, limit);
+    }
+
+    public List<String> suggestAuthors(String prefix, int limit) {
+        return authors.suggest(prefix, limit);
+    }
+
+    public List<String> suggestPublishers(String prefix, int limit) {
+        return publishers.suggest(prefix, limit);
+    }
+
+    private void load() {
+        log.info("Start loading book suggestions");
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            if (loading) {
+                log.info("Book suggestions are already loading, skipping");
+                return;
+            }
+            loading = true;
+        }
+
+        try {
+            List<PrefixSuggester.Entry> titleEntries = new ArrayList<>();
+            try (Stream<Object[]> rows = bookRepository.streamTitleSuggestionRows()) {
+                Iterator<Object[]> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    addEntry(titleEntries, (String) row[0], (String) row[1], (Number) row[2]);
+                }
+            }
+            List<PrefixSuggester.Entry> authorEntries = new ArrayList<>();
+            for (Object[] row : authorRepository.findNamesWithBookCounts()) {
+                addEntry(authorEntries, String.valueOf(row[0]), (String) row[1], (Number) row[2]);
+            }
+            List<PrefixSuggester.Entry> publisherEntries = new ArrayList<>();
+            for (Object[] row : publisherRepository.findNamesWithBookCounts()) {
+                addEntry(publisherEntries, String.valueOf(row[0]), (String) row[1], (Number) row[2]);
+            }
+
+            synchronized (this) {
+                titles.rebuild(titleEntries);
+                authors.rebuild(authorEntries);
+                publishers.rebuild(publisherEntries);
+                Object event;
+                while ((event = pendingChanges.poll()) != null) {
+                    applyToSuggesters(event);
+                }
+                loading = false;
+            }
+            log.info("End loading book suggestions, {} titles, {} authors, {} publishers in {} ms",
+                    titleEntries.size(), authorEntries.size(), publisherEntries.size(),
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingChanges.clear();
+                loading = false;
+            }
+            log.error("Failed to load book suggestions", e);
+        }
+    }
+
+    private static void addEntry(List<PrefixSuggester.Entry> entries, String id, String text, Number weight) {
+        if (text != null && !text.trim().isEmpty()) {
+            entries.add(new PrefixSuggester.Entry(id, text.trim(), weight != null ? weight.longValue() : 0));
+        }
+    }
+
+    private void apply(Object event) {
+        synchronized (this) {
+            if (loading) {
+                pendingChanges.add(event);
+            }
+        }
+        applyToSuggesters(event);
+    }
+
+    private void applyToSuggesters(Object event) {
+        if (event instanceof BookChangedEvent) {
+            BookChangedEvent bookEvent = (BookChangedEvent) event;
+            if (bookEvent.getType() == BookChangedEvent.ChangeType.DELETED) {
+                titles.remove(bookEvent.getBookId());
+            } else {
+                titles.upsert(bookEvent.getBookId(), bookEvent.getCurrent().getTitle(),
+                        bookEvent.getCurrent().getReservedQuantity());
+            }
+        } else if (event instanceof BooksImportedEvent) {
+            for (BooksImportedEvent.ImportedBook book : ((BooksImportedEvent) event).getBooks()) {
+                titles.upsert(book.getId(), book.getTitle(), book.getReservedQuantity());
+            }
+        } else if (event instanceof AuthorChangedEvent) {
+            AuthorChangedEvent authorEvent = (AuthorChangedEvent) event;
+            String id = String.valueOf(authorEvent.getAuthorId());
+            if (authorEvent.getType() == BookChangedEvent.ChangeType.DELETED) {
+                authors.remove(id);
+            } else {
+                authors.upsert(id, authorEvent.getName(), authorEvent.getBookCount());
+            }
+        } else if (event instanceof PublisherChangedEvent) {
+            PublisherChangedEvent publisherEvent = (PublisherChangedEvent) event;
+            String id = String.valueOf(publisherEvent.getPublisherId());
+            if (publisherEvent.getType() == BookChangedEvent.ChangeType.DELETED) {
+                publishers.remove(id);
+            } else {
+                publishers.upsert(id, publisherEvent.getName(), publisherEvent.getBookCount());
+            }
+        }
+    }
+}
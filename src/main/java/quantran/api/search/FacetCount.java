@@ -0,0 +1,22 @@
+package quantran.api.search;
+
+/**
+ * Number of matching documents having one facet value.
+ */
+public final class FacetCount {
+    private final String value;
+    private final int count;
+
+    public FacetCount(String value, int count) {
+        this.value = value;
+        this.count = count;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
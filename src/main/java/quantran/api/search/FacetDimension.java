@@ -0,0 +1,23 @@
+package quantran.api.search;
+
+/**
+ * Attributes the catalog can be faceted on. {@link #getParameter()} is the name used in
+ * request parameters and in the facet counts of the response.
+ */
+public enum FacetDimension {
+    GENRE("genre"),
+    LANGUAGE("language"),
+    FORMAT("format"),
+    PUBLISHER("publisher"),
+    PRICE("price");
+
+    private final String parameter;
+
+    FacetDimension(String parameter) {
+        this.parameter = parameter;
+    }
+
+    public String getParameter() {
+        return parameter;
+    }
+}
@@ -0,0 +1,289 @@
+package quantran.api.search;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap-per-facet-value index. Every document gets a stable integer ordinal; each value
+ * of each {@link FacetDimension} keeps a compressed bitmap of the ordinals having it.
+ *
+ * <p>Filtering is OR within a dimension and AND across dimensions. Facet counts are
+ * disjunctive: the counts of a dimension ignore that dimension's own selection, so they
+ * show what selecting another value would yield. Counting is a bitmap AND-cardinality per
+ * value, with no per-document work.
+ */
+public class FacetIndex {
+    private static final int CANDIDATE_CHUNK_SIZE = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ordinalsByKey = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final Map<FacetDimension, Map<String, RoaringBitmap>> bitmaps = new EnumMap<>(FacetDimension.class);
+
+    public FacetIndex() {
+        for (FacetDimension dimension : FacetDimension.values()) {
+            bitmaps.put(dimension, new HashMap<>());
+        }
+    }
+
+    /**
+     * Index or re-index a document, keeping its ordinal if it is already known.
+     * @param key Unique document key
+     * @param values Facet values per dimension; missing dimensions have no value
+     */
+    public void upsert(String key, Map<FacetDimension, ? extends Collection<String>> values) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsByKey.get(key);
+            if (ordinal == null) {
+                ordinal = keys.size();
+                keys.add(key);
+                ordinalsByKey.put(key, ordinal);
+                live.add(ordinal);
+            } else {
+                clearValues(ordinal);
+            }
+            addValues(ordinal, values);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Set the values of some dimensions of a document, keeping the others; an unknown key is
+     * added with no value in the other dimensions.
+     * @param key Unique document key
+     * @param values Facet values of the dimensions to replace
+     */
+    public void update(String key, Map<FacetDimension, ? extends Collection<String>> values) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsByKey.get(key);
+            if (ordinal == null) {
+                ordinal = keys.size();
+                keys.add(key);
+                ordinalsByKey.put(key, ordinal);
+                live.add(ordinal);
+            } else {
+                for (FacetDimension dimension : values.keySet()) {
+                    clearValues(bitmaps.get(dimension), ordinal);
+                }
+            }
+            addValues(ordinal, values);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a document; unknown keys are ignored. The ordinal is not reused.
+     */
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsByKey.remove(key);
+            if (ordinal != null) {
+                clearValues(ordinal);
+                live.remove(ordinal);
+                keys.set(ordinal, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Filter documents and count facet values.
+     * @param candidateKeys Keys matching the text query, or {@code null} for all documents; iterated
+     *                      once and without holding the lock, so it may be backed by a database cursor
+     * @param selected Selected values per dimension (OR within, AND across dimensions)
+     * @param offset Number of results to skip, in ordinal order
+     * @param limit Maximum number of result keys to return
+     * @param facetLimit Maximum number of values to report per dimension, most frequent first
+     */
+    public Result search(Iterable<String> candidateKeys, Map<FacetDimension, ? extends Collection<String>> selected,
+                         int offset, int limit, int facetLimit) {
+        RoaringBitmap candidates = candidateKeys == null ? null : toBitmap(candidateKeys);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap base = live;
+            if (candidates != null) {
+                // Drop candidates removed while the keys were being resolved
+                candidates.and(live);
+                base = candidates;
+            }
+
+            Map<FacetDimension, RoaringBitmap> filters = new EnumMap<>(FacetDimension.class);
+            for (Map.Entry<FacetDimension, ? extends Collection<String>> entry : selected.entrySet()) {
+                if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    filters.put(entry.getKey(), union(bitmaps.get(entry.getKey()), entry.getValue()));
+                }
+            }
+
+            RoaringBitmap results = base.clone();
+            for (RoaringBitmap filter : filters.values()) {
+                results.and(filter);
+            }
+
+            Map<FacetDimension, List<FacetCount>> facets = new EnumMap<>(FacetDimension.class);
+            for (FacetDimension dimension : FacetDimension.values()) {
+                RoaringBitmap context = base;
+                if (!filters.isEmpty() && !(filters.size() == 1 && filters.containsKey(dimension))) {
+                    context = base.clone();
+                    for (Map.Entry<FacetDimension, RoaringBitmap> filter : filters.entrySet()) {
+                        if (filter.getKey() != dimension) {
+                            context.and(filter.getValue());
+                        }
+                    }
+                }
+                facets.put(dimension, count(bitmaps.get(dimension), context, facetLimit));
+            }
+
+            int total = results.getCardinality();
+            List<String> page = new ArrayList<>();
+            for (int rank = offset; rank < total && page.size() < limit; rank++) {
+                page.add(keys.get(results.select(rank)));
+            }
+            return new Result(page, total, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addValues(int ordinal, Map<FacetDimension, ? extends Collection<String>> values) {
+        for (Map.Entry<FacetDimension, ? extends Collection<String>> entry : values.entrySet()) {
+            Map<String, RoaringBitmap> dimension = bitmaps.get(entry.getKey());
+            for (String value : entry.getValue()) {
+                if (value != null && !value.isEmpty()) {
+                    dimension.computeIfAbsent(value, v -> new RoaringBitmap()).add(ordinal);
+                }
+            }
+        }
+    }
+
+    private void clearValues(int ordinal) {
+        for (Map<String, RoaringBitmap> dimension : bitmaps.values()) {
+            clearValues(dimension, ordinal);
+        }
+    }
+
+    private static void clearValues(Map<String, RoaringBitmap> dimension, int ordinal) {
+        Iterator<RoaringBitmap> iterator = dimension.values().iterator();
+        while (iterator.hasNext()) {
+            RoaringBitmap bitmap = iterator.next();
+            if (bitmap.checkedRemove(ordinal) && bitmap.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Resolve keys to ordinals a chunk at a time, so a slow source of keys does not hold
+     * off writers.
+     */
+    private RoaringBitmap toBitmap(Iterable<String> candidateKeys) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        List<String> chunk = new ArrayList<>(CANDIDATE_CHUNK_SIZE);
+        for (String key : candidateKeys) {
+            chunk.add(key);
+            if (chunk.size() == CANDIDATE_CHUNK_SIZE) {
+                addOrdinals(bitmap, chunk);
+                chunk.clear();
+            }
+        }
+        addOrdinals(bitmap, chunk);
+        return bitmap;
+    }
+
+    private void addOrdinals(RoaringBitmap bitmap, List<String> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            for (String key : chunk) {
+                Integer ordinal = ordinalsByKey.get(key);
+                if (ordinal != null) {
+                    bitmap.add(ordinal);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static RoaringBitmap union(Map<String, RoaringBitmap> dimension, Collection<String> values) {
+        RoaringBitmap union = new RoaringBitmap();
+        for (String value : values) {
+            RoaringBitmap bitmap = dimension.get(value);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private static List<FacetCount> count(Map<String, RoaringBitmap> dimension, RoaringBitmap context, int facetLimit) {
+        List<FacetCount> counts = new ArrayList<>();
+        if (context.isEmpty()) {
+            return counts;
+        }
+        for (Map.Entry<String, RoaringBitmap> entry : dimension.entrySet()) {
+            int count = RoaringBitmap.andCardinality(entry.getValue(), context);
+            if (count > 0) {
+                counts.add(new FacetCount(entry.getKey(), count));
+            }
+        }
+        counts.sort((a, b) -> a.getCount() != b.getCount()
+                ? Integer.compare(b.getCount(), a.getCount())
+                : a.getValue().compareTo(b.getValue()));
+        return counts.size() > facetLimit ? new ArrayList<>(counts.subList(0, facetLimit)) : counts;
+    }
+
+    /**
+     * One page of filtered keys with the facet counts of the whole result.
+     */
+    public static final class Result {
+        private final List<String> keys;
+        private final int total;
+        private final Map<FacetDimension, List<FacetCount>> facets;
+
+        public Result(List<String> keys, int total, Map<FacetDimension, List<FacetCount>> facets) {
+            this.keys = keys;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        public List<String> getKeys() {
+            return keys;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public Map<FacetDimension, List<FacetCount>> getFacets() {
+            return facets;
+        }
+    }
+}
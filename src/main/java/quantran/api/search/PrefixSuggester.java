@@ -0,0 +1,287 @@
+package quantran.api.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Weighted prefix lookup for typeahead.
+ *
+ * <p>Entries live in an array sorted by lowercase text, so all completions of a prefix
+ * form one contiguous range found by binary search. A segment tree over the weights
+ * answers "heaviest entry in a range" in O(log n), and the top N of a range are pulled
+ * best-first from a small heap of sub-ranges, so a lookup touches O(N log n) entries no
+ * matter how many completions the prefix has.
+ *
+ * <p>The sorted array is immutable. Writes go to a small overlay (by entry id) that
+ * supersedes array entries and is merged into a new array once it grows past
+ * {@link #OVERLAY_LIMIT}. Readers see one volatile {@link State} and never lock.
+ */
+public class PrefixSuggester {
+
+    private static final int OVERLAY_LIMIT = 1024;
+
+    private static final Comparator<Entry> BY_KEY = Comparator.comparing((Entry entry) -> entry.key)
+            .thenComparing(entry -> entry.id);
+    private static final Comparator<Entry> BY_WEIGHT = Comparator.comparingLong((Entry entry) -> entry.weight).reversed()
+            .thenComparing(entry -> entry.key);
+
+    private volatile State state = new State(Snapshot.of(Collections.<Entry>emptyList()), Collections.<String, Entry>emptyMap());
+
+    /**
+     * Replace all entries.
+     */
+    public synchronized void rebuild(List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(BY_KEY);
+        state = new State(Snapshot.of(sorted), Collections.<String, Entry>emptyMap());
+    }
+
+    /**
+     * Add or replace the entry with the given id.
+     */
+    public synchronized void upsert(String id, String text, long weight) {
+        if (text == null || text.trim().isEmpty()) {
+            remove(id);
+            return;
+        }
+        write(id, new Entry(id, text.trim(), weight));
+    }
+
+    public synchronized void remove(String id) {
+        write(id, Entry.removed(id));
+    }
+
+    /**
+     * Return up to {@code limit} distinct texts starting with {@code prefix} (case-insensitive),
+     * heaviest first.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String key = normalize(prefix);
+        State current = state;
+        Snapshot snapshot = current.snapshot;
+
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : current.overlay.values()) {
+            if (!entry.isRemoved() && entry.key.startsWith(key)) {
+                candidates.add(entry);
+            }
+        }
+
+        int lo = snapshot.lowerBound(key);
+        int hi = snapshot.lowerBound(key + Character.MAX_VALUE);
+        if (lo < hi) {
+            Set<String> seen = new HashSet<>();
+            // Sub-ranges as {from, to, argMax}, heaviest argMax first
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> snapshot.better(a[2], b[2]) == a[2] ? -1 : 1);
+            ranges.add(new int[]{lo, hi, snapshot.argMax(lo, hi)});
+            while (!ranges.isEmpty() && seen.size() < limit) {
+                int[] range = ranges.poll();
+                int best = range[2];
+                Entry entry = snapshot.entries[best];
+                if (!current.overlay.containsKey(entry.id) && seen.add(entry.key)) {
+                    candidates.add(entry);
+                }
+                if (range[0] < best) {
+                    ranges.add(new int[]{range[0], best, snapshot.argMax(range[0], best)});
+                }
+                if (best + 1 < range[1]) {
+                    ranges.add(new int[]{best + 1, range[1], snapshot.argMax(best + 1, range[1])});
+                }
+            }
+        }
+
+        candidates.sort(BY_WEIGHT);
+        List<String> suggestions = new ArrayList<>(limit);
+        Set<String> emitted = new HashSet<>();
+        for (Entry entry : candidates) {
+            if (suggestions.size() == limit) {
+                break;
+            }
+            if (emitted.add(entry.key)) {
+                suggestions.add(entry.text);
+            }
+        }
+        return suggestions;
+    }
+
+    public int size() {
+        State current = state;
+        int overlayLive = 0;
+        for (Entry entry : current.overlay.values()) {
+            if (!entry.isRemoved()) {
+                overlayLive++;
+            }
+        }
+        int baseLive = 0;
+        for (Entry entry : current.snapshot.entries) {
+            if (!current.overlay.containsKey(entry.id)) {
+                baseLive++;
+            }
+        }
+        return baseLive + overlayLive;
+    }
+
+    private void write(String id, Entry entry) {
+        State current = state;
+        Map<String, Entry> overlay = new HashMap<>(current.overlay);
+        overlay.put(id, entry);
+        if (overlay.size() > OVERLAY_LIMIT) {
+            state = new State(merge(current.snapshot, overlay), Collections.<String, Entry>emptyMap());
+        } else {
+            state = new State(current.snapshot, overlay);
+        }
+    }
+
+    /**
+     * Linear merge of the sorted array (minus superseded entries) with the sorted overlay.
+     */
+    private static Snapshot merge(Snapshot snapshot, Map<String, Entry> overlay) {
+        List<Entry> added = new ArrayList<>(overlay.size());
+        for (Entry entry : overlay.values()) {
+            if (!entry.isRemoved()) {
+                added.add(entry);
+            }
+        }
+        added.sort(BY_KEY);
+
+        List<Entry> merged = new ArrayList<>(snapshot.entries.length + added.size());
+        int j = 0;
+        for (Entry entry : snapshot.entries) {
+            if (overlay.containsKey(entry.id)) {
+                continue;
+            }
+            while (j < added.size() && BY_KEY.compare(added.get(j), entry) < 0) {
+                merged.add(added.get(j++));
+            }
+            merged.add(entry);
+        }
+        while (j < added.size()) {
+            merged.add(added.get(j++));
+        }
+        return Snapshot.of(merged);
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A suggestable text with its popularity weight.
+     */
+    public static final class Entry {
+        private final String id;
+        private final String text;
+        private final String key;
+        private final long weight;
+
+        public Entry(String id, String text, long weight) {
+            this.id = id;
+            this.text = text;
+            this.key = text != null ? normalize(text) : null;
+            this.weight = weight;
+        }
+
+        private static Entry removed(String id) {
+            return new Entry(id, null, 0);
+        }
+
+        private boolean isRemoved() {
+            return text == null;
+        }
+    }
+
+    private static final class State {
+        private final Snapshot snapshot;
+        private final Map<String, Entry> overlay;
+
+        private State(Snapshot snapshot, Map<String, Entry> overlay) {
+            this.snapshot = snapshot;
+            this.overlay = overlay;
+        }
+    }
+
+    /**
+     * Sorted entries plus an iterative segment tree holding, per node, the index of the
+     * heaviest entry below it (ties go to the lower index, i.e. alphabetical order).
+     */
+    private static final class Snapshot {
+        private final Entry[] entries;
+        private final int[] tree;
+
+        private Snapshot(Entry[] entries) {
+            this.entries = entries;
+            int n = entries.length;
+            this.tree = new int[2 * n];
+            for (int i = 0; i < n; i++) {
+                tree[n + i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+            }
+        }
+
+        private static Snapshot of(List<Entry> sortedEntries) {
+            return new Snapshot(sortedEntries.toArray(new Entry[0]));
+        }
+
+        private int better(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            long wa = entries[a].weight;
+            long wb = entries[b].weight;
+            if (wa != wb) {
+                return wa > wb ? a : b;
+            }
+            return Math.min(a, b);
+        }
+
+        /**
+         * Index of the heaviest entry in [from, to); the range must be non-empty.
+         */
+        private int argMax(int from, int to) {
+            int n = entries.length;
+            int best = -1;
+            for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    best = better(best, tree[l++]);
+                }
+                if ((r & 1) == 1) {
+                    best = better(best, tree[--r]);
+                }
+            }
+            return best;
+        }
+
+        /**
+         * First index whose key is not less than {@code key}.
+         */
+        private int lowerBound(String key) {
+            int lo = 0;
+            int hi = entries.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (entries[mid].key.compareTo(key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
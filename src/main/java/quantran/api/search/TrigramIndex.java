@@ -0,0 +1,479 @@
+package quantran.api.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram inverted index answering case-insensitive substring queries
+ * ({@code LOWER(field) LIKE '%term%'}) over a fixed number of text fields.
+ *
+ * <p>Every document gets an ordinal; each field keeps a posting list of ordinals per
+ * trigram. Terms of three or more characters are resolved by intersecting the posting
+ * lists of their trigrams and verifying the survivors; shorter terms are verified
+ * against the candidates (or every document when no longer term narrows the set).
+ *
+ * <p>Ordinals are append-only, so posting lists stay sorted without re-sorting. An
+ * update tombstones the old ordinal and appends a new one; tombstones are dropped by
+ * {@link #compact()}. Documents loaded in ascending key order form a "sorted prefix"
+ * whose ordinal order equals key order, which lets results be returned in key order
+ * without sorting the whole match set.
+ */
+public class TrigramIndex {
+
+    public static final int MIN_INDEXED_TERM_LENGTH = 3;
+
+    private static final char VALUE_SEPARATOR = '\u0001';
+    private static final int COMPACTION_MIN_GARBAGE = 10_000;
+
+    private final int fieldCount;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> ordinalsByKey = new HashMap<>();
+    private final List<Map<Long, PostingList>> postings;
+
+    private int sortedPrefix;
+    private String lastSortedKey;
+    private int deletedCount;
+
+    public TrigramIndex(int fieldCount) {
+        this.fieldCount = fieldCount;
+        this.postings = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            postings.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Index or re-index a document.
+     * @param key Unique document key
+     * @param fieldValues Values per field; a field may hold several values (e.g. several authors)
+     */
+    public void upsert(String key, List<List<String>> fieldValues) {
+        if (fieldValues.size() != fieldCount) {
+            throw new IllegalArgumentException("Expected " + fieldCount + " fields, got " + fieldValues.size());
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(key);
+            appendInternal(key, fieldValues);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-index some fields of a document, keeping the others; an unknown key is indexed
+     * with the other fields empty.
+     * @param key Unique document key
+     * @param fieldValues Values per field; {@code null} keeps the indexed values of that field
+     */
+    public void update(String key, List<List<String>> fieldValues) {
+        if (fieldValues.size() != fieldCount) {
+            throw new IllegalArgumentException("Expected " + fieldCount + " fields, got " + fieldValues.size());
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsByKey.get(key);
+            Document existing = ordinal != null ? documents.get(ordinal) : null;
+            List<List<String>> merged = new ArrayList<>(fieldCount);
+            for (int field = 0; field < fieldCount; field++) {
+                List<String> values = fieldValues.get(field);
+                merged.add(values != null || existing == null ? values : splitValues(existing.fields[field]));
+            }
+            removeInternal(key);
+            appendInternal(key, merged);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a document; unknown keys are ignored.
+     */
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(key);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every document.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearInternal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find documents whose fields contain all given terms (AND across fields).
+     * @param terms One term per field; {@code null} or blank means no constraint on that field
+     * @param offset Number of matches to skip, in key order
+     * @param limit Maximum number of keys to return
+     * @return The requested slice of matching keys in ascending key order, plus the total match count
+     */
+    public SearchPage search(String[] terms, int offset, int limit) {
+        String[] normalized = normalizeTerms(terms);
+
+        lock.readLock().lock();
+        try {
+            int[] matches = findMatches(normalized);
+            return new SearchPage(slice(matches, offset, limit), matches.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find all documents whose fields contain all given terms, in no particular order.
+     * @param terms One term per field; {@code null} or blank means no constraint on that field
+     */
+    public List<String> searchAll(String[] terms) {
+        String[] normalized = normalizeTerms(terms);
+
+        lock.readLock().lock();
+        try {
+            int[] matches = findMatches(normalized);
+            List<String> keys = new ArrayList<>(matches.length);
+            for (int ordinal : matches) {
+                keys.add(documents.get(ordinal).key);
+            }
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drop tombstones and renumber live documents in key order.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            compactInternal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Internals (callers hold the appropriate lock)
+    // ------------------------------------------------------------------------
+
+    private void appendInternal(String key, List<List<String>> fieldValues) {
+        int ordinal = documents.size();
+        String[] fields = new String[fieldCount];
+
+        for (int field = 0; field < fieldCount; field++) {
+            List<String> values = fieldValues.get(field);
+            StringBuilder joined = new StringBuilder();
+            Set<Long> trigrams = new HashSet<>();
+            if (values != null) {
+                for (String value : values) {
+                    if (value == null || value.isEmpty()) {
+                        continue;
+                    }
+                    String lower = value.toLowerCase(Locale.ROOT);
+                    if (joined.length() > 0) {
+                        joined.append(VALUE_SEPARATOR);
+                    }
+                    joined.append(lower);
+                    collectTrigrams(lower, trigrams);
+                }
+            }
+            fields[field] = joined.toString();
+
+            Map<Long, PostingList> fieldPostings = postings.get(field);
+            for (Long trigram : trigrams) {
+                fieldPostings.computeIfAbsent(trigram, t -> new PostingList()).add(ordinal);
+            }
+        }
+
+        documents.add(new Document(key, fields));
+        ordinalsByKey.put(key, ordinal);
+
+        if (sortedPrefix == ordinal && (lastSortedKey == null || key.compareTo(lastSortedKey) > 0)) {
+            sortedPrefix++;
+            lastSortedKey = key;
+        }
+    }
+
+    private void removeInternal(String key) {
+        Integer ordinal = ordinalsByKey.remove(key);
+        if (ordinal != null) {
+            documents.set(ordinal, null);
+            deletedCount++;
+        }
+    }
+
+    private void clearInternal() {
+        documents.clear();
+        ordinalsByKey.clear();
+        for (Map<Long, PostingList> fieldPostings : postings) {
+            fieldPostings.clear();
+        }
+        sortedPrefix = 0;
+        lastSortedKey = null;
+        deletedCount = 0;
+    }
+
+    private void compactIfNeeded() {
+        int unsortedTail = documents.size() - sortedPrefix;
+        int threshold = Math.max(COMPACTION_MIN_GARBAGE, ordinalsByKey.size() / 4);
+        if (deletedCount > threshold || unsortedTail > threshold) {
+            compactInternal();
+        }
+    }
+
+    private void compactInternal() {
+        List<Document> live = new ArrayList<>(ordinalsByKey.size());
+        for (Document document : documents) {
+            if (document != null) {
+                live.add(document);
+            }
+        }
+        live.sort(Comparator.comparing(document -> document.key));
+
+        clearInternal();
+        for (Document document : live) {
+            List<List<String>> fieldValues = new ArrayList<>(fieldCount);
+            for (String field : document.fields) {
+                fieldValues.add(splitValues(field));
+            }
+            appendInternal(document.key, fieldValues);
+        }
+    }
+
+    private static List<String> splitValues(String field) {
+        return field.isEmpty()
+                ? Collections.<String>emptyList()
+                : Arrays.asList(field.split(String.valueOf(VALUE_SEPARATOR)));
+    }
+
+    private int[] findMatches(String[] terms) {
+        boolean constrained = false;
+        int[] candidates = null;
+
+        for (int field = 0; field < fieldCount; field++) {
+            String term = terms[field];
+            if (term == null) {
+                continue;
+            }
+            constrained = true;
+            if (term.length() < MIN_INDEXED_TERM_LENGTH) {
+                continue;
+            }
+
+            Set<Long> trigrams = new HashSet<>();
+            collectTrigrams(term, trigrams);
+            List<PostingList> lists = new ArrayList<>(trigrams.size());
+            for (Long trigram : trigrams) {
+                PostingList list = postings.get(field).get(trigram);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            for (PostingList list : lists) {
+                candidates = candidates == null ? list.toArray() : intersect(candidates, list);
+                if (candidates.length == 0) {
+                    return candidates;
+                }
+            }
+        }
+
+        PostingList matches = new PostingList();
+        if (candidates != null) {
+            for (int ordinal : candidates) {
+                if (verify(ordinal, terms)) {
+                    matches.add(ordinal);
+                }
+            }
+        } else {
+            for (int ordinal = 0; ordinal < documents.size(); ordinal++) {
+                if (documents.get(ordinal) != null && (!constrained || verify(ordinal, terms))) {
+                    matches.add(ordinal);
+                }
+            }
+        }
+        return matches.toArray();
+    }
+
+    private boolean verify(int ordinal, String[] terms) {
+        Document document = documents.get(ordinal);
+        if (document == null) {
+            return false;
+        }
+        for (int field = 0; field < fieldCount; field++) {
+            if (terms[field] != null && !document.fields[field].contains(terms[field])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return keys [offset, offset + limit) of the matches in key order. Matches inside the
+     * sorted prefix are already in key order; only the (small) unsorted tail is sorted, then
+     * the two runs are merged lazily up to the end of the requested slice.
+     */
+    private List<String> slice(int[] matches, int offset, int limit) {
+        if (offset >= matches.length || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        int split = 0;
+        while (split < matches.length && matches[split] < sortedPrefix) {
+            split++;
+        }
+        List<String> tail = new ArrayList<>(matches.length - split);
+        for (int i = split; i < matches.length; i++) {
+            tail.add(documents.get(matches[i]).key);
+        }
+        Collections.sort(tail);
+
+        List<String> page = new ArrayList<>(Math.min(limit, matches.length - offset));
+        int head = 0;
+        int rest = 0;
+        int position = 0;
+        while (page.size() < limit && (head < split || rest < tail.size())) {
+            String next;
+            if (rest >= tail.size()) {
+                next = documents.get(matches[head++]).key;
+            } else if (head >= split) {
+                next = tail.get(rest++);
+            } else {
+                String headKey = documents.get(matches[head]).key;
+                if (headKey.compareTo(tail.get(rest)) <= 0) {
+                    next = headKey;
+                    head++;
+                } else {
+                    next = tail.get(rest++);
+                }
+            }
+            if (position++ >= offset) {
+                page.add(next);
+            }
+        }
+        return page;
+    }
+
+    private static String[] normalizeTerms(String[] terms) {
+        String[] normalized = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            String term = terms[i];
+            normalized[i] = term == null || term.trim().isEmpty() ? null : term.trim().toLowerCase(Locale.ROOT);
+        }
+        return normalized;
+    }
+
+    private static void collectTrigrams(String value, Set<Long> into) {
+        for (int i = 0; i + MIN_INDEXED_TERM_LENGTH <= value.length(); i++) {
+            long trigram = ((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2);
+            into.add(trigram);
+        }
+    }
+
+    private static int[] intersect(int[] sorted, PostingList list) {
+        int[] other = list.data;
+        int[] result = new int[Math.min(sorted.length, list.size)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < sorted.length && j < list.size) {
+            if (sorted[i] == other[j]) {
+                result[n++] = sorted[i];
+                i++;
+                j++;
+            } else if (sorted[i] < other[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static final class Document {
+        private final String key;
+        private final String[] fields;
+
+        private Document(String key, String[] fields) {
+            this.key = key;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Append-only sorted list of ordinals.
+     */
+    private static final class PostingList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int ordinal) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = ordinal;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * One page of search results.
+     */
+    public static final class SearchPage {
+        private final List<String> keys;
+        private final int total;
+
+        public SearchPage(List<String> keys, int total) {
+            this.keys = keys;
+            this.total = total;
+        }
+
+        public List<String> getKeys() {
+            return keys;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+}
@@ -1,23 +1,39 @@
 package quantran.api.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Base64;
+import java.util.concurrent.TimeUnit;
 import io.jsonwebtoken.SignatureException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 
+/**
+ * Issues and verifies access tokens.
+ *
+ * <p>A verified token's claims are cached until the token expires, keyed by the SHA-256
+ * digest of the token rather than the token itself, so a token used for many requests is
+ * parsed and its signature checked once. Tokens that fail verification are not cached.
+ */
 @Component
 @Log4j2
 public class JwtTokenProvider {
@@ -31,7 +47,50 @@ public class JwtTokenProvider {
     @Value("${jwt.issuer:bookstore-api}")
     private String jwtIssuer;
     
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+    
+    private volatile Key signingKey;
+    private Cache<String, TokenClaims> verifiedClaims;
+    private final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(JwtTokenProvider::newSha256);
+    
+    @PostConstruct
+    public void init() {
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new Expiry<String, TokenClaims>() {
+                    @Override
+                    public long expireAfterCreate(String digest, TokenClaims claims, long currentTime) {
+                        long remainingMs = claims.getExpirationMillis() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String digest, TokenClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String digest, TokenClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+    
+    /**
+     * The key is derived from the secret once and reused.
+     */
     private Key getSigningKey() {
+        Key key = signingKey;
+        if (key == null) {
+            key = createSigningKey();
+            signingKey = key;
+        }
+        return key;
+    }
+    
+    private Key createSigningKey() {
         if (jwtSecret == null || jwtSecret.trim().isEmpty()) {
             throw new IllegalStateException("JWT secret key is not configured. Please set jwt.secret property.");
         }
@@ -72,18 +131,47 @@ public class JwtTokenProvider {
                 .compact();
     }
     
+    /**
+     * Verify a token and return its claims, from the cache if the token was verified before.
+     *
+     * @throws JwtException If the token is malformed, badly signed, expired or not yet valid
+     * @throws IllegalArgumentException If the token is empty
+     */
+    public TokenClaims parseAndValidate(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            throw new IllegalArgumentException("Token cannot be null or empty");
+        }
+        
+        String digest = digest(token);
+        TokenClaims cached = verifiedClaims.getIfPresent(digest);
+        if (cached != null && cached.getExpirationMillis() > System.currentTimeMillis()) {
+            return cached;
+        }
+        
+        Claims claims = Jwts.parser()
+                .setSigningKey(getSigningKey())
+                .parseClaimsJws(token)
+                .getBody();
+        TokenClaims verified = new TokenClaims(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("type", String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L,
+                claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE);
+        // A token without expiration is verified on every use
+        if (claims.getExpiration() != null) {
+            verifiedClaims.put(digest, verified);
+        }
+        return verified;
+    }
+    
     public String getUsernameFromToken(String token) {
         if (token == null || token.trim().isEmpty()) {
             throw new IllegalArgumentException("Token cannot be null or empty");
         }
         
         try {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .parseClaimsJws(token)
-                    .getBody();
-            
-            return claims.getSubject();
+            return parseAndValidate(token).getUsername();
         } catch (Exception e) {
             log.error("Failed to extract username from token", e);
             throw new IllegalArgumentException("Invalid token");
@@ -96,12 +184,7 @@ public class JwtTokenProvider {
         }
         
         try {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .parseClaimsJws(token)
-                    .getBody();
-            
-            return claims.get("role", String.class);
+            return parseAndValidate(token).getRole();
         } catch (Exception e) {
             log.error("Failed to extract role from token", e);
             throw new IllegalArgumentException("Invalid token");
@@ -114,12 +197,7 @@ public class JwtTokenProvider {
         }
         
         try {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .parseClaimsJws(token)
-                    .getBody();
-            
-            return claims.getExpiration();
+            return parseAndValidate(token).getExpiration();
         } catch (Exception e) {
             log.error("Failed to extract expiration date from token", e);
             throw new IllegalArgumentException("Invalid token");
@@ -132,9 +210,7 @@ public class JwtTokenProvider {
         }
         
         try {
-            Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .parseClaimsJws(token);
+            parseAndValidate(token);
             return true;
         } catch (SignatureException ex) {
             log.error("Invalid JWT signature: {}", ex.getMessage());
@@ -172,4 +248,18 @@ public class JwtTokenProvider {
             return false;
         }
     }
-} 
\ No newline at end of file
+    
+    private String digest(String token) {
+        MessageDigest digest = sha256.get();
+        digest.reset();
+        return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+    
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package quantran.api.security;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import quantran.api.exception.WorkQueueFullException;
+import quantran.api.util.PasswordUtil;
+import quantran.api.util.RandomUtil;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Hashes and verifies passwords with PBKDF2-HMAC-SHA256, stored as
+ * {@code pbkdf2-sha256$<iterations>$<salt>$<hash>}. The iteration count is the cost and can
+ * be raised over time: hashes made with fewer iterations, or by the legacy single SHA-256
+ * pass of {@link PasswordUtil}, still verify and are reported by {@link #needsRehash(String)}.
+ *
+ * <p>The async methods run on {@code passwordHashExecutor}, whose small pool and bounded
+ * queue cap the CPU that logins can take from other requests. When the queue is full, the
+ * future is not created and {@link WorkQueueFullException} is thrown instead.
+ */
+@Component
+public class PasswordHasher {
+    static final String ALGORITHM_ID = "pbkdf2-sha256";
+    private static final String KDF = "PBKDF2WithHmacSHA256";
+    private static final char SEPARATOR = '$';
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final Executor executor;
+    // Never matches, but costs a full verification at the configured iterations
+    private final String unknownUserHash;
+
+    public PasswordHasher(@Value("${app.password.iterations:600000}") int iterations,
+                          @Qualifier("passwordHashExecutor") Executor executor) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Password hash iterations must be positive, was " + iterations);
+        }
+        this.iterations = iterations;
+        this.executor = executor;
+        Base64.Encoder encoder = Base64.getEncoder();
+        this.unknownUserHash = ALGORITHM_ID + SEPARATOR + iterations + SEPARATOR
+                + encoder.encodeToString(new byte[SALT_BYTES]) + SEPARATOR + encoder.encodeToString(new byte[HASH_BITS / 8]);
+    }
+
+    public String hash(String password) {
+        byte[] salt = RandomUtil.generateSecureRandomBytes(SALT_BYTES);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return ALGORITHM_ID + SEPARATOR + iterations + SEPARATOR + encoder.encodeToString(salt)
+                + SEPARATOR + encoder.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    /**
+     * Check a password against a stored hash of either format.
+     */
+    public boolean verify(String password, String storedHash) {
+        if (password == null || storedHash == null) {
+            return false;
+        }
+        if (!storedHash.startsWith(ALGORITHM_ID + SEPARATOR)) {
+            return PasswordUtil.verifyPassword(password, storedHash);
+        }
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return storedIterations > 0 && MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Whether the hash is in the legacy format or uses fewer iterations than configured
+     */
+    public boolean needsRehash(String storedHash) {
+        if (storedHash == null || !storedHash.startsWith(ALGORITHM_ID + SEPARATOR)) {
+            return true;
+        }
+        String[] parts = storedHash.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Verify a password and, if it matches a hash that {@link #needsRehash(String) needs
+     * rehashing}, hash it again at the current cost in the same task.
+     *
+     * @throws WorkQueueFullException If too many hashes are queued
+     */
+    public CompletableFuture<Verification> verifyAsync(String password, String storedHash) {
+        return submit(() -> {
+            boolean matched = verify(password, storedHash);
+            String upgradedHash = matched && needsRehash(storedHash) ? hash(password) : null;
+            return new Verification(matched, upgradedHash);
+        });
+    }
+
+    /**
+     * Do the work of {@link #verifyAsync(String, String)} for a user that does not exist, on
+     * the same executor, so a login for an unknown user name takes as long as a wrong password.
+     * Never matches.
+     *
+     * @throws WorkQueueFullException If too many hashes are queued
+     */
+    public CompletableFuture<Verification> verifyUnknownUserAsync(String password) {
+        return submit(() -> {
+            verify(password, unknownUserHash);
+            return new Verification(false, null);
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            throw new WorkQueueFullException("Too many logins in progress, please retry later", 1);
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(KDF).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(KDF + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Outcome of {@link #verifyAsync(String, String)}.
+     */
+    public static final class Verification {
+        private final boolean matched;
+        private final String upgradedHash;
+
+        Verification(boolean matched, String upgradedHash) {
+            this.matched = matched;
+            this.upgradedHash = upgradedHash;
+        }
+
+        public boolean isMatched() {
+            return matched;
+        }
+
+        /**
+         * @return The password hashed at the current cost, or {@code null} if the stored hash is current
+         */
+        public String getUpgradedHash() {
+            return upgradedHash;
+        }
+    }
+}
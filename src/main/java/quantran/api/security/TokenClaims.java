@@ -0,0 +1,50 @@
+package quantran.api.security;
+
+import java.util.Date;
+
+/**
+ * Claims of an access token whose signature and validity period have been checked.
+ */
+public final class TokenClaims {
+    private final String username;
+    private final String role;
+    private final String type;
+    private final long issuedAt;
+    private final long expiration;
+
+    /**
+     * @param issuedAt Issue time in epoch milliseconds
+     * @param expiration Expiration time in epoch milliseconds
+     */
+    public TokenClaims(String username, String role, String type, long issuedAt, long expiration) {
+        this.username = username;
+        this.role = role;
+        this.type = type;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Date getIssuedAt() {
+        return new Date(issuedAt);
+    }
+
+    public Date getExpiration() {
+        return new Date(expiration);
+    }
+
+    long getExpirationMillis() {
+        return expiration;
+    }
+}
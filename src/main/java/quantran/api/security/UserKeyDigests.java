@@ -0,0 +1,79 @@
+package quantran.api.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import quantran.api.entity.UserEntity;
+import quantran.api.event.UserKeyChangedEvent;
+import quantran.api.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 digests of user keys by user name, cached so that checking the key of a request
+ * needs no database query. Only digests are cached, never the keys themselves.
+ *
+ * <p>The cache is kept in Caffeine on each node, not in Redis. A committed key change evicts
+ * the user's entry through the cache manager, which reaches the other nodes as well. A lookup
+ * that read the row before the change committed may still cache the old digest after that
+ * eviction, so entries expire after a short dedicated TTL
+ * ({@code app.cache.user-key-digests.ttl-seconds}) and are not refreshed ahead.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserKeyDigests {
+    static final String USER_KEY_DIGESTS = "user_key_digests";
+    /** Digest of a user that has no key yet; no key matches it. */
+    static final String NO_KEY = "";
+
+    private final UserRepository userRepository;
+    private final CacheManager cacheManager;
+
+    /**
+     * @return The digest of the user's key, {@link #NO_KEY} if the user has none, or
+     *         {@code null} if there is no such user (not cached, so new users are found)
+     */
+    @Cacheable(value = USER_KEY_DIGESTS, key = "#userName", unless = "#result == null")
+    public String findKeyDigest(String userName) {
+        UserEntity user = userRepository.findByUserName(userName);
+        if (user == null) {
+            return null;
+        }
+        String key = user.getKey();
+        return key == null || key.isEmpty() ? NO_KEY : digest(key);
+    }
+
+    /**
+     * Check a key against a digest from {@link #findKeyDigest(String)}, in constant time.
+     */
+    public static boolean matches(String key, String keyDigest) {
+        if (keyDigest == null || NO_KEY.equals(keyDigest)) {
+            return false;
+        }
+        return MessageDigest.isEqual(digest(key).getBytes(StandardCharsets.US_ASCII),
+                keyDigest.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserKeyChanged(UserKeyChangedEvent event) {
+        Cache cache = cacheManager.getCache(USER_KEY_DIGESTS);
+        if (cache != null) {
+            cache.evict(event.getUserName());
+        }
+    }
+
+    static String digest(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
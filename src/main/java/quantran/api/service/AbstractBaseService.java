@@ -50,6 +50,7 @@ public abstract class AbstractBaseService<T, ID, R extends JpaRepository<T, ID>>
         validateBeforeCreate(entity);
         
         T savedEntity = repository.save(entity);
+        afterSave(savedEntity);
         log.info("Entity created successfully with ID: {}", getEntityId(savedEntity));
         
         return savedEntity;
@@ -71,6 +72,7 @@ public abstract class AbstractBaseService<T, ID, R extends JpaRepository<T, ID>>
         updateEntityFields(existingEntity, entity);
         
         T savedEntity = repository.save(existingEntity);
+        afterSave(savedEntity);
         log.info("Entity updated successfully with ID: {}", id);
         
         return savedEntity;
@@ -89,6 +91,7 @@ public abstract class AbstractBaseService<T, ID, R extends JpaRepository<T, ID>>
         validateBeforeDelete(entity);
         
         repository.delete(entity);
+        afterDelete(entity);
         log.info("Entity deleted successfully with ID: {}", id);
     }
     
@@ -130,6 +133,24 @@ public abstract class AbstractBaseService<T, ID, R extends JpaRepository<T, ID>>
         // Default implementation - override in subclasses
     }
     
+    /**
+     * Called after an entity has been created or updated, inside the same transaction
+     * Override in subclasses to publish change events
+     * @param entity The saved entity
+     */
+    protected void afterSave(T entity) {
+        // Default implementation - override in subclasses
+    }
+    
+    /**
+     * Called after an entity has been deleted, inside the same transaction
+     * Override in subclasses to publish change events
+     * @param entity The deleted entity
+     */
+    protected void afterDelete(T entity) {
+        // Default implementation - override in subclasses
+    }
+    
     /**
      * Update entity fields from source entity
      * Override in subclasses to implement specific field updates
@@ -1,7 +1,8 @@
 package quantran.api.service;
 
 import quantran.api.dto.AsyncTaskRequest;
-import java.util.List;
+import quantran.api.page.CursorPage;
+
 import java.util.Optional;
 
 public interface AsyncTaskService {
@@ -16,9 +17,11 @@ public interface AsyncTaskService {
     Optional<AsyncTaskRequest> getTaskStatus(String taskId);
     
     /**
-     * Get all tasks for a user
+     * Get a page of a user's tasks, newest first
+     * @param cursor Continuation token returned as {@code nextCursor} by the previous page, or {@code null}
+     * @throws IllegalArgumentException if the cursor is malformed
      */
-    List<AsyncTaskRequest> getUserTasks(String userId);
+    CursorPage<AsyncTaskRequest> getUserTasks(String userId, String cursor, int size);
     
     /**
      * Cancel a pending task
@@ -2,16 +2,23 @@ package quantran.api.service;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import quantran.api.entity.BookEntity;
 import quantran.api.entity.BookTypeEntity;
 import quantran.api.model.BookModel;
+import quantran.api.page.CursorPage;
+import quantran.api.page.FacetedPage;
 import quantran.api.page.Paginate;
 import quantran.api.dto.BookRequestDto;
 import quantran.api.dto.BookResponseDto;
+import quantran.api.dto.BookSuggestionDto;
 import quantran.api.dto.BookDetailDto;
+import quantran.api.dto.BookImportJobDto;
+import quantran.api.dto.BookWriteDto;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -43,6 +50,15 @@ public interface BookService extends BaseService<BookEntity, String> {
      */
     BookResponseDto updateBook(String id, BookRequestDto request);
     
+    /**
+     * Apply several creates and updates in one transaction, written as JDBC batches.
+     * A write rejected by validation (missing or duplicate book, missing title) is skipped
+     * and reported; the others are still applied. A database error fails the whole batch.
+     * @param writes The writes, applied in order
+     * @return Rejection messages keyed by {@link BookWriteDto#getKey()}; writes not listed succeeded
+     */
+    Map<String, String> writeBooks(List<BookWriteDto> writes);
+    
     /**
      * Delete a book by its ID.
      * @param id The book ID
@@ -63,6 +79,50 @@ public interface BookService extends BaseService<BookEntity, String> {
      */
     Paginate<BookResponseDto> findBooks(String title, String author, String isbn, String genre, String publisher, int page, int size);
     
+    /**
+     * Find books with keyset (seek) pagination; never issues OFFSET or a count query.
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Page size
+     * @param sort Ordering: "id", or "publicationDate" (newest first, dated books only)
+     * @return Page of book responses with the token for the next page
+     */
+    CursorPage<BookResponseDto> findBooksByCursor(String cursor, int size, String sort);
+    
+    /**
+     * Full-text search over title, authors, genres and publisher, best match first.
+     * @param query Free-text query
+     * @param limit Maximum number of results
+     * @return Ranked list of book responses
+     */
+    List<BookResponseDto> searchBooks(String query, int limit);
+    
+    /**
+     * Typeahead suggestions for a prefix, served from memory.
+     * @param prefix Case-insensitive prefix
+     * @param limit Maximum number of suggestions per category
+     * @return Most popular matching titles, authors and publishers
+     */
+    BookSuggestionDto suggest(String prefix, int limit);
+    
+    /**
+     * Find books by text criteria and facet selections, with facet value counts.
+     * Values are ORed within a facet and facets are ANDed together.
+     * @param title Title substring to search for
+     * @param author Author name substring to search for
+     * @param genres Selected genre names
+     * @param languages Selected language codes
+     * @param formats Selected formats
+     * @param publishers Selected publisher names
+     * @param priceRanges Selected price ranges ("0-10", "10-25", "25-50", "50-100", "100+")
+     * @param page Page number (0-based)
+     * @param size Page size
+     * @param facetLimit Maximum number of values reported per facet
+     * @return Page of book responses with facet counts
+     */
+    FacetedPage<BookResponseDto> findBooksFaceted(String title, String author, List<String> genres, List<String> languages,
+                                                  List<String> formats, List<String> publishers, List<String> priceRanges,
+                                                  int page, int size, int facetLimit);
+    
     /**
      * Find a book by its ISBN.
      * @param isbn The ISBN
@@ -134,18 +194,19 @@ public interface BookService extends BaseService<BookEntity, String> {
     
     // Business logic methods
     /**
-     * Process book upload from file.
+     * Store an uploaded book file for an import task.
      * @param bookFile The uploaded file
-     * @throws IOException If file processing fails
+     * @return The import job to submit as task data
+     * @throws IOException If the file cannot be stored
      */
-    void processBookUpload(MultipartFile bookFile) throws IOException;
+    BookImportJobDto processBookUpload(MultipartFile bookFile) throws IOException;
     
     /**
-     * Download books data.
-     * @return Response entity with book data
-     * @throws IOException If download fails
+     * Download books data as a zipped CSV. The body is streamed from the database after the
+     * handler returns, so memory use does not grow with the catalog.
+     * @return Response entity with the streamed book data
      */
-    ResponseEntity<byte[]> downloadBooks() throws IOException;
+    ResponseEntity<StreamingResponseBody> downloadBooks();
     
     /**
      * Get all book types/genres.
@@ -248,13 +309,13 @@ public interface BookService extends BaseService<BookEntity, String> {
      * @deprecated Use {@link #processBookUpload(MultipartFile)} instead.
      */
     @Deprecated
-    void uploadBook(MultipartFile bookFile) throws IOException;
+    BookImportJobDto uploadBook(MultipartFile bookFile) throws IOException;
     
     /**
      * @deprecated Use {@link #downloadBooks()} instead.
      */
     @Deprecated
-    ResponseEntity<byte[]> downloadBook() throws IOException;
+    ResponseEntity<StreamingResponseBody> downloadBook();
     
     /**
      * @deprecated Use {@link #getBookTypes()} instead.
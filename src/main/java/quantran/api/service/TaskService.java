@@ -2,6 +2,13 @@ package quantran.api.service;
 
 import quantran.api.asyncProcessingBackgroundWorker.task.Task;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface TaskService {
     void runTask(Task task);
-}
+
+    /**
+     * Start the task and return without waiting for it; the future completes when it finishes.
+     */
+    CompletableFuture<Void> runTaskAsync(Task task);
+}
\ No newline at end of file
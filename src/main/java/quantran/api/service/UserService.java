@@ -3,8 +3,10 @@ package quantran.api.service;
 import quantran.api.entity.UserEntity;
 import quantran.api.model.UserModel;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface UserService {
-    String login(UserModel userModel);
+    CompletableFuture<String> login(UserModel userModel);
 
     String generateUserKey(UserEntity userEntity);
 }
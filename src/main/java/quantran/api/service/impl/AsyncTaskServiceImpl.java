@@ -1,121 +1,338 @@
 package quantran.api.service.impl;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import quantran.api.dto.AsyncTaskRequest;
+import quantran.api.dto.AsyncTaskResponseDto;
+import quantran.api.entity.AsyncTaskEntity;
+import quantran.api.event.TaskUpdatedEvent;
+import quantran.api.page.CursorPage;
+import quantran.api.page.CursorToken;
+import quantran.api.repository.AsyncTaskRepository;
 import quantran.api.service.AsyncTaskService;
 
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Task store backed by the {@code async_tasks} table.
+ *
+ * <p>Submissions and cancellations are written immediately. Status and progress updates are
+ * applied to the in-memory task at once and marked dirty; a scheduled flush writes the result
+ * and progress of each dirty task with a single UPDATE, so the several progress steps of a
+ * task between two flushes cost one statement. The stored status is not flushed: the task
+ * queue writes it with the lease change it belongs to, conditional on holding the lease.
+ * Reads check the dirty tasks, then a bounded cache, then the database.
+ *
+ * <p>Cached tasks expire shortly after their last write, which bounds how stale a task
+ * updated by another node can appear here.
+ *
+ * <p>Every change is published as a {@link TaskUpdatedEvent} for status streaming.
+ */
 @Service
 @Log4j2
-@RequiredArgsConstructor
 public class AsyncTaskServiceImpl implements AsyncTaskService {
-    
-    // In-memory storage (in production, use Redis or database)
-    private final Map<String, AsyncTaskRequest> taskStore = new ConcurrentHashMap<>();
-    
+    private static final String USER_TASKS_SORT = "createdAt";
+
+    private final AsyncTaskRepository asyncTaskRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, AsyncTaskRequest> hotTasks;
+    private final Map<String, AsyncTaskRequest> dirtyTasks = new ConcurrentHashMap<>();
+    private final int cleanupBatchSize;
+
+    public AsyncTaskServiceImpl(AsyncTaskRepository asyncTaskRepository, ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                                @Value("${app.tasks.cache.max-size:10000}") long cacheMaxSize,
+                                @Value("${app.tasks.cache.expire-after-write-ms:2000}") long cacheExpireAfterWriteMs,
+                                @Value("${app.tasks.cleanup-batch-size:1000}") int cleanupBatchSize) {
+        this.asyncTaskRepository = asyncTaskRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cleanupBatchSize = cleanupBatchSize;
+        this.hotTasks = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheExpireAfterWriteMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
     @Override
+    @Transactional
     public AsyncTaskRequest submitTask(String requestType, Object data, String userId) {
         log.info("Submitting task - type: {}, userId: {}", requestType, userId);
-        
+
         AsyncTaskRequest task = AsyncTaskRequest.create(requestType, data, userId);
-        taskStore.put(task.getTaskId(), task);
-        
+        asyncTaskRepository.save(toEntity(task));
+        hotTasks.put(task.getTaskId(), task);
+        publishUpdate(task);
+
         log.info("Task submitted successfully - taskId: {}", task.getTaskId());
         return task;
     }
-    
+
     @Override
+    @Transactional(readOnly = true)
     public Optional<AsyncTaskRequest> getTaskStatus(String taskId) {
         log.debug("Getting task status - taskId: {}", taskId);
-        return Optional.ofNullable(taskStore.get(taskId));
+        return Optional.ofNullable(findTask(taskId));
     }
-    
+
     @Override
-    public List<AsyncTaskRequest> getUserTasks(String userId) {
-        log.debug("Getting tasks for user - userId: {}", userId);
-        return taskStore.values().stream()
-                .filter(task -> userId.equals(task.getUserId()))
+    @Transactional(readOnly = true)
+    public CursorPage<AsyncTaskRequest> getUserTasks(String userId, String cursor, int size) {
+        log.debug("Getting tasks for user - userId: {}, size: {}, hasCursor: {}", userId, size, cursor != null);
+        CursorToken after = cursor != null && !cursor.trim().isEmpty()
+                ? CursorToken.decode(cursor.trim(), USER_TASKS_SORT) : null;
+
+        // Fetch one extra task to learn whether another page exists without a count query
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<AsyncTaskEntity> entities = after == null
+                ? asyncTaskRepository.findUserTasks(userId, limit)
+                : asyncTaskRepository.findUserTasksAfter(userId, parseCursorTime(after), after.getId(), limit);
+
+        boolean hasNext = entities.size() > size;
+        List<AsyncTaskEntity> page = hasNext ? entities.subList(0, size) : entities;
+        List<AsyncTaskRequest> tasks = page.stream()
+                .map(entity -> {
+                    // Unflushed updates are newer than the row
+                    AsyncTaskRequest dirty = dirtyTasks.get(entity.getTaskId());
+                    return dirty != null ? dirty : toRequest(entity);
+                })
                 .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasNext) {
+            // From the row, whose timestamp precision is what the next query compares against
+            AsyncTaskEntity last = page.get(page.size() - 1);
+            nextCursor = new CursorToken(USER_TASKS_SORT, last.getCreatedAt().toString(), last.getTaskId()).encode();
+        }
+        return new CursorPage<>(tasks, nextCursor);
     }
-    
+
     @Override
+    @Transactional
     public boolean cancelTask(String taskId, String userId) {
         log.info("Cancelling task - taskId: {}, userId: {}", taskId, userId);
-        
-        AsyncTaskRequest task = taskStore.get(taskId);
-        if (task != null && userId.equals(task.getUserId()) && 
-            task.getStatus() == AsyncTaskRequest.TaskStatus.PENDING) {
-            
+
+        // The local copy may be ahead of the row by unflushed updates
+        AsyncTaskRequest task = findTask(taskId);
+        boolean pending = task != null && task.getStatus() == AsyncTaskRequest.TaskStatus.PENDING;
+        LocalDateTime now = LocalDateTime.now();
+        // Conditional on the stored state, so a task another node already started is not cancelled
+        if (pending && asyncTaskRepository.cancelPendingTask(taskId, userId, AsyncTaskEntity.TaskStatus.FAILED,
+                "Task cancelled by user", now) > 0) {
             task.setStatus(AsyncTaskRequest.TaskStatus.FAILED);
             task.setResult("Task cancelled by user");
-            task.setCompletedAt(LocalDateTime.now());
-            
+            task.setCompletedAt(now);
+            publishUpdate(task);
+
             log.info("Task cancelled successfully - taskId: {}", taskId);
             return true;
         }
-        
+
         log.warn("Task could not be cancelled - taskId: {}, userId: {}", taskId, userId);
         return false;
     }
-    
+
+    /**
+     * Deletes in batches, each in its own short transaction, walking the completion-time index.
+     * Cached copies of deleted tasks are left to expire.
+     */
     @Override
     public void cleanupOldTasks(int daysToKeep) {
         log.info("Cleaning up tasks older than {} days", daysToKeep);
-        
+
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        
-        taskStore.entrySet().removeIf(entry -> {
-            AsyncTaskRequest task = entry.getValue();
-            boolean shouldRemove = task.getCompletedAt() != null && 
-                                 task.getCompletedAt().isBefore(cutoffDate);
-            
-            if (shouldRemove) {
-                log.debug("Removing old task - taskId: {}, completedAt: {}", 
-                         task.getTaskId(), task.getCompletedAt());
-            }
-            
-            return shouldRemove;
-        });
-        
-        log.info("Cleanup completed, {} tasks remaining", taskStore.size());
+        int removed = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status ->
+                    asyncTaskRepository.deleteOldCompletedTasks(cutoffDate, cleanupBatchSize));
+            removed += batch;
+        } while (batch == cleanupBatchSize);
+
+        log.info("Cleanup completed, {} tasks removed", removed);
     }
-    
+
     // Internal methods for updating task status
     @Override
     public void updateTaskStatus(String taskId, AsyncTaskRequest.TaskStatus status, String result) {
         log.debug("Updating task status - taskId: {}, status: {}, result: {}", taskId, status, result);
-        
-        AsyncTaskRequest task = taskStore.get(taskId);
+
+        AsyncTaskRequest task = findTask(taskId);
         if (task != null) {
             task.setStatus(status);
             task.setResult(result);
-            if (status == AsyncTaskRequest.TaskStatus.COMPLETED || 
-                status == AsyncTaskRequest.TaskStatus.FAILED || 
-                status == AsyncTaskRequest.TaskStatus.CANCELLED) {
+            if (status == AsyncTaskRequest.TaskStatus.COMPLETED ||
+                status == AsyncTaskRequest.TaskStatus.FAILED ||
+                status == AsyncTaskRequest.TaskStatus.CANCELLED ||
+                status == AsyncTaskRequest.TaskStatus.DEAD_LETTER) {
                 task.setCompletedAt(LocalDateTime.now());
             }
+            markDirty(task);
+            publishUpdate(task);
         } else {
             log.warn("Task not found for status update - taskId: {}", taskId);
         }
     }
-    
+
     @Override
     public void updateTaskProgress(String taskId, int progress) {
         log.debug("Updating task progress - taskId: {}, progress: {}", taskId, progress);
-        
-        AsyncTaskRequest task = taskStore.get(taskId);
+
+        AsyncTaskRequest task = findTask(taskId);
         if (task != null) {
             task.setProgress(progress);
+            markDirty(task);
+            publishUpdate(task);
         } else {
             log.warn("Task not found for progress update - taskId: {}", taskId);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Write the latest result and progress of every dirty task, one UPDATE per task, in one
+     * transaction. Tasks no longer running are skipped by the UPDATE, so a late flush never
+     * overwrites the outcome recorded by the task queue or another node.
+     * Runs outside the proxy on shutdown, hence the explicit transaction.
+     */
+    @Scheduled(fixedDelayString = "${app.tasks.flush-interval-ms:500}")
+    public void flushDirtyTasks() {
+        if (dirtyTasks.isEmpty()) {
+            return;
+        }
+        List<AsyncTaskRequest> batch = new ArrayList<>(dirtyTasks.size());
+        for (String taskId : new ArrayList<>(dirtyTasks.keySet())) {
+            // A task updated after removal is marked dirty again and written by the next flush
+            AsyncTaskRequest task = dirtyTasks.remove(taskId);
+            if (task != null) {
+                batch.add(task);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(task ->
+                    asyncTaskRepository.updateTaskState(task.getTaskId(), task.getResult(), task.getProgress())));
+        } catch (RuntimeException e) {
+            // Keep the updates for the next flush
+            batch.forEach(task -> dirtyTasks.putIfAbsent(task.getTaskId(), task));
+            throw e;
+        }
+        log.debug("Flushed {} task updates", batch.size());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flushDirtyTasks();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} task updates on shutdown", dirtyTasks.size(), e);
+        }
+    }
+
+    private void markDirty(AsyncTaskRequest task) {
+        dirtyTasks.put(task.getTaskId(), task);
+        hotTasks.put(task.getTaskId(), task);
+    }
+
+    private void publishUpdate(AsyncTaskRequest task) {
+        eventPublisher.publishEvent(new TaskUpdatedEvent(AsyncTaskResponseDto.fromAsyncTaskRequest(task)));
+    }
+
+    private AsyncTaskRequest findTask(String taskId) {
+        AsyncTaskRequest dirty = dirtyTasks.get(taskId);
+        if (dirty != null) {
+            return dirty;
+        }
+        return hotTasks.get(taskId, id -> asyncTaskRepository.findById(id)
+                .map(this::toRequest)
+                .orElse(null));
+    }
+
+    private AsyncTaskEntity toEntity(AsyncTaskRequest task) {
+        return AsyncTaskEntity.builder()
+                .taskId(task.getTaskId())
+                .requestType(task.getRequestType())
+                .data(writeData(task.getData()))
+                .userId(task.getUserId())
+                .createdAt(task.getCreatedAt())
+                .status(toEntityStatus(task.getStatus()))
+                .result(task.getResult())
+                .completedAt(task.getCompletedAt())
+                .progress(task.getProgress())
+                .build();
+    }
+
+    private AsyncTaskRequest toRequest(AsyncTaskEntity entity) {
+        return AsyncTaskRequest.builder()
+                .taskId(entity.getTaskId())
+                .requestType(entity.getRequestType())
+                .data(readData(entity.getData()))
+                .userId(entity.getUserId())
+                .createdAt(entity.getCreatedAt())
+                .status(AsyncTaskRequest.TaskStatus.valueOf(entity.getStatus().name()))
+                .result(entity.getResult())
+                .completedAt(entity.getCompletedAt())
+                .progress(entity.getProgress() != null ? entity.getProgress() : 0)
+                .build();
+    }
+
+    private static LocalDateTime parseCursorTime(CursorToken cursor) {
+        try {
+            return LocalDateTime.parse(cursor.getSortKey());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static AsyncTaskEntity.TaskStatus toEntityStatus(AsyncTaskRequest.TaskStatus status) {
+        return AsyncTaskEntity.TaskStatus.valueOf(status.name());
+    }
+
+    private String writeData(Object data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Task data cannot be serialized", e);
+        }
+    }
+
+    /**
+     * Task data read back from the database is a generic JSON structure (maps and lists).
+     */
+    private Object readData(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, Object.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Stored task data is not valid JSON, returning it as text: {}", e.getMessage());
+            return json;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import quantran.api.dto.AuthorRequestDto;
 import quantran.api.dto.AuthorResponseDto;
 import quantran.api.dto.BookResponseDto;
 import quantran.api.entity.AuthorEntity;
+import quantran.api.event.AuthorChangedEvent;
+import quantran.api.event.BookChangedEvent;
 import quantran.api.entity.BookEntity;
 import quantran.api.page.Paginate;
 import quantran.api.repository.AuthorRepository;
@@ -11,6 +13,7 @@ import quantran.api.service.AuthorService;
 import quantran.api.service.AbstractBaseService;
 import quantran.api.util.ValidationUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -25,9 +28,24 @@ import java.util.stream.Collectors;
 @Transactional
 public class AuthorServiceImpl extends AbstractBaseService<AuthorEntity, Long, AuthorRepository> implements AuthorService {
 
+    private final ApplicationEventPublisher eventPublisher;
+
     @Autowired
-    public AuthorServiceImpl(AuthorRepository authorRepository) {
+    public AuthorServiceImpl(AuthorRepository authorRepository, ApplicationEventPublisher eventPublisher) {
         super(authorRepository);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    protected void afterSave(AuthorEntity author) {
+        eventPublisher.publishEvent(new AuthorChangedEvent(
+            BookChangedEvent.ChangeType.UPSERTED, author.getId(), author.getName(), author.getBookCount()));
+    }
+
+    @Override
+    protected void afterDelete(AuthorEntity author) {
+        eventPublisher.publishEvent(new AuthorChangedEvent(
+            BookChangedEvent.ChangeType.DELETED, author.getId(), author.getName(), 0));
     }
 
     @Override
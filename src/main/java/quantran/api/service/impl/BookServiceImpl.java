@@ -2,32 +2,50 @@ package quantran.api.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import quantran.api.dto.BookDetailDto;
+import quantran.api.dto.BookImportJobDto;
 import quantran.api.dto.BookRequestDto;
 import quantran.api.dto.BookResponseDto;
+import quantran.api.dto.BookSuggestionDto;
+import quantran.api.dto.BookWriteDto;
 import quantran.api.entity.BookEntity;
 import quantran.api.entity.BookTypeEntity;
+import quantran.api.event.BookChangedEvent;
+import quantran.api.event.BookSnapshot;
 import quantran.api.business.BookBusiness;
+import quantran.api.importer.ImportFileStore;
 import quantran.api.model.BookModel;
+import quantran.api.page.CursorPage;
+import quantran.api.page.FacetedPage;
 import quantran.api.page.Paginate;
 import quantran.api.repository.BookRepository;
+import quantran.api.search.BookSuggestIndex;
+import quantran.api.search.FacetDimension;
 import quantran.api.service.BookService;
 import quantran.api.util.ValidationUtil;
-import org.springframework.cache.annotation.Cacheable;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -37,8 +55,14 @@ import java.util.zip.ZipOutputStream;
 @RequiredArgsConstructor
 @Transactional
 public class BookServiceImpl implements BookService {
+    private static final String EXPORT_HEADER = "ID,Name,Author,BookType,Price\n";
+
     private final BookBusiness bookBusiness;
     private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookSuggestIndex bookSuggestIndex;
+    private final ImportFileStore importFileStore;
+    private final CachedBookQueries cachedBookQueries;
 
     // BaseService implementations
     @Override
@@ -65,6 +89,7 @@ public class BookServiceImpl implements BookService {
         validateBeforeCreate(entity);
         
         BookEntity savedEntity = bookRepository.save(entity);
+        eventPublisher.publishEvent(BookChangedEvent.upserted(savedEntity));
         log.info("Book created successfully with ID: {}", savedEntity.getId());
         
         return savedEntity;
@@ -79,6 +104,13 @@ public class BookServiceImpl implements BookService {
             bookRepository.findById(id), id, "Book"
         );
         
+        return update(id, BookSnapshot.of(existingBook), existingBook, entity);
+    }
+
+    /**
+     * @param previous State of {@code existingBook} before any of the changes were applied to it
+     */
+    private BookEntity update(String id, BookSnapshot previous, BookEntity existingBook, BookEntity entity) {
         // Validate book before update
         validateBeforeUpdate(id, entity);
         
@@ -86,6 +118,7 @@ public class BookServiceImpl implements BookService {
         updateEntityFields(existingBook, entity);
         
         BookEntity savedEntity = bookRepository.save(existingBook);
+        eventPublisher.publishEvent(BookChangedEvent.updated(previous, savedEntity));
         log.info("Book updated successfully with ID: {}", id);
         
         return savedEntity;
@@ -103,7 +136,9 @@ public class BookServiceImpl implements BookService {
         // Validate book can be deleted
         validateBeforeDelete(book);
         
+        BookSnapshot previous = BookSnapshot.of(book);
         bookRepository.delete(book);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(previous));
         log.info("Book deleted successfully with ID: {}", id);
     }
 
@@ -163,22 +198,22 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public ResponseEntity<byte[]> downloadBook() throws IOException {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<StreamingResponseBody> downloadBook() {
         log.info("Start downloadBook()");
         
-        String csvContent = bookBusiness.downloadBook();
-        String header = "ID,Name,Author,BookType,Price\n";
-        String fullContent = header + csvContent;
-        
-        // Create ZIP file with CSV
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
-            ZipEntry entry = new ZipEntry("books.csv");
-            zos.putNextEntry(entry);
-            zos.write(fullContent.getBytes());
+        // Written after the handler returns, so the export opens its own read-only transaction
+        StreamingResponseBody body = outputStream -> {
+            ZipOutputStream zos = new ZipOutputStream(outputStream);
+            zos.putNextEntry(new ZipEntry("books.csv"));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(zos, StandardCharsets.UTF_8));
+            writer.write(EXPORT_HEADER);
+            bookBusiness.exportBooks(writer);
+            writer.flush();
             zos.closeEntry();
-        }
+            // Finish without closing; the container owns the response stream
+            zos.finish();
+        };
         
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
@@ -187,76 +222,32 @@ public class BookServiceImpl implements BookService {
         log.info("End downloadBook()");
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(baos.toByteArray());
+                .body(body);
     }
 
     @Override
-    @Transactional
-    public void uploadBook(MultipartFile bookFile) throws IOException {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BookImportJobDto uploadBook(MultipartFile bookFile) throws IOException {
         log.info("Start uploadBook()");
-        List<BookModel> bookList = new ArrayList<>();
-        
-        try (BufferedReader bookReader = new BufferedReader(new InputStreamReader(bookFile.getInputStream()))) {
-            String line;
-            int lineNumber = 0;
-            
-            while ((line = bookReader.readLine()) != null) {
-                lineNumber++;
-                try {
-                    String[] data = line.split(",");
-                    
-                    // Validate CSV format - should have exactly 5 columns
-                    if (data.length != 5) {
-                        log.warn("Skipping line {}: Invalid CSV format. Expected 5 columns, found {}", lineNumber, data.length);
-                        continue;
-                    }
-                    
-                    // Validate that required fields are not empty
-                    if (data[0].trim().isEmpty() || data[1].trim().isEmpty() || 
-                        data[2].trim().isEmpty() || data[3].trim().isEmpty() || data[4].trim().isEmpty()) {
-                        log.warn("Skipping line {}: Empty required fields", lineNumber);
-                        continue;
-                    }
-                    
-                    BookModel bookModel = new BookModel(
-                        data[0].trim(), // id
-                        data[1].trim(), // name
-                        data[2].trim(), // author
-                        data[4].trim(), // price
-                        data[3].trim()  // bookType
-                    );
-                    bookList.add(bookModel);
-                    
-                } catch (Exception e) {
-                    log.error("Error processing line {}: {}", lineNumber, e.getMessage());
-                }
-            }
-        }
-        
-        if (!bookList.isEmpty()) {
-            bookBusiness.uploadBook(bookList);
-        } else {
-            log.warn("No valid books found in uploaded file");
-        }
-        
-        log.info("End uploadBook()");
+        BookImportJobDto job = importFileStore.store(bookFile);
+        log.info("End uploadBook() - stored {} bytes", job.getFileSize());
+        return job;
     }
 
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "bookTypes")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookTypeEntity> getBookType() {
-        log.debug("Getting all book types");
-        return bookBusiness.getBookType();
+        return cachedBookQueries.getBookTypes();
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookTypeEntity> getBookTypes() {
-        return getBookType();
+        return cachedBookQueries.getBookTypes();
     }
 
     @Override
-    public ResponseEntity<byte[]> downloadBooks() throws IOException {
+    public ResponseEntity<StreamingResponseBody> downloadBooks() {
         return downloadBook();
     }
     
@@ -284,122 +275,82 @@ public class BookServiceImpl implements BookService {
         log.info("End updateBook()");
     }
 
-    // Enhanced book management methods
+    // Enhanced book management methods, cached by CachedBookQueries
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "books", key = "#searchTitle + '-' + #searchAuthor + '-' + #searchId + '-' + #searchGenre + '-' + #searchPublisher + '-' + #page + '-' + #pageSize")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Paginate<BookModel> getBook(String searchTitle, String searchAuthor, String searchId, String searchGenre, String searchPublisher, int page, int pageSize) {
-        log.info("Start getBook() with enhanced search");
-        return bookBusiness.getBook(searchId, searchTitle, searchAuthor, searchGenre, searchPublisher, page, pageSize);
+        return cachedBookQueries.getBook(searchTitle, searchAuthor, searchId, searchGenre, searchPublisher, page, pageSize);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "bookDetails", key = "#id")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<BookDetailDto> getBookById(String id) {
-        return bookRepository.findById(id)
-                .map(this::convertToBookDetailDto);
+        return Optional.ofNullable(cachedBookQueries.getBookById(id));
     }
 
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "bookDetailsByIsbn", key = "#isbn")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<BookDetailDto> getBookByIsbn(String isbn) {
-        return bookRepository.findByIsbn(isbn)
-                .map(this::convertToBookDetailDto);
+        return Optional.ofNullable(cachedBookQueries.getBookByIsbn(isbn));
     }
 
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "booksByAuthor", key = "#authorId")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getBooksByAuthor(Long authorId) {
-        return bookRepository.findByAuthorId(authorId)
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getBooksByAuthor(authorId);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "booksByGenre", key = "#genreId")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getBooksByGenre(String genreId) {
-        return bookRepository.findByGenreId(genreId)
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getBooksByGenre(genreId);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "booksByPublisher", key = "#publisherId")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getBooksByPublisher(Long publisherId) {
-        return bookRepository.findByPublisherId(publisherId)
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getBooksByPublisher(publisherId);
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "booksWithLowStock")
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getBooksWithLowStock() {
-        return bookRepository.findBooksWithLowStock()
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getBooksWithLowStock();
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "outOfStockBooks")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getOutOfStockBooks() {
-        return bookRepository.findOutOfStockBooks()
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getOutOfStockBooks();
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "booksWithDiscount")
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getBooksWithDiscount() {
-        return bookRepository.findBooksWithDiscount()
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getBooksWithDiscount();
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "booksByPublicationYear", key = "#year")
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getBooksByPublicationYear(int year) {
-        return bookRepository.findByPublicationYear(year)
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getBooksByPublicationYear(year);
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "booksByLanguage", key = "#language")
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getBooksByLanguage(String language) {
-        return bookRepository.findByLanguage(language)
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getBooksByLanguage(language);
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "booksByFormat", key = "#format")
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getBooksByFormat(String format) {
-        return bookRepository.findByFormat(format)
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getBooksByFormat(format);
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "booksByPriceRange", key = "#minPrice + '-' + #maxPrice")
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookDetailDto> getBooksByPriceRange(java.math.BigDecimal minPrice, java.math.BigDecimal maxPrice) {
-        return bookRepository.findByPriceBetween(minPrice, maxPrice)
-                .stream()
-                .map(this::convertToBookDetailDto)
-                .collect(Collectors.toList());
+        return cachedBookQueries.getBooksByPriceRange(minPrice, maxPrice);
     }
 
     // Inventory management methods
@@ -407,24 +358,30 @@ public class BookServiceImpl implements BookService {
     public void updateStock(String bookId, Integer quantity) {
         BookEntity book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        BookSnapshot previous = BookSnapshot.of(book);
         book.addStock(quantity);
-        bookRepository.save(book);
+        BookEntity saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.updated(previous, saved));
     }
 
     @Transactional
     public void reserveBook(String bookId, Integer quantity) {
         BookEntity book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        BookSnapshot previous = BookSnapshot.of(book);
         book.reserve(quantity);
-        bookRepository.save(book);
+        BookEntity saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.updated(previous, saved));
     }
 
     @Transactional
     public void releaseBook(String bookId, Integer quantity) {
         BookEntity book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        BookSnapshot previous = BookSnapshot.of(book);
         book.release(quantity);
-        bookRepository.save(book);
+        BookEntity saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.updated(previous, saved));
     }
 
     @Transactional(readOnly = true)
@@ -434,96 +391,17 @@ public class BookServiceImpl implements BookService {
         return book.canReserve(quantity);
     }
 
-    // Helper method to convert BookEntity to BookDetailDto
-    private BookDetailDto convertToBookDetailDto(BookEntity book) {
-        return BookDetailDto.builder()
-                .id(book.getId())
-                .title(book.getTitle())
-                .subtitle(book.getSubtitle())
-                .isbn(book.getIsbn())
-                .isbn13(book.getIsbn13())
-                .description(book.getDescription())
-                .pageCount(book.getPageCount())
-                .language(book.getLanguage())
-                .publicationDate(book.getPublicationDate())
-                .edition(book.getEdition())
-                .format(book.getFormat())
-                .price(book.getPrice())
-                .originalPrice(book.getOriginalPrice())
-                .discountedPrice(book.getDiscountedPrice())
-                .discountPercentage(book.getDiscountPercentage())
-                .stockQuantity(book.getStockQuantity())
-                .availableQuantity(book.getAvailableQuantity())
-                .reservedQuantity(book.getReservedQuantity())
-                .reorderPoint(book.getReorderPoint())
-                .maxStock(book.getMaxStock())
-                .isLowStock(book.isLowStock())
-                .isOutOfStock(book.isOutOfStock())
-                .authors(book.getAuthors().stream()
-                    .map(author -> BookDetailDto.AuthorDto.builder()
-                        .id(author.getId())
-                        .name(author.getName())
-                        .biography(author.getBiography())
-                        .country(author.getCountry())
-                        .website(author.getWebsite())
-                        .bookCount(author.getBookCount())
-                        .build())
-                    .collect(Collectors.toList()))
-                .genres(book.getGenres().stream()
-                    .map(genre -> BookDetailDto.GenreDto.builder()
-                        .id(genre.getId())
-                        .name(genre.getName())
-                        .description(genre.getDescription())
-                        .ageRating(genre.getAgeRating())
-                        .bookCount(genre.getBookEntities() != null ? genre.getBookEntities().size() : 0)
-                        .build())
-                    .collect(Collectors.toList()))
-                .publisher(book.getPublisher() != null ? BookDetailDto.PublisherDto.builder()
-                    .id(book.getPublisher().getId())
-                    .name(book.getPublisher().getName())
-                    .description(book.getPublisher().getDescription())
-                    .country(book.getPublisher().getCountry())
-                    .city(book.getPublisher().getCity())
-                    .website(book.getPublisher().getWebsite())
-                    .foundedYear(book.getPublisher().getFoundedYear())
-                    .bookCount(book.getPublisher().getBookCount())
-                    .build() : null)
-                .createdAt(book.getCreatedAt())
-                .updatedAt(book.getUpdatedAt())
-                .build();
-    }
-
     // Standardized methods
     @Override
     public BookResponseDto createBook(BookRequestDto request) {
-        BookEntity book = new BookEntity();
-        book.setId(request.getId());
-        book.setTitle(request.getTitle());
-        book.setSubtitle(request.getSubtitle());
-        book.setIsbn(request.getIsbn());
-        book.setIsbn13(request.getIsbn13());
-        book.setDescription(request.getDescription());
-        book.setPageCount(request.getPageCount());
-        book.setLanguage(request.getLanguage());
-        book.setPublicationDate(request.getPublicationDate());
-        book.setEdition(request.getEdition());
-        book.setFormat(request.getFormat());
-        book.setPrice(request.getPrice());
-        book.setOriginalPrice(request.getOriginalPrice());
-        book.setDiscountPercentage(request.getDiscountPercentage());
-        book.setStockQuantity(request.getStockQuantity());
-        // Set default values for missing fields
-        book.setReservedQuantity(0);
-        book.setReorderPoint(5);
-        book.setMaxStock(100);
-        
-        BookEntity savedBook = create(book);
+        BookEntity savedBook = create(newBookFrom(request));
         return convertToResponseDto(savedBook);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<BookResponseDto> findBookById(String id) {
-        return getById(id).map(this::convertToResponseDto);
+        return Optional.ofNullable(cachedBookQueries.getBookById(id)).map(this::convertBookDetailToResponseDto);
     }
 
     @Override
@@ -531,7 +409,76 @@ public class BookServiceImpl implements BookService {
         BookEntity book = ValidationUtil.validateEntityExists(
             bookRepository.findById(id), id, "Book"
         );
+        // Taken before the managed entity is modified below
+        BookSnapshot previous = BookSnapshot.of(book);
+        
+        applyRequest(book, request);
+        
+        BookEntity updatedBook = update(id, previous, book, book);
+        return convertToResponseDto(updatedBook);
+    }
+
+    @Override
+    public Map<String, String> writeBooks(List<BookWriteDto> writes) {
+        log.info("Applying batch of {} book writes", writes.size());
+        
+        // One query for every book the batch touches, instead of a findById per write
+        Set<String> ids = writes.stream()
+            .map(write -> write.getRequest().getId())
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        Map<String, BookEntity> books = bookRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(BookEntity::getId, book -> book));
+        
+        Map<String, String> rejected = new LinkedHashMap<>();
+        List<BookEntity> created = new ArrayList<>();
+        List<BookChangedEvent> events = new ArrayList<>();
+        for (BookWriteDto write : writes) {
+            BookRequestDto request = write.getRequest();
+            try {
+                // Validate before touching the managed entity, so a rejected write is never flushed
+                ValidationUtil.validateRequiredString(request.getId(), "Book ID");
+                ValidationUtil.validateRequiredString(request.getTitle(), "Book title");
+                if (write.getOperation() == BookWriteDto.Operation.CREATE) {
+                    ValidationUtil.validateNameDoesNotExist(request.getId(),
+                        Optional.ofNullable(books.get(request.getId())), "Book");
+                    BookEntity book = newBookFrom(request);
+                    books.put(book.getId(), book);
+                    created.add(book);
+                } else {
+                    BookEntity book = ValidationUtil.validateEntityExists(
+                        Optional.ofNullable(books.get(request.getId())), request.getId(), "Book");
+                    BookSnapshot previous = BookSnapshot.of(book);
+                    applyRequest(book, request);
+                    events.add(BookChangedEvent.updated(previous, book));
+                }
+            } catch (RuntimeException e) {
+                rejected.put(write.getKey(), e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        }
         
+        // Updates of managed books are flushed with the inserts, in batches of hibernate.jdbc.batch_size
+        bookRepository.saveAll(created);
+        bookRepository.flush();
+        created.forEach(book -> eventPublisher.publishEvent(BookChangedEvent.upserted(book)));
+        events.forEach(eventPublisher::publishEvent);
+        
+        log.info("Applied {} book writes, rejected {}", writes.size() - rejected.size(), rejected.size());
+        return rejected;
+    }
+
+    private BookEntity newBookFrom(BookRequestDto request) {
+        BookEntity book = new BookEntity();
+        book.setId(request.getId());
+        applyRequest(book, request);
+        // Set default values for missing fields
+        book.setReservedQuantity(0);
+        book.setReorderPoint(5);
+        book.setMaxStock(100);
+        return book;
+    }
+
+    private void applyRequest(BookEntity book, BookRequestDto request) {
         book.setTitle(request.getTitle());
         book.setSubtitle(request.getSubtitle());
         book.setIsbn(request.getIsbn());
@@ -547,9 +494,6 @@ public class BookServiceImpl implements BookService {
         book.setDiscountPercentage(request.getDiscountPercentage());
         book.setStockQuantity(request.getStockQuantity());
         // Keep existing values for missing fields
-        
-        BookEntity updatedBook = update(id, book);
-        return convertToResponseDto(updatedBook);
     }
 
     @Override
@@ -558,8 +502,9 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Paginate<BookResponseDto> findBooks(String title, String author, String isbn, String genre, String publisher, int page, int size) {
-        Paginate<BookModel> bookModels = getBook(title, author, null, genre, publisher, page, size);
+        Paginate<BookModel> bookModels = cachedBookQueries.getBook(title, author, null, genre, publisher, page, size);
         
         List<BookResponseDto> responseDtos = bookModels.getData().stream()
             .map(this::convertBookModelToResponseDto)
@@ -569,76 +514,143 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BookResponseDto> findBooksByCursor(String cursor, int size, String sort) {
+        CursorPage<BookEntity> books = bookBusiness.getBookByCursor(cursor, size, sort);
+        
+        List<BookResponseDto> responseDtos = books.getData().stream()
+            .map(this::convertToResponseDto)
+            .collect(Collectors.toList());
+        
+        return new CursorPage<>(responseDtos, books.getNextCursor());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookResponseDto> searchBooks(String query, int limit) {
+        return bookBusiness.searchBooks(query, limit).stream()
+            .map(this::convertToResponseDto)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public BookSuggestionDto suggest(String prefix, int limit) {
+        return BookSuggestionDto.builder()
+            .titles(bookSuggestIndex.suggestTitles(prefix, limit))
+            .authors(bookSuggestIndex.suggestAuthors(prefix, limit))
+            .publishers(bookSuggestIndex.suggestPublishers(prefix, limit))
+            .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public FacetedPage<BookResponseDto> findBooksFaceted(String title, String author, List<String> genres, List<String> languages,
+                                                         List<String> formats, List<String> publishers, List<String> priceRanges,
+                                                         int page, int size, int facetLimit) {
+        Map<FacetDimension, List<String>> selected = new EnumMap<>(FacetDimension.class);
+        putIfPresent(selected, FacetDimension.GENRE, genres);
+        putIfPresent(selected, FacetDimension.LANGUAGE, languages);
+        putIfPresent(selected, FacetDimension.FORMAT, formats);
+        putIfPresent(selected, FacetDimension.PUBLISHER, publishers);
+        putIfPresent(selected, FacetDimension.PRICE, priceRanges);
+        
+        FacetedPage<BookEntity> books = bookBusiness.getBookFaceted(title, author, selected, page, size, facetLimit);
+        
+        List<BookResponseDto> responseDtos = books.getData().stream()
+            .map(this::convertToResponseDto)
+            .collect(Collectors.toList());
+        
+        return new FacetedPage<>(responseDtos, books.getTotalElements(), books.getTotal(), books.getFacets());
+    }
+
+    private static void putIfPresent(Map<FacetDimension, List<String>> selected, FacetDimension dimension, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            selected.put(dimension, values);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<BookResponseDto> findBookByIsbn(String isbn) {
-        return getBookByIsbn(isbn).map(this::convertBookDetailToResponseDto);
+        return Optional.ofNullable(cachedBookQueries.getBookByIsbn(isbn)).map(this::convertBookDetailToResponseDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookResponseDto> findBooksByAuthor(Long authorId) {
-        return getBooksByAuthor(authorId).stream()
+        return cachedBookQueries.getBooksByAuthor(authorId).stream()
             .map(this::convertBookDetailToResponseDto)
             .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookResponseDto> findBooksByGenre(String genreId) {
-        return getBooksByGenre(genreId).stream()
+        return cachedBookQueries.getBooksByGenre(genreId).stream()
             .map(this::convertBookDetailToResponseDto)
             .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookResponseDto> findBooksByPublisher(Long publisherId) {
-        return getBooksByPublisher(publisherId).stream()
+        return cachedBookQueries.getBooksByPublisher(publisherId).stream()
             .map(this::convertBookDetailToResponseDto)
             .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookResponseDto> findBooksWithLowStock() {
-        return getBooksWithLowStock().stream()
+        return cachedBookQueries.getBooksWithLowStock().stream()
             .map(this::convertBookDetailToResponseDto)
             .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookResponseDto> findBooksWithDiscount() {
-        return getBooksWithDiscount().stream()
+        return cachedBookQueries.getBooksWithDiscount().stream()
             .map(this::convertBookDetailToResponseDto)
             .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookResponseDto> findBooksByPublicationYear(int year) {
-        return getBooksByPublicationYear(year).stream()
+        return cachedBookQueries.getBooksByPublicationYear(year).stream()
             .map(this::convertBookDetailToResponseDto)
             .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookResponseDto> findBooksByLanguage(String language) {
-        return getBooksByLanguage(language).stream()
+        return cachedBookQueries.getBooksByLanguage(language).stream()
             .map(this::convertBookDetailToResponseDto)
             .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookResponseDto> findBooksByFormat(String format) {
-        return getBooksByFormat(format).stream()
+        return cachedBookQueries.getBooksByFormat(format).stream()
             .map(this::convertBookDetailToResponseDto)
             .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<BookResponseDto> findBooksByPriceRange(java.math.BigDecimal minPrice, java.math.BigDecimal maxPrice) {
-        return getBooksByPriceRange(minPrice, maxPrice).stream()
+        return cachedBookQueries.getBooksByPriceRange(minPrice, maxPrice).stream()
             .map(this::convertBookDetailToResponseDto)
             .collect(Collectors.toList());
     }
 
     @Override
-    public void processBookUpload(MultipartFile bookFile) throws IOException {
-        uploadBook(bookFile);
+    public BookImportJobDto processBookUpload(MultipartFile bookFile) throws IOException {
+        return uploadBook(bookFile);
     }
 
     // Helper methods for DTO conversion
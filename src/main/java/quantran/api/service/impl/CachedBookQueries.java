@@ -0,0 +1,183 @@
+package quantran.api.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import quantran.api.business.BookBusiness;
+import quantran.api.dto.BookDetailDto;
+import quantran.api.entity.BookEntity;
+import quantran.api.entity.BookTypeEntity;
+import quantran.api.model.BookModel;
+import quantran.api.page.Paginate;
+import quantran.api.repository.BookRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Cached book reads of {@link BookServiceImpl}. They live in a bean of their own so that
+ * {@code BookServiceImpl} calls them through the cache proxy: a call on {@code this} would
+ * bypass it, and with it the single-flight loading and refresh-ahead of the cache layer.
+ *
+ * <p>Entries are evicted on writes by {@link quantran.api.cache.BookCacheInvalidator}. Single
+ * books are cached as the DTO or {@code null}, not as an {@code Optional}, which the Redis
+ * serializer cannot read back.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class CachedBookQueries {
+
+    private final BookBusiness bookBusiness;
+    private final BookRepository bookRepository;
+
+    @Cacheable(value = "bookTypes", sync = true)
+    public List<BookTypeEntity> getBookTypes() {
+        log.debug("Getting all book types");
+        return bookBusiness.getBookType();
+    }
+
+    @Cacheable(value = "books", key = "#searchTitle + '-' + #searchAuthor + '-' + #searchId + '-' + #searchGenre + '-' + #searchPublisher + '-' + #page + '-' + #pageSize", sync = true)
+    public Paginate<BookModel> getBook(String searchTitle, String searchAuthor, String searchId, String searchGenre, String searchPublisher, int page, int pageSize) {
+        log.info("Start getBook() with enhanced search");
+        return bookBusiness.getBook(searchId, searchTitle, searchAuthor, searchGenre, searchPublisher, page, pageSize);
+    }
+
+    /**
+     * @return The book, or {@code null} if there is none
+     */
+    @Cacheable(value = "bookDetails", key = "#id", sync = true)
+    public BookDetailDto getBookById(String id) {
+        return bookRepository.findById(id)
+                .map(this::convertToBookDetailDto)
+                .orElse(null);
+    }
+
+    /**
+     * @return The book, or {@code null} if there is none
+     */
+    @Cacheable(value = "bookDetailsByIsbn", key = "#isbn", sync = true)
+    public BookDetailDto getBookByIsbn(String isbn) {
+        return bookRepository.findByIsbn(isbn)
+                .map(this::convertToBookDetailDto)
+                .orElse(null);
+    }
+
+    @Cacheable(value = "booksByAuthor", key = "#authorId", sync = true)
+    public List<BookDetailDto> getBooksByAuthor(Long authorId) {
+        return toDetails(bookRepository.findByAuthorId(authorId));
+    }
+
+    @Cacheable(value = "booksByGenre", key = "#genreId", sync = true)
+    public List<BookDetailDto> getBooksByGenre(String genreId) {
+        return toDetails(bookRepository.findByGenreId(genreId));
+    }
+
+    @Cacheable(value = "booksByPublisher", key = "#publisherId", sync = true)
+    public List<BookDetailDto> getBooksByPublisher(Long publisherId) {
+        return toDetails(bookRepository.findByPublisherId(publisherId));
+    }
+
+    @Cacheable(value = "booksWithLowStock", sync = true)
+    public List<BookDetailDto> getBooksWithLowStock() {
+        return toDetails(bookRepository.findBooksWithLowStock());
+    }
+
+    @Cacheable(value = "outOfStockBooks", sync = true)
+    public List<BookDetailDto> getOutOfStockBooks() {
+        return toDetails(bookRepository.findOutOfStockBooks());
+    }
+
+    @Cacheable(value = "booksWithDiscount", sync = true)
+    public List<BookDetailDto> getBooksWithDiscount() {
+        return toDetails(bookRepository.findBooksWithDiscount());
+    }
+
+    @Cacheable(value = "booksByPublicationYear", key = "#year", sync = true)
+    public List<BookDetailDto> getBooksByPublicationYear(int year) {
+        return toDetails(bookRepository.findByPublicationYear(year));
+    }
+
+    @Cacheable(value = "booksByLanguage", key = "#language", sync = true)
+    public List<BookDetailDto> getBooksByLanguage(String language) {
+        return toDetails(bookRepository.findByLanguage(language));
+    }
+
+    @Cacheable(value = "booksByFormat", key = "#format", sync = true)
+    public List<BookDetailDto> getBooksByFormat(String format) {
+        return toDetails(bookRepository.findByFormat(format));
+    }
+
+    @Cacheable(value = "booksByPriceRange", key = "#minPrice + '-' + #maxPrice", sync = true)
+    public List<BookDetailDto> getBooksByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        return toDetails(bookRepository.findByPriceBetween(minPrice, maxPrice));
+    }
+
+    private List<BookDetailDto> toDetails(List<BookEntity> books) {
+        return books.stream()
+                .map(this::convertToBookDetailDto)
+                .collect(Collectors.toList());
+    }
+
+    private BookDetailDto convertToBookDetailDto(BookEntity book) {
+        return BookDetailDto.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .subtitle(book.getSubtitle())
+                .isbn(book.getIsbn())
+                .isbn13(book.getIsbn13())
+                .description(book.getDescription())
+                .pageCount(book.getPageCount())
+                .language(book.getLanguage())
+                .publicationDate(book.getPublicationDate())
+                .edition(book.getEdition())
+                .format(book.getFormat())
+                .price(book.getPrice())
+                .originalPrice(book.getOriginalPrice())
+                .discountedPrice(book.getDiscountedPrice())
+                .discountPercentage(book.getDiscountPercentage())
+                .stockQuantity(book.getStockQuantity())
+                .availableQuantity(book.getAvailableQuantity())
+                .reservedQuantity(book.getReservedQuantity())
+                .reorderPoint(book.getReorderPoint())
+                .maxStock(book.getMaxStock())
+                .isLowStock(book.isLowStock())
+                .isOutOfStock(book.isOutOfStock())
+                .authors(book.getAuthors().stream()
+                    .map(author -> BookDetailDto.AuthorDto.builder()
+                        .id(author.getId())
+                        .name(author.getName())
+                        .biography(author.getBiography())
+                        .country(author.getCountry())
+                        .website(author.getWebsite())
+                        .bookCount(author.getBookCount())
+                        .build())
+                    .collect(Collectors.toList()))
+                .genres(book.getGenres().stream()
+                    .map(genre -> BookDetailDto.GenreDto.builder()
+                        .id(genre.getId())
+                        .name(genre.getName())
+                        .description(genre.getDescription())
+                        .ageRating(genre.getAgeRating())
+                        .bookCount(genre.getBookEntities() != null ? genre.getBookEntities().size() : 0)
+                        .build())
+                    .collect(Collectors.toList()))
+                .publisher(book.getPublisher() != null ? BookDetailDto.PublisherDto.builder()
+                    .id(book.getPublisher().getId())
+                    .name(book.getPublisher().getName())
+                    .description(book.getPublisher().getDescription())
+                    .country(book.getPublisher().getCountry())
+                    .city(book.getPublisher().getCity())
+                    .website(book.getPublisher().getWebsite())
+                    .foundedYear(book.getPublisher().getFoundedYear())
+                    .bookCount(book.getPublisher().getBookCount())
+                    .build() : null)
+                .createdAt(book.getCreatedAt())
+                .updatedAt(book.getUpdatedAt())
+                .build();
+    }
+}
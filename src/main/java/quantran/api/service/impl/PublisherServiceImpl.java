@@ -4,12 +4,15 @@ import quantran.api.dto.BookResponseDto;
 import quantran.api.dto.PublisherRequestDto;
 import quantran.api.dto.PublisherResponseDto;
 import quantran.api.entity.PublisherEntity;
+import quantran.api.event.PublisherChangedEvent;
+import quantran.api.event.BookChangedEvent;
 import quantran.api.page.Paginate;
 import quantran.api.repository.PublisherRepository;
 import quantran.api.service.PublisherService;
 import quantran.api.service.AbstractBaseService;
 import quantran.api.util.ValidationUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -24,9 +27,24 @@ import java.util.stream.Collectors;
 @Transactional
 public class PublisherServiceImpl extends AbstractBaseService<PublisherEntity, Long, PublisherRepository> implements PublisherService {
 
+    private final ApplicationEventPublisher eventPublisher;
+
     @Autowired
-    public PublisherServiceImpl(PublisherRepository publisherRepository) {
+    public PublisherServiceImpl(PublisherRepository publisherRepository, ApplicationEventPublisher eventPublisher) {
         super(publisherRepository);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    protected void afterSave(PublisherEntity publisher) {
+        eventPublisher.publishEvent(new PublisherChangedEvent(
+            BookChangedEvent.ChangeType.UPSERTED, publisher.getId(), publisher.getName(), publisher.getBookCount()));
+    }
+
+    @Override
+    protected void afterDelete(PublisherEntity publisher) {
+        eventPublisher.publishEvent(new PublisherChangedEvent(
+            BookChangedEvent.ChangeType.DELETED, publisher.getId(), publisher.getName(), 0));
     }
 
 
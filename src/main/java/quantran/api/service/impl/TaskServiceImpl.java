@@ -1,114 +1,168 @@
 package quantran.api.service.impl;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import quantran.api.asyncProcessingBackgroundWorker.batch.BookWriteBatcher;
 import quantran.api.asyncProcessingBackgroundWorker.task.Task;
 import quantran.api.dto.AsyncTaskRequest;
 import quantran.api.dto.BookRequestDto;
+import quantran.api.dto.BookWriteDto;
+import quantran.api.importer.BookCsvImporter;
 import quantran.api.model.BookModel;
-import quantran.api.service.BookService;
 import quantran.api.service.TaskService;
 import quantran.api.service.AsyncTaskService;
 import quantran.api.util.RandomUtil;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs a task as a pipeline of asynchronous stages: the inventory check and pricing run in
+ * parallel, then the book update, then notifications.
+ *
+ * <p>Waits on external calls are scheduled on {@code taskPipelineScheduler} instead of
+ * sleeping, so a waiting task holds no thread. Work that needs a thread runs on the executor
+ * of its stage, whose pool size is that stage's concurrency limit. Book writes of concurrent
+ * tasks are applied together in batches.
+ *
+ * <p>Book import tasks are handed to {@link BookCsvImporter} on {@code importJobExecutor}.
+ */
 @Service
 @Log4j2
-@RequiredArgsConstructor
 public class TaskServiceImpl implements TaskService {
-    private final BookService bookService;
+    // Simulated latencies of the external calls made by each stage
+    private static final long INVENTORY_LATENCY_MS = 1000;
+    private static final long PRICING_LATENCY_MS = 800;
+    private static final long UPDATE_LATENCY_MS = 500;
+    private static final long NOTIFICATION_LATENCY_MS = 300;
+
     private final AsyncTaskService asyncTaskService;
-    
+    private final ScheduledExecutorService pipelineScheduler;
+    private final Executor pricingExecutor;
+    private final BookWriteBatcher bookWriteBatcher;
+    private final BookCsvImporter bookCsvImporter;
+    private final Executor importJobExecutor;
+
+    public TaskServiceImpl(AsyncTaskService asyncTaskService,
+                           @Qualifier("taskPipelineScheduler") ScheduledExecutorService pipelineScheduler,
+                           @Qualifier("taskPricingExecutor") Executor pricingExecutor,
+                           BookWriteBatcher bookWriteBatcher,
+                           BookCsvImporter bookCsvImporter,
+                           @Qualifier("importJobExecutor") Executor importJobExecutor) {
+        this.asyncTaskService = asyncTaskService;
+        this.pipelineScheduler = pipelineScheduler;
+        this.pricingExecutor = pricingExecutor;
+        this.bookWriteBatcher = bookWriteBatcher;
+        this.bookCsvImporter = bookCsvImporter;
+        this.importJobExecutor = importJobExecutor;
+    }
+
+    /**
+     * Blocking form of {@link #runTaskAsync(Task)}.
+     */
     @Override
     public void runTask(Task task) {
-        log.info("Start runTask() - taskId: {}", task.getId());
-        
         try {
-            // Update task status to PROCESSING
-            asyncTaskService.updateTaskStatus(task.getId(), AsyncTaskRequest.TaskStatus.PROCESSING, "Processing task");
-            
-            String request = task.getRequest();
-            BookModel bookModel = task.getBookModel();
-            
-            // Simulate complex async processing
-            String requestResult = processTaskWithComplexOperations(task, request, bookModel);
-            
-            // Update task status based on result
-            if ("202".equals(requestResult)) {
-                asyncTaskService.updateTaskStatus(task.getId(), AsyncTaskRequest.TaskStatus.COMPLETED, "Task completed successfully");
-            } else {
-                asyncTaskService.updateTaskStatus(task.getId(), AsyncTaskRequest.TaskStatus.FAILED, "Task failed: " + requestResult);
-            }
-            
-            log.info("End runTask() - taskId: {}, result: {}", task.getId(), requestResult);
-            
-        } catch (Exception e) {
-            log.error("Error processing task - taskId: {}", task.getId(), e);
-            asyncTaskService.updateTaskStatus(task.getId(), AsyncTaskRequest.TaskStatus.FAILED, "Task failed with error: " + e.getMessage());
+            runTaskAsync(task).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
         }
     }
 
-    private String processTaskWithComplexOperations(Task task, String request, BookModel bookModel) {
-        try {
-            // Simulate progress updates
-            asyncTaskService.updateTaskProgress(task.getId(), 10);
-            
-            // Step 1: Validate inventory availability (simulate external API call)
-            log.info("Checking inventory availability for book: {}", bookModel.getId());
-            waiting(1000); // Simulate API call
-            if (!checkInventoryAvailability(bookModel.getId())) {
-                return "404"; // Inventory not available
-            }
-            
-            asyncTaskService.updateTaskProgress(task.getId(), 30);
-            
-            // Step 2: Calculate dynamic pricing (simulate complex calculation)
-            log.info("Calculating dynamic pricing for book: {}", bookModel.getId());
-            waiting(800);
-            BigDecimal adjustedPrice = calculateDynamicPricing(bookModel);
-            bookModel.setPrice(adjustedPrice.toString() + "VND");
-            
-            asyncTaskService.updateTaskProgress(task.getId(), 60);
-            
-            // Step 3: Update book information
-            log.info("Updating book information: {}", bookModel.getId());
-            waiting(500);
-            String requestResult = requestCommand(request, bookModel);
-            
-            asyncTaskService.updateTaskProgress(task.getId(), 90);
-            
-            // Step 4: Send notifications (simulate external service)
-            log.info("Sending update notifications for book: {}", bookModel.getId());
-            waiting(300);
-            sendUpdateNotifications(bookModel);
-            
-            asyncTaskService.updateTaskProgress(task.getId(), 100);
-            
-            return requestResult;
-            
-        } catch (Exception e) {
-            log.error("Error in complex task processing", e);
-            return "500";
+    /**
+     * A task rejected by the business checks is marked FAILED. Any other error completes the
+     * future exceptionally, so the worker queue can retry the task or dead-letter it.
+     */
+    @Override
+    public CompletableFuture<Void> runTaskAsync(Task task) {
+        log.info("Start runTask() - taskId: {}", task.getId());
+        if ("import".equals(task.getRequest())) {
+            // The importer reports its own status, progress and result
+            return CompletableFuture.runAsync(() -> bookCsvImporter.runImport(task.getId(), task.getImportJob()), importJobExecutor);
         }
+        
+        // Update task status to PROCESSING
+        asyncTaskService.updateTaskStatus(task.getId(), AsyncTaskRequest.TaskStatus.PROCESSING, "Processing task");
+        asyncTaskService.updateTaskProgress(task.getId(), 10);
+        
+        return processTaskWithComplexOperations(task, task.getRequest(), task.getBookModel())
+                .thenAccept(requestResult -> {
+                    // Update task status based on result
+                    if ("202".equals(requestResult)) {
+                        asyncTaskService.updateTaskStatus(task.getId(), AsyncTaskRequest.TaskStatus.COMPLETED, "Task completed successfully");
+                    } else {
+                        asyncTaskService.updateTaskStatus(task.getId(), AsyncTaskRequest.TaskStatus.FAILED, "Task failed: " + requestResult);
+                    }
+                    log.info("End runTask() - taskId: {}, result: {}", task.getId(), requestResult);
+                })
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        log.error("Error in complex task processing - taskId: {}", task.getId(), error);
+                    }
+                });
     }
 
-    public String requestCommand(String request, BookModel bookModel) {
+    private CompletableFuture<String> processTaskWithComplexOperations(Task task, String request, BookModel bookModel) {
+        // Step 1: Validate inventory availability (simulate external API call)
+        log.info("Checking inventory availability for book: {}", bookModel.getId());
+        CompletableFuture<Boolean> inventory = externalCall(INVENTORY_LATENCY_MS)
+                .thenApply(ignored -> checkInventoryAvailability(bookModel.getId()));
+
+        // Step 2: Calculate dynamic pricing (simulate complex calculation), independent of step 1
+        log.info("Calculating dynamic pricing for book: {}", bookModel.getId());
+        CompletableFuture<BigDecimal> pricing = externalCall(PRICING_LATENCY_MS)
+                .thenApplyAsync(ignored -> calculateDynamicPricing(bookModel), pricingExecutor);
+
+        return inventory.thenCombine(pricing, (available, adjustedPrice) -> available ? adjustedPrice : null)
+                .thenCompose(adjustedPrice -> {
+                    if (adjustedPrice == null) {
+                        return CompletableFuture.completedFuture("404"); // Inventory not available
+                    }
+                    bookModel.setPrice(adjustedPrice.toString() + "VND");
+                    asyncTaskService.updateTaskProgress(task.getId(), 60);
+
+                    // Step 3: Update book information
+                    log.info("Updating book information: {}", bookModel.getId());
+                    return externalCall(UPDATE_LATENCY_MS)
+                            .thenCompose(ignored -> requestCommand(request, bookModel))
+                            .thenCompose(requestResult -> {
+                                asyncTaskService.updateTaskProgress(task.getId(), 90);
+
+                                // Step 4: Send notifications (simulate external service)
+                                log.info("Sending update notifications for book: {}", bookModel.getId());
+                                return externalCall(NOTIFICATION_LATENCY_MS).thenApply(ignored -> {
+                                    sendUpdateNotifications(bookModel);
+                                    asyncTaskService.updateTaskProgress(task.getId(), 100);
+                                    return requestResult;
+                                });
+                            });
+                });
+    }
+
+    /**
+     * Writes are batched with those of other running tasks; see {@link BookWriteBatcher}.
+     */
+    public CompletableFuture<String> requestCommand(String request, BookModel bookModel) {
         switch (request) {
             case "update":
-                BookRequestDto requestDto = convertBookModelToRequestDto(bookModel);
-                bookService.updateBook(bookModel.getId(), requestDto);
-                return "202";
+                return write(BookWriteDto.Operation.UPDATE, bookModel);
             case "add":
-                BookRequestDto createDto = convertBookModelToRequestDto(bookModel);
-                bookService.createBook(createDto);
-                return "202";
+                return write(BookWriteDto.Operation.CREATE, bookModel);
             default:
                 log.warn("Unknown request type: {}", request);
-                return "404";
+                return CompletableFuture.completedFuture("404");
         }
     }
+
+    private CompletableFuture<String> write(BookWriteDto.Operation operation, BookModel bookModel) {
+        return bookWriteBatcher.submit(operation, convertBookModelToRequestDto(bookModel))
+                .thenApply(rejection -> rejection == null ? "202" : rejection);
+    }
     
     private BookRequestDto convertBookModelToRequestDto(BookModel bookModel) {
         BookRequestDto dto = new BookRequestDto();
@@ -159,12 +213,10 @@ public class TaskServiceImpl implements TaskService {
         log.info("Sending notifications for book update: {}", bookModel.getId());
     }
 
-    // Simulate command execution with a delay
-    private void waiting(int time) {
-        try {
-            Thread.sleep(time);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    // Simulate an external call: completes after the delay without holding a thread
+    private CompletableFuture<Void> externalCall(long latencyMs) {
+        CompletableFuture<Void> response = new CompletableFuture<>();
+        pipelineScheduler.schedule(() -> response.complete(null), latencyMs, TimeUnit.MILLISECONDS);
+        return response;
     }
 }
@@ -9,6 +9,8 @@ import quantran.api.model.UserModel;
 import quantran.api.service.UserService;
 import quantran.api.util.RandomUtil;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 @Log4j2
 @RequiredArgsConstructor
@@ -22,11 +24,10 @@ public class UserServiceImpl implements UserService {
     }
     
     @Override
-    public String login(UserModel userModel) {
+    public CompletableFuture<String> login(UserModel userModel) {
         log.info("Start login()");
         UserEntity userEntity = new UserEntity(userModel);
         String key = generateUserKey(userEntity);
-        key = userBusiness.login(userEntity, key);
-        return key;
+        return userBusiness.login(userEntity, key);
     }
 }
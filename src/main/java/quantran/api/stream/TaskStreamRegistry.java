@@ -0,0 +1,320 @@
+package quantran.api.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import quantran.api.dto.AsyncTaskRequest;
+import quantran.api.dto.AsyncTaskResponseDto;
+import quantran.api.event.TaskUpdatedEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Streams task updates to Server-Sent Events subscribers, either for one task or for all
+ * tasks of a user.
+ *
+ * <p>Connections are held by the servlet container's async support, not by a thread. Updates
+ * are queued per subscriber and written by a small shared executor. The queue keeps only the
+ * latest update of each task, so a slow client skips intermediate progress steps instead of
+ * building a backlog; a client that still falls behind by more than the configured number of
+ * tasks is disconnected and gets a fresh snapshot when it reconnects. A comment line is sent
+ * periodically so proxies keep idle connections open.
+ *
+ * <p>Updates come from {@link TaskUpdatedEvent}s on this node and, through the
+ * {@link TaskUpdateBus}, from the other nodes. Local updates are relayed to the other nodes
+ * from the same executor, never on the thread that changed the task: the latest unpublished
+ * update of each task is kept and published by one drain at a time, so the updates of a task
+ * leave in order.
+ *
+ * <p>Metrics: {@code tasks.stream.subscribers} and {@code tasks.stream.overflows}.
+ */
+@Component
+@Log4j2
+public class TaskStreamRegistry {
+    static final String EVENT_NAME = "task";
+    private static final Set<String> TERMINAL_STATUSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            AsyncTaskRequest.TaskStatus.COMPLETED.name(), AsyncTaskRequest.TaskStatus.FAILED.name(),
+            AsyncTaskRequest.TaskStatus.TIMEOUT.name(), AsyncTaskRequest.TaskStatus.CANCELLED.name(),
+            AsyncTaskRequest.TaskStatus.DEAD_LETTER.name())));
+
+    private final TaskUpdateBus taskUpdateBus;
+    private final Executor streamExecutor;
+    private final long timeoutMs;
+    private final int maxPendingPerSubscriber;
+    private final Map<String, Set<Subscriber>> byTask = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> byUser = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Latest update of each task not yet relayed to the other nodes, in arrival order; guarded by itself
+    private final LinkedHashMap<String, AsyncTaskResponseDto> unpublished = new LinkedHashMap<>();
+    private boolean publishing;
+    private final Counter overflows;
+
+    public TaskStreamRegistry(TaskUpdateBus taskUpdateBus,
+                              @Qualifier("taskStreamExecutor") Executor streamExecutor,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.tasks.stream.timeout-ms:1800000}") long timeoutMs,
+                              @Value("${app.tasks.stream.max-pending-per-subscriber:100}") int maxPendingPerSubscriber) {
+        this.taskUpdateBus = taskUpdateBus;
+        this.streamExecutor = streamExecutor;
+        this.timeoutMs = timeoutMs;
+        this.maxPendingPerSubscriber = maxPendingPerSubscriber;
+        taskUpdateBus.subscribe(this::deliver);
+
+        Gauge.builder("tasks.stream.subscribers", subscribers, Set::size)
+                .description("Open task status streams")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("tasks.stream.overflows")
+                .description("Task status streams closed because the client fell too far behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stream the updates of one task, starting with its current state. The stream ends once
+     * the task reaches a final status.
+     * @param current Reads the current state; called after subscribing, so no update is missed in between
+     */
+    public SseEmitter subscribeTask(String taskId, Supplier<AsyncTaskResponseDto> current) {
+        Subscriber subscriber = new Subscriber(true);
+        register(byTask, taskId, subscriber);
+        subscriber.start(Collections.singletonList(current.get()));
+        return subscriber.emitter;
+    }
+
+    /**
+     * Stream the updates of every task of a user, starting with the current state of its tasks.
+     * @param current Reads the current state; called after subscribing, so no update is missed in between
+     */
+    public SseEmitter subscribeUser(String userId, Supplier<List<AsyncTaskResponseDto>> current) {
+        Subscriber subscriber = new Subscriber(false);
+        register(byUser, userId, subscriber);
+        subscriber.start(current.get());
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskUpdated(TaskUpdatedEvent event) {
+        AsyncTaskResponseDto task = event.getTask();
+        deliver(task);
+        synchronized (unpublished) {
+            unpublished.remove(task.getTaskId());
+            unpublished.put(task.getTaskId(), task);
+        }
+        schedulePublish();
+    }
+
+    void deliver(AsyncTaskResponseDto task) {
+        offer(byTask.get(task.getTaskId()), task);
+        if (task.getUserId() != null) {
+            offer(byUser.get(task.getUserId()), task);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.tasks.stream.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        subscribers.forEach(Subscriber::heartbeat);
+        schedulePublish();
+    }
+
+    static boolean isTerminal(AsyncTaskResponseDto task) {
+        return TERMINAL_STATUSES.contains(task.getStatus());
+    }
+
+    private static void offer(Collection<Subscriber> targets, AsyncTaskResponseDto task) {
+        if (targets != null) {
+            targets.forEach(subscriber -> subscriber.offer(task));
+        }
+    }
+
+    private void schedulePublish() {
+        synchronized (unpublished) {
+            if (publishing || unpublished.isEmpty()) {
+                return;
+            }
+            publishing = true;
+        }
+        try {
+            streamExecutor.execute(this::publishPending);
+        } catch (RejectedExecutionException e) {
+            synchronized (unpublished) {
+                publishing = false;
+            }
+            log.warn("Task stream executor is saturated, delaying relayed updates until the next heartbeat");
+        }
+    }
+
+    private void publishPending() {
+        while (true) {
+            List<AsyncTaskResponseDto> batch;
+            synchronized (unpublished) {
+                if (unpublished.isEmpty()) {
+                    publishing = false;
+                    return;
+                }
+                batch = new ArrayList<>(unpublished.values());
+                unpublished.clear();
+            }
+            batch.forEach(taskUpdateBus::publish);
+        }
+    }
+
+    private void register(Map<String, Set<Subscriber>> index, String key, Subscriber subscriber) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscribers.add(subscriber);
+        Runnable unregister = () -> {
+            subscribers.remove(subscriber);
+            index.computeIfPresent(key, (k, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        };
+        subscriber.emitter.onCompletion(unregister);
+        subscriber.emitter.onTimeout(unregister);
+        subscriber.emitter.onError(error -> unregister.run());
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter = new SseEmitter(timeoutMs);
+        private final boolean closeOnTerminal;
+        // Latest unsent update of each task, in arrival order; guarded by this
+        private final LinkedHashMap<String, AsyncTaskResponseDto> pending = new LinkedHashMap<>();
+        // Tasks updated live before the initial snapshot was queued; guarded by this
+        private Set<String> updatedBeforeStart = new HashSet<>();
+        private boolean heartbeatDue;
+        private boolean draining;
+        private boolean closed;
+
+        private Subscriber(boolean closeOnTerminal) {
+            this.closeOnTerminal = closeOnTerminal;
+        }
+
+        /**
+         * Queue the initial state, except for tasks a live update already superseded.
+         */
+        void start(List<AsyncTaskResponseDto> current) {
+            synchronized (this) {
+                for (AsyncTaskResponseDto task : current) {
+                    if (task != null && !updatedBeforeStart.contains(task.getTaskId())) {
+                        pending.putIfAbsent(task.getTaskId(), task);
+                    }
+                }
+                updatedBeforeStart = null;
+            }
+            scheduleDrain();
+        }
+
+        void offer(AsyncTaskResponseDto task) {
+            boolean overflowed = false;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (updatedBeforeStart != null) {
+                    updatedBeforeStart.add(task.getTaskId());
+                }
+                // Re-inserted so the task moves to the end of the arrival order
+                pending.remove(task.getTaskId());
+                pending.put(task.getTaskId(), task);
+                if (pending.size() > maxPendingPerSubscriber) {
+                    overflows.increment();
+                    log.warn("Closing task stream that fell {} tasks behind", pending.size());
+                    closed = true;
+                    pending.clear();
+                    overflowed = true;
+                }
+            }
+            if (overflowed) {
+                emitter.complete();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                heartbeatDue = true;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            synchronized (this) {
+                if (draining || closed) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                streamExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+                log.warn("Task stream executor is saturated, delaying updates until the next heartbeat");
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<AsyncTaskResponseDto> batch;
+                boolean sendHeartbeat;
+                synchronized (this) {
+                    if (closed || (pending.isEmpty() && !heartbeatDue)) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.values());
+                    pending.clear();
+                    sendHeartbeat = heartbeatDue && batch.isEmpty();
+                    heartbeatDue = false;
+                }
+                try {
+                    if (sendHeartbeat) {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    }
+                    for (AsyncTaskResponseDto task : batch) {
+                        emitter.send(SseEmitter.event().name(EVENT_NAME).id(task.getTaskId())
+                                .data(task, MediaType.APPLICATION_JSON));
+                        if (closeOnTerminal && isTerminal(task)) {
+                            close();
+                            emitter.complete();
+                            return;
+                        }
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away; the emitter's error callback unregisters it
+                    log.debug("Task stream closed while sending: {}", e.getMessage());
+                    close();
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+
+        private synchronized void close() {
+            closed = true;
+            draining = false;
+            pending.clear();
+        }
+    }
+}
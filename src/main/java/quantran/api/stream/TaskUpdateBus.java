@@ -0,0 +1,81 @@
+package quantran.api.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import quantran.api.dto.AsyncTaskResponseDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Relays task updates between nodes over a Redis pub/sub channel, so a client streaming from
+ * one node sees the progress of a task running on another.
+ *
+ * <p>Messages are the publishing node's ID and the task as JSON, separated by a tab; messages
+ * a node published itself are ignored on receipt. Pub/sub is fire-and-forget, so an update
+ * missed while disconnected is only seen with the next update of the same task.
+ */
+@Log4j2
+public class TaskUpdateBus implements MessageListener {
+    private static final char SEPARATOR = '\t';
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile Consumer<AsyncTaskResponseDto> handler;
+
+    public TaskUpdateBus(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Set the handler receiving updates published by other nodes.
+     */
+    public void subscribe(Consumer<AsyncTaskResponseDto> handler) {
+        this.handler = handler;
+    }
+
+    public void publish(AsyncTaskResponseDto task) {
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + SEPARATOR + objectMapper.writeValueAsString(task));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Failed to publish update of task {}", task.getTaskId(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(SEPARATOR);
+        if (separator < 0) {
+            log.warn("Ignoring malformed task update on channel {}", channel);
+            return;
+        }
+        if (body.regionMatches(0, nodeId, 0, separator) && separator == nodeId.length()) {
+            return;
+        }
+        AsyncTaskResponseDto task;
+        try {
+            task = objectMapper.readValue(body.substring(separator + 1), AsyncTaskResponseDto.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed task update on channel {}: {}", channel, e.getMessage());
+            return;
+        }
+        Consumer<AsyncTaskResponseDto> current = handler;
+        if (current != null) {
+            current.accept(task);
+        }
+    }
+}
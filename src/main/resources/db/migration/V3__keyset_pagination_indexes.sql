@@ -0,0 +1,29 @@
+-- ============================================================================
+-- Keyset Pagination Indexes Migration
+-- ============================================================================
+-- Supports GET /api/v1/books/cursor. Each page is a bounded index range scan
+-- that starts right after the previous page's (sort key, id), so page cost
+-- does not grow with depth.
+
+-- ============================================================================
+-- KEYSET INDEXES
+-- ============================================================================
+
+-- "publicationDate" ordering: newest first, ties broken by id
+CREATE INDEX IF NOT EXISTS idx_book_publication_date_id
+    ON books(publication_date DESC, id DESC)
+    WHERE publication_date IS NOT NULL;
+
+-- "id" ordering is served by the primary key index
+
+COMMENT ON INDEX idx_book_publication_date_id IS 'Keyset pagination index for books ordered by publication date';
+
+-- ============================================================================
+-- MIGRATION COMPLETION
+-- ============================================================================
+
+INSERT INTO schema_version (version, description, installed_on)
+VALUES ('V3', 'Keyset pagination indexes', NOW())
+ON CONFLICT (version) DO UPDATE SET
+    description = EXCLUDED.description,
+    installed_on = EXCLUDED.installed_on;
@@ -0,0 +1,161 @@
+-- ============================================================================
+-- Book Search Vector Migration
+-- ============================================================================
+-- Adds a maintained, weighted search_vector column to books so ranked
+-- full-text search is a single GIN index lookup on one table instead of
+-- to_tsvector over five joined tables per request.
+--
+-- Weights: title = A, author names = B, genre and publisher names = C
+
+-- ============================================================================
+-- COLUMN
+-- ============================================================================
+
+ALTER TABLE books ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+-- ============================================================================
+-- VECTOR COMPUTATION
+-- ============================================================================
+
+-- Builds the vector from the given title/publisher and the book's current
+-- author and genre links. Takes the row values as arguments so BEFORE
+-- triggers on books can use NEW before it is written.
+CREATE OR REPLACE FUNCTION compute_book_search_vector(p_book_id varchar, p_title varchar, p_publisher_id bigint)
+RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector('english', coalesce(p_title, '')), 'A')
+        || setweight(to_tsvector('english', coalesce((
+               SELECT string_agg(a.name, ' ')
+               FROM book_authors ba
+               JOIN authors a ON a.id = ba.author_id
+               WHERE ba.book_id = p_book_id), '')), 'B')
+        || setweight(to_tsvector('english', coalesce((
+               SELECT string_agg(bt.name, ' ')
+               FROM book_genres bg
+               JOIN book_type bt ON bt.id = bg.genre_id
+               WHERE bg.book_id = p_book_id), '')), 'C')
+        || setweight(to_tsvector('english', coalesce((
+               SELECT p.name
+               FROM publishers p
+               WHERE p.id = p_publisher_id), '')), 'C');
+$$ LANGUAGE sql STABLE;
+
+CREATE OR REPLACE FUNCTION refresh_book_search_vector(p_book_id varchar)
+RETURNS void AS $$
+    UPDATE books
+    SET search_vector = compute_book_search_vector(id, title, publisher_id)
+    WHERE id = p_book_id;
+$$ LANGUAGE sql;
+
+-- ============================================================================
+-- TRIGGERS
+-- ============================================================================
+
+-- books: recompute on insert and when title or publisher changes
+CREATE OR REPLACE FUNCTION books_search_vector_trigger()
+RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector := compute_book_search_vector(NEW.id, NEW.title, NEW.publisher_id);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_books_search_vector ON books;
+CREATE TRIGGER trg_books_search_vector
+    BEFORE INSERT OR UPDATE OF title, publisher_id ON books
+    FOR EACH ROW EXECUTE FUNCTION books_search_vector_trigger();
+
+-- book_authors / book_genres: recompute the linked book when links change
+CREATE OR REPLACE FUNCTION book_links_search_vector_trigger()
+RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM refresh_book_search_vector(NEW.book_id);
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        PERFORM refresh_book_search_vector(OLD.book_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_book_authors_search_vector ON book_authors;
+CREATE TRIGGER trg_book_authors_search_vector
+    AFTER INSERT OR UPDATE OR DELETE ON book_authors
+    FOR EACH ROW EXECUTE FUNCTION book_links_search_vector_trigger();
+
+DROP TRIGGER IF EXISTS trg_book_genres_search_vector ON book_genres;
+CREATE TRIGGER trg_book_genres_search_vector
+    AFTER INSERT OR UPDATE OR DELETE ON book_genres
+    FOR EACH ROW EXECUTE FUNCTION book_links_search_vector_trigger();
+
+-- authors / book_type / publishers: recompute every linked book on rename
+CREATE OR REPLACE FUNCTION author_search_vector_trigger()
+RETURNS trigger AS $$
+BEGIN
+    UPDATE books b
+    SET search_vector = compute_book_search_vector(b.id, b.title, b.publisher_id)
+    WHERE b.id IN (SELECT ba.book_id FROM book_authors ba WHERE ba.author_id = NEW.id);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_authors_search_vector ON authors;
+CREATE TRIGGER trg_authors_search_vector
+    AFTER UPDATE OF name ON authors
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name)
+    EXECUTE FUNCTION author_search_vector_trigger();
+
+CREATE OR REPLACE FUNCTION genre_search_vector_trigger()
+RETURNS trigger AS $$
+BEGIN
+    UPDATE books b
+    SET search_vector = compute_book_search_vector(b.id, b.title, b.publisher_id)
+    WHERE b.id IN (SELECT bg.book_id FROM book_genres bg WHERE bg.genre_id = NEW.id);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_book_type_search_vector ON book_type;
+CREATE TRIGGER trg_book_type_search_vector
+    AFTER UPDATE OF name ON book_type
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name)
+    EXECUTE FUNCTION genre_search_vector_trigger();
+
+CREATE OR REPLACE FUNCTION publisher_search_vector_trigger()
+RETURNS trigger AS $$
+BEGIN
+    UPDATE books b
+    SET search_vector = compute_book_search_vector(b.id, b.title, b.publisher_id)
+    WHERE b.publisher_id = NEW.id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_publishers_search_vector ON publishers;
+CREATE TRIGGER trg_publishers_search_vector
+    AFTER UPDATE OF name ON publishers
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name)
+    EXECUTE FUNCTION publisher_search_vector_trigger();
+
+-- ============================================================================
+-- BACKFILL AND INDEX
+-- ============================================================================
+
+UPDATE books
+SET search_vector = compute_book_search_vector(id, title, publisher_id)
+WHERE search_vector IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_book_search_vector ON books USING gin(search_vector);
+
+COMMENT ON COLUMN books.search_vector IS 'Weighted full-text vector: title (A), authors (B), genres and publisher (C); maintained by triggers';
+COMMENT ON INDEX idx_book_search_vector IS 'GIN index for ranked full-text search over books.search_vector';
+
+-- ============================================================================
+-- MIGRATION COMPLETION
+-- ============================================================================
+
+INSERT INTO schema_version (version, description, installed_on)
+VALUES ('V4', 'Book search vector', NOW())
+ON CONFLICT (version) DO UPDATE SET
+    description = EXCLUDED.description,
+    installed_on = EXCLUDED.installed_on;
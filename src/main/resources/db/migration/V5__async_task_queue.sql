@@ -0,0 +1,44 @@
+-- ============================================================================
+-- Async Task Queue Migration
+-- ============================================================================
+-- Turns async_tasks into a work queue shared by all nodes. Workers claim
+-- pending rows with FOR UPDATE SKIP LOCKED and hold a lease that they renew
+-- while the task runs; a row whose lease expired is claimable again. Failed
+-- attempts are retried with exponential backoff (next_attempt_at) and moved
+-- to DEAD_LETTER after the last attempt.
+
+-- ============================================================================
+-- COLUMNS
+-- ============================================================================
+
+ALTER TABLE async_tasks ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE async_tasks ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP;
+ALTER TABLE async_tasks ADD COLUMN IF NOT EXISTS lease_owner VARCHAR(64);
+ALTER TABLE async_tasks ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP;
+
+-- ============================================================================
+-- CLAIM INDEXES
+-- ============================================================================
+
+-- Pending tasks in claim order
+CREATE INDEX IF NOT EXISTS idx_task_claimable
+    ON async_tasks(created_at)
+    WHERE status = 'PENDING';
+
+-- Running tasks whose lease may have expired
+CREATE INDEX IF NOT EXISTS idx_task_lease
+    ON async_tasks(lease_expires_at)
+    WHERE status = 'PROCESSING';
+
+COMMENT ON INDEX idx_task_claimable IS 'Claim scan over pending tasks for the database task queue';
+COMMENT ON INDEX idx_task_lease IS 'Reclaim scan over running tasks with expired leases';
+
+-- ============================================================================
+-- MIGRATION COMPLETION
+-- ============================================================================
+
+INSERT INTO schema_version (version, description, installed_on)
+VALUES ('V5', 'Async task queue', NOW())
+ON CONFLICT (version) DO UPDATE SET
+    description = EXCLUDED.description,
+    installed_on = EXCLUDED.installed_on;
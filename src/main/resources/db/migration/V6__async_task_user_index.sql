@@ -0,0 +1,39 @@
+-- ============================================================================
+-- Async Task Listing Indexes Migration
+-- ============================================================================
+-- Per-user task listing is keyset paginated newest first, and cleanup deletes
+-- finished tasks by completion time. Both become range scans over an index
+-- instead of filtering every task.
+
+-- ============================================================================
+-- PER-USER LISTING
+-- ============================================================================
+
+-- (user_id, created_at, task_id) matches the listing order, with task_id as the
+-- tie-breaker for tasks created in the same instant; replaces idx_task_user
+CREATE INDEX IF NOT EXISTS idx_task_user_created
+    ON async_tasks(user_id, created_at DESC, task_id DESC);
+
+DROP INDEX IF EXISTS idx_task_user;
+
+-- ============================================================================
+-- CLEANUP
+-- ============================================================================
+
+-- Finished tasks in completion order; only these are ever deleted by cleanup
+CREATE INDEX IF NOT EXISTS idx_task_completed
+    ON async_tasks(completed_at)
+    WHERE status IN ('COMPLETED', 'FAILED', 'CANCELLED');
+
+COMMENT ON INDEX idx_task_user_created IS 'Keyset pagination of a user''s tasks, newest first';
+COMMENT ON INDEX idx_task_completed IS 'Cleanup scan over finished tasks by completion time';
+
+-- ============================================================================
+-- MIGRATION COMPLETION
+-- ============================================================================
+
+INSERT INTO schema_version (version, description, installed_on)
+VALUES ('V6', 'Async task listing indexes', NOW())
+ON CONFLICT (version) DO UPDATE SET
+    description = EXCLUDED.description,
+    installed_on = EXCLUDED.installed_on;
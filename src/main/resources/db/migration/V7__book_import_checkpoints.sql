@@ -0,0 +1,35 @@
+-- ============================================================================
+-- Book Import Checkpoints Migration
+-- ============================================================================
+-- CSV uploads run as async import tasks that commit in fixed-size chunks.
+-- Each chunk commit also records how far into the file the import got, so a
+-- retried or reclaimed task resumes after the last committed chunk instead of
+-- starting over. Totals so far are kept with the position for the final report.
+
+-- ============================================================================
+-- TABLE
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS book_import_checkpoints (
+    task_id     VARCHAR(36) PRIMARY KEY REFERENCES async_tasks(task_id) ON DELETE CASCADE,
+    byte_offset BIGINT NOT NULL DEFAULT 0,
+    line_number BIGINT NOT NULL DEFAULT 1,
+    accepted    BIGINT NOT NULL DEFAULT 0,
+    rejected    BIGINT NOT NULL DEFAULT 0,
+    rejections  TEXT,
+    updated_at  TIMESTAMP NOT NULL
+);
+
+COMMENT ON TABLE book_import_checkpoints IS 'Position and totals of the last committed chunk of each book import task';
+COMMENT ON COLUMN book_import_checkpoints.byte_offset IS 'Byte position in the uploaded file after the last committed row';
+COMMENT ON COLUMN book_import_checkpoints.rejections IS 'First rejected rows as JSON (line and reason)';
+
+-- ============================================================================
+-- MIGRATION COMPLETION
+-- ============================================================================
+
+INSERT INTO schema_version (version, description, installed_on)
+VALUES ('V7', 'Book import checkpoints', NOW())
+ON CONFLICT (version) DO UPDATE SET
+    description = EXCLUDED.description,
+    installed_on = EXCLUDED.installed_on;
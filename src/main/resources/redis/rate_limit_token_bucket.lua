@@ -0,0 +1,38 @@
+-- Take up to ARGV[4] tokens from the token bucket in KEYS[1].
+-- ARGV: burst limit, requests per period, period (ms), tokens requested.
+-- Returns {tokens granted, ms until the next token if none left, whole tokens left}.
+-- Time comes from the Redis server, so node clocks do not need to agree.
+redis.replicate_commands()
+
+local capacity = tonumber(ARGV[1])
+local refill = tonumber(ARGV[2])
+local period = tonumber(ARGV[3])
+local requested = tonumber(ARGV[4])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(state[1])
+local ts = tonumber(state[2])
+if tokens == nil or ts == nil then
+    tokens = capacity
+    ts = now
+elseif now > ts then
+    tokens = math.min(capacity, tokens + (now - ts) * refill / period)
+    ts = now
+end
+
+local granted = math.min(requested, math.floor(tokens))
+tokens = tokens - granted
+
+local wait = 0
+if tokens < 1 then
+    wait = math.ceil((1 - tokens) * period / refill)
+end
+
+redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens), 'ts', ts)
+-- An idle bucket is full again after this long, the same as a missing one
+redis.call('PEXPIRE', KEYS[1], math.ceil(capacity * period / refill))
+
+return {granted, wait, math.floor(tokens)}
@@ -0,0 +1,91 @@
+package quantran.api.asyncProcessingBackgroundWorker.batch;
+
+import org.junit.jupiter.api.Test;
+import quantran.api.dto.BookRequestDto;
+import quantran.api.dto.BookWriteDto;
+import quantran.api.service.BookService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookWriteBatcherTest {
+
+    private final BookService bookService = mock(BookService.class);
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+
+    @Test
+    void fullBatch_IsAppliedInOneCall() {
+        when(bookService.writeBooks(anyList())).thenReturn(Collections.emptyMap());
+        BookWriteBatcher batcher = new BookWriteBatcher(bookService, Runnable::run, scheduler, 3, 20);
+
+        CompletableFuture<String> first = batcher.submit(BookWriteDto.Operation.UPDATE, request("B1"));
+        CompletableFuture<String> second = batcher.submit(BookWriteDto.Operation.UPDATE, request("B2"));
+        assertFalse(first.isDone());
+        CompletableFuture<String> third = batcher.submit(BookWriteDto.Operation.CREATE, request("B3"));
+
+        verify(bookService, times(1)).writeBooks(argThat(writes -> writes.size() == 3));
+        assertNull(first.join());
+        assertNull(second.join());
+        assertNull(third.join());
+    }
+
+    @Test
+    void rejectedWrite_FailsOnlyItsOwnTask() {
+        when(bookService.writeBooks(anyList())).thenAnswer(invocation -> {
+            List<BookWriteDto> writes = invocation.getArgument(0);
+            return Collections.singletonMap(writes.get(1).getKey(), "Book not found with id: B2");
+        });
+        BookWriteBatcher batcher = new BookWriteBatcher(bookService, Runnable::run, scheduler, 2, 20);
+
+        CompletableFuture<String> first = batcher.submit(BookWriteDto.Operation.UPDATE, request("B1"));
+        CompletableFuture<String> second = batcher.submit(BookWriteDto.Operation.UPDATE, request("B2"));
+
+        assertNull(first.join());
+        assertEquals("Book not found with id: B2", second.join());
+    }
+
+    @Test
+    void failedBatch_IsRetriedOneByOne() {
+        when(bookService.writeBooks(anyList())).thenAnswer(invocation -> {
+            List<BookWriteDto> writes = invocation.getArgument(0);
+            if (writes.size() > 1 || "B2".equals(writes.get(0).getRequest().getId())) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return Collections.emptyMap();
+        });
+        BookWriteBatcher batcher = new BookWriteBatcher(bookService, Runnable::run, scheduler, 2, 20);
+
+        CompletableFuture<String> first = batcher.submit(BookWriteDto.Operation.UPDATE, request("B1"));
+        CompletableFuture<String> second = batcher.submit(BookWriteDto.Operation.UPDATE, request("B2"));
+
+        assertNull(first.join());
+        assertTrue(second.isCompletedExceptionally());
+        verify(bookService, times(3)).writeBooks(anyList());
+    }
+
+    @Test
+    void partialBatch_IsAppliedOnFlush() {
+        when(bookService.writeBooks(anyList())).thenReturn(Collections.emptyMap());
+        BookWriteBatcher batcher = new BookWriteBatcher(bookService, Runnable::run, scheduler, 50, 20);
+
+        CompletableFuture<String> write = batcher.submit(BookWriteDto.Operation.UPDATE, request("B1"));
+        verify(scheduler).schedule(any(Runnable.class), eq(20L), any());
+        assertFalse(write.isDone());
+
+        batcher.flush();
+        assertNull(write.join());
+    }
+
+    private static BookRequestDto request(String id) {
+        BookRequestDto request = new BookRequestDto();
+        request.setId(id);
+        request.setTitle("Title " + id);
+        return request;
+    }
+}
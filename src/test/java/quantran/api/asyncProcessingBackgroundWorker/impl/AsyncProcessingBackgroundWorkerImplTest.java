@@ -0,0 +1,186 @@
+package quantran.api.asyncProcessingBackgroundWorker.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import quantran.api.asyncProcessingBackgroundWorker.queue.DatabaseTaskQueue;
+import quantran.api.asyncProcessingBackgroundWorker.queue.DatabaseTaskQueue.ClaimedTask;
+import quantran.api.asyncProcessingBackgroundWorker.task.Task;
+import quantran.api.exception.WorkQueueFullException;
+import quantran.api.service.TaskService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Dispatch, in-flight limit and shutdown against a mocked queue and task service, with the
+ * worker's own threads running.
+ */
+class AsyncProcessingBackgroundWorkerImplTest {
+    private static final long TIMEOUT_MS = 5000;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, CompletableFuture<Void>> runs = new ConcurrentHashMap<>();
+    private TaskService taskService;
+    private DatabaseTaskQueue taskQueue;
+    private AsyncProcessingBackgroundWorkerImpl worker;
+
+    @BeforeEach
+    void setUp() {
+        taskService = mock(TaskService.class);
+        taskQueue = mock(DatabaseTaskQueue.class);
+        when(taskQueue.getNodeId()).thenReturn("node-1");
+        // Tasks keep running until the test completes their future
+        when(taskService.runTaskAsync(any())).thenAnswer(invocation -> {
+            CompletableFuture<Void> run = new CompletableFuture<>();
+            runs.put(((Task) invocation.getArgument(0)).getId(), run);
+            return run;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (worker != null) {
+            runs.values().forEach(run -> run.complete(null));
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    void checkCapacity_RejectsAtMaxBacklog() {
+        worker = worker(2, 1000);
+        when(taskQueue.countPending()).thenReturn(4L, 5L);
+
+        worker.refreshBacklog();
+        worker.checkCapacity();
+        worker.refreshBacklog();
+
+        assertThrows(WorkQueueFullException.class, () -> worker.checkCapacity());
+        assertEquals(1.0, registry.get("worker.queue.rejected").counter().count());
+    }
+
+    @Test
+    void startedTasks_AreCappedAtMaxInFlight() {
+        worker = worker(2, 1000);
+        when(taskQueue.claim(anyInt())).thenReturn(claimed("t1", "t2", "t3")).thenReturn(new ArrayList<>());
+
+        worker.startWorkers();
+
+        verify(taskService, timeout(TIMEOUT_MS).times(2)).runTaskAsync(any());
+        await(() -> queueDepth() == 1);
+        verify(taskService, after(300).times(2)).runTaskAsync(any());
+        assertEquals(2.0, registry.get("worker.in-flight").gauge().value());
+
+        runs.get("t1").complete(null);
+
+        verify(taskQueue, timeout(TIMEOUT_MS)).complete("t1");
+        verify(taskService, timeout(TIMEOUT_MS).times(3)).runTaskAsync(any());
+        assertTrue(runs.containsKey("t3"));
+    }
+
+    @Test
+    void failedTask_IsHandedToTheQueueAndFreesItsSlot() {
+        worker = worker(1, 1000);
+        when(taskQueue.claim(anyInt())).thenReturn(claimed("t1", "t2")).thenReturn(new ArrayList<>());
+
+        worker.startWorkers();
+        verify(taskService, timeout(TIMEOUT_MS).times(1)).runTaskAsync(any());
+        IllegalStateException error = new IllegalStateException("book not found");
+        runs.get("t1").completeExceptionally(error);
+
+        verify(taskQueue, timeout(TIMEOUT_MS)).fail(argThat(claimed -> claimed.getTask().getId().equals("t1")), eq(error));
+        verify(taskQueue, never()).complete("t1");
+        verify(taskService, timeout(TIMEOUT_MS).times(2)).runTaskAsync(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shutdown_ReleasesUnstartedTasksAndWaitsForRunningOnes() throws Exception {
+        worker = worker(1, TIMEOUT_MS);
+        when(taskQueue.claim(anyInt())).thenReturn(claimed("t1", "t2", "t3")).thenReturn(new ArrayList<>());
+        worker.startWorkers();
+        verify(taskService, timeout(TIMEOUT_MS).times(1)).runTaskAsync(any());
+        await(() -> queueDepth() == 2);
+
+        Thread shutdown = new Thread(worker::shutdown);
+        shutdown.start();
+
+        ArgumentCaptor<Collection<ClaimedTask>> released = ArgumentCaptor.forClass(Collection.class);
+        verify(taskQueue, timeout(TIMEOUT_MS)).release(released.capture());
+        assertEquals(Arrays.asList("t2", "t3"), released.getValue().stream()
+                .map(claimed -> claimed.getTask().getId())
+                .collect(Collectors.toList()));
+        // Still waiting for the running task
+        shutdown.join(300);
+        assertTrue(shutdown.isAlive());
+
+        runs.get("t1").complete(null);
+        shutdown.join(TIMEOUT_MS);
+
+        assertFalse(shutdown.isAlive());
+        verify(taskQueue).complete("t1");
+        verify(taskService, times(1)).runTaskAsync(any());
+    }
+
+    @Test
+    void shutdown_GivesUpOnRunningTasksAfterTheTimeout() {
+        worker = worker(1, 200);
+        when(taskQueue.claim(anyInt())).thenReturn(claimed("t1")).thenReturn(new ArrayList<>());
+        worker.startWorkers();
+        verify(taskService, timeout(TIMEOUT_MS).times(1)).runTaskAsync(any());
+
+        long start = System.nanoTime();
+        worker.shutdown();
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMs >= 200, "waited " + waitedMs + " ms");
+        assertTrue(waitedMs < TIMEOUT_MS, "waited " + waitedMs + " ms");
+        verify(taskQueue, never()).complete(any());
+        // Left running: its lease expires and another node claims it
+        runs.clear();
+    }
+
+    private AsyncProcessingBackgroundWorkerImpl worker(int maxInFlight, long shutdownTimeoutMs) {
+        return new AsyncProcessingBackgroundWorkerImpl(taskService, taskQueue, registry,
+                1, maxInFlight, 5, 10, 50, 5, shutdownTimeoutMs);
+    }
+
+    private double queueDepth() {
+        return registry.get("worker.queue.depth").gauge().value();
+    }
+
+    private static List<ClaimedTask> claimed(String... taskIds) {
+        List<ClaimedTask> tasks = new ArrayList<>();
+        for (String taskId : taskIds) {
+            tasks.add(new ClaimedTask(new Task("delete", taskId), 1));
+        }
+        return tasks;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within " + TIMEOUT_MS + " ms");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("interrupted");
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package quantran.api.asyncProcessingBackgroundWorker.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import quantran.api.asyncProcessingBackgroundWorker.queue.DatabaseTaskQueue.ClaimedTask;
+import quantran.api.asyncProcessingBackgroundWorker.task.Task;
+import quantran.api.dto.AsyncTaskRequest;
+import quantran.api.dto.BookImportJobDto;
+import quantran.api.entity.AsyncTaskEntity;
+import quantran.api.importer.ImportFileStore;
+import quantran.api.repository.AsyncTaskRepository;
+import quantran.api.service.AsyncTaskService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Claim, retry and dead-letter decisions against a mocked repository; the SKIP LOCKED query
+ * itself needs Postgres and is not exercised here.
+ */
+class DatabaseTaskQueueTest {
+
+    private AsyncTaskRepository repository;
+    private AsyncTaskService asyncTaskService;
+    private ImportFileStore importFileStore;
+    private DatabaseTaskQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(AsyncTaskRepository.class);
+        asyncTaskService = mock(AsyncTaskService.class);
+        importFileStore = mock(ImportFileStore.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        queue = new DatabaseTaskQueue(repository, asyncTaskService, new ObjectMapper(), importFileStore, transactionManager,
+                60000, 3, 1000, 5000);
+    }
+
+    @Test
+    void claim_LeasesLockedTasksAndRebuildsThem() {
+        when(repository.lockClaimableTasks(any(), eq(5))).thenReturn(Arrays.asList(
+                entity("t1", "update_book", "{\"id\":\"b1\",\"price\":\"10VND\"}", 0),
+                entity("t2", "update_book", "{\"id\":\"b2\",\"price\":\"20VND\"}", 2)));
+
+        List<ClaimedTask> claimed = queue.claim(5);
+
+        verify(repository).claimTasks(eq(Arrays.asList("t1", "t2")), eq(queue.getNodeId()), any(LocalDateTime.class));
+        assertEquals(2, claimed.size());
+        Task task = claimed.get(0).getTask();
+        assertEquals("update", task.getRequest());
+        assertEquals("b1", task.getBookModel().getId());
+        assertEquals(1, claimed.get(0).getAttempt());
+        assertEquals(3, claimed.get(1).getAttempt());
+    }
+
+    @Test
+    void claim_DeadLettersTasksThatCannotRun() {
+        when(repository.lockClaimableTasks(any(), anyInt())).thenReturn(Arrays.asList(
+                entity("t1", "unknown", "{}", 0)));
+
+        when(asyncTaskService.getTaskStatus("t1")).thenReturn(Optional.of(task("t1", AsyncTaskRequest.TaskStatus.DEAD_LETTER)));
+
+        assertTrue(queue.claim(5).isEmpty());
+        verify(asyncTaskService).updateTaskStatus(eq("t1"), eq(AsyncTaskRequest.TaskStatus.DEAD_LETTER), anyString());
+        verify(repository).finishTask(eq("t1"), eq(queue.getNodeId()), eq(AsyncTaskEntity.TaskStatus.DEAD_LETTER),
+                any(), any(LocalDateTime.class), any());
+    }
+
+    @Test
+    void fail_BeforeLastAttempt_SchedulesRetry() {
+        LocalDateTime before = LocalDateTime.now();
+
+        queue.fail(claimed("t1", 2), new IllegalStateException("database down"));
+
+        verify(asyncTaskService).updateTaskStatus(eq("t1"), eq(AsyncTaskRequest.TaskStatus.PENDING), contains("database down"));
+        verify(repository).releaseTask(eq("t1"), eq(queue.getNodeId()),
+                argThat(next -> !next.isBefore(before.plusSeconds(2))), anyString());
+        verify(asyncTaskService, never()).updateTaskStatus(any(), eq(AsyncTaskRequest.TaskStatus.DEAD_LETTER), any());
+    }
+
+    @Test
+    void fail_OnLastAttempt_DeadLetters() {
+        when(asyncTaskService.getTaskStatus("t1")).thenReturn(Optional.of(task("t1", AsyncTaskRequest.TaskStatus.DEAD_LETTER)));
+
+        queue.fail(claimed("t1", 3), new IllegalStateException("database down"));
+
+        verify(asyncTaskService).updateTaskStatus(eq("t1"), eq(AsyncTaskRequest.TaskStatus.DEAD_LETTER), contains("3 attempts"));
+        verify(repository).finishTask(eq("t1"), eq(queue.getNodeId()), eq(AsyncTaskEntity.TaskStatus.DEAD_LETTER),
+                any(), any(LocalDateTime.class), any());
+        verify(repository, never()).releaseTask(any(), any(), any(), any());
+        verify(importFileStore, never()).delete(any());
+    }
+
+    @Test
+    void fail_OnLastAttemptOfAnImport_DeletesTheUploadedFile() {
+        BookImportJobDto job = BookImportJobDto.builder().fileName("books.csv").storedPath("/tmp/upload.csv").build();
+        when(asyncTaskService.getTaskStatus("t1")).thenReturn(Optional.of(task("t1", AsyncTaskRequest.TaskStatus.DEAD_LETTER)));
+
+        queue.fail(new ClaimedTask(new Task("import", "t1", job), 3), new IllegalStateException("database down"));
+
+        verify(importFileStore).delete(job);
+    }
+
+    @Test
+    void fail_BeforeLastAttemptOfAnImport_KeepsTheUploadedFile() {
+        BookImportJobDto job = BookImportJobDto.builder().fileName("books.csv").storedPath("/tmp/upload.csv").build();
+
+        queue.fail(new ClaimedTask(new Task("import", "t1", job), 1), new IllegalStateException("database down"));
+
+        verify(importFileStore, never()).delete(any());
+    }
+
+    @Test
+    void complete_StoresOutcomeInTheUpdateThatReleasesTheLease() {
+        // The periodic flush of the task service may never run if the node dies right after
+        // this call, so the stored row must already be finished once the lease is gone
+        AsyncTaskRequest finished = task("t1", AsyncTaskRequest.TaskStatus.FAILED);
+        finished.setResult("Book not found");
+        finished.setProgress(100);
+        finished.setCompletedAt(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        when(asyncTaskService.getTaskStatus("t1")).thenReturn(Optional.of(finished));
+        when(repository.finishTask(any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        queue.complete("t1");
+
+        verify(repository).finishTask("t1", queue.getNodeId(), AsyncTaskEntity.TaskStatus.FAILED, "Book not found",
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5), 100);
+        verify(repository, never()).releaseTask(any(), any(), any(), any());
+        verify(asyncTaskService, never()).updateTaskStatus(any(), any(), any());
+    }
+
+    @Test
+    void complete_WithoutReportedOutcome_StoresCompleted() {
+        when(asyncTaskService.getTaskStatus("t1")).thenReturn(
+                Optional.of(task("t1", AsyncTaskRequest.TaskStatus.PROCESSING)),
+                Optional.of(task("t1", AsyncTaskRequest.TaskStatus.COMPLETED)));
+
+        queue.complete("t1");
+
+        verify(asyncTaskService).updateTaskStatus("t1", AsyncTaskRequest.TaskStatus.COMPLETED, null);
+        verify(repository).finishTask(eq("t1"), eq(queue.getNodeId()), eq(AsyncTaskEntity.TaskStatus.COMPLETED),
+                any(), any(LocalDateTime.class), eq(0));
+    }
+
+    @Test
+    void backoff_DoublesUpToTheCap() {
+        assertEquals(Duration.ofSeconds(1), queue.backoff(1));
+        assertEquals(Duration.ofSeconds(2), queue.backoff(2));
+        assertEquals(Duration.ofSeconds(4), queue.backoff(3));
+        assertEquals(Duration.ofSeconds(5), queue.backoff(4));
+        assertEquals(Duration.ofSeconds(5), queue.backoff(40));
+    }
+
+    private static AsyncTaskEntity entity(String taskId, String requestType, String data, int attempts) {
+        return AsyncTaskEntity.builder()
+                .taskId(taskId)
+                .requestType(requestType)
+                .data(data)
+                .status(AsyncTaskEntity.TaskStatus.PENDING)
+                .attempts(attempts)
+                .build();
+    }
+
+    private static AsyncTaskRequest task(String taskId, AsyncTaskRequest.TaskStatus status) {
+        AsyncTaskRequest task = new AsyncTaskRequest();
+        task.setTaskId(taskId);
+        task.setStatus(status);
+        return task;
+    }
+
+    private static ClaimedTask claimed(String taskId, int attempt) {
+        return new ClaimedTask(new Task("update", taskId), attempt);
+    }
+}
@@ -0,0 +1,164 @@
+package quantran.api.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import quantran.api.entity.BookEntity;
+import quantran.api.event.BookChangedEvent;
+import quantran.api.event.BookSnapshot;
+import quantran.api.event.BooksImportedEvent;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookCacheInvalidatorTest {
+
+    private final Map<String, Cache> caches = new HashMap<>();
+
+    private CacheManager cacheManager;
+    private BookCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache(anyString())).thenAnswer(invocation -> cache(invocation.getArgument(0)));
+        invalidator = new BookCacheInvalidator(cacheManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void stockOnlyUpdate_EvictsKeysAndClearsPriceRangesButLeavesSearchCaches() {
+        BookEntity book = book("b-1", "Dune", "9.99", 50);
+        BookSnapshot previous = BookSnapshot.of(book);
+        book.setStockQuantity(40);
+
+        invalidator.onBookChanged(BookChangedEvent.updated(previous, book));
+
+        verify(cache(BookCacheInvalidator.BOOK_DETAILS)).evict("b-1");
+        verify(cache(BookCacheInvalidator.BOOKS_BY_LANGUAGE)).evict("en");
+        BookCacheInvalidator.SEARCH_CACHES.forEach(name -> verify(cache(name), never()).clear());
+        // Price range results show the stock of each book
+        BookCacheInvalidator.PRICE_RANGE_CACHES.forEach(name -> verify(cache(name)).clear());
+        verify(cache(BookCacheInvalidator.BOOKS_WITH_LOW_STOCK), never()).clear();
+    }
+
+    @Test
+    void titleChange_ClearsSearchAndPriceRangeCaches() {
+        BookEntity book = book("b-1", "Dune", "9.99", 50);
+        BookSnapshot previous = BookSnapshot.of(book);
+        book.setTitle("Dune Messiah");
+
+        invalidator.onBookChanged(BookChangedEvent.updated(previous, book));
+
+        BookCacheInvalidator.SEARCH_CACHES.forEach(name -> verify(cache(name)).clear());
+        BookCacheInvalidator.PRICE_RANGE_CACHES.forEach(name -> verify(cache(name)).clear());
+    }
+
+    @Test
+    void priceChange_ClearsSearchAndPriceRangeCaches() {
+        BookEntity book = book("b-1", "Dune", "9.99", 50);
+        BookSnapshot previous = BookSnapshot.of(book);
+        book.setPrice(new BigDecimal("12.50"));
+
+        invalidator.onBookChanged(BookChangedEvent.updated(previous, book));
+
+        BookCacheInvalidator.SEARCH_CACHES.forEach(name -> verify(cache(name)).clear());
+        BookCacheInvalidator.PRICE_RANGE_CACHES.forEach(name -> verify(cache(name)).clear());
+    }
+
+    @Test
+    void stockDroppingBelowReorderPoint_ClearsLowStockList() {
+        BookEntity book = book("b-1", "Dune", "9.99", 50);
+        BookSnapshot previous = BookSnapshot.of(book);
+        book.setStockQuantity(2);
+
+        invalidator.onBookChanged(BookChangedEvent.updated(previous, book));
+
+        verify(cache(BookCacheInvalidator.BOOKS_WITH_LOW_STOCK)).clear();
+        verify(cache(BookCacheInvalidator.OUT_OF_STOCK_BOOKS), never()).clear();
+    }
+
+    @Test
+    void batchInOneTransaction_IsAppliedOnceAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 50; i++) {
+            invalidator.onBookChanged(BookChangedEvent.upserted(book("b-" + i, "Title " + i, "9.99", 50)));
+        }
+        // Nothing is invalidated before the commit
+        verifyNoInteractions(cacheManager);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        BookCacheInvalidator.SEARCH_CACHES.forEach(name -> verify(cache(name), times(1)).clear());
+        BookCacheInvalidator.PRICE_RANGE_CACHES.forEach(name -> verify(cache(name), times(1)).clear());
+        verify(cache(BookCacheInvalidator.BOOKS_BY_LANGUAGE), times(1)).evict("en");
+        verify(cache(BookCacheInvalidator.BOOK_DETAILS)).evict("b-0");
+        verify(cache(BookCacheInvalidator.BOOK_DETAILS)).evict("b-49");
+        verify(cache(BookCacheInvalidator.BOOK_DETAILS), never()).clear();
+        assertNoPendingInvalidation();
+    }
+
+    @Test
+    void importedChunk_ClearsEachBookCacheOnce() {
+        List<BooksImportedEvent.ImportedBook> books = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            books.add(new BooksImportedEvent.ImportedBook("b-" + i, "Title " + i, new BigDecimal("9.99"), "en", "Paperback", 0));
+        }
+
+        invalidator.onBooksImported(new BooksImportedEvent(books));
+
+        verify(cache(BookCacheInvalidator.BOOK_DETAILS), times(1)).clear();
+        verify(cache(BookCacheInvalidator.BOOKS_BY_AUTHOR), times(1)).clear();
+        BookCacheInvalidator.SEARCH_CACHES.forEach(name -> verify(cache(name), times(1)).clear());
+        caches.values().forEach(cache -> verify(cache, never()).evict(any()));
+    }
+
+    @Test
+    void rolledBackTransaction_InvalidatesNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+        invalidator.onBookChanged(BookChangedEvent.upserted(book("b-1", "Dune", "9.99", 50)));
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verifyNoInteractions(cacheManager);
+        assertNoPendingInvalidation();
+    }
+
+    private void assertNoPendingInvalidation() {
+        // The next transaction on this thread starts with an empty invalidation
+        assertFalse(TransactionSynchronizationManager.hasResource(invalidator));
+    }
+
+    private Cache cache(String name) {
+        return caches.computeIfAbsent(name, key -> mock(Cache.class));
+    }
+
+    private static BookEntity book(String id, String title, String price, int stock) {
+        BookEntity book = new BookEntity();
+        book.setId(id);
+        book.setTitle(title);
+        book.setPrice(new BigDecimal(price));
+        book.setIsbn("isbn-" + id);
+        book.setStockQuantity(stock);
+        return book;
+    }
+}
@@ -0,0 +1,136 @@
+package quantran.api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs two nodes against an in-memory stand-in for the Redis channel: every published
+ * message is delivered to every subscribed bus, including the publisher's own.
+ */
+class CacheInvalidationBusTest {
+
+    private static final String CHANNEL = "test:cache-invalidation";
+    private static final String CACHE = "bookDetails";
+
+    private final List<CacheInvalidationBus> subscribers = new ArrayList<>();
+
+    private SimpleMeterRegistry registryA;
+    private SimpleMeterRegistry registryB;
+    private TwoLevelCacheManager nodeA;
+    private TwoLevelCacheManager nodeB;
+
+    @BeforeEach
+    void setUp() {
+        registryA = new SimpleMeterRegistry();
+        registryB = new SimpleMeterRegistry();
+        nodeA = node(registryA);
+        nodeB = node(registryB);
+    }
+
+    @Test
+    void evictOnOneNode_RemovesKeyFromOtherNodes() {
+        Cache cacheA = nodeA.getCache(CACHE);
+        Cache cacheB = nodeB.getCache(CACHE);
+        cacheA.put(1L, "A");
+        cacheB.put(1L, "B");
+        cacheB.put(2L, "kept");
+
+        cacheA.evict(1L);
+
+        assertNull(cacheA.get(1L));
+        assertNull(cacheB.get(1L));
+        assertEquals("kept", cacheB.get(2L).get());
+    }
+
+    @Test
+    void evictByPrefix_RemovesMatchingKeysOnOtherNodes() {
+        TwoLevelCache cacheA = (TwoLevelCache) nodeA.getCache(CACHE);
+        Cache cacheB = nodeB.getCache(CACHE);
+        cacheB.put("java-0-10", "page 0");
+        cacheB.put("java-1-10", "page 1");
+        cacheB.put("kotlin-0-10", "other");
+
+        cacheA.evictByPrefix("java-");
+
+        assertNull(cacheB.get("java-0-10"));
+        assertNull(cacheB.get("java-1-10"));
+        assertNotNull(cacheB.get("kotlin-0-10"));
+    }
+
+    @Test
+    void clear_ClearsOtherNodes() {
+        Cache cacheB = nodeB.getCache(CACHE);
+        cacheB.put("a", "1");
+
+        nodeA.getCache(CACHE).clear();
+
+        assertNull(cacheB.get("a"));
+    }
+
+    @Test
+    void ownMessages_AreNotCountedAsReceived() {
+        nodeA.getCache(CACHE).evict("x");
+
+        assertEquals(1.0, registryA.get("cache.invalidation.messages").tag("direction", "sent").counter().count());
+        assertEquals(0.0, registryA.get("cache.invalidation.messages").tag("direction", "received").counter().count());
+        assertEquals(1.0, registryB.get("cache.invalidation.messages").tag("direction", "received").counter().count());
+        assertEquals(1L, registryB.get("cache.invalidation.lag").timer().count());
+    }
+
+    @Test
+    void malformedMessage_IsIgnored() {
+        CacheInvalidationBus bus = subscribers.get(0);
+
+        assertDoesNotThrow(() -> bus.onMessage(message("not a message"), null));
+        assertNull(CacheInvalidationMessage.decode("node\tnot-a-time\tKEY\tbooks\tkey"));
+    }
+
+    @Test
+    void encodeDecode_KeepsTabsInKey() {
+        CacheInvalidationMessage message =
+                new CacheInvalidationMessage("node", 42L, CacheInvalidationMessage.Type.KEY, "books", "a\tb");
+
+        CacheInvalidationMessage decoded = CacheInvalidationMessage.decode(message.encode());
+
+        assertEquals("node", decoded.getNodeId());
+        assertEquals(42L, decoded.getSentAt());
+        assertEquals(CacheInvalidationMessage.Type.KEY, decoded.getType());
+        assertEquals("books", decoded.getCacheName());
+        assertEquals("a\tb", decoded.getKey());
+    }
+
+    private TwoLevelCacheManager node(SimpleMeterRegistry registry) {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> {
+            DefaultMessage message = message(invocation.getArgument(1));
+            for (CacheInvalidationBus subscriber : subscribers) {
+                subscriber.onMessage(message, null);
+            }
+            return null;
+        }).when(redisTemplate).convertAndSend(eq(CHANNEL), anyString());
+
+        CacheInvalidationBus bus = new CacheInvalidationBus(redisTemplate, CHANNEL, registry);
+        subscribers.add(bus);
+        return new TwoLevelCacheManager(Caffeine.newBuilder(), mock(RedisCacheManager.class),
+                Collections.singletonList(CACHE), bus, Duration.ZERO, Runnable::run, registry);
+    }
+
+    private static DefaultMessage message(String payload) {
+        return new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
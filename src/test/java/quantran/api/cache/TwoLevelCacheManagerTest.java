@@ -0,0 +1,57 @@
+package quantran.api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class TwoLevelCacheManagerTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final AtomicInteger refreshes = new AtomicInteger();
+    private final TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(
+            Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).ticker(ticker),
+            mock(RedisCacheManager.class), Arrays.asList("books", "user_key_digests"), null,
+            Duration.ofSeconds(10), task -> refreshes.incrementAndGet(), new SimpleMeterRegistry())
+            .withLocalCache("user_key_digests", Caffeine.newBuilder().expireAfterWrite(30, TimeUnit.SECONDS).ticker(ticker));
+
+    @Test
+    void dedicatedCache_ExpiresOnItsOwnTtl() {
+        Cache digests = cacheManager.getCache("user_key_digests");
+        Cache books = cacheManager.getCache("books");
+        digests.put("alice", "digest");
+        books.put("b-1", "book");
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+
+        assertNull(digests.get("alice"));
+        assertEquals("book", books.get("b-1").get());
+    }
+
+    @Test
+    void dedicatedCache_IsNotRefreshedAhead() {
+        Cache digests = cacheManager.getCache("user_key_digests");
+        Cache books = cacheManager.getCache("books");
+        digests.put("alice", "digest");
+        books.put("b-1", "book");
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(20));
+
+        assertEquals("digest", digests.get("alice", () -> "reloaded"));
+        assertEquals(0, refreshes.get());
+        assertEquals("book", books.get("b-1", () -> "reloaded"));
+        assertEquals(1, refreshes.get());
+    }
+}
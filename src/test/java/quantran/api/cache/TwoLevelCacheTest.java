@@ -0,0 +1,122 @@
+package quantran.api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TwoLevelCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+
+    @Test
+    void concurrentMisses_RunLoaderOnce() throws Exception {
+        TwoLevelCache cache = cache(Duration.ZERO, Runnable::run);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> cache.get("page-0", () -> {
+                    calls.incrementAndGet();
+                    loaderStarted.countDown();
+                    releaseLoader.await();
+                    return "value";
+                })));
+            }
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+            // Let the remaining callers reach the in-flight load before it completes
+            Thread.sleep(100);
+            releaseLoader.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get(TwoLevelCache.LOADS_METRIC_NAME).tag("result", "loaded").counter().count());
+    }
+
+    @Test
+    void miss_IsLookedUpAndCountedOnce() {
+        Cache remote = mock(Cache.class);
+        TwoLevelCache cache = new TwoLevelCache("books", Caffeine.newBuilder().build(), remote, null,
+                Duration.ZERO, Runnable::run, registry);
+
+        assertEquals("value", cache.get("key", () -> "value"));
+
+        verify(remote, times(1)).get("key");
+        verify(remote).put("key", "value");
+        assertEquals(1.0, registry.get(TwoLevelCache.METRIC_NAME).tag("level", "l1").tag("result", "miss").counter().count());
+        assertEquals(1.0, registry.get(TwoLevelCache.METRIC_NAME).tag("level", "l2").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void failedLoad_IsRethrownAndNotCached() {
+        TwoLevelCache cache = cache(Duration.ZERO, Runnable::run);
+
+        assertThrows(Cache.ValueRetrievalException.class, () -> cache.get("key", () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertEquals("value", cache.get("key", () -> "value"));
+    }
+
+    @Test
+    void staleHit_IsServedAndRefreshedInBackground() {
+        List<Runnable> scheduled = new ArrayList<>();
+        TwoLevelCache cache = cache(Duration.ofMinutes(45), scheduled::add);
+        cache.get("key", () -> "old");
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(50));
+        assertEquals("old", cache.get("key", () -> "new"));
+        // A second stale hit while the refresh is pending does not schedule another one
+        assertEquals("old", cache.get("key", () -> "newer"));
+        assertEquals(1, scheduled.size());
+
+        scheduled.get(0).run();
+        assertEquals("new", cache.get("key", () -> "unused"));
+    }
+
+    @Test
+    void freshHit_IsNotRefreshed() {
+        List<Runnable> scheduled = new ArrayList<>();
+        TwoLevelCache cache = cache(Duration.ofMinutes(45), scheduled::add);
+        cache.get("key", () -> "value");
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        cache.get("key", () -> "other");
+
+        assertTrue(scheduled.isEmpty());
+    }
+
+    private TwoLevelCache cache(Duration refreshAfterWrite, Executor executor) {
+        return new TwoLevelCache("books", Caffeine.newBuilder()
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .ticker(ticker)
+                .build(), null, null, refreshAfterWrite, executor, registry);
+    }
+}
@@ -0,0 +1,124 @@
+package quantran.api.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import quantran.api.dto.BookDetailDto;
+import quantran.api.entity.BookTypeEntity;
+import quantran.api.model.BookModel;
+import quantran.api.page.Paginate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round-trips the value of every cache kept in Redis through the Redis value serializer,
+ * as the cache manager does on a put and a later read from another node.
+ */
+class CacheConfigTest {
+
+    private final GenericJackson2JsonRedisSerializer serializer = CacheConfig.jsonRedisSerializer();
+
+    @Test
+    void bookTypes_RoundTrip() {
+        BookTypeEntity genre = BookTypeEntity.builder()
+                .id("g-1")
+                .name("Science Fiction")
+                .description("Spaceships")
+                .sortOrder(3)
+                .createdAt(LocalDateTime.of(2024, 1, 2, 3, 4, 5))
+                .build();
+        List<BookTypeEntity> bookTypes = new ArrayList<>(Collections.singletonList(genre));
+
+        assertEquals(bookTypes, roundTrip(bookTypes));
+    }
+
+    @Test
+    void books_RoundTrip() {
+        Paginate<BookModel> page = new Paginate<>(new ArrayList<>(Arrays.asList(
+                new BookModel("b-1", "Dune", "Frank Herbert", "9.99 USD", "Science Fiction"),
+                new BookModel("b-2", "Emma", "Jane Austen", "5.00 USD", "Classics"))), 42);
+
+        Object read = roundTrip(page);
+
+        assertTrue(read instanceof Paginate);
+        Paginate<?> readPage = (Paginate<?>) read;
+        assertEquals(42, readPage.getTotal());
+        assertEquals(Arrays.asList("b-1|Dune|Frank Herbert|9.99 USD|Science Fiction", "b-2|Emma|Jane Austen|5.00 USD|Classics"),
+                readPage.getData().stream()
+                        .map(book -> (BookModel) book)
+                        .map(book -> String.join("|", book.getId(), book.getName(), book.getAuthor(), book.getPrice(), book.getBookType()))
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void bookDetails_RoundTrip() {
+        BookDetailDto book = bookDetail("b-1");
+
+        assertEquals(book, roundTrip(book));
+    }
+
+    @Test
+    void missingBookDetails_RoundTripAsNull() {
+        assertNull(serializer.deserialize(serializer.serialize(null)));
+    }
+
+    @Test
+    void bookDetailLists_RoundTrip() {
+        List<BookDetailDto> books = new ArrayList<>(Arrays.asList(bookDetail("b-1"), bookDetail("b-2")));
+
+        assertEquals(books, roundTrip(books));
+    }
+
+    @Test
+    void emptyBookDetailList_RoundTrips() {
+        assertEquals(Collections.emptyList(), roundTrip(new ArrayList<BookDetailDto>()));
+    }
+
+    private Object roundTrip(Object value) {
+        return serializer.deserialize(serializer.serialize(value));
+    }
+
+    private static BookDetailDto bookDetail(String id) {
+        return BookDetailDto.builder()
+                .id(id)
+                .title("Dune")
+                .isbn("isbn-" + id)
+                .pageCount(412)
+                .language("en")
+                .publicationDate(LocalDate.of(1965, 8, 1))
+                .format("Paperback")
+                .price(new BigDecimal("9.99"))
+                .discountPercentage(0)
+                .stockQuantity(4)
+                .availableQuantity(3)
+                .reservedQuantity(1)
+                .reorderPoint(5)
+                .maxStock(100)
+                .isLowStock(true)
+                .authors(new ArrayList<>(Collections.singletonList(BookDetailDto.AuthorDto.builder()
+                        .id(7L)
+                        .name("Frank Herbert")
+                        .bookCount(12)
+                        .build())))
+                .genres(new ArrayList<>(Collections.singletonList(BookDetailDto.GenreDto.builder()
+                        .id("g-1")
+                        .name("Science Fiction")
+                        .bookCount(120)
+                        .build())))
+                .publisher(BookDetailDto.PublisherDto.builder()
+                        .id(3L)
+                        .name("Chilton")
+                        .foundedYear(1904)
+                        .build())
+                .createdAt(LocalDateTime.of(2024, 1, 2, 3, 4, 5))
+                .build();
+    }
+}
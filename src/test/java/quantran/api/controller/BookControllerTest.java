@@ -11,10 +11,14 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import quantran.api.asyncProcessingBackgroundWorker.impl.AsyncProcessingBackgroundWorkerImpl;
+import quantran.api.dto.AsyncTaskRequest;
+import quantran.api.dto.BookImportJobDto;
 import quantran.api.dto.BookRequestDto;
 import quantran.api.dto.BookResponseDto;
 import quantran.api.exception.GlobalExceptionHandler;
 import quantran.api.page.Paginate;
+import quantran.api.service.AsyncTaskService;
 import quantran.api.service.BookService;
 
 import java.math.BigDecimal;
@@ -34,6 +38,12 @@ class BookControllerTest {
     @Mock
     private BookService bookService;
 
+    @Mock
+    private AsyncTaskService asyncTaskService;
+
+    @Mock
+    private AsyncProcessingBackgroundWorkerImpl asyncProcessingBackgroundWorkerImpl;
+
     @InjectMocks
     private BookController bookController;
 
@@ -282,14 +292,19 @@ class BookControllerTest {
                 "id,title,author\nBOOK001,Test Book,Test Author".getBytes()
         );
 
-        doNothing().when(bookService).processBookUpload(any());
+        BookImportJobDto job = BookImportJobDto.builder().fileName("books.csv").storedPath("/tmp/b.csv").fileSize(48).build();
+        AsyncTaskRequest task = AsyncTaskRequest.create("import_books", job, "anonymous");
+        when(bookService.processBookUpload(any())).thenReturn(job);
+        when(asyncTaskService.submitTask(eq("import_books"), eq(job), eq("anonymous"))).thenReturn(task);
 
         // When & Then
         mockMvc.perform(multipart("/api/v1/books/upload")
                 .file(file))
-                .andExpect(status().isOk());
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.taskId").value(task.getTaskId()));
 
         verify(bookService).processBookUpload(any());
+        verify(asyncProcessingBackgroundWorkerImpl).addToRequestQueue(any());
     }
 
     @Test
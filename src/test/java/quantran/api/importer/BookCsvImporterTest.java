@@ -0,0 +1,52 @@
+package quantran.api.importer;
+
+import org.junit.jupiter.api.Test;
+import quantran.api.dto.BookImportResultDto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookCsvImporterTest {
+
+    @Test
+    void validRows_AreEncodedForCopy() {
+        BookCsvImporter.PreparedChunk chunk = BookCsvImporter.prepare(Arrays.asList(
+                row(2, "B1", "Say \"Hi\", World", "Author", "Genre", "12.5 USD"),
+                row(3, " B2 ", "Plain", "Author", "Genre", "7")));
+
+        assertEquals(Arrays.asList("B1", "B2"), chunk.getBookIds());
+        assertTrue(chunk.getRejections().isEmpty());
+        assertEquals("2,\"B1\",\"Say \"\"Hi\"\", World\",12.50\n3,\"B2\",\"Plain\",7.00\n", chunk.getCopyData());
+    }
+
+    @Test
+    void invalidRows_AreRejectedWithTheirLine() {
+        BookCsvImporter.PreparedChunk chunk = BookCsvImporter.prepare(Arrays.asList(
+                row(1, "B1", "Title", "Author", "Genre"),
+                row(2, "B2", "Title", " ", "Genre", "5"),
+                row(3, "B3", "Title", "Author", "Genre", "free"),
+                row(4, "B4", "Title", "Author", "Genre", "-1"),
+                row(5, "B5", "Title", "Author", "Genre", "5")));
+
+        assertEquals(Collections.singletonList("B5"), chunk.getBookIds());
+        List<BookImportResultDto.RowRejection> rejections = chunk.getRejections();
+        assertEquals(4, rejections.size());
+        assertEquals(new BookImportResultDto.RowRejection(1, "Expected 5 columns, found 4"), rejections.get(0));
+        assertEquals(new BookImportResultDto.RowRejection(2, "Empty Author"), rejections.get(1));
+        assertEquals(new BookImportResultDto.RowRejection(3, "Invalid price: free"), rejections.get(2));
+        assertEquals(new BookImportResultDto.RowRejection(4, "Invalid price: -1"), rejections.get(3));
+    }
+
+    @Test
+    void exportHeader_IsRecognized() {
+        assertTrue(BookCsvImporter.isHeader(Arrays.asList("ID", "Name", "Author", "BookType", "Price")));
+        assertFalse(BookCsvImporter.isHeader(Arrays.asList("B1", "Name", "Author", "BookType", "Price")));
+    }
+
+    private static BookCsvImporter.CsvRow row(long line, String... fields) {
+        return new BookCsvImporter.CsvRow(line, Arrays.asList(fields));
+    }
+}
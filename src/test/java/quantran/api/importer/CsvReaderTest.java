@@ -0,0 +1,79 @@
+package quantran.api.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void quotedFields_MayContainCommasQuotesAndLineBreaks() throws IOException {
+        CsvReader reader = reader("B1,\"Eats, Shoots \"\"and\"\" Leaves\",\"Lynne\nTruss\",Grammar,12.50\r\nB2,Plain,A,G,3\n");
+
+        assertEquals(Arrays.asList("B1", "Eats, Shoots \"and\" Leaves", "Lynne\nTruss", "Grammar", "12.50"), reader.next());
+        assertEquals(1, reader.getRecordLine());
+        assertEquals(Arrays.asList("B2", "Plain", "A", "G", "3"), reader.next());
+        assertEquals(3, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void lineBreaksInsideQuotedFields_AreCountedForEveryLineEnding() throws IOException {
+        CsvReader reader = reader("B1,\"a\rb\r\nc\nd\",x\rB2,y\n");
+
+        assertEquals(Arrays.asList("B1", "a\rb\r\nc\nd", "x"), reader.next());
+        assertEquals(1, reader.getRecordLine());
+        assertEquals(Arrays.asList("B2", "y"), reader.next());
+        assertEquals(5, reader.getRecordLine());
+    }
+
+    @Test
+    void emptyLinesAndByteOrderMark_AreSkipped() throws IOException {
+        CsvReader reader = reader("\uFEFFa,b\n\n\r\nc,\n");
+
+        assertEquals(Arrays.asList("a", "b"), reader.next());
+        assertEquals(Arrays.asList("c", ""), reader.next());
+        assertEquals(4, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void offset_IsTheBytePositionAfterTheRecord() throws IOException {
+        byte[] input = "\u00e9,1\n\u00fc,2".getBytes(StandardCharsets.UTF_8);
+        CsvReader reader = new CsvReader(new ByteArrayInputStream(input));
+
+        assertEquals(Arrays.asList("\u00e9", "1"), reader.next());
+        assertEquals(5, reader.getOffset());
+        CsvReader resumed = new CsvReader(new ByteArrayInputStream(input, 5, input.length - 5), 5, reader.getLine());
+        assertEquals(Arrays.asList("\u00fc", "2"), resumed.next());
+        assertEquals(2, resumed.getRecordLine());
+        assertEquals(input.length, resumed.getOffset());
+    }
+
+    @Test
+    void unterminatedQuote_IsRejected() throws IOException {
+        CsvReader reader = reader("a,b\n\"open,c\n");
+
+        assertEquals(Arrays.asList("a", "b"), reader.next());
+        assertThrows(CsvReader.MalformedCsvException.class, reader::next);
+    }
+
+    @Test
+    void recordsLongerThanTheBuffer_AreReadWhole() throws IOException {
+        String longField = String.join("", Collections.nCopies(100_000, "x"));
+        CsvReader reader = reader(longField + ",\"" + longField + "\"\n");
+
+        assertEquals(Arrays.asList(longField, longField), reader.next());
+        assertNull(reader.next());
+    }
+
+    private static CsvReader reader(String content) {
+        return new CsvReader(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
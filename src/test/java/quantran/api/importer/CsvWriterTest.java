@@ -0,0 +1,39 @@
+package quantran.api.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvWriterTest {
+
+    @Test
+    void plainFields_AreWrittenUnquoted() throws IOException {
+        StringWriter writer = new StringWriter();
+
+        CsvWriter.writeRecord(writer, "B1", "Dune", "Frank Herbert", "", "9.99 USD");
+
+        assertEquals("B1,Dune,Frank Herbert,,9.99 USD\n", writer.toString());
+    }
+
+    @Test
+    void fieldsWithDelimiters_ReadBackUnchanged() throws IOException {
+        StringWriter writer = new StringWriter();
+        CsvWriter.writeRecord(writer, "B1", "Eats, Shoots \"and\" Leaves", "Terry Pratchett, Neil Gaiman",
+                "Fantasy\r\nHumor", "12.50 USD");
+        CsvWriter.writeRecord(writer, "B2", "Emma", "Jane Austen", "Classics", "5.00 USD");
+
+        CsvReader reader = new CsvReader(new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Arrays.asList("B1", "Eats, Shoots \"and\" Leaves", "Terry Pratchett, Neil Gaiman",
+                "Fantasy\r\nHumor", "12.50 USD"), reader.next());
+        assertEquals(Arrays.asList("B2", "Emma", "Jane Austen", "Classics", "5.00 USD"), reader.next());
+        assertEquals(3, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+}
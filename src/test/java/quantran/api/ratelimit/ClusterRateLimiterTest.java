@@ -0,0 +1,226 @@
+package quantran.api.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.ZeroArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs nodes against an in-memory stand-in for Redis that evaluates the real
+ * {@code rate_limit_token_bucket.lua} with LuaJ. The stand-in implements the few commands the
+ * script calls, with {@code TIME} on the test clock.
+ */
+class ClusterRateLimiterTest {
+
+    private static final long LEASE_TTL_MS = 1000;
+    private static final long RETRY_AFTER_FAILURE_MS = 5000;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Long> expiresAt = new HashMap<>();
+    private final AtomicInteger redisCalls = new AtomicInteger();
+    private volatile boolean redisDown;
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> {
+            redisCalls.incrementAndGet();
+            if (redisDown) {
+                throw new RedisConnectionFailureException("Connection refused");
+            }
+            RedisScript<?> script = invocation.getArgument(0);
+            List<String> keys = invocation.getArgument(1);
+            return eval(script.getScriptAsString(), keys, invocation.getArgument(2), invocation.getArgument(3),
+                    invocation.getArgument(4), invocation.getArgument(5));
+        }).when(redisTemplate).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    @Test
+    void nodes_ShareTheLimit() {
+        RateLimitPolicy policy = policy(10, 60);
+        ClusterRateLimiter nodeA = node(policy);
+        ClusterRateLimiter nodeB = node(policy);
+
+        int allowed = 0;
+        for (int i = 0; i < 30; i++) {
+            ClusterRateLimiter node = i % 2 == 0 ? nodeA : nodeB;
+            if (node.tryAcquire("client") >= 0) {
+                allowed++;
+            }
+        }
+
+        assertEquals(10, allowed);
+    }
+
+    @Test
+    void leases_SaveRedisRoundTrips() {
+        ClusterRateLimiter node = node(policy(100, 6000));
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(node.tryAcquire("client") >= 0);
+        }
+
+        // Leases of 1, 2, 4, 8, then 10 tokens
+        assertEquals(8, redisCalls.get());
+    }
+
+    @Test
+    void slowClient_IsNotStarvedByUnusedLeases() {
+        ClusterRateLimiter node = node(policy(5, 60));
+
+        for (int i = 0; i < 40; i++) {
+            assertTrue(node.tryAcquire("client") >= 0, "request " + i);
+            advanceMillis(1500);
+        }
+    }
+
+    @Test
+    void refusedClient_IsRefusedLocallyUntilTheNextToken() {
+        ClusterRateLimiter node = node(policy(1, 60));
+        assertEquals(0, node.tryAcquire("client"));
+        assertEquals(-1, node.tryAcquire("client"));
+        int calls = redisCalls.get();
+
+        assertEquals(-1, node.tryAcquire("client"));
+        assertEquals(1000, node.retryAfterMillis("client"));
+        assertEquals(calls, redisCalls.get());
+
+        advanceMillis(1000);
+        assertEquals(0, node.tryAcquire("client"));
+    }
+
+    @Test
+    void redisDown_FallsBackToLocalLimits() {
+        ClusterRateLimiter node = node(policy(3, 60));
+        redisDown = true;
+
+        assertEquals(2, node.tryAcquire("client"));
+        assertEquals(1, node.tryAcquire("client"));
+        assertEquals(0, node.tryAcquire("client"));
+        assertEquals(-1, node.tryAcquire("client"));
+        assertEquals(1, redisCalls.get());
+
+        redisDown = false;
+        advanceMillis(RETRY_AFTER_FAILURE_MS);
+        assertTrue(node.tryAcquire("other") >= 0);
+        assertEquals(2, redisCalls.get());
+    }
+
+    private ClusterRateLimiter node(RateLimitPolicy policy) {
+        return new ClusterRateLimiter(policy, new LocalRateLimiter(policy, 1000, ticker), redisTemplate,
+                "test:", 10, LEASE_TTL_MS, RETRY_AFTER_FAILURE_MS, 1000, ticker);
+    }
+
+    private static RateLimitPolicy policy(int burstLimit, int requestsPerMinute) {
+        return new RateLimitPolicy("test", burstLimit, requestsPerMinute, 60_000);
+    }
+
+    private void advanceMillis(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Evaluate a script as Redis does: KEYS and ARGV as tables of strings, numbers in the
+     * returned table truncated to integers.
+     */
+    private List<Long> eval(String script, List<String> keys, String... args) {
+        Globals globals = JsePlatform.standardGlobals();
+        globals.set("KEYS", strings(keys.toArray(new String[0])));
+        globals.set("ARGV", strings(args));
+        LuaTable redis = new LuaTable();
+        redis.set("replicate_commands", new ZeroArgFunction() {
+            @Override
+            public LuaValue call() {
+                return LuaValue.TRUE;
+            }
+        });
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs command) {
+                return redisCall(command);
+            }
+        });
+        globals.set("redis", redis);
+
+        LuaValue result = globals.load(script, "rate_limit_token_bucket.lua").call();
+        List<Long> reply = new ArrayList<>();
+        for (int i = 1; i <= result.length(); i++) {
+            reply.add(result.get(i).tolong());
+        }
+        return reply;
+    }
+
+    private LuaValue redisCall(Varargs command) {
+        long now = TimeUnit.NANOSECONDS.toMillis(nanos.get());
+        String name = command.arg1().checkjstring().toUpperCase(Locale.ROOT);
+        if ("TIME".equals(name)) {
+            return strings(String.valueOf(now / 1000), String.valueOf(now % 1000 * 1000));
+        }
+        String key = command.arg(2).tojstring();
+        Long expiry = expiresAt.get(key);
+        if (expiry != null && now >= expiry) {
+            hashes.remove(key);
+            expiresAt.remove(key);
+        }
+        switch (name) {
+            case "HMGET": {
+                Map<String, String> hash = hashes.getOrDefault(key, Collections.emptyMap());
+                LuaTable values = new LuaTable();
+                for (int i = 3; i <= command.narg(); i++) {
+                    String value = hash.get(command.arg(i).tojstring());
+                    // A missing field is a nil bulk reply, which Redis converts to false
+                    values.set(i - 2, value != null ? LuaValue.valueOf(value) : LuaValue.FALSE);
+                }
+                return values;
+            }
+            case "HMSET": {
+                Map<String, String> hash = hashes.computeIfAbsent(key, k -> new HashMap<>());
+                for (int i = 3; i < command.narg(); i += 2) {
+                    hash.put(command.arg(i).tojstring(), command.arg(i + 1).tojstring());
+                }
+                return LuaValue.valueOf("OK");
+            }
+            case "PEXPIRE":
+                expiresAt.put(key, now + command.arg(3).checklong());
+                return LuaValue.ONE;
+            default:
+                throw new LuaError("Unsupported command " + name);
+        }
+    }
+
+    private static LuaTable strings(String... values) {
+        LuaValue[] luaValues = new LuaValue[values.length];
+        for (int i = 0; i < values.length; i++) {
+            luaValues[i] = LuaValue.valueOf(values[i]);
+        }
+        return LuaValue.listOf(luaValues);
+    }
+}
@@ -0,0 +1,114 @@
+package quantran.api.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+
+    @Test
+    void burst_IsAllowedThenLimited() {
+        LocalRateLimiter limiter = limiter(3, 60);
+
+        assertEquals(2, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(1, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(-1, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(2, limiter.tryAcquire("10.0.0.2"));
+    }
+
+    @Test
+    void tokens_AreRefilledAtTheConfiguredRate() {
+        LocalRateLimiter limiter = limiter(1, 60);
+        assertEquals(0, limiter.tryAcquire("client"));
+        assertEquals(-1, limiter.tryAcquire("client"));
+        assertEquals(1000, limiter.retryAfterMillis("client"));
+
+        advanceMillis(999);
+        assertEquals(-1, limiter.tryAcquire("client"));
+        advanceMillis(1);
+        assertEquals(0, limiter.tryAcquire("client"));
+    }
+
+    @Test
+    void frequentRequests_DoNotLoseRefillToRounding() {
+        // 7 per minute is one token every 8571.4 ms, less than a token unit per millisecond
+        LocalRateLimiter limiter = limiter(2, 7);
+        limiter.tryAcquire("client");
+        limiter.tryAcquire("client");
+        int allowed = 0;
+        for (int ms = 0; ms < 600_000; ms++) {
+            advanceMillis(1);
+            if (limiter.tryAcquire("client") >= 0) {
+                allowed++;
+            }
+        }
+        assertEquals(70, allowed);
+    }
+
+    @Test
+    void idleBuckets_AreEvictedOnceFull() {
+        LocalRateLimiter limiter = limiter(2, 60);
+        limiter.tryAcquire("client");
+        assertEquals(1, limiter.trackedClients());
+
+        advanceMillis(2000);
+        assertEquals(0, limiter.trackedClients());
+        assertEquals(1, limiter.tryAcquire("client"));
+    }
+
+    @Test
+    void concurrentRequests_TakeEachTokenOnce() throws Exception {
+        LocalRateLimiter limiter = limiter(1000, 1);
+        int threads = 8;
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < 500; i++) {
+                        if (limiter.tryAcquire("client") >= 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1000, allowed.get());
+    }
+
+    @Test
+    void burstAboveTheTokenRange_IsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimitPolicy("huge", 5000, 60, 60_000));
+    }
+
+    private LocalRateLimiter limiter(int burstLimit, int requestsPerMinute) {
+        return new LocalRateLimiter(new RateLimitPolicy("test", burstLimit, requestsPerMinute, 60_000), 1000, ticker);
+    }
+
+    private void advanceMillis(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
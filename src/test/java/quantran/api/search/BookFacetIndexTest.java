@@ -0,0 +1,164 @@
+package quantran.api.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import quantran.api.entity.BookEntity;
+import quantran.api.entity.BookTypeEntity;
+import quantran.api.entity.PublisherEntity;
+import quantran.api.event.BookChangedEvent;
+import quantran.api.event.BookSnapshot;
+import quantran.api.event.BooksImportedEvent;
+import quantran.api.repository.BookRepository;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static quantran.api.search.FacetIndexTest.counts;
+
+class BookFacetIndexTest {
+
+    private BookRepository bookRepository;
+    private BookFacetIndex facetIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        facetIndex = new BookFacetIndex(bookRepository);
+        when(bookRepository.streamFacetRows()).thenAnswer(invocation -> Stream.of(
+                new Object[]{"b1", "en", "Paperback", new BigDecimal("9.99"), "Fantasy", "Tor"},
+                new Object[]{"b1", "en", "Paperback", new BigDecimal("9.99"), "Horror", "Tor"},
+                new Object[]{"b2", "fr", "Hardcover", new BigDecimal("30.00"), null, null}));
+        facetIndex.build();
+    }
+
+    @Test
+    void build_CountsOneBookPerIdAcrossItsGenreRows() {
+        Map<FacetDimension, Map<String, Integer>> counts = facetCounts();
+
+        assertEquals(counts("en", 1, "fr", 1), counts.get(FacetDimension.LANGUAGE));
+        assertEquals(counts("Fantasy", 1, "Horror", 1), counts.get(FacetDimension.GENRE));
+        assertEquals(counts("Tor", 1), counts.get(FacetDimension.PUBLISHER));
+        assertEquals(counts("0-10", 1, "25-50", 1), counts.get(FacetDimension.PRICE));
+    }
+
+    @Test
+    void addedBook_IsCounted() {
+        facetIndex.onBookChanged(BookChangedEvent.upserted(book("b3", "en", "E-book", "12.00", "Fantasy", "Tor")));
+
+        Map<FacetDimension, Map<String, Integer>> counts = facetCounts();
+        assertEquals(counts("en", 2, "fr", 1), counts.get(FacetDimension.LANGUAGE));
+        assertEquals(counts("E-book", 1, "Hardcover", 1, "Paperback", 1), counts.get(FacetDimension.FORMAT));
+        assertEquals(counts("Fantasy", 2, "Horror", 1), counts.get(FacetDimension.GENRE));
+        assertEquals(counts("Tor", 2), counts.get(FacetDimension.PUBLISHER));
+        assertEquals(counts("0-10", 1, "10-25", 1, "25-50", 1), counts.get(FacetDimension.PRICE));
+    }
+
+    @Test
+    void updatedBook_MovesItsCounts() {
+        BookEntity book = book("b1", "fr", "Paperback", "120.00", "Horror", null);
+        BookSnapshot previous = BookSnapshot.of(book("b1", "en", "Paperback", "9.99", "Fantasy", "Tor"));
+
+        facetIndex.onBookChanged(BookChangedEvent.updated(previous, book));
+
+        Map<FacetDimension, Map<String, Integer>> counts = facetCounts();
+        assertEquals(counts("fr", 2), counts.get(FacetDimension.LANGUAGE));
+        assertEquals(counts("Horror", 1), counts.get(FacetDimension.GENRE));
+        assertTrue(counts.get(FacetDimension.PUBLISHER).isEmpty());
+        assertEquals(counts("100+", 1, "25-50", 1), counts.get(FacetDimension.PRICE));
+    }
+
+    @Test
+    void importedBook_UpdatesPriceAndKeepsGenresAndPublisher() {
+        facetIndex.onBooksImported(new BooksImportedEvent(Collections.singletonList(
+                new BooksImportedEvent.ImportedBook("b1", "Dune", new BigDecimal("60.00"), "en", "Paperback", 0))));
+
+        Map<FacetDimension, Map<String, Integer>> counts = facetCounts();
+        assertEquals(counts("25-50", 1, "50-100", 1), counts.get(FacetDimension.PRICE));
+        assertEquals(counts("Fantasy", 1, "Horror", 1), counts.get(FacetDimension.GENRE));
+        assertEquals(counts("Tor", 1), counts.get(FacetDimension.PUBLISHER));
+    }
+
+    @Test
+    void deletedBook_IsNoLongerCounted() {
+        facetIndex.onBookChanged(BookChangedEvent.deleted(
+                BookSnapshot.of(book("b1", "en", "Paperback", "9.99", "Fantasy", "Tor"))));
+
+        FacetIndex.Result result = facetIndex.search(null, Collections.emptyMap(), 0, 10, 10).get();
+        Map<FacetDimension, Map<String, Integer>> counts = counts(result);
+        assertEquals(Collections.singletonList("b2"), result.getKeys());
+        assertEquals(counts("fr", 1), counts.get(FacetDimension.LANGUAGE));
+        assertTrue(counts.get(FacetDimension.GENRE).isEmpty());
+        assertTrue(counts.get(FacetDimension.PUBLISHER).isEmpty());
+    }
+
+    @Test
+    void failedLoad_IsRetriedAfterTheBackoff() {
+        BookFacetIndex retried = new BookFacetIndex(bookRepository);
+        ReflectionTestUtils.setField(retried, "retryInitialMs", 0L);
+        ReflectionTestUtils.setField(retried, "retryMaxMs", 0L);
+        when(bookRepository.streamFacetRows())
+                .thenThrow(new IllegalStateException("database down"))
+                .thenAnswer(invocation -> Stream.<Object[]>of(new Object[]{"b1", "en", "Paperback", new BigDecimal("9.99"), null, null}));
+
+        retried.build();
+        assertFalse(retried.isReady());
+        assertFalse(retried.search(null, Collections.emptyMap(), 0, 10, 10).isPresent());
+
+        retried.retryLoad();
+        retried.retryLoad();
+
+        assertTrue(retried.isReady());
+        assertEquals(Collections.singletonList("b1"), retried.search(null, Collections.emptyMap(), 0, 10, 10).get().getKeys());
+        // Once for the build in setUp, twice here: the second retry finds nothing to retry
+        verify(bookRepository, times(3)).streamFacetRows();
+    }
+
+    @Test
+    void retry_WaitsForTheBackoff() {
+        BookFacetIndex retried = new BookFacetIndex(bookRepository);
+        ReflectionTestUtils.setField(retried, "retryInitialMs", 60000L);
+        ReflectionTestUtils.setField(retried, "retryMaxMs", 60000L);
+        when(bookRepository.streamFacetRows()).thenThrow(new IllegalStateException("database down"));
+
+        retried.build();
+        retried.retryLoad();
+
+        verify(bookRepository, times(2)).streamFacetRows();
+    }
+
+    @Test
+    void priceRange_UsesLowerBoundInclusiveRanges() {
+        assertEquals("0-10", BookFacetIndex.priceRange(new BigDecimal("9.99")));
+        assertEquals("10-25", BookFacetIndex.priceRange(new BigDecimal("10")));
+        assertEquals("100+", BookFacetIndex.priceRange(new BigDecimal("100")));
+        assertNull(BookFacetIndex.priceRange(null));
+    }
+
+    private Map<FacetDimension, Map<String, Integer>> facetCounts() {
+        return counts(facetIndex.search(null, Collections.emptyMap(), 0, 10, 10).get());
+    }
+
+    private static BookEntity book(String id, String language, String format, String price, String genre,
+                                   String publisher) {
+        BookEntity book = new BookEntity();
+        book.setId(id);
+        book.setTitle("Title " + id);
+        book.setLanguage(language);
+        book.setFormat(format);
+        book.setPrice(new BigDecimal(price));
+        BookTypeEntity bookType = new BookTypeEntity();
+        bookType.setName(genre);
+        book.getGenres().add(bookType);
+        if (publisher != null) {
+            PublisherEntity publisherEntity = new PublisherEntity();
+            publisherEntity.setName(publisher);
+            book.setPublisher(publisherEntity);
+        }
+        return book;
+    }
+}
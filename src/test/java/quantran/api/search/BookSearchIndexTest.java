@@ -0,0 +1,77 @@
+package quantran.api.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import quantran.api.event.BooksImportedEvent;
+import quantran.api.repository.BookRepository;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookSearchIndexTest {
+
+    private BookRepository bookRepository;
+    private BookSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        searchIndex = new BookSearchIndex(bookRepository);
+        ReflectionTestUtils.setField(searchIndex, "retryInitialMs", 0L);
+        ReflectionTestUtils.setField(searchIndex, "retryMaxMs", 0L);
+    }
+
+    @Test
+    void failedBuild_DropsChangesAndIsRetried() {
+        when(bookRepository.streamSearchIndexRows())
+                .thenThrow(new IllegalStateException("database down"))
+                .thenAnswer(invocation -> Stream.<Object[]>of(new Object[]{"b1", "Dune", "Frank Herbert", "Science Fiction", "Chilton"}));
+
+        searchIndex.build();
+        searchIndex.onBooksImported(imported("b2", "Emma"));
+
+        assertFalse(searchIndex.isReady());
+        assertTrue(((Queue<?>) ReflectionTestUtils.getField(searchIndex, "pendingChanges")).isEmpty());
+
+        searchIndex.retryBuild();
+
+        assertTrue(searchIndex.isReady());
+        assertEquals(Collections.singletonList("b1"),
+                searchIndex.search(null, "dune", "herbert", null, null, 0, 10).get().getKeys());
+        verify(bookRepository, times(2)).streamSearchIndexRows();
+    }
+
+    @Test
+    void retry_WaitsForTheBackoff() {
+        ReflectionTestUtils.setField(searchIndex, "retryInitialMs", 60000L);
+        ReflectionTestUtils.setField(searchIndex, "retryMaxMs", 60000L);
+        when(bookRepository.streamSearchIndexRows()).thenThrow(new IllegalStateException("database down"));
+
+        searchIndex.build();
+        searchIndex.retryBuild();
+
+        verify(bookRepository, times(1)).streamSearchIndexRows();
+    }
+
+    @Test
+    void builtIndex_IsNotRebuiltByTheRetry() {
+        when(bookRepository.streamSearchIndexRows()).thenAnswer(invocation -> Stream.empty());
+
+        searchIndex.build();
+        searchIndex.retryBuild();
+
+        assertTrue(searchIndex.isReady());
+        verify(bookRepository, times(1)).streamSearchIndexRows();
+    }
+
+    private static BooksImportedEvent imported(String id, String title) {
+        return new BooksImportedEvent(Collections.singletonList(
+                new BooksImportedEvent.ImportedBook(id, title, new BigDecimal("9.99"), "en", "Paperback", 0)));
+    }
+}
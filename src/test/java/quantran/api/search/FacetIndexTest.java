@@ -0,0 +1,188 @@
+package quantran.api.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FacetIndexTest {
+
+    private final FacetIndex index = new FacetIndex();
+
+    @Test
+    void upsert_CountsEachValueOfEachDimension() {
+        index.upsert("b1", values("en", "Paperback", "Fantasy", "Science Fiction"));
+        index.upsert("b2", values("en", "Hardcover", "Fantasy"));
+        index.upsert("b3", values("fr", "Paperback"));
+
+        Map<FacetDimension, Map<String, Integer>> counts = counts(search(noSelection()));
+
+        assertEquals(counts("en", 2, "fr", 1), counts.get(FacetDimension.LANGUAGE));
+        assertEquals(counts("Paperback", 2, "Hardcover", 1), counts.get(FacetDimension.FORMAT));
+        assertEquals(counts("Fantasy", 2, "Science Fiction", 1), counts.get(FacetDimension.GENRE));
+        assertTrue(counts.get(FacetDimension.PUBLISHER).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void upsert_MovesTheCountsOfAKnownKey() {
+        index.upsert("b1", values("en", "Paperback", "Fantasy"));
+        index.upsert("b2", values("en", "Paperback", "Fantasy"));
+
+        index.upsert("b1", values("de", "Paperback", "Horror"));
+
+        Map<FacetDimension, Map<String, Integer>> counts = counts(search(noSelection()));
+        assertEquals(counts("de", 1, "en", 1), counts.get(FacetDimension.LANGUAGE));
+        assertEquals(counts("Paperback", 2), counts.get(FacetDimension.FORMAT));
+        assertEquals(counts("Fantasy", 1, "Horror", 1), counts.get(FacetDimension.GENRE));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void update_ReplacesOnlyTheGivenDimensions() {
+        index.upsert("b1", values("en", "Paperback", "Fantasy"));
+
+        Map<FacetDimension, List<String>> format = new EnumMap<>(FacetDimension.class);
+        format.put(FacetDimension.FORMAT, Collections.singletonList("E-book"));
+        index.update("b1", format);
+        index.update("b2", format);
+
+        Map<FacetDimension, Map<String, Integer>> counts = counts(search(noSelection()));
+        assertEquals(counts("E-book", 2), counts.get(FacetDimension.FORMAT));
+        assertEquals(counts("en", 1), counts.get(FacetDimension.LANGUAGE));
+        assertEquals(counts("Fantasy", 1), counts.get(FacetDimension.GENRE));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void remove_DropsTheCountsOfTheKey() {
+        index.upsert("b1", values("en", "Paperback", "Fantasy"));
+        index.upsert("b2", values("fr", "Paperback", "Fantasy", "Horror"));
+
+        index.remove("b2");
+        index.remove("missing");
+
+        FacetIndex.Result result = search(noSelection());
+        Map<FacetDimension, Map<String, Integer>> counts = counts(result);
+        assertEquals(counts("en", 1), counts.get(FacetDimension.LANGUAGE));
+        assertEquals(counts("Paperback", 1), counts.get(FacetDimension.FORMAT));
+        assertEquals(counts("Fantasy", 1), counts.get(FacetDimension.GENRE));
+        assertEquals(Collections.singletonList("b1"), result.getKeys());
+        assertEquals(1, index.size());
+
+        index.remove("b1");
+        counts = counts(search(noSelection()));
+        assertTrue(counts.get(FacetDimension.LANGUAGE).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void selection_FiltersResultsButNotTheCountsOfItsOwnDimension() {
+        index.upsert("b1", values("en", "Paperback", "Fantasy"));
+        index.upsert("b2", values("en", "Hardcover", "Horror"));
+        index.upsert("b3", values("fr", "Paperback", "Fantasy"));
+
+        Map<FacetDimension, List<String>> selected = noSelection();
+        selected.put(FacetDimension.LANGUAGE, Collections.singletonList("en"));
+        FacetIndex.Result result = search(selected);
+
+        Map<FacetDimension, Map<String, Integer>> counts = counts(result);
+        assertEquals(Arrays.asList("b1", "b2"), result.getKeys());
+        assertEquals(2, result.getTotal());
+        assertEquals(counts("en", 2, "fr", 1), counts.get(FacetDimension.LANGUAGE));
+        assertEquals(counts("Hardcover", 1, "Paperback", 1), counts.get(FacetDimension.FORMAT));
+        assertEquals(counts("Fantasy", 1, "Horror", 1), counts.get(FacetDimension.GENRE));
+    }
+
+    @Test
+    void counts_AreMostFrequentFirstWithTiesInValueOrderAndLimited() {
+        index.upsert("b1", values("en", "Paperback"));
+        index.upsert("b2", values("fr", "Paperback"));
+        index.upsert("b3", values("de", "Paperback"));
+        index.upsert("b4", values("fr", "Paperback"));
+
+        List<FacetCount> languages = index.search(null, noSelection(), 0, 10, 2)
+                .getFacets().get(FacetDimension.LANGUAGE);
+
+        assertEquals(2, languages.size());
+        assertEquals("fr", languages.get(0).getValue());
+        assertEquals(2, languages.get(0).getCount());
+        assertEquals("de", languages.get(1).getValue());
+        assertEquals(1, languages.get(1).getCount());
+    }
+
+    @Test
+    void candidateKeys_LimitResultsAndCounts() {
+        index.upsert("b1", values("en", "Paperback"));
+        index.upsert("b2", values("fr", "Paperback"));
+
+        FacetIndex.Result result = index.search(Arrays.asList("b2", "missing"), noSelection(), 0, 10, 10);
+
+        assertEquals(Collections.singletonList("b2"), result.getKeys());
+        assertEquals(counts("fr", 1), counts(result).get(FacetDimension.LANGUAGE));
+    }
+
+    @Test
+    void candidateKeys_AreReadOnceInChunks() {
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            index.upsert("b" + i, values(i % 3 == 0 ? "fr" : "en", "Paperback"));
+            if (i % 2 == 0) {
+                candidates.add("b" + i);
+            }
+        }
+        index.remove("b0");
+        Iterator<String> source = candidates.iterator();
+
+        FacetIndex.Result result = index.search(() -> source, noSelection(), 0, 2, 10);
+
+        assertFalse(source.hasNext());
+        assertEquals(1499, result.getTotal());
+        assertEquals(Arrays.asList("b2", "b4"), result.getKeys());
+        assertEquals(counts("en", 1000, "fr", 499), counts(result).get(FacetDimension.LANGUAGE));
+    }
+
+    private FacetIndex.Result search(Map<FacetDimension, List<String>> selected) {
+        return index.search(null, selected, 0, 100, 100);
+    }
+
+    private static Map<FacetDimension, List<String>> noSelection() {
+        return new EnumMap<>(FacetDimension.class);
+    }
+
+    private static Map<FacetDimension, List<String>> values(String language, String format, String... genres) {
+        Map<FacetDimension, List<String>> values = new EnumMap<>(FacetDimension.class);
+        values.put(FacetDimension.LANGUAGE, Collections.singletonList(language));
+        values.put(FacetDimension.FORMAT, Collections.singletonList(format));
+        values.put(FacetDimension.GENRE, Arrays.asList(genres));
+        return values;
+    }
+
+    static Map<FacetDimension, Map<String, Integer>> counts(FacetIndex.Result result) {
+        Map<FacetDimension, Map<String, Integer>> counts = new EnumMap<>(FacetDimension.class);
+        for (Map.Entry<FacetDimension, List<FacetCount>> entry : result.getFacets().entrySet()) {
+            Map<String, Integer> dimension = new LinkedHashMap<>();
+            for (FacetCount count : entry.getValue()) {
+                dimension.put(count.getValue(), count.getCount());
+            }
+            counts.put(entry.getKey(), dimension);
+        }
+        return counts;
+    }
+
+    static Map<String, Integer> counts(Object... valuesAndCounts) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < valuesAndCounts.length; i += 2) {
+            counts.put((String) valuesAndCounts[i], (Integer) valuesAndCounts[i + 1]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,104 @@
+package quantran.api.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixSuggesterTest {
+
+    private final PrefixSuggester suggester = new PrefixSuggester();
+
+    @Test
+    void prefix_MatchesTheStartOfTextsCaseInsensitively() {
+        suggester.rebuild(Arrays.asList(
+                entry("1", "Dune", 5),
+                entry("2", "Dune Messiah", 3),
+                entry("3", "Children of Dune", 9),
+                entry("4", "Dracula", 1)));
+
+        assertEquals(Arrays.asList("Dune", "Dune Messiah"), suggester.suggest(" dUN ", 10));
+        assertEquals(Arrays.asList("Dune", "Dune Messiah", "Dracula"), suggester.suggest("d", 10));
+        assertTrue(suggester.suggest("messiah", 10).isEmpty());
+    }
+
+    @Test
+    void suggestions_AreHeaviestFirstWithTiesInTextOrder() {
+        suggester.rebuild(Arrays.asList(
+                entry("1", "Saga B", 2),
+                entry("2", "Saga C", 7),
+                entry("3", "Saga A", 2),
+                entry("4", "Saga D", 4)));
+
+        assertEquals(Arrays.asList("Saga C", "Saga D", "Saga A", "Saga B"), suggester.suggest("saga", 10));
+    }
+
+    @Test
+    void limit_KeepsOnlyTheHeaviest() {
+        List<PrefixSuggester.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add(entry(String.valueOf(i), String.format("Book %03d", i), i));
+        }
+        suggester.rebuild(entries);
+
+        assertEquals(Arrays.asList("Book 099", "Book 098", "Book 097"), suggester.suggest("book", 3));
+        assertTrue(suggester.suggest("book", 0).isEmpty());
+        assertTrue(suggester.suggest(" ", 3).isEmpty());
+        assertTrue(suggester.suggest(null, 3).isEmpty());
+    }
+
+    @Test
+    void sameTextUnderSeveralIds_IsSuggestedOnce() {
+        suggester.rebuild(Arrays.asList(
+                entry("1", "Emma", 1),
+                entry("2", "emma", 8),
+                entry("3", "Emmanuelle", 3)));
+
+        assertEquals(Arrays.asList("emma", "Emmanuelle"), suggester.suggest("emm", 10));
+    }
+
+    @Test
+    void writes_SupersedeTheLoadedEntries() {
+        suggester.rebuild(Arrays.asList(
+                entry("1", "Dune", 5),
+                entry("2", "Dune Messiah", 3),
+                entry("3", "Dracula", 1)));
+
+        suggester.upsert("2", "Dune Messiah", 10);
+        suggester.upsert("3", "Dune Road", 1);
+        suggester.upsert("4", "Dune Chronicles", 4);
+        suggester.remove("1");
+
+        assertEquals(Arrays.asList("Dune Messiah", "Dune Chronicles", "Dune Road"), suggester.suggest("dune", 10));
+        assertTrue(suggester.suggest("dra", 10).isEmpty());
+        assertEquals(3, suggester.size());
+
+        suggester.upsert("4", " ", 4);
+        assertEquals(Arrays.asList("Dune Messiah", "Dune Road"), suggester.suggest("dune", 10));
+    }
+
+    @Test
+    void manyWrites_AreMergedWithoutLosingEntries() {
+        suggester.rebuild(Collections.singletonList(entry("base", "Title base", 0)));
+
+        for (int i = 0; i < 3000; i++) {
+            suggester.upsert(String.valueOf(i), String.format("Title %04d", i), i);
+        }
+        for (int i = 0; i < 3000; i += 2) {
+            suggester.remove(String.valueOf(i));
+        }
+
+        assertEquals(1501, suggester.size());
+        assertEquals(Arrays.asList("Title 2999", "Title 2997"), suggester.suggest("title", 2));
+        assertEquals(Collections.singletonList("Title base"), suggester.suggest("title b", 5));
+        assertTrue(suggester.suggest("title 2998", 5).isEmpty());
+    }
+
+    private static PrefixSuggester.Entry entry(String id, String text, long weight) {
+        return new PrefixSuggester.Entry(id, text, weight);
+    }
+}
@@ -0,0 +1,137 @@
+package quantran.api.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private static final int TITLE = 0;
+    private static final int AUTHOR = 1;
+
+    private final TrigramIndex index = new TrigramIndex(2);
+
+    @Test
+    void terms_MatchSubstringsCaseInsensitively() {
+        index.upsert("b1", fields("Dune Messiah", "Frank Herbert"));
+        index.upsert("b2", fields("Emma", "Jane Austen"));
+
+        assertEquals(Collections.singletonList("b1"), keys(search(" MESSI ", null)));
+        assertEquals(Collections.singletonList("b2"), keys(search(null, "austen")));
+        assertEquals(Collections.singletonList("b1"), keys(search("dune", "herb")));
+        assertTrue(keys(search("dune", "austen")).isEmpty());
+    }
+
+    @Test
+    void shortTerms_AreVerifiedAgainstEveryDocument() {
+        index.upsert("b1", fields("Dune", "Frank Herbert"));
+        index.upsert("b2", fields("Emma", "Jane Austen"));
+
+        assertEquals(Collections.singletonList("b1"), keys(search("du", null)));
+        assertEquals(Arrays.asList("b1", "b2"), keys(search(null, "n")));
+    }
+
+    @Test
+    void blankTerms_MatchEverything() {
+        index.upsert("b1", fields("Dune", "Frank Herbert"));
+        index.upsert("b2", fields("Emma", "Jane Austen"));
+
+        assertEquals(Arrays.asList("b1", "b2"), keys(search(" ", null)));
+    }
+
+    @Test
+    void termsDoNotMatchAcrossTheValuesOfAField() {
+        index.upsert("b1", Arrays.asList(Collections.singletonList("Good Omens"),
+                Arrays.asList("Terry Pratchett", "Neil Gaiman")));
+
+        assertEquals(Collections.singletonList("b1"), keys(search(null, "neil")));
+        assertTrue(keys(search(null, "chettneil")).isEmpty());
+        assertTrue(keys(search(null, "chett neil")).isEmpty());
+    }
+
+    @Test
+    void results_AreInKeyOrderWithOffsetLimitAndTotal() {
+        // Out of key order, so the later keys form the unsorted tail merged into the sorted prefix
+        index.upsert("b2", fields("Saga 2", "A"));
+        index.upsert("b4", fields("Saga 4", "A"));
+        index.upsert("b1", fields("Saga 1", "A"));
+        index.upsert("b3", fields("Saga 3", "A"));
+        index.upsert("b5", fields("Other", "A"));
+
+        TrigramIndex.SearchPage page = index.search(new String[]{"saga", null}, 1, 2);
+
+        assertEquals(Arrays.asList("b2", "b3"), page.getKeys());
+        assertEquals(4, page.getTotal());
+        assertEquals(Arrays.asList("b1", "b2", "b3", "b4"), keys(search("saga", null)));
+        assertTrue(index.search(new String[]{"saga", null}, 4, 10).getKeys().isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("b1", "b2", "b3", "b4")),
+                new HashSet<>(index.searchAll(new String[]{"saga", null})));
+    }
+
+    @Test
+    void upsert_ReplacesTheIndexedValues() {
+        index.upsert("b1", fields("Dune", "Frank Herbert"));
+        index.upsert("b1", fields("Children of Dune", "Frank Herbert"));
+
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList("b1"), keys(search("children", null)));
+        assertEquals(1, search("dune", null).getTotal());
+    }
+
+    @Test
+    void update_ReplacesOnlyTheGivenFields() {
+        index.upsert("b1", fields("Dune", "Frank Herbert"));
+
+        index.update("b1", Arrays.asList(Collections.singletonList("Dune Messiah"), null));
+
+        assertEquals(Collections.singletonList("b1"), keys(search("messiah", "herbert")));
+        index.update("b2", Arrays.asList(Collections.singletonList("Emma"), null));
+        assertEquals(Collections.singletonList("b2"), keys(search("emma", null)));
+        assertTrue(keys(search("emma", "a")).isEmpty());
+    }
+
+    @Test
+    void remove_DropsTheDocumentAndIgnoresUnknownKeys() {
+        index.upsert("b1", fields("Dune", "Frank Herbert"));
+        index.upsert("b2", fields("Dune Messiah", "Frank Herbert"));
+
+        index.remove("b1");
+        index.remove("missing");
+
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList("b2"), keys(search("dune", null)));
+    }
+
+    @Test
+    void compact_KeepsLiveDocumentsSearchable() {
+        index.upsert("b3", fields("Dune", "Frank Herbert"));
+        index.upsert("b1", fields("Dune Messiah", "Frank Herbert"));
+        index.upsert("b2", fields("Emma", "Jane Austen"));
+        index.remove("b2");
+
+        index.compact();
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("b1", "b3"), keys(search("dune", "frank")));
+    }
+
+    private TrigramIndex.SearchPage search(String title, String author) {
+        String[] terms = new String[2];
+        terms[TITLE] = title;
+        terms[AUTHOR] = author;
+        return index.search(terms, 0, 100);
+    }
+
+    private static List<String> keys(TrigramIndex.SearchPage page) {
+        return page.getKeys();
+    }
+
+    private static List<List<String>> fields(String title, String author) {
+        return Arrays.asList(Collections.singletonList(title), Collections.singletonList(author));
+    }
+}
@@ -0,0 +1,72 @@
+package quantran.api.security;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private JwtTokenProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        provider = provider(new byte[64]);
+    }
+
+    @Test
+    void parseAndValidate_ReturnsAllClaims() {
+        String token = provider.generateToken("alice", "ADMIN");
+
+        TokenClaims claims = provider.parseAndValidate(token);
+
+        assertEquals("alice", claims.getUsername());
+        assertEquals("ADMIN", claims.getRole());
+        assertEquals("access", claims.getType());
+        assertTrue(claims.getExpiration().after(claims.getIssuedAt()));
+        assertEquals("alice", provider.getUsernameFromToken(token));
+        assertEquals("ADMIN", provider.getRoleFromToken(token));
+        assertTrue(provider.validateToken(token));
+    }
+
+    @Test
+    void verifiedToken_IsServedFromCache() {
+        String token = provider.generateToken("alice", "USER");
+
+        assertSame(provider.parseAndValidate(token), provider.parseAndValidate(token));
+    }
+
+    @Test
+    void tokenSignedWithAnotherKey_IsRejected() {
+        byte[] otherSecret = new byte[64];
+        otherSecret[0] = 1;
+        String token = provider(otherSecret).generateToken("mallory", "ADMIN");
+
+        assertThrows(JwtException.class, () -> provider.parseAndValidate(token));
+        assertFalse(provider.validateToken(token));
+        assertThrows(IllegalArgumentException.class, () -> provider.getRoleFromToken(token));
+    }
+
+    @Test
+    void expiredToken_IsRejected() {
+        ReflectionTestUtils.setField(provider, "jwtExpiration", -1000L);
+        String token = provider.generateToken("alice", "USER");
+
+        assertFalse(provider.validateToken(token));
+        assertTrue(provider.isTokenExpired(token));
+    }
+
+    private static JwtTokenProvider provider(byte[] secret) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", Base64.getEncoder().encodeToString(secret));
+        ReflectionTestUtils.setField(provider, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(provider, "jwtIssuer", "test");
+        ReflectionTestUtils.setField(provider, "claimsCacheMaxSize", 100L);
+        provider.init();
+        return provider;
+    }
+}
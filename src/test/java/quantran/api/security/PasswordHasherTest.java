@@ -0,0 +1,79 @@
+package quantran.api.security;
+
+import org.junit.jupiter.api.Test;
+import quantran.api.exception.WorkQueueFullException;
+import quantran.api.util.PasswordUtil;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final PasswordHasher hasher = new PasswordHasher(1000, Runnable::run);
+
+    @Test
+    void hash_VerifiesOnlyTheSamePassword() {
+        String hash = hasher.hash("correct horse");
+
+        assertTrue(hash.startsWith(PasswordHasher.ALGORITHM_ID + "$1000$"));
+        assertNotEquals(hash, hasher.hash("correct horse"));
+        assertTrue(hasher.verify("correct horse", hash));
+        assertFalse(hasher.verify("correct horsf", hash));
+        assertFalse(hasher.needsRehash(hash));
+    }
+
+    @Test
+    void legacyHash_IsVerifiedAndUpgraded() {
+        String legacy = PasswordUtil.hashPassword("secret");
+
+        assertTrue(hasher.verify("secret", legacy));
+        assertTrue(hasher.needsRehash(legacy));
+
+        PasswordHasher.Verification verification = hasher.verifyAsync("secret", legacy).join();
+        assertTrue(verification.isMatched());
+        assertNotNull(verification.getUpgradedHash());
+        assertTrue(hasher.verify("secret", verification.getUpgradedHash()));
+    }
+
+    @Test
+    void weakerHash_IsUpgradedToTheConfiguredCost() {
+        String weaker = new PasswordHasher(500, Runnable::run).hash("secret");
+
+        assertTrue(hasher.needsRehash(weaker));
+        assertNotNull(hasher.verifyAsync("secret", weaker).join().getUpgradedHash());
+        assertNull(hasher.verifyAsync("wrong", weaker).join().getUpgradedHash());
+    }
+
+    @Test
+    void malformedHash_DoesNotVerify() {
+        assertFalse(hasher.verify("secret", "pbkdf2-sha256$x$y"));
+        assertFalse(hasher.verify("secret", "pbkdf2-sha256$1000$!!$!!"));
+        assertFalse(hasher.verify("secret", null));
+    }
+
+    @Test
+    void unknownUser_IsVerifiedOnTheExecutorAndNeverMatches() {
+        AtomicInteger submitted = new AtomicInteger();
+        PasswordHasher counting = new PasswordHasher(1000, task -> {
+            submitted.incrementAndGet();
+            task.run();
+        });
+
+        PasswordHasher.Verification verification = counting.verifyUnknownUserAsync("").join();
+
+        assertEquals(1, submitted.get());
+        assertFalse(verification.isMatched());
+        assertNull(verification.getUpgradedHash());
+    }
+
+    @Test
+    void fullQueue_IsReportedAsWorkQueueFull() {
+        PasswordHasher saturated = new PasswordHasher(1000, task -> {
+            throw new RejectedExecutionException("queue full");
+        });
+
+        assertThrows(WorkQueueFullException.class, () -> saturated.verifyAsync("secret", "x"));
+    }
+}
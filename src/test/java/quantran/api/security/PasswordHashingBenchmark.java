@@ -0,0 +1,102 @@
+package quantran.api.security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of other requests during a login burst, with passwords hashed on the request
+ * threads versus on a dedicated executor. Not a test; run it with
+ * {@code java quantran.api.security.PasswordHashingBenchmark [iterations] [logins]} on the
+ * test classpath.
+ *
+ * <p>A fixed pool stands in for the Tomcat request threads. A driver sends "other" requests
+ * (a short CPU-bound task) at a steady rate and records their latency from submission to
+ * completion, first with no logins, then while a burst of logins is submitted to the same
+ * pool: once hashing inline, once handing the hash to a two-thread executor.
+ */
+public class PasswordHashingBenchmark {
+    private static final int REQUEST_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final long REQUEST_INTERVAL_MICROS = 2000;
+    private static final long REQUEST_WORK_MICROS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int logins = args.length > 1 ? Integer.parseInt(args[1]) : REQUEST_THREADS * 4;
+        ThreadPoolExecutor hashPool = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(logins));
+        PasswordHasher hasher = new PasswordHasher(iterations, hashPool);
+        String storedHash = hasher.hash("password");
+
+        System.out.printf("%d request threads, %d logins at %d iterations%n", REQUEST_THREADS, logins, iterations);
+        run(hasher, storedHash, 0, false);
+        report("no logins", run(hasher, storedHash, 0, false));
+        report("logins hashed on request threads", run(hasher, storedHash, logins, false));
+        report("logins hashed on dedicated executor", run(hasher, storedHash, logins, true));
+        hashPool.shutdown();
+    }
+
+    private static List<Long> run(PasswordHasher hasher, String storedHash, int logins, boolean dedicatedExecutor) throws Exception {
+        ExecutorService requestPool = Executors.newFixedThreadPool(REQUEST_THREADS);
+        List<CompletableFuture<Long>> latencies = new ArrayList<>();
+        List<CompletableFuture<?>> loginResults = new ArrayList<>();
+        try {
+            for (int i = 0; i < logins; i++) {
+                if (dedicatedExecutor) {
+                    // The request thread only hands the hash off
+                    CompletableFuture<CompletableFuture<PasswordHasher.Verification>> handedOff = CompletableFuture.supplyAsync(
+                            () -> hasher.verifyAsync("password", storedHash), requestPool);
+                    loginResults.add(handedOff.thenCompose(verification -> verification));
+                } else {
+                    loginResults.add(CompletableFuture.supplyAsync(() -> hasher.verify("password", storedHash), requestPool));
+                }
+            }
+            // Measure while the burst is being worked off
+            long next = System.nanoTime();
+            for (int i = 0; i < 1000; i++) {
+                long submittedAt = System.nanoTime();
+                latencies.add(CompletableFuture.supplyAsync(() -> {
+                    spin(REQUEST_WORK_MICROS);
+                    return System.nanoTime() - submittedAt;
+                }, requestPool));
+                next += TimeUnit.MICROSECONDS.toNanos(REQUEST_INTERVAL_MICROS);
+                long sleepNanos = next - System.nanoTime();
+                if (sleepNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                }
+            }
+            CompletableFuture.allOf(loginResults.toArray(new CompletableFuture[0])).get(10, TimeUnit.MINUTES);
+        } finally {
+            requestPool.shutdown();
+            requestPool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        List<Long> result = new ArrayList<>();
+        for (CompletableFuture<Long> latency : latencies) {
+            result.add(latency.get());
+        }
+        return result;
+    }
+
+    private static void spin(long micros) {
+        long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+        while (System.nanoTime() < end) {
+            // Busy, like a request doing real work
+        }
+    }
+
+    private static void report(String scenario, List<Long> latencies) {
+        Collections.sort(latencies);
+        System.out.printf("%-40s p50 %8.2f ms   p99 %8.2f ms   max %8.2f ms%n", scenario,
+                millis(latencies, 0.50), millis(latencies, 0.99), latencies.get(latencies.size() - 1) / 1e6);
+    }
+
+    private static double millis(List<Long> sorted, double percentile) {
+        return sorted.get((int) Math.ceil(percentile * sorted.size()) - 1) / 1e6;
+    }
+}
@@ -0,0 +1,55 @@
+package quantran.api.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import quantran.api.entity.UserEntity;
+import quantran.api.event.UserKeyChangedEvent;
+import quantran.api.repository.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserKeyDigestsTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CacheManager cacheManager = mock(CacheManager.class);
+    private final UserKeyDigests userKeyDigests = new UserKeyDigests(userRepository, cacheManager);
+
+    @Test
+    void keyDigest_MatchesOnlyTheUsersKey() {
+        UserEntity user = new UserEntity();
+        user.setUserName("alice");
+        user.setKey("secret-key");
+        when(userRepository.findByUserName("alice")).thenReturn(user);
+
+        String keyDigest = userKeyDigests.findKeyDigest("alice");
+
+        assertNotEquals("secret-key", keyDigest);
+        assertTrue(UserKeyDigests.matches("secret-key", keyDigest));
+        assertFalse(UserKeyDigests.matches("secret-kez", keyDigest));
+    }
+
+    @Test
+    void userWithoutKey_MatchesNoKey() {
+        UserEntity user = new UserEntity();
+        user.setUserName("bob");
+        when(userRepository.findByUserName("bob")).thenReturn(user);
+
+        String keyDigest = userKeyDigests.findKeyDigest("bob");
+
+        assertEquals(UserKeyDigests.NO_KEY, keyDigest);
+        assertFalse(UserKeyDigests.matches("", keyDigest));
+        assertNull(userKeyDigests.findKeyDigest("nobody"));
+    }
+
+    @Test
+    void keyChange_EvictsTheUsersDigest() {
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache(UserKeyDigests.USER_KEY_DIGESTS)).thenReturn(cache);
+
+        userKeyDigests.onUserKeyChanged(new UserKeyChangedEvent("alice"));
+
+        verify(cache).evict("alice");
+    }
+}
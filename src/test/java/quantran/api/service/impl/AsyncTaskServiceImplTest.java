@@ -0,0 +1,126 @@
+package quantran.api.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import quantran.api.dto.AsyncTaskRequest;
+import quantran.api.entity.AsyncTaskEntity;
+import quantran.api.repository.AsyncTaskRepository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Write-behind of task updates against a mocked repository; the conditions of the UPDATE
+ * statements themselves need a database and are only checked on their query text here.
+ */
+class AsyncTaskServiceImplTest {
+
+    private AsyncTaskRepository repository;
+    private PlatformTransactionManager transactionManager;
+    private AsyncTaskServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(AsyncTaskRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        service = new AsyncTaskServiceImpl(repository, new ObjectMapper(), mock(ApplicationEventPublisher.class),
+                transactionManager, 100, 60000, 1000);
+        when(repository.findById("t1")).thenReturn(Optional.of(entity("t1", AsyncTaskEntity.TaskStatus.PROCESSING)));
+        when(repository.updateTaskState(anyString(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void progressUpdates_AreCoalescedIntoOneUpdatePerFlush() {
+        for (int progress = 20; progress <= 100; progress += 20) {
+            service.updateTaskProgress("t1", progress);
+        }
+
+        service.flushDirtyTasks();
+        service.flushDirtyTasks();
+
+        verify(repository, times(1)).updateTaskState(anyString(), any(), any());
+        verify(repository).updateTaskState("t1", null, 100);
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void failedFlush_RequeuesItsBatch() {
+        when(repository.updateTaskState(anyString(), any(), any()))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(1);
+        service.updateTaskProgress("t1", 40);
+
+        assertThrows(IllegalStateException.class, () -> service.flushDirtyTasks());
+        service.updateTaskProgress("t1", 60);
+        service.flushDirtyTasks();
+        service.flushDirtyTasks();
+
+        verify(repository, times(2)).updateTaskState(anyString(), any(), any());
+        verify(repository).updateTaskState("t1", null, 60);
+    }
+
+    @Test
+    void flush_WritesNoStatusAndIsConditionalOnARunningTask() throws Exception {
+        // Another node or the task queue already recorded the outcome, so the UPDATE matches no row
+        when(repository.updateTaskState(anyString(), any(), any())).thenReturn(0);
+        service.updateTaskStatus("t1", AsyncTaskRequest.TaskStatus.COMPLETED, "done");
+
+        service.flushDirtyTasks();
+        service.flushDirtyTasks();
+
+        verify(repository, times(1)).updateTaskState("t1", "done", 0);
+        verify(repository, never()).save(any());
+        verify(repository, never()).finishTask(any(), any(), any(), any(), any(), any());
+        String query = AsyncTaskRepository.class
+                .getMethod("updateTaskState", String.class, String.class, Integer.class)
+                .getAnnotation(Query.class).value();
+        String assignments = query.substring(query.indexOf(" SET "), query.indexOf(" WHERE "));
+        String condition = query.substring(query.indexOf(" WHERE "));
+        assertFalse(assignments.contains("t.status"), query);
+        assertTrue(condition.contains("t.status = 'PROCESSING'"), query);
+    }
+
+    @Test
+    void pollingReads_AreServedFromTheHotCache() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(AsyncTaskRequest.TaskStatus.PROCESSING, service.getTaskStatus("t1").get().getStatus());
+        }
+        service.updateTaskProgress("t1", 30);
+        service.flushDirtyTasks();
+
+        // The flushed task stays cached with its latest progress
+        assertEquals(30, service.getTaskStatus("t1").get().getProgress());
+        verify(repository, times(1)).findById("t1");
+    }
+
+    @Test
+    void cancel_ChecksTheUnflushedStatus() {
+        when(repository.findById("t2")).thenReturn(Optional.of(entity("t2", AsyncTaskEntity.TaskStatus.PENDING)));
+        service.updateTaskStatus("t2", AsyncTaskRequest.TaskStatus.PROCESSING, null);
+
+        assertFalse(service.cancelTask("t2", "user-1"));
+        verify(repository, never()).cancelPendingTask(any(), any(), any(), any(), any());
+    }
+
+    private static AsyncTaskEntity entity(String taskId, AsyncTaskEntity.TaskStatus status) {
+        return AsyncTaskEntity.builder()
+                .taskId(taskId)
+                .requestType("update_book")
+                .userId("user-1")
+                .createdAt(LocalDateTime.now())
+                .status(status)
+                .progress(0)
+                .attempts(0)
+                .build();
+    }
+}
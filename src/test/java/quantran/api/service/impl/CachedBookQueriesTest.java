@@ -0,0 +1,156 @@
+package quantran.api.service.impl;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import quantran.api.business.BookBusiness;
+import quantran.api.cache.TwoLevelCacheManager;
+import quantran.api.dto.BookResponseDto;
+import quantran.api.entity.BookEntity;
+import quantran.api.importer.ImportFileStore;
+import quantran.api.repository.BookRepository;
+import quantran.api.search.BookSuggestIndex;
+import quantran.api.service.BookService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Calls {@link BookService} as the controllers do, through the Spring proxies, with the
+ * application's cache manager in front of a mocked repository.
+ */
+@SpringJUnitConfig(CachedBookQueriesTest.Config.class)
+class CachedBookQueriesTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CachedBookQueries cachedBookQueries;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        reset(bookRepository);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void cachedQueries_AreCalledThroughTheCacheProxy() {
+        assertTrue(AopUtils.isAopProxy(cachedBookQueries));
+    }
+
+    @Test
+    void concurrentMisses_HitTheRepositoryOnce() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(bookRepository.findById("b-1")).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            queryStarted.countDown();
+            releaseQuery.await();
+            return Optional.of(book("b-1", "Dune"));
+        });
+
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Optional<BookResponseDto>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> bookService.findBookById("b-1")));
+            }
+            assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+            // Let the remaining callers reach the in-flight load before it completes
+            Thread.sleep(100);
+            releaseQuery.countDown();
+
+            for (Future<Optional<BookResponseDto>> result : results) {
+                assertEquals("Dune", result.get(5, TimeUnit.SECONDS).get().getTitle());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, queries.get());
+        // Later calls are served from the cache
+        bookService.findBookById("b-1");
+        verify(bookRepository, times(1)).findById("b-1");
+    }
+
+    @Test
+    void listQueries_AreCachedPerKey() {
+        when(bookRepository.findByLanguage("en")).thenReturn(Collections.singletonList(book("b-2", "Emma")));
+
+        assertEquals(1, bookService.findBooksByLanguage("en").size());
+        assertEquals(1, bookService.findBooksByLanguage("en").size());
+
+        verify(bookRepository, times(1)).findByLanguage("en");
+    }
+
+    private static BookEntity book(String id, String title) {
+        BookEntity book = new BookEntity();
+        book.setId(id);
+        book.setTitle(title);
+        return book;
+    }
+
+    @Configuration
+    @EnableCaching
+    @Import({BookServiceImpl.class, CachedBookQueries.class})
+    static class Config {
+
+        @Bean
+        CacheManager cacheManager() {
+            // No Redis: the mocked Redis cache manager has no caches, so every cache is L1 only
+            return new TwoLevelCacheManager(Caffeine.newBuilder(), mock(RedisCacheManager.class),
+                    Collections.emptyList(), null, Duration.ZERO, Runnable::run, new SimpleMeterRegistry());
+        }
+
+        @Bean
+        BookRepository bookRepository() {
+            return mock(BookRepository.class);
+        }
+
+        @Bean
+        BookBusiness bookBusiness() {
+            return mock(BookBusiness.class);
+        }
+
+        @Bean
+        BookSuggestIndex bookSuggestIndex() {
+            return mock(BookSuggestIndex.class);
+        }
+
+        @Bean
+        ImportFileStore importFileStore() {
+            return mock(ImportFileStore.class);
+        }
+    }
+}
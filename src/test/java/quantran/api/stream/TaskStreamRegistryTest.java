@@ -0,0 +1,95 @@
+package quantran.api.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import quantran.api.dto.AsyncTaskResponseDto;
+import quantran.api.event.TaskUpdatedEvent;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Relaying of local task updates to the other nodes, with the stream executor replaced by a
+ * queue the test runs by hand.
+ */
+class TaskStreamRegistryTest {
+
+    private TaskUpdateBus taskUpdateBus;
+    private Queue<Runnable> executed;
+    private boolean rejecting;
+    private TaskStreamRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        taskUpdateBus = mock(TaskUpdateBus.class);
+        executed = new ArrayDeque<>();
+        registry = new TaskStreamRegistry(taskUpdateBus, command -> {
+            if (rejecting) {
+                throw new RejectedExecutionException("saturated");
+            }
+            executed.add(command);
+        }, new SimpleMeterRegistry(), 60000, 100);
+    }
+
+    @Test
+    void update_IsPublishedOnTheStreamExecutor() {
+        registry.onTaskUpdated(new TaskUpdatedEvent(task("t1", 10)));
+
+        verify(taskUpdateBus, never()).publish(any());
+        runExecuted();
+        verify(taskUpdateBus).publish(argThat(task -> "t1".equals(task.getTaskId())));
+    }
+
+    @Test
+    void updatesQueuedBeforeTheDrain_ArePublishedOncePerTaskInArrivalOrder() {
+        registry.onTaskUpdated(new TaskUpdatedEvent(task("t1", 10)));
+        registry.onTaskUpdated(new TaskUpdatedEvent(task("t2", 10)));
+        registry.onTaskUpdated(new TaskUpdatedEvent(task("t1", 50)));
+
+        assertEquals(1, executed.size());
+        runExecuted();
+
+        ArgumentCaptor<AsyncTaskResponseDto> published = ArgumentCaptor.forClass(AsyncTaskResponseDto.class);
+        verify(taskUpdateBus, times(2)).publish(published.capture());
+        assertEquals(Arrays.asList("t2:10", "t1:50"), published.getAllValues().stream()
+                .map(task -> task.getTaskId() + ":" + task.getProgress())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void rejectedPublish_IsRetriedOnTheNextHeartbeat() {
+        rejecting = true;
+        registry.onTaskUpdated(new TaskUpdatedEvent(task("t1", 10)));
+        rejecting = false;
+
+        registry.sendHeartbeats();
+        runExecuted();
+
+        verify(taskUpdateBus).publish(argThat(task -> "t1".equals(task.getTaskId())));
+    }
+
+    private void runExecuted() {
+        Runnable command;
+        while ((command = executed.poll()) != null) {
+            command.run();
+        }
+    }
+
+    private static AsyncTaskResponseDto task(String taskId, int progress) {
+        return AsyncTaskResponseDto.builder()
+                .taskId(taskId)
+                .userId("alice")
+                .status("PROCESSING")
+                .progress(progress)
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package quantran.api.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import quantran.api.dto.AsyncTaskResponseDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs two nodes against an in-memory stand-in for the Redis channel: every published
+ * message is delivered to every subscribed bus, including the publisher's own.
+ */
+class TaskUpdateBusTest {
+
+    private static final String CHANNEL = "test:task-updates";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final List<TaskUpdateBus> subscribers = new ArrayList<>();
+
+    @Test
+    void updatePublishedOnOneNode_IsReceivedByTheOthersOnly() {
+        List<AsyncTaskResponseDto> receivedA = new ArrayList<>();
+        List<AsyncTaskResponseDto> receivedB = new ArrayList<>();
+        TaskUpdateBus nodeA = node(receivedA);
+        node(receivedB);
+
+        nodeA.publish(AsyncTaskResponseDto.builder()
+                .taskId("task-1")
+                .userId("alice")
+                .status("PROCESSING")
+                .progress(60)
+                .createdAt(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .build());
+
+        assertTrue(receivedA.isEmpty());
+        assertEquals(1, receivedB.size());
+        AsyncTaskResponseDto received = receivedB.get(0);
+        assertEquals("task-1", received.getTaskId());
+        assertEquals("alice", received.getUserId());
+        assertEquals(60, received.getProgress());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 12, 0), received.getCreatedAt());
+    }
+
+    @Test
+    void malformedMessage_IsIgnored() {
+        List<AsyncTaskResponseDto> received = new ArrayList<>();
+        TaskUpdateBus bus = node(received);
+
+        bus.onMessage(message("no separator"), null);
+        bus.onMessage(message("other-node\t{not json"), null);
+
+        assertTrue(received.isEmpty());
+    }
+
+    private TaskUpdateBus node(List<AsyncTaskResponseDto> received) {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> {
+            DefaultMessage message = message(invocation.getArgument(1));
+            for (TaskUpdateBus subscriber : subscribers) {
+                subscriber.onMessage(message, null);
+            }
+            return null;
+        }).when(redisTemplate).convertAndSend(eq(CHANNEL), anyString());
+
+        TaskUpdateBus bus = new TaskUpdateBus(redisTemplate, objectMapper, CHANNEL);
+        bus.subscribe(received::add);
+        subscribers.add(bus);
+        return bus;
+    }
+
+    private static DefaultMessage message(String payload) {
+        return new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), payload.getBytes(StandardCharsets.UTF_8));
+    }
+}